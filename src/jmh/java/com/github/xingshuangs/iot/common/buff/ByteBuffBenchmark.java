@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.common.buff;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the primitive access of ByteReadBuff and ByteWriteBuff, 8 bytes of every type per operation.
+ * (ByteReadBuff和ByteWriteBuff基本类型读写的基准测试，每次操作每种类型8个字节)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteBuffBenchmark {
+
+    @Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+    public String endian;
+
+    private boolean littleEndian;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        this.littleEndian = "LITTLE_ENDIAN".equals(this.endian);
+        this.data = new byte[64];
+        for (int i = 0; i < this.data.length; i++) {
+            this.data[i] = (byte) i;
+        }
+    }
+
+    @Benchmark
+    public void readSequential(Blackhole bh) {
+        ByteReadBuff buff = new ByteReadBuff(this.data, this.littleEndian);
+        for (int i = 0; i < 2; i++) {
+            bh.consume(buff.getUInt16());
+            bh.consume(buff.getInt16());
+            bh.consume(buff.getInt32());
+            bh.consume(buff.getFloat32());
+            bh.consume(buff.getInt64());
+            bh.consume(buff.getFloat64());
+        }
+    }
+
+    @Benchmark
+    public void readIndexed(Blackhole bh) {
+        ByteReadBuff buff = new ByteReadBuff(this.data, this.littleEndian);
+        for (int i = 0; i < 2; i++) {
+            int offset = i * 28;
+            bh.consume(buff.getUInt16(offset));
+            bh.consume(buff.getInt16(offset + 2));
+            bh.consume(buff.getInt32(offset + 4));
+            bh.consume(buff.getFloat32(offset + 8));
+            bh.consume(buff.getInt64(offset + 12));
+            bh.consume(buff.getFloat64(offset + 20));
+        }
+    }
+
+    @Benchmark
+    public byte[] write() {
+        ByteWriteBuff buff = new ByteWriteBuff(56, this.littleEndian);
+        for (int i = 0; i < 2; i++) {
+            buff.putShort(i)
+                    .putShort((short) -i)
+                    .putInteger(i)
+                    .putFloat(i)
+                    .putLong(i)
+                    .putDouble(i);
+        }
+        return buff.getData();
+    }
+}
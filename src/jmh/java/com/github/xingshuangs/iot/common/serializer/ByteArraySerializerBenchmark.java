@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.common.serializer;
+
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of converting byte array to bean and bean to byte array.
+ * (字节数组和对象相互转换的基准测试)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteArraySerializerBenchmark {
+
+    private ByteArraySerializer serializer;
+
+    private byte[] data;
+
+    private TagBean bean;
+
+    @Setup
+    public void setup() {
+        this.serializer = ByteArraySerializer.newInstance();
+        this.data = new byte[40];
+        for (int i = 0; i < this.data.length; i++) {
+            this.data[i] = (byte) (i + 0x30);
+        }
+        this.bean = this.serializer.toObject(TagBean.class, this.data);
+    }
+
+    @Benchmark
+    public TagBean toObject() {
+        return this.serializer.toObject(TagBean.class, this.data);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return this.serializer.toByteArray(this.bean);
+    }
+
+    @Data
+    public static class TagBean {
+
+        @ByteArrayVariable(byteOffset = 0, bitOffset = 0, count = 1, type = EDataType.BOOL)
+        private Boolean boolData;
+
+        @ByteArrayVariable(byteOffset = 1, count = 1, type = EDataType.BYTE)
+        private Byte byteData;
+
+        @ByteArrayVariable(byteOffset = 2, count = 1, type = EDataType.UINT16)
+        private Integer uint16Data;
+
+        @ByteArrayVariable(byteOffset = 4, count = 1, type = EDataType.INT32)
+        private Integer int32Data;
+
+        @ByteArrayVariable(byteOffset = 8, count = 1, type = EDataType.INT64)
+        private Long int64Data;
+
+        @ByteArrayVariable(byteOffset = 16, count = 1, type = EDataType.FLOAT32)
+        private Float float32Data;
+
+        @ByteArrayVariable(byteOffset = 20, count = 1, type = EDataType.FLOAT64)
+        private Double float64Data;
+
+        @ByteArrayVariable(byteOffset = 28, count = 12, type = EDataType.STRING)
+        private String stringData;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.model;
+
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of building the melsec request message.
+ * (构建三菱请求报文的基准测试)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class McMessageReqBenchmark {
+
+    private McDeviceAddress deviceAddress;
+
+    private McDeviceContent deviceContent;
+
+    private List<McDeviceAddress> wordAddresses;
+
+    private List<McDeviceAddress> dwordAddresses;
+
+    @Setup
+    public void setup() {
+        this.deviceAddress = new McDeviceAddress(EMcDeviceCode.D, 7000, 100);
+        this.deviceContent = McDeviceContent.createByAddress(new McDeviceAddress(EMcDeviceCode.D, 7000, 100), new byte[200]);
+        this.wordAddresses = new ArrayList<>();
+        this.dwordAddresses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            this.wordAddresses.add(new McDeviceAddress(EMcDeviceCode.D, 7000 + i * 10, 1));
+            this.dwordAddresses.add(new McDeviceAddress(EMcDeviceCode.D, 8000 + i * 10, 1));
+        }
+    }
+
+    @Benchmark
+    public byte[] readDeviceBatchInWord() {
+        return McReqBuilder.createReadDeviceBatchInWordReq(this.deviceAddress).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeDeviceBatchInWord() {
+        return McReqBuilder.createWriteDeviceBatchInWordReq(this.deviceContent).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] readDeviceRandomInWord() {
+        return McReqBuilder.createReadDeviceRandomInWordReq(this.wordAddresses, this.dwordAddresses).toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of modbus tcp request and response round-trip, read 10 holding registers.
+ * (Modbus TCP请求和响应往返的基准测试，读取10个保持寄存器)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MbTcpBenchmark {
+
+    private byte[] requestBytes;
+
+    private byte[] responseBytes;
+
+    @Setup
+    public void setup() {
+        this.requestBytes = new byte[]{
+                0x00, 0x01, 0x00, 0x00, 0x00, 0x06, 0x01,
+                0x03, 0x00, 0x00, 0x00, 0x0A
+        };
+        this.responseBytes = new byte[9 + 20];
+        byte[] head = new byte[]{0x00, 0x01, 0x00, 0x00, 0x00, 0x17, 0x01, 0x03, 0x14};
+        System.arraycopy(head, 0, this.responseBytes, 0, head.length);
+        for (int i = head.length; i < this.responseBytes.length; i++) {
+            this.responseBytes[i] = (byte) i;
+        }
+    }
+
+    @Benchmark
+    public byte[] requestRoundTrip() {
+        return MbTcpRequest.fromBytes(this.requestBytes).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] responseRoundTrip() {
+        return MbTcpResponse.fromBytes(this.responseBytes).toByteArray();
+    }
+}
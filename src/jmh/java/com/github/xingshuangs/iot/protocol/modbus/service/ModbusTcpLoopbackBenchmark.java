@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+import com.github.xingshuangs.iot.net.server.EServerEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback benchmark of ModbusTcp against the built-in ModbusTcpServer, reports throughput and latency percentiles,
+ * every benchmark thread has its own client, the concurrency is set by "-t", e.g.
+ * mvn -P jmh verify -Djmh.args="ModbusTcpLoopbackBenchmark -t 8 -p tagCount=50 -prof gc"
+ * (ModbusTcp与内置ModbusTcpServer的本机回环基准测试，输出吞吐量和延迟分位数，每个基准线程有自己的客户端，并发数由"-t"设置)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class ModbusTcpLoopbackBenchmark {
+
+    private static final int PORT = 10502;
+
+    /**
+     * Number of tags of every operation, one request per tag.
+     * (每次操作的点位数量，每个点位一次请求)
+     */
+    @Param({"1", "20"})
+    public int tagCount;
+
+    /**
+     * Byte size of every tag, 2 bytes per register.
+     * (每个点位的字节大小，每个寄存器2个字节)
+     */
+    @Param({"4", "200"})
+    public int payloadSize;
+
+    /**
+     * Server engine.
+     * (服务端引擎)
+     */
+    @Param({"BLOCKING", "SELECTOR"})
+    public EServerEngine engine;
+
+    private ModbusTcpServer server;
+
+    @Setup(Level.Trial)
+    public void startServer() {
+        this.server = new ModbusTcpServer(PORT, 10000);
+        // 并发连接数可能超过默认上限
+        this.server.setMaxConnections(1024);
+        this.server.setEngine(this.engine);
+        this.server.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        this.server.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private ModbusTcp modbusTcp;
+
+        private byte[] data;
+
+        @Setup(Level.Trial)
+        public void connect(ModbusTcpLoopbackBenchmark benchmark) {
+            this.modbusTcp = new ModbusTcp("127.0.0.1", PORT);
+            this.modbusTcp.connect();
+            this.data = new byte[benchmark.payloadSize];
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            this.modbusTcp.close();
+        }
+    }
+
+    @Benchmark
+    public void read(Client client, Blackhole bh) {
+        int quantity = this.payloadSize / 2;
+        for (int i = 0; i < this.tagCount; i++) {
+            bh.consume(client.modbusTcp.readHoldRegister(i * quantity, quantity));
+        }
+    }
+
+    @Benchmark
+    public void write(Client client) {
+        int quantity = this.payloadSize / 2;
+        for (int i = 0; i < this.tagCount; i++) {
+            client.modbusTcp.writeHoldRegister(i * quantity, client.data);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.rtp.service;
+
+import com.github.xingshuangs.iot.protocol.rtp.model.RtpPackage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of H264 video parser, every operation parses 10 frames, each frame is split into FU-A packages.
+ * (H264视频解析器的基准测试，每次操作解析10帧，每帧被拆分为多个FU-A包)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class H264VideoParserBenchmark {
+
+    private static final int PAYLOAD_TYPE = 96;
+
+    private static final int FRAME_COUNT = 10;
+
+    @Param({"4", "16"})
+    public int packagesPerFrame;
+
+    private final List<RtpPackage> packages = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        int sequenceNumber = 1;
+        for (int frame = 0; frame < FRAME_COUNT; frame++) {
+            // 第一帧为关键帧，其余为非关键帧
+            int naluType = frame == 0 ? 5 : 1;
+            for (int i = 0; i < this.packagesPerFrame; i++) {
+                boolean start = i == 0;
+                boolean end = i == this.packagesPerFrame - 1;
+                byte[] payload = new byte[1400];
+                payload[0] = 0x7C;
+                payload[1] = (byte) ((start ? 0x80 : 0x00) | (end ? 0x40 : 0x00) | naluType);
+                if (start) {
+                    // 切片头，first_mb_in_slice = 0，slice_type = 7(I) 或 5(P)
+                    payload[2] = naluType == 5 ? (byte) 0x88 : (byte) 0x9A;
+                }
+                this.packages.add(this.createRtpPackage(sequenceNumber++, 3600L * (frame + 1), end, payload));
+            }
+        }
+        // 解析器缓存5个包用于排序，补充AUD包将最后的数据推出
+        for (int i = 0; i < 5; i++) {
+            this.packages.add(this.createRtpPackage(sequenceNumber++, 3600L * (FRAME_COUNT + 1), false, new byte[]{0x09, (byte) 0xF0}));
+        }
+    }
+
+    private RtpPackage createRtpPackage(int sequenceNumber, long timestamp, boolean marker, byte[] payload) {
+        byte[] data = new byte[12 + payload.length];
+        data[0] = (byte) 0x80;
+        data[1] = (byte) ((marker ? 0x80 : 0x00) | PAYLOAD_TYPE);
+        data[2] = (byte) (sequenceNumber >> 8);
+        data[3] = (byte) sequenceNumber;
+        data[4] = (byte) (timestamp >> 24);
+        data[5] = (byte) (timestamp >> 16);
+        data[6] = (byte) (timestamp >> 8);
+        data[7] = (byte) timestamp;
+        data[11] = 0x01;
+        System.arraycopy(payload, 0, data, 12, payload.length);
+        return RtpPackage.fromBytes(data);
+    }
+
+    @Benchmark
+    public void processPackage(Blackhole bh) {
+        H264VideoParser parser = new H264VideoParser(PAYLOAD_TYPE);
+        parser.onFrameHandle(bh::consume);
+        for (RtpPackage rtp : this.packages) {
+            parser.processPackage(rtp);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.model;
+
+import com.github.xingshuangs.iot.protocol.s7.enums.EDataVariableType;
+import com.github.xingshuangs.iot.protocol.s7.utils.AddressUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of S7 data encoding and decoding, one read request with 10 items and its response.
+ * (S7数据编解码的基准测试，包含10个数据项的读请求及其响应)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class S7DataBenchmark {
+
+    private S7Data request;
+
+    private S7Data response;
+
+    private byte[] requestBytes;
+
+    private byte[] responseBytes;
+
+    @Setup
+    public void setup() {
+        List<RequestItem> requestItems = new ArrayList<>();
+        List<ReturnItem> dataItems = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requestItems.add(AddressUtil.parseByte("DB1." + i * 20, 20));
+            dataItems.add(DataItem.createAckBy(new byte[20], EDataVariableType.BYTE_WORD_DWORD));
+        }
+        this.request = S7Data.createReadRequest(requestItems);
+        this.response = S7Data.createReadWriteResponse(this.request, dataItems);
+        this.requestBytes = this.request.toByteArray();
+        this.responseBytes = this.response.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] requestToByteArray() {
+        return this.request.toByteArray();
+    }
+
+    @Benchmark
+    public S7Data requestFromBytes() {
+        return S7Data.fromBytes(this.requestBytes);
+    }
+
+    @Benchmark
+    public byte[] responseToByteArray() {
+        return this.response.toByteArray();
+    }
+
+    @Benchmark
+    public S7Data responseFromBytes() {
+        return S7Data.fromBytes(this.responseBytes);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.service;
+
+import com.github.xingshuangs.iot.net.server.EServerEngine;
+import com.github.xingshuangs.iot.protocol.s7.enums.EPlcType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback benchmark of S7PLC against the built-in S7PLCServer, reports throughput and latency percentiles,
+ * every benchmark thread has its own client, the concurrency is set by "-t", e.g.
+ * mvn -P jmh verify -Djmh.args="S7PLCLoopbackBenchmark -t 8 -p tagCount=50 -prof gc"
+ * (S7PLC与内置S7PLCServer的本机回环基准测试，输出吞吐量和延迟分位数，每个基准线程有自己的客户端，并发数由"-t"设置)
+ *
+ * @author xingshuang
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class S7PLCLoopbackBenchmark {
+
+    private static final int PORT = 10102;
+
+    /**
+     * Number of tags of every request.
+     * (每次请求的点位数量)
+     */
+    @Param({"1", "20"})
+    public int tagCount;
+
+    /**
+     * Byte size of every tag.
+     * (每个点位的字节大小)
+     */
+    @Param({"4", "200"})
+    public int payloadSize;
+
+    /**
+     * Server engine.
+     * (服务端引擎)
+     */
+    @Param({"BLOCKING", "SELECTOR"})
+    public EServerEngine engine;
+
+    private S7PLCServer server;
+
+    @Setup(Level.Trial)
+    public void startServer() {
+        this.server = new S7PLCServer(PORT);
+        this.server.setEngine(this.engine);
+        this.server.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        this.server.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private S7PLC s7PLC;
+
+        private MultiAddressRead addressRead;
+
+        private MultiAddressWrite addressWrite;
+
+        @Setup(Level.Trial)
+        public void connect(S7PLCLoopbackBenchmark benchmark) {
+            this.s7PLC = new S7PLC(EPlcType.S1200, "127.0.0.1", PORT);
+            this.s7PLC.connect();
+            this.addressRead = new MultiAddressRead();
+            this.addressWrite = new MultiAddressWrite();
+            // 点位之间留出间隔，避免被合并读取
+            for (int i = 0; i < benchmark.tagCount; i++) {
+                String address = "DB1." + i * (benchmark.payloadSize + 16);
+                this.addressRead.addData(address, benchmark.payloadSize);
+                this.addressWrite.addByte(address, new byte[benchmark.payloadSize]);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            this.s7PLC.close();
+        }
+    }
+
+    @Benchmark
+    public List<byte[]> read(Client client) {
+        return client.s7PLC.readMultiByte(client.addressRead);
+    }
+
+    @Benchmark
+    public void write(Client client) {
+        client.s7PLC.writeMultiData(client.addressWrite);
+    }
+}
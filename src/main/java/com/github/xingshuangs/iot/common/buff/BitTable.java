@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.common.buff;
+
+
+/**
+ * Bit table of the bit devices (e.g. modbus coils, discrete inputs or melsec bit devices), packed in long words, 64 points per word.
+ * (位软元件的数据表，如Modbus线圈、离散输入或三菱的位软元件，按long字紧凑存储，每个字64个点)
+ * 点位i存储在第i/64个字的第i%64位，与Modbus和MC报文的位顺序一致（低位在前），可按字节整段拷贝
+ *
+ * @author xingshuang
+ */
+public class BitTable {
+
+    /**
+     * Max size, the full 16-bit address space.
+     * (最大点数，完整的16位地址空间)
+     */
+    public static final int MAX_SIZE = 65536;
+
+    /**
+     * Packed words.
+     * (紧凑存储的字)
+     */
+    private final long[] words;
+
+    /**
+     * Number of points.
+     * (点数)
+     */
+    private final int size;
+
+    public BitTable(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("size < 1 || size > " + MAX_SIZE);
+        }
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the bit.
+     * (获取位值)
+     *
+     * @param index point index
+     * @return true, false
+     */
+    public boolean get(int index) {
+        this.checkRange(index, 1);
+        return (this.words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Set the bit.
+     * (设置位值)
+     *
+     * @param index point index
+     * @param value true, false
+     */
+    public void set(int index, boolean value) {
+        this.checkRange(index, 1);
+        if (value) {
+            this.words[index >>> 6] |= 1L << index;
+        } else {
+            this.words[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Copy the range of bits to the byte array in little-endian bit order, the first point is the lowest bit of the first byte.
+     * (按低位在前的顺序将一段位拷贝为字节数组，第一个点位于第一个字节的最低位)
+     *
+     * @param index    start point index
+     * @param quantity quantity of points
+     * @return byte array, length = (quantity + 7) / 8
+     */
+    public byte[] getBytes(int index, int quantity) {
+        this.checkRange(index, quantity);
+        byte[] res = new byte[(quantity + 7) >>> 3];
+        for (int i = 0; i < res.length; i++) {
+            int n = Math.min(8, quantity - (i << 3));
+            res[i] = (byte) (this.getBits(index + (i << 3)) & ((1 << n) - 1));
+        }
+        return res;
+    }
+
+    /**
+     * Copy the byte array in little-endian bit order to the range of bits.
+     * (将低位在前的字节数组拷贝到一段位中)
+     *
+     * @param index    start point index
+     * @param quantity quantity of points
+     * @param src      byte array, length &gt;= (quantity + 7) / 8
+     */
+    public void setBytes(int index, int quantity, byte[] src) {
+        this.checkRange(index, quantity);
+        if (src.length < ((quantity + 7) >>> 3)) {
+            throw new IllegalArgumentException("src length is not enough");
+        }
+        for (int i = 0; i < quantity; i += 8) {
+            this.setBits(index + i, Math.min(8, quantity - i), src[i >>> 3] & 0xFF);
+        }
+    }
+
+    /**
+     * Get 8 bits starting from the index, the bits out of range are 0.
+     * (获取从索引开始的8个位，超出范围的位为0)
+     *
+     * @param index start point index
+     * @return 8 bits in the low byte
+     */
+    private int getBits(int index) {
+        int word = index >>> 6;
+        int shift = index & 63;
+        long value = this.words[word] >>> shift;
+        if (shift > 56 && word + 1 < this.words.length) {
+            value |= this.words[word + 1] << (64 - shift);
+        }
+        return (int) (value & 0xFF);
+    }
+
+    /**
+     * Set n (n &lt;= 8) bits starting from the index.
+     * (设置从索引开始的n个位，n不超过8)
+     *
+     * @param index start point index
+     * @param n     number of bits
+     * @param bits  bits in the low byte
+     */
+    private void setBits(int index, int n, int bits) {
+        long mask = (1L << n) - 1;
+        long value = bits & mask;
+        int word = index >>> 6;
+        int shift = index & 63;
+        this.words[word] = (this.words[word] & ~(mask << shift)) | (value << shift);
+        if (shift + n > 64) {
+            int high = 64 - shift;
+            this.words[word + 1] = (this.words[word + 1] & ~(mask >>> high)) | (value >>> high);
+        }
+    }
+
+    /**
+     * Check the range.
+     * (校验范围)
+     *
+     * @param index    start point index
+     * @param quantity quantity of points
+     */
+    private void checkRange(int index, int quantity) {
+        if (index < 0 || quantity < 0 || index + quantity > this.size) {
+            throw new IndexOutOfBoundsException(String.format("index[%d], quantity[%d], size[%d]", index, quantity, this.size));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net;
+
+
+/**
+ * Frame decoder interface, find the length of the complete protocol frame in the received bytes without blocking.
+ * (帧解码接口，在已接收的字节中非阻塞地获取完整协议帧的长度)
+ *
+ * @author xingshuang
+ */
+@FunctionalInterface
+public interface IFrameDecoder {
+
+    /**
+     * Get the length of the frame at the head of the received bytes.
+     * (获取已接收字节头部帧的长度)
+     *
+     * @param data   byte array of the received bytes
+     * @param offset offset of the frame head
+     * @param length number of the received bytes from the offset
+     * @return frame length, -1: not enough bytes to know the length
+     */
+    int frameLength(byte[] data, int offset, int length);
+}
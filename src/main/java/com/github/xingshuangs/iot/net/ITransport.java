@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+
+/**
+ * Transport interface, the byte channel under the protocol framing, e.g. TCP, UDP or a serial line stream.
+ * (传输层接口，协议帧下层的字节通道，例如TCP、UDP或串口数据流)
+ *
+ * @author xingshuang
+ */
+public interface ITransport {
+
+    /**
+     * Open the transport, do nothing if opened.
+     * (打开传输通道，已打开则不做处理)
+     */
+    void connect();
+
+    /**
+     * Can the transport be connected again after close, the short connection needs it.
+     * (关闭后能否重新打开，短连接需要重新打开)
+     *
+     * @return true: reopenable, false: can not be reopened
+     */
+    default boolean isReopenable() {
+        return true;
+    }
+
+    /**
+     * Is the transport opened.
+     * (传输通道是否打开)
+     *
+     * @return true: opened, false: closed
+     */
+    boolean isConnected();
+
+    /**
+     * Close the transport.
+     * (关闭传输通道)
+     */
+    void close();
+
+    /**
+     * Write data by byte array.
+     * (写入数据)
+     *
+     * @param data byte array
+     */
+    void write(final byte[] data);
+
+    /**
+     * Read the available bytes, block until at least one byte arrives or timeout.
+     * (读取可用的字节，阻塞直到至少收到一个字节或超时)
+     *
+     * @param data    byte array
+     * @param offset  the start offset in the data
+     * @param length  the max number of bytes to read
+     * @param timeout timeout with ms, 0: no timeout
+     * @return the number of bytes read, 0: timeout
+     */
+    int read(final byte[] data, final int offset, final int length, final int timeout);
+
+    /**
+     * Read exactly the specified length of bytes, block until enough or timeout, e.g. the frame which length is known
+     * from its head.
+     * (读取指定长度的字节，阻塞直到足够或超时，例如根据头部可知长度的帧)
+     *
+     * @param data    byte array
+     * @param offset  the start offset in the data
+     * @param length  the number of bytes to read
+     * @param timeout timeout with ms of every read, 0: no timeout
+     * @throws SocketTimeoutException not enough bytes received within the timeout
+     */
+    default void readFully(final byte[] data, final int offset, final int length, final int timeout) {
+        int count = 0;
+        while (count < length) {
+            int num = this.read(data, offset + count, length - count, timeout);
+            if (num == 0) {
+                // 超时时间内未接收到足够的字节，期望长度，实际长度
+                throw new SocketTimeoutException(String.format("Not enough bytes received within %d ms, expect %d, actual %d",
+                        timeout, length, count));
+            }
+            count += num;
+        }
+    }
+
+    /**
+     * Discard the bytes received but not read, e.g. the late response of a timeout request.
+     * (丢弃已接收但未读取的字节，例如超时请求迟到的响应)
+     */
+    void discard();
+}
@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Future tool of the client requests, shared by the tcp and udp pipelines.
+ * (客户端请求的future工具，TCP和UDP流水线共用)
+ *
+ * @author xingshuang
+ */
+public class FutureUtil {
+
+    /**
+     * Shared timer for request timeout and retransmission, the cancelled tasks are removed from the queue at once,
+     * otherwise every completed request keeps its timeout task until the receive timeout.
+     * (请求超时和重发的共享定时器，取消的任务立即从队列中移除，否则每个已完成的请求都会保留超时任务直到接收超时)
+     */
+    private static final ScheduledExecutorService TIMER = createTimer();
+
+    private FutureUtil() {
+        // NOOP
+    }
+
+    private static ScheduledExecutorService createTimer() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "iot-client-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Wait for the future and unwrap the exception.
+     * (等待future并解开异常)
+     *
+     * @param future future
+     * @param <T>    result type
+     * @return result
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for all the futures, the wait ends at the first failure instead of waiting for the others.
+     * (等待所有future，任一失败时立即结束等待，不再等待其余的future)
+     *
+     * @param futures futures
+     */
+    public static void joinAll(List<? extends CompletableFuture<?>> futures) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        futures.forEach(x -> x.whenComplete((r, e) -> {
+            if (e != null) {
+                all.completeExceptionally(e);
+            }
+        }));
+        join(all);
+    }
+
+    /**
+     * Cancel the futures still in flight, so their window slots are released at once instead of at the receive
+     * timeout.
+     * (取消仍在进行中的future，从而立即释放其占用的窗口，而不是等到接收超时)
+     *
+     * @param futures futures
+     */
+    public static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+        futures.forEach(x -> x.cancel(false));
+    }
+
+    /**
+     * Cancel the source futures when the dependent future is cancelled, so the window slots of the requests are
+     * released at once.
+     * (依赖的future被取消时同时取消源future，从而立即释放请求占用的窗口)
+     *
+     * @param dependent dependent future, e.g. created by thenApply
+     * @param sources   source futures
+     * @param <T>       result type
+     * @return dependent future
+     */
+    public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> dependent, CompletableFuture<?>... sources) {
+        dependent.whenComplete((r, e) -> {
+            if (dependent.isCancelled()) {
+                for (CompletableFuture<?> source : sources) {
+                    source.cancel(false);
+                }
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Create a future completed with the exception.
+     * (创建以异常完成的future)
+     *
+     * @param ex  exception
+     * @param <T> result type
+     * @return failed future
+     */
+    public static <T> CompletableFuture<T> failed(Throwable ex) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(ex);
+        return future;
+    }
+
+    /**
+     * Register the request future by key, the future fails at once if the key is in flight, and it is removed when
+     * completed.
+     * (根据关键字登记请求的future，关键字正在进行中时future直接失败，完成后自动移除)
+     *
+     * @param pending pending futures
+     * @param key     match key of the request
+     * @param future  request future
+     * @param <K>     key type
+     * @param <V>     response type
+     * @return true: registered, false: the key is in flight
+     */
+    static <K, V> boolean register(Map<K, CompletableFuture<V>> pending, K key, CompletableFuture<V> future) {
+        if (pending.putIfAbsent(key, future) != null) {
+            // 关键字[%s]的请求正在进行中
+            future.completeExceptionally(new SocketRuntimeException(String.format("The request with key [%s] is already in flight", key)));
+            return false;
+        }
+        future.whenComplete((r, e) -> pending.remove(key, future));
+        return true;
+    }
+
+    /**
+     * Fail the future with SocketTimeoutException after the timeout, the timer task is cancelled once the future is
+     * completed.
+     * (超时后以SocketTimeoutException结束future，future完成后取消定时任务)
+     *
+     * @param future  future
+     * @param timeout timeout with ms, 0: no timeout
+     * @param message supply the timeout message
+     */
+    static void timeout(CompletableFuture<?> future, int timeout, Supplier<String> message) {
+        if (timeout <= 0 || future.isDone()) {
+            return;
+        }
+        ScheduledFuture<?> task = TIMER.schedule(() -> future.completeExceptionally(new SocketTimeoutException(message.get())),
+                timeout, TimeUnit.MILLISECONDS);
+        future.whenComplete((r, e) -> task.cancel(false));
+    }
+
+    /**
+     * Run the task every interval until the future is completed.
+     * (每隔一个间隔执行一次任务，直到future完成)
+     *
+     * @param future   future
+     * @param interval interval with ms
+     * @param task     task
+     */
+    static void repeat(CompletableFuture<?> future, int interval, Runnable task) {
+        ScheduledFuture<?> scheduled = TIMER.scheduleAtFixedRate(() -> {
+            if (!future.isDone()) {
+                task.run();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        future.whenComplete((r, e) -> scheduled.cancel(false));
+    }
+}
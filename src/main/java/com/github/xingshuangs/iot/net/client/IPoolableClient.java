@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import java.net.InetSocketAddress;
+
+/**
+ * Client interface of the connection pool, the client to one tcp endpoint.
+ * (连接池客户端接口，连接到一个TCP端点的客户端)
+ *
+ * @author xingshuang
+ */
+public interface IPoolableClient {
+
+    /**
+     * Get the socket address of the endpoint.
+     * (获取端点的socket地址)
+     *
+     * @return socket address
+     */
+    InetSocketAddress getSocketAddress();
+
+    /**
+     * Has the connection been opened, the client never used is not broken.
+     * (连接是否打开过，从未使用的客户端不算断开)
+     *
+     * @return true: opened, false: never opened
+     */
+    boolean isOpened();
+
+    /**
+     * Check connected state.
+     * (校验连接状态)
+     *
+     * @return true: connected, false: disconnected
+     */
+    boolean checkConnected();
+
+    /**
+     * Close the connection.
+     * (关闭连接)
+     */
+    void close();
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Window of the outstanding requests of a pipeline.
+ * (流水线中未完成请求的窗口)
+ *
+ * @author xingshuang
+ */
+final class RequestWindow {
+
+    /**
+     * Maximum number of outstanding requests.
+     * (最大的未完成请求数量)
+     */
+    private int windowSize;
+
+    /**
+     * Number of outstanding requests.
+     * (未完成请求的数量)
+     */
+    private int inFlight;
+
+    private final ReentrantLock locker = new ReentrantLock();
+
+    /**
+     * Condition of the window is not full.
+     * (窗口未满的条件)
+     */
+    private final Condition notFull = this.locker.newCondition();
+
+    RequestWindow(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize<=0");
+        }
+        this.windowSize = windowSize;
+    }
+
+    int getWindowSize() {
+        return this.windowSize;
+    }
+
+    void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize<=0");
+        }
+        try {
+            this.locker.lock();
+            this.windowSize = windowSize;
+            this.notFull.signalAll();
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    int getInFlight() {
+        try {
+            this.locker.lock();
+            return this.inFlight;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Acquire one free slot of the window.
+     * (获取一个窗口空位)
+     *
+     * @param timeout timeout with ms, 0: no timeout
+     * @throws SocketTimeoutException Socket Timeout Exception, no free window in time
+     */
+    void acquire(int timeout) {
+        try {
+            this.locker.lock();
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (this.inFlight >= this.windowSize) {
+                if (timeout <= 0) {
+                    this.notFull.await();
+                } else if (nanos <= 0) {
+                    // 等待空闲窗口超时
+                    throw new SocketTimeoutException(String.format("Wait for the free window timeout, window size[%d]", this.windowSize));
+                } else {
+                    nanos = this.notFull.awaitNanos(nanos);
+                }
+            }
+            this.inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SocketRuntimeException(e);
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Acquire one free slot and create the request future, the slot is released when the future is completed.
+     * (获取一个窗口空位并创建请求的future，future完成时释放窗口)
+     *
+     * @param timeout timeout with ms, 0: no timeout
+     * @param <T>     result type
+     * @return request future
+     * @throws SocketTimeoutException Socket Timeout Exception, no free window in time
+     */
+    <T> CompletableFuture<T> newRequest(int timeout) {
+        this.acquire(timeout);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((r, e) -> this.release());
+        return future;
+    }
+
+    /**
+     * Release one slot of the window.
+     * (释放一个窗口位置)
+     */
+    void release() {
+        try {
+            this.locker.lock();
+            this.inFlight--;
+            this.notFull.signal();
+        } finally {
+            this.locker.unlock();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.net.ITransport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream pair transport, e.g. a serial device or a pseudo-terminal opened as files, a reader thread pumps the input
+ * stream so that the read can time out.
+ * (数据流对传输通道，例如以文件方式打开的串口设备或伪终端，由读取线程搬运输入流，从而使读取支持超时)
+ * 串口的波特率、校验位等参数需要在外部配置，例如 stty -F /dev/ttyUSB0 9600 raw -echo
+ * 通过open(devicePath)打开的设备关闭后可重新打开，直接传入的数据流关闭后无法重新打开
+ * 设备以可中断的文件通道打开，关闭时阻塞在读取中的线程立即退出，不会抢走重新打开后的数据
+ *
+ * @author xingshuang
+ */
+@Slf4j
+public class StreamTransport implements ITransport {
+
+    /**
+     * End of stream marker.
+     * (流结束标记)
+     */
+    private static final byte[] EOF = new byte[0];
+
+    /**
+     * Device path, used to reopen the device, null: the streams can not be reopened.
+     * (设备路径，用于重新打开设备，null：数据流无法重新打开)
+     */
+    private final String devicePath;
+
+    private InputStream in;
+
+    private OutputStream out;
+
+    /**
+     * Chunks received by the reader thread, a new queue for every opening.
+     * (读取线程接收到的数据块，每次打开使用新的队列)
+     */
+    private volatile BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+    /**
+     * Chunk partially read.
+     * (未读完的数据块)
+     */
+    private byte[] current;
+
+    private int currentOffset;
+
+    private volatile boolean closed;
+
+    private Thread readerThread;
+
+    public StreamTransport(InputStream in, OutputStream out) {
+        this(null, in, out);
+    }
+
+    private StreamTransport(String devicePath, InputStream in, OutputStream out) {
+        this.devicePath = devicePath;
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Open the device as the stream pair, e.g. /dev/ttyUSB0 or /dev/pts/3.
+     * (以数据流对方式打开设备，例如/dev/ttyUSB0或/dev/pts/3)
+     *
+     * @param devicePath device path
+     * @return stream transport
+     * @throws SocketRuntimeException Socket Runtime Exception
+     */
+    public static StreamTransport open(String devicePath) {
+        StreamTransport transport = new StreamTransport(devicePath, null, null);
+        transport.openDevice();
+        return transport;
+    }
+
+    @Override
+    public boolean isReopenable() {
+        return this.devicePath != null;
+    }
+
+    @Override
+    public synchronized void connect() {
+        if (this.closed) {
+            this.reopen();
+        }
+        if (this.readerThread != null) {
+            return;
+        }
+        InputStream input = this.in;
+        BlockingQueue<byte[]> queue = this.chunks;
+        this.readerThread = new Thread(() -> this.pump(input, queue), "iot-stream-reader");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+    }
+
+    /**
+     * Reopen the device after close, the late data of the last opening is dropped with the old queue.
+     * (关闭后重新打开设备，上次打开时迟到的数据随旧队列丢弃)
+     *
+     * @throws SocketRuntimeException Socket Runtime Exception
+     */
+    private void reopen() {
+        if (this.devicePath == null) {
+            // 数据流已关闭，无法重新打开
+            throw new SocketRuntimeException("The stream is closed and can not be reopened");
+        }
+        this.openDevice();
+        this.chunks = new LinkedBlockingQueue<>();
+        this.current = null;
+        this.readerThread = null;
+        this.closed = false;
+    }
+
+    /**
+     * Open the device by the interruptible file channels, closing the channel wakes up the reader thread blocked in
+     * read, a plain FileInputStream of a tty keeps it blocked.
+     * (以可中断的文件通道打开设备，关闭通道时唤醒阻塞在读取中的线程，tty的FileInputStream无法唤醒)
+     *
+     * @throws SocketRuntimeException Socket Runtime Exception
+     */
+    private void openDevice() {
+        FileChannel input = null;
+        try {
+            input = FileChannel.open(Paths.get(this.devicePath), StandardOpenOption.READ);
+            FileChannel output = FileChannel.open(Paths.get(this.devicePath), StandardOpenOption.WRITE);
+            this.in = Channels.newInputStream(input);
+            this.out = Channels.newOutputStream(output);
+        } catch (IOException e) {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ex) {
+                    // NOOP
+                }
+            }
+            throw new SocketRuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.readerThread != null && !this.closed;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.in.close();
+        } catch (IOException e) {
+            // NOOP
+        }
+        try {
+            this.out.close();
+        } catch (IOException e) {
+            // NOOP
+        }
+        this.chunks.add(EOF);
+    }
+
+    @Override
+    public void write(byte[] data) {
+        this.connect();
+        try {
+            this.out.write(data);
+            this.out.flush();
+        } catch (IOException e) {
+            throw new SocketRuntimeException(e);
+        }
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length, int timeout) {
+        this.connect();
+        if (this.current == null) {
+            try {
+                this.current = timeout > 0 ? this.chunks.poll(timeout, TimeUnit.MILLISECONDS) : this.chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SocketRuntimeException(e);
+            }
+            if (this.current == null) {
+                return 0;
+            }
+            if (this.current == EOF) {
+                // 保留结束标记，后续读取依然失败
+                this.current = null;
+                this.chunks.add(EOF);
+                throw new SocketRuntimeException("The end of the stream has been reached, and disconnected");
+            }
+            this.currentOffset = 0;
+        }
+        int count = Math.min(length, this.current.length - this.currentOffset);
+        System.arraycopy(this.current, this.currentOffset, data, offset, count);
+        this.currentOffset += count;
+        if (this.currentOffset == this.current.length) {
+            this.current = null;
+        }
+        return count;
+    }
+
+    @Override
+    public void discard() {
+        this.current = null;
+        byte[] chunk;
+        while ((chunk = this.chunks.peek()) != null && chunk != EOF) {
+            this.chunks.poll();
+        }
+    }
+
+    /**
+     * Pump the input stream into the chunks until the end of stream, the input stream and the queue belong to one
+     * opening.
+     * (搬运输入流数据，直到流结束，输入流和队列属于同一次打开)
+     *
+     * @param input input stream
+     * @param queue chunk queue
+     */
+    private void pump(InputStream input, BlockingQueue<byte[]> queue) {
+        byte[] buffer = new byte[1024];
+        try {
+            int count;
+            while (queue == this.chunks && !this.closed && (count = input.read(buffer)) >= 0) {
+                if (count > 0) {
+                    queue.add(Arrays.copyOf(buffer, count));
+                }
+            }
+        } catch (IOException e) {
+            if (queue == this.chunks && !this.closed) {
+                log.error(e.getMessage());
+            }
+        }
+        queue.add(EOF);
+    }
+}
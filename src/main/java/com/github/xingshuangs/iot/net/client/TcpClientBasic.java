@@ -43,7 +43,7 @@ import static com.github.xingshuangs.iot.common.constant.GeneralConst.LOCALHOST;
  * @author xingshuang
  */
 @Slf4j
-public class TcpClientBasic implements ICommunicable {
+public class TcpClientBasic implements ICommunicable, IPoolableClient {
 
     // region 私有对象
 
@@ -88,6 +88,7 @@ public class TcpClientBasic implements ICommunicable {
      */
     protected boolean enableReconnect = true;
 
+    @Override
     public InetSocketAddress getSocketAddress() {
         return socketAddress;
     }
@@ -137,10 +138,16 @@ public class TcpClientBasic implements ICommunicable {
      *
      * @return connected state，true: connected，false: disconnected.
      */
+    @Override
     public boolean checkConnected() {
         return !this.socketError.get() && SocketUtils.isConnected(this.socket);
     }
 
+    @Override
+    public boolean isOpened() {
+        return this.socket != null;
+    }
+
     /**
      * Connect server.
      * (连接)
@@ -0,0 +1,503 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.IFrameDecoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Pipelined request dispatcher over one non-blocking tcp connection, keeps several requests in flight and matches
+ * the responses by key. The connection is driven by the shared reactor thread, no thread is blocked per connection,
+ * and the calling thread never blocks, the requests beyond the window wait in a queue.
+ * (基于非阻塞TCP连接的流水线请求分发器，单个连接上同时保持多个未完成请求，根据关键字匹配响应；连接由共享的反应器线程驱动，
+ * 不为每个连接阻塞一个线程，调用线程也不会阻塞，超出窗口的请求在队列中等待)
+ * 响应的future在反应器线程上完成，其回调中不能执行阻塞操作，例如同步读写
+ *
+ * @param <K> the key type used to match request and response, e.g. transaction id
+ * @author xingshuang
+ */
+@Slf4j
+public class TcpClientChannel<K> {
+
+    /**
+     * Initial size of the read buffer, it grows with the frame.
+     * (读缓冲区的初始大小，随帧长度增长)
+     */
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private final TcpClientReactor reactor = TcpClientReactor.shared();
+
+    /**
+     * Server address.
+     * (服务端地址)
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * Connect timeout with ms.
+     * (连接超时时间)
+     */
+    private final int connectTimeout;
+
+    /**
+     * Get the frame length from the received bytes.
+     * (从已接收的字节中获取帧长度)
+     */
+    private final IFrameDecoder frameDecoder;
+
+    /**
+     * Extract the match key from the response frame.
+     * (从响应帧中提取匹配的关键字)
+     */
+    private final Function<byte[], K> keyExtractor;
+
+    /**
+     * Maximum number of outstanding requests.
+     * (最大的未完成请求数量)
+     */
+    private volatile int windowSize;
+
+    /**
+     * Number of the requests in flight, written by the reactor thread.
+     * (正在进行中的请求数量，由反应器线程写入)
+     */
+    private volatile int inFlight;
+
+    /**
+     * Connected state, written by the reactor thread.
+     * (连接状态，由反应器线程写入)
+     */
+    private volatile boolean connected;
+
+    // 以下字段只在反应器线程上访问
+
+    private SocketChannel channel;
+
+    private SelectionKey selectionKey;
+
+    /**
+     * Future of the connect in progress.
+     * (正在进行的连接的future)
+     */
+    private CompletableFuture<Void> connecting;
+
+    /**
+     * Requests waiting for a free window or the connection.
+     * (等待空闲窗口或连接的请求)
+     */
+    private final Queue<Request<K>> waiting = new ArrayDeque<>();
+
+    /**
+     * Requests in flight by key.
+     * (根据关键字登记的进行中的请求)
+     */
+    private final Map<K, Request<K>> pending = new HashMap<>();
+
+    /**
+     * Bytes waiting to be written.
+     * (等待写入的字节)
+     */
+    private final Queue<ByteBuffer> writes = new ArrayDeque<>();
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    public TcpClientChannel(InetSocketAddress address, int connectTimeout, int windowSize,
+                            IFrameDecoder frameDecoder, Function<byte[], K> keyExtractor) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize<=0");
+        }
+        this.address = address;
+        this.connectTimeout = connectTimeout;
+        this.windowSize = windowSize;
+        this.frameDecoder = frameDecoder;
+        this.keyExtractor = keyExtractor;
+    }
+
+    public int getWindowSize() {
+        return this.windowSize;
+    }
+
+    /**
+     * Set the maximum number of outstanding requests.
+     * (设置最大的未完成请求数量)
+     *
+     * @param windowSize window size
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize<=0");
+        }
+        this.windowSize = windowSize;
+        this.reactor.execute(this::dispatch);
+    }
+
+    /**
+     * Get the number of requests in flight.
+     * (获取正在进行中的请求数量)
+     *
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        return this.inFlight;
+    }
+
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * Connect the server, the future is completed when connected or failed.
+     * (连接服务端，连接成功或失败时完成future)
+     *
+     * @return future of the connection
+     */
+    public CompletableFuture<Void> connect() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        this.reactor.execute(() -> {
+            if (this.channel == null) {
+                this.open();
+            }
+            if (this.connected) {
+                future.complete(null);
+            } else {
+                this.connecting.whenComplete((r, e) -> {
+                    if (e == null) {
+                        future.complete(null);
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Send request and return at once, the connection is opened when absent, the timeout covers the wait for a free
+     * window, cancel the future to release the window slot at once.
+     * (发送请求后立即返回，连接不存在时自动打开，超时时间包含等待空闲窗口的时间，取消future可立即释放窗口)
+     *
+     * @param key     match key of the request
+     * @param data    byte array of request
+     * @param timeout timeout with ms, 0: no timeout
+     * @return future of the response
+     */
+    public CompletableFuture<byte[]> sendAsync(K key, byte[] data, int timeout) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        Request<K> request = new Request<>(key, data, future);
+        FutureUtil.timeout(future, timeout,
+                () -> String.format("Wait for the response timeout, key[%s], timeout[%d]ms", key, timeout));
+        future.whenComplete((r, e) -> this.reactor.execute(() -> this.release(request)));
+        this.reactor.execute(() -> {
+            if (!future.isDone()) {
+                this.waiting.add(request);
+                this.dispatch();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Close the connection, all the requests in flight and waiting fail.
+     * (关闭连接，所有进行中和等待中的请求失败)
+     */
+    public void close() {
+        this.reactor.execute(() -> this.disconnect(new SocketRuntimeException("The channel is closed"), true));
+    }
+
+    /**
+     * Handle the ready operations of the selection key, called by the reactor thread.
+     * (处理选择键就绪的操作，由反应器线程调用)
+     *
+     * @param key selection key
+     */
+    void handle(SelectionKey key) {
+        if (key != this.selectionKey || !key.isValid()) {
+            return;
+        }
+        if (key.isConnectable()) {
+            this.finishConnect();
+            return;
+        }
+        if (key.isReadable()) {
+            this.read();
+        }
+        if (key == this.selectionKey && key.isValid() && key.isWritable()) {
+            this.flush();
+        }
+    }
+
+    private void open() {
+        this.connecting = new CompletableFuture<>();
+        try {
+            this.channel = SocketChannel.open();
+            this.channel.configureBlocking(false);
+            this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            boolean done = this.channel.connect(this.address);
+            this.selectionKey = this.channel.register(this.reactor.getSelector(), done ? 0 : SelectionKey.OP_CONNECT, this);
+            if (done) {
+                this.onConnected();
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            this.disconnect(e, true);
+            return;
+        }
+        CompletableFuture<Void> current = this.connecting;
+        FutureUtil.timeout(current, this.connectTimeout,
+                () -> String.format("Connect timeout, remote address[%s], timeout[%d]ms", this.address, this.connectTimeout));
+        current.whenComplete((r, e) -> {
+            if (e instanceof SocketTimeoutException) {
+                this.reactor.execute(() -> {
+                    if (this.connecting == current && !this.connected) {
+                        this.disconnect(e, true);
+                    }
+                });
+            }
+        });
+    }
+
+    private void finishConnect() {
+        try {
+            this.channel.finishConnect();
+        } catch (IOException e) {
+            this.disconnect(e, true);
+            return;
+        }
+        this.onConnected();
+    }
+
+    private void onConnected() {
+        this.connected = true;
+        this.selectionKey.interestOps(SelectionKey.OP_READ);
+        log.debug("Client channel connected, remote address[{}]", this.address);
+        this.connecting.complete(null);
+        this.dispatch();
+    }
+
+    /**
+     * Move the waiting requests into the window and write them, open the connection when absent.
+     * (将等待的请求移入窗口并写出，连接不存在时打开连接)
+     */
+    private void dispatch() {
+        if (this.waiting.isEmpty()) {
+            return;
+        }
+        if (this.channel == null) {
+            this.open();
+            return;
+        }
+        if (!this.connected) {
+            return;
+        }
+        while (this.pending.size() < this.windowSize && !this.waiting.isEmpty()) {
+            Request<K> request = this.waiting.poll();
+            if (request.future.isDone()) {
+                continue;
+            }
+            if (this.pending.containsKey(request.key)) {
+                // 关键字[%s]的请求正在进行中
+                request.future.completeExceptionally(new SocketRuntimeException(
+                        String.format("The request with key [%s] is already in flight", request.key)));
+                continue;
+            }
+            this.pending.put(request.key, request);
+            this.writes.add(ByteBuffer.wrap(request.data));
+        }
+        this.inFlight = this.pending.size();
+        this.flush();
+    }
+
+    /**
+     * Release the window slot of the completed request, e.g. timeout or cancelled.
+     * (释放已完成请求的窗口，例如超时或被取消)
+     *
+     * @param request completed request
+     */
+    private void release(Request<K> request) {
+        if (this.pending.get(request.key) == request) {
+            this.pending.remove(request.key);
+            this.inFlight = this.pending.size();
+        } else {
+            this.waiting.remove(request);
+        }
+        this.dispatch();
+    }
+
+    private void flush() {
+        if (this.channel == null || !this.connected) {
+            return;
+        }
+        try {
+            while (!this.writes.isEmpty()) {
+                ByteBuffer buffer = this.writes.peek();
+                this.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                this.writes.poll();
+            }
+            this.selectionKey.interestOps(this.writes.isEmpty() ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            this.disconnect(e, false);
+        }
+    }
+
+    private void read() {
+        int num;
+        try {
+            num = this.channel.read(this.readBuffer);
+        } catch (IOException e) {
+            this.disconnect(e, false);
+            return;
+        }
+        if (num < 0) {
+            // 服务端关闭了连接
+            this.disconnect(new SocketRuntimeException("The connection is closed by the server"), false);
+            return;
+        }
+        this.readBuffer.flip();
+        int frameLength;
+        while (true) {
+            frameLength = this.frameDecoder.frameLength(this.readBuffer.array(), this.readBuffer.position(),
+                    this.readBuffer.remaining());
+            if (frameLength < 0 || frameLength > this.readBuffer.remaining()) {
+                break;
+            }
+            if (frameLength == 0) {
+                // 帧长度无效
+                this.disconnect(new SocketRuntimeException("The frame length is invalid"), false);
+                return;
+            }
+            byte[] frame = new byte[frameLength];
+            this.readBuffer.get(frame);
+            this.onFrame(frame);
+        }
+        this.readBuffer.compact();
+        if (frameLength > this.readBuffer.capacity()) {
+            ByteBuffer buffer = ByteBuffer.allocate(frameLength);
+            this.readBuffer.flip();
+            buffer.put(this.readBuffer);
+            this.readBuffer = buffer;
+        }
+    }
+
+    private void onFrame(byte[] frame) {
+        K key;
+        try {
+            key = this.keyExtractor.apply(frame);
+        } catch (RuntimeException e) {
+            // 无法从响应中解析关键字，丢弃
+            log.error("Unable to extract the key from the response, discard it, {}", e.getMessage());
+            return;
+        }
+        Request<K> request = this.pending.remove(key);
+        if (request == null) {
+            // 响应没有对应的请求，可能已超时，丢弃
+            log.warn("No request matches the response with key[{}], maybe timeout, discard it", key);
+            return;
+        }
+        this.inFlight = this.pending.size();
+        request.future.complete(frame);
+    }
+
+    /**
+     * Close the connection and fail the requests in flight, the waiting requests open a new connection unless they
+     * fail too.
+     * (关闭连接并使进行中的请求失败，等待中的请求会打开新的连接，除非它们也一同失败)
+     *
+     * @param cause       cause
+     * @param failWaiting fail the waiting requests or not
+     */
+    private void disconnect(Throwable cause, boolean failWaiting) {
+        if (this.channel != null) {
+            log.debug("Client channel disconnected, remote address[{}], {}", this.address, cause.getMessage());
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                // NOOP
+            }
+        }
+        this.channel = null;
+        this.selectionKey = null;
+        this.connected = false;
+        this.writes.clear();
+        this.readBuffer.clear();
+        RuntimeException ex = cause instanceof RuntimeException ? (RuntimeException) cause
+                : new SocketRuntimeException(cause.getMessage(), cause);
+        if (this.connecting != null) {
+            this.connecting.completeExceptionally(ex);
+        }
+        List<Request<K>> failed = new ArrayList<>(this.pending.values());
+        this.pending.clear();
+        this.inFlight = 0;
+        if (failWaiting) {
+            failed.addAll(this.waiting);
+            this.waiting.clear();
+        }
+        failed.forEach(x -> x.future.completeExceptionally(ex));
+        this.dispatch();
+    }
+
+    /**
+     * Request waiting or in flight.
+     * (等待中或进行中的请求)
+     *
+     * @param <K> key type
+     */
+    private static class Request<K> {
+
+        private final K key;
+
+        private final byte[] data;
+
+        private final CompletableFuture<byte[]> future;
+
+        private Request(K key, byte[] data, CompletableFuture<byte[]> future) {
+            this.key = key;
+            this.data = data;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.IFrameReader;
+import com.github.xingshuangs.iot.net.SocketUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Pipelined request dispatcher over one tcp connection, keeps several requests in flight and matches the
+ * responses by key on a dedicated reader thread.
+ * (TCP流水线请求分发器，单个连接上同时保持多个未完成请求，由独立的读取线程根据关键字匹配响应)
+ *
+ * @param <K> the key type used to match request and response, e.g. pdu reference, transaction id
+ * @author xingshuang
+ */
+@Slf4j
+public class TcpClientPipeline<K> {
+
+    /**
+     * Tcp client, supply the socket and the handshake.
+     * (TCP客户端，提供socket和握手)
+     */
+    private final TcpClientBasic client;
+
+    /**
+     * Window of outstanding requests, can be changed after the handshake.
+     * (未完成请求的窗口，握手之后可调整)
+     */
+    private final RequestWindow window;
+
+    /**
+     * Read one complete frame from socket.
+     * (帧读取器)
+     */
+    private final IFrameReader frameReader;
+
+    /**
+     * Extract the match key from the response frame.
+     * (从响应帧中提取匹配的关键字)
+     */
+    private final Function<byte[], K> keyExtractor;
+
+    /**
+     * Write locker.
+     * (写锁)
+     */
+    private final ReentrantLock locker = new ReentrantLock();
+
+    /**
+     * Current session, bound to one socket.
+     * (当前会话，与socket绑定)
+     */
+    private Session<K> session;
+
+    public TcpClientPipeline(TcpClientBasic client, int windowSize, IFrameReader frameReader, Function<byte[], K> keyExtractor) {
+        this.client = client;
+        this.window = new RequestWindow(windowSize);
+        this.frameReader = frameReader;
+        this.keyExtractor = keyExtractor;
+    }
+
+    public int getWindowSize() {
+        return this.window.getWindowSize();
+    }
+
+    /**
+     * Set the maximum number of outstanding requests, e.g. the value negotiated in the handshake.
+     * (设置最大的未完成请求数量，例如握手协商的值)
+     *
+     * @param windowSize window size
+     */
+    public void setWindowSize(int windowSize) {
+        this.window.setWindowSize(windowSize);
+    }
+
+    /**
+     * Get the number of requests in flight.
+     * (获取正在进行中的请求数量)
+     *
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        return this.window.getInFlight();
+    }
+
+    /**
+     * Send request and wait for the response, timeout is the receive timeout of the client.
+     * (发送请求并等待响应，超时时间为客户端的接收超时时间)
+     *
+     * @param key  match key of the request
+     * @param data byte array of request
+     * @return byte array of response
+     * @throws SocketRuntimeException Socket Runtime Exception
+     * @throws SocketTimeoutException Socket Timeout Exception
+     */
+    public byte[] send(K key, byte[] data) {
+        return FutureUtil.join(this.sendAsync(key, data, this.client.getReceiveTimeout()));
+    }
+
+    /**
+     * Send request and return at once, the future is completed by the reader thread, the calling thread still blocks
+     * while waiting for a free window and writing the socket.
+     * (发送请求后立即返回，future由读取线程完成，调用线程在等待空闲窗口和写socket时仍会阻塞)
+     *
+     * @param key     match key of the request
+     * @param data    byte array of request
+     * @param timeout timeout with ms, 0: no timeout
+     * @return future of the response
+     * @throws SocketTimeoutException Socket Timeout Exception, no free window in time
+     */
+    public CompletableFuture<byte[]> sendAsync(K key, byte[] data, int timeout) {
+        CompletableFuture<byte[]> future = this.window.newRequest(timeout);
+        try {
+            this.locker.lock();
+            Session<K> current = this.getAvailableSession();
+            if (!FutureUtil.register(current.pending, key, future)) {
+                return future;
+            }
+            if (!current.alive) {
+                // 读取线程已结束，连接断开
+                future.completeExceptionally(new SocketRuntimeException("The reader thread is terminated, and disconnected"));
+                return future;
+            }
+            SocketUtils.write(current.socket, data);
+        } catch (IOException e) {
+            this.client.socketError.set(true);
+            future.completeExceptionally(new SocketRuntimeException(e));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            this.locker.unlock();
+        }
+        FutureUtil.timeout(future, timeout,
+                () -> String.format("Wait for the response timeout, key[%s], timeout[%d]ms", key, timeout));
+        return future;
+    }
+
+    /**
+     * Get available session, reconnect and start a new reader thread when the socket changed.
+     * (获取有效的会话，socket变化后重新启动读取线程)
+     *
+     * @return session
+     */
+    private Session<K> getAvailableSession() {
+        Socket socket = this.client.getAvailableSocket();
+        if (this.session == null || this.session.socket != socket || !this.session.alive) {
+            if (this.session != null && this.session.socket == socket) {
+                // 读取线程结束但是socket没有变化，需要重新连接
+                this.client.socketError.set(true);
+                socket = this.client.getAvailableSocket();
+            }
+            Session<K> newSession = new Session<>(socket);
+            Thread thread = new Thread(() -> this.waitForReceiveData(newSession), "iot-pipeline-reader");
+            thread.setDaemon(true);
+            thread.start();
+            this.session = newSession;
+        }
+        return this.session;
+    }
+
+    /**
+     * Receive data thread handler.
+     * (接收数据线程)
+     *
+     * @param current session
+     */
+    private void waitForReceiveData(Session<K> current) {
+        // 开启流水线接收线程
+        log.debug("Open pipeline reader thread, remote address[{}]", current.socket.getRemoteSocketAddress());
+        Exception cause = null;
+        try {
+            while (SocketUtils.isConnected(current.socket)) {
+                byte[] frame = this.frameReader.read(current.socket);
+                K key;
+                try {
+                    key = this.keyExtractor.apply(frame);
+                } catch (RuntimeException e) {
+                    // 无法从响应中解析关键字，丢弃
+                    log.error("Unable to extract the key from the response, discard it, {}", e.getMessage());
+                    continue;
+                }
+                CompletableFuture<byte[]> future = current.pending.remove(key);
+                if (future == null) {
+                    // 响应没有对应的请求，可能已超时，丢弃
+                    log.warn("No request matches the response with key[{}], maybe timeout, discard it", key);
+                    continue;
+                }
+                future.complete(frame);
+            }
+        } catch (Exception e) {
+            cause = e;
+            if (current.socket == this.client.socket) {
+                this.client.socketError.set(true);
+            }
+        } finally {
+            current.alive = false;
+            SocketRuntimeException ex = cause == null ? new SocketRuntimeException("The pipeline is disconnected")
+                    : new SocketRuntimeException(cause.getMessage(), cause);
+            current.pending.values().forEach(x -> x.completeExceptionally(ex));
+            current.pending.clear();
+        }
+        // 关闭流水线接收线程
+        log.debug("Close pipeline reader thread, remote address[{}]", current.socket.getRemoteSocketAddress());
+    }
+
+    /**
+     * Session bound to one socket.
+     * (与socket绑定的会话)
+     *
+     * @param <K> key type
+     */
+    private static class Session<K> {
+
+        private final Socket socket;
+
+        private final Map<K, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+
+        private volatile boolean alive = true;
+
+        private Session(Socket socket) {
+            this.socket = socket;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Connection pool of tcp clients to the same endpoint, e.g. S7PLC, ModbusTcp, McPLC.
+ * Each client still serializes its own requests, the pool spreads the callers over several handshaked connections.
+ * (同一个端点的TCP客户端连接池，例如S7PLC，ModbusTcp，McPLC，每个客户端仍然串行处理自身请求，连接池将调用方分散到多个已握手的连接上)
+ * <p>
+ * The connection is created lazily, and the handshake is done by the client on first use, e.g.
+ * {@link TcpClientBasic#doAfterConnected()}.
+ * (连接是延迟创建的，首次使用时由客户端完成握手，例如doAfterConnected)
+ *
+ * @param <T> tcp client type
+ * @author xingshuang
+ */
+@Slf4j
+public class TcpClientPool<T extends IPoolableClient> implements AutoCloseable {
+
+    /**
+     * Factory to create client of the endpoint.
+     * (创建客户端的工厂)
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * Maximum number of connections to the endpoint.
+     * (该端点的最大连接数)
+     */
+    private final int maxSize;
+
+    /**
+     * Dispatch strategy.
+     * (分发策略)
+     */
+    private final EPoolDispatch dispatch;
+
+    /**
+     * All pooled clients.
+     * (所有池化的客户端)
+     */
+    private final List<PoolEntry<T>> entries = new CopyOnWriteArrayList<>();
+
+    /**
+     * Locker of the entries.
+     * (客户端集合的锁)
+     */
+    private final ReentrantLock locker = new ReentrantLock();
+
+    /**
+     * Index of round-robin.
+     * (轮询的索引)
+     */
+    private final AtomicInteger roundRobinIndex = new AtomicInteger();
+
+    /**
+     * Scheduler for health check and idle eviction.
+     * (健康检查和空闲回收的定时器)
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Idle timeout in millisecond, the idle connection is evicted after it, 60_000ms default.
+     * (空闲超时时间，超过后空闲连接将被回收，默认60s)
+     */
+    private long idleTimeout = 60_000;
+
+    /**
+     * Minimum number of connections kept when evicting idle connections, 1 default.
+     * (空闲回收时保留的最小连接数，默认1)
+     */
+    private int minIdle = 1;
+
+    /**
+     * Health checker of the idle connection, connected state is checked only if null.
+     * (空闲连接的健康检查器，为null时只校验连接状态)
+     */
+    private Predicate<T> healthChecker;
+
+    /**
+     * Flag, is pool closed.
+     * (是否已关闭)
+     */
+    private volatile boolean closed = false;
+
+    public TcpClientPool(Supplier<T> factory, int maxSize) {
+        this(factory, maxSize, EPoolDispatch.LEAST_BUSY, 10_000);
+    }
+
+    public TcpClientPool(Supplier<T> factory, int maxSize, EPoolDispatch dispatch) {
+        this(factory, maxSize, dispatch, 10_000);
+    }
+
+    public TcpClientPool(Supplier<T> factory, int maxSize, EPoolDispatch dispatch, long healthCheckInterval) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize<=0");
+        }
+        if (healthCheckInterval <= 0) {
+            throw new IllegalArgumentException("healthCheckInterval<=0");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.dispatch = dispatch;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "iot-pool-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public EPoolDispatch getDispatch() {
+        return dispatch;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public void setHealthChecker(Predicate<T> healthChecker) {
+        this.healthChecker = healthChecker;
+    }
+
+    /**
+     * Get the number of pooled connections.
+     * (获取连接池中的连接数量)
+     *
+     * @return number of connections
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Execute the action with a pooled client and return the result.
+     * (使用池中的客户端执行动作并返回结果)
+     *
+     * @param action action
+     * @param <R>    result type
+     * @return result
+     */
+    public <R> R execute(Function<T, R> action) {
+        PoolEntry<T> entry = this.borrow();
+        try {
+            return action.apply(entry.client);
+        } finally {
+            this.giveBack(entry);
+        }
+    }
+
+    /**
+     * Execute the action with a pooled client.
+     * (使用池中的客户端执行动作)
+     *
+     * @param action action
+     */
+    public void run(Consumer<T> action) {
+        PoolEntry<T> entry = this.borrow();
+        try {
+            action.accept(entry.client);
+        } finally {
+            this.giveBack(entry);
+        }
+    }
+
+    /**
+     * Close the pool and all connections.
+     * (关闭连接池和所有连接)
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.scheduler.shutdownNow();
+        try {
+            this.locker.lock();
+            this.entries.forEach(x -> this.closeQuietly(x.client));
+            this.entries.clear();
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Borrow a client, a new connection is created when the selected one is busy and the pool is not full.
+     * (借用一个客户端，选中的连接繁忙并且连接池未满时创建新的连接)
+     *
+     * @return pool entry
+     */
+    private PoolEntry<T> borrow() {
+        if (this.closed) {
+            // 连接池已关闭
+            throw new SocketRuntimeException("The connection pool is closed");
+        }
+        try {
+            this.locker.lock();
+            PoolEntry<T> entry = this.select();
+            if ((entry == null || entry.busy.get() > 0) && this.entries.size() < this.maxSize) {
+                entry = new PoolEntry<>(this.factory.get());
+                this.entries.add(entry);
+                log.debug("Add a connection to the pool of [{}], pool size [{}]", entry.client.getSocketAddress(), this.entries.size());
+            }
+            entry.busy.incrementAndGet();
+            entry.lastUsedTime = System.currentTimeMillis();
+            return entry;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Give back the client.
+     * (归还客户端)
+     *
+     * @param entry pool entry
+     */
+    private void giveBack(PoolEntry<T> entry) {
+        entry.lastUsedTime = System.currentTimeMillis();
+        entry.busy.decrementAndGet();
+    }
+
+    /**
+     * Select one entry by dispatch strategy.
+     * (根据分发策略选择一个客户端)
+     *
+     * @return pool entry, null if empty
+     */
+    private PoolEntry<T> select() {
+        if (this.entries.isEmpty()) {
+            return null;
+        }
+        if (this.dispatch == EPoolDispatch.ROUND_ROBIN) {
+            int index = Math.floorMod(this.roundRobinIndex.getAndIncrement(), this.entries.size());
+            return this.entries.get(index);
+        }
+        return this.entries.stream().min(Comparator.comparingInt(x -> x.busy.get())).orElse(null);
+    }
+
+    /**
+     * Health check and idle eviction, only the entries that no one is using are checked.
+     * (健康检查和空闲回收，只检查没有被使用的客户端)
+     */
+    private void checkHealth() {
+        List<PoolEntry<T>> idleEntries = new ArrayList<>();
+        try {
+            this.locker.lock();
+            long now = System.currentTimeMillis();
+            for (PoolEntry<T> entry : this.entries) {
+                if (entry.busy.get() > 0) {
+                    continue;
+                }
+                boolean broken = entry.client.isOpened() && !entry.client.checkConnected();
+                boolean expired = now - entry.lastUsedTime > this.idleTimeout && this.entries.size() > this.minIdle;
+                if (broken || expired) {
+                    this.entries.remove(entry);
+                    this.closeQuietly(entry.client);
+                    log.debug("Evict a {} connection of [{}], pool size [{}]", broken ? "broken" : "idle",
+                            entry.client.getSocketAddress(), this.entries.size());
+                } else if (this.healthChecker != null && entry.client.isOpened()) {
+                    // 占用该连接，避免检查过程中被借用
+                    entry.busy.incrementAndGet();
+                    idleEntries.add(entry);
+                }
+            }
+        } finally {
+            this.locker.unlock();
+        }
+
+        for (PoolEntry<T> entry : idleEntries) {
+            boolean healthy;
+            try {
+                healthy = this.healthChecker.test(entry.client);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (!healthy) {
+                this.closeQuietly(entry.client);
+                log.debug("Close an unhealthy connection of [{}]", entry.client.getSocketAddress());
+            }
+            entry.busy.decrementAndGet();
+        }
+    }
+
+    /**
+     * Close client without exception.
+     * (关闭客户端，忽略异常)
+     *
+     * @param client client
+     */
+    private void closeQuietly(T client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("Close the connection of [{}] failed, {}", client.getSocketAddress(), e.getMessage());
+        }
+    }
+
+    /**
+     * Pool entry.
+     * (池化条目)
+     *
+     * @param <T> tcp client type
+     */
+    private static class PoolEntry<T extends IPoolableClient> {
+
+        private final T client;
+
+        private final AtomicInteger busy = new AtomicInteger();
+
+        private volatile long lastUsedTime = System.currentTimeMillis();
+
+        private PoolEntry(T client) {
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Selector loop shared by all the tcp client channels, one daemon thread handles the connect, read and write of every
+ * connection, so the number of threads does not grow with the number of devices.
+ * (所有TCP客户端通道共用的选择器循环，一个守护线程处理所有连接的连接、读和写，线程数量不随设备数量增长)
+ *
+ * @author xingshuang
+ */
+@Slf4j
+final class TcpClientReactor {
+
+    /**
+     * Shared reactor.
+     * (共享的反应器)
+     */
+    private static final TcpClientReactor SHARED = new TcpClientReactor("iot-client-reactor");
+
+    private final Selector selector;
+
+    /**
+     * Tasks to run on the reactor thread.
+     * (在反应器线程上执行的任务)
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final Thread thread;
+
+    private TcpClientReactor(String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new SocketRuntimeException(e);
+        }
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    static TcpClientReactor shared() {
+        return SHARED;
+    }
+
+    Selector getSelector() {
+        return this.selector;
+    }
+
+    /**
+     * Run the task on the reactor thread, the state of the channels is only changed there, so it needs no lock.
+     * (在反应器线程上执行任务，通道的状态只在该线程上修改，因此无需加锁)
+     *
+     * @param task task
+     */
+    void execute(Runnable task) {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                this.selector.select();
+                Runnable task;
+                while ((task = this.tasks.poll()) != null) {
+                    this.runSafely(task);
+                }
+                Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    TcpClientChannel<?> channel = (TcpClientChannel<?>) key.attachment();
+                    this.runSafely(() -> channel.handle(key));
+                }
+            } catch (Exception e) {
+                // 反应器循环异常
+                log.error("Client reactor loop error, {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            // 反应器任务执行异常
+            log.error("Client reactor task error, {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.net.ITransport;
+import com.github.xingshuangs.iot.net.SocketUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * TCP transport.
+ * (TCP传输通道)
+ *
+ * @author xingshuang
+ */
+public class TcpTransport implements ITransport {
+
+    /**
+     * TCP client.
+     * (TCP客户端)
+     */
+    private final TcpClientBasic client;
+
+    public TcpTransport(String host, int port) {
+        this.client = new TcpClientBasic(host, port);
+    }
+
+    /**
+     * Get the tcp client, e.g. set the connect timeout.
+     * (获取TCP客户端，例如设置连接超时时间)
+     *
+     * @return tcp client
+     */
+    public TcpClientBasic getClient() {
+        return client;
+    }
+
+    @Override
+    public void connect() {
+        this.client.getAvailableSocket();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.client.checkConnected();
+    }
+
+    @Override
+    public void close() {
+        this.client.close();
+    }
+
+    @Override
+    public void write(byte[] data) {
+        this.client.write(data);
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length, int timeout) {
+        Socket socket = this.client.getAvailableSocket();
+        try {
+            socket.setSoTimeout(timeout);
+            int count = socket.getInputStream().read(data, offset, length);
+            if (count < 0) {
+                this.client.close();
+                // 读取到流的末尾，连接断开
+                throw new SocketRuntimeException("The end of the stream has been reached, and disconnected");
+            }
+            return count;
+        } catch (SocketTimeoutException e) {
+            return 0;
+        } catch (IOException e) {
+            this.client.close();
+            throw new SocketRuntimeException(e);
+        }
+    }
+
+    @Override
+    public void discard() {
+        if (!this.client.checkConnected()) {
+            return;
+        }
+        try {
+            InputStream in = this.client.getAvailableSocket().getInputStream();
+            while (in.available() > 0) {
+                in.skip(in.available());
+            }
+        } catch (IOException e) {
+            this.client.close();
+            throw new SocketRuntimeException(e);
+        }
+    }
+}
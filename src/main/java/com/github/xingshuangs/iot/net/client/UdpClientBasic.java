@@ -106,7 +106,7 @@ public class UdpClientBasic implements ICommunicable {
      */
     public DatagramSocket getAvailableSocket() {
         // 已连接的直接返回socket
-        if (this.socket != null) {
+        if (this.socket != null && !this.socket.isClosed()) {
             return this.socket;
         }
         try {
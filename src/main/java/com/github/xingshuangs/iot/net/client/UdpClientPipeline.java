@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Pipelined request dispatcher over one udp socket, keeps several requests in flight, matches the responses by key
+ * on a dedicated reader thread and retransmits the request which has no response in time.
+ * (UDP流水线请求分发器，单个socket上同时保持多个未完成请求，由独立的读取线程根据关键字匹配响应，超时未响应的请求会重发)
+ * 重发的请求可能被服务端重复执行，多余的响应会被丢弃
+ *
+ * @param <K> the key type used to match request and response, e.g. transaction id
+ * @author xingshuang
+ */
+@Slf4j
+public class UdpClientPipeline<K> {
+
+    /**
+     * Max length of datagram.
+     * (数据报最大长度)
+     */
+    private static final int MAX_DATAGRAM_LENGTH = 2048;
+
+    /**
+     * Udp client, supply the socket and the server address.
+     * (UDP客户端，提供socket和服务端地址)
+     */
+    private final UdpClientBasic client;
+
+    /**
+     * Window of outstanding requests.
+     * (未完成请求的窗口)
+     */
+    private final RequestWindow window;
+
+    /**
+     * Extract the match key from the response datagram.
+     * (从响应数据报中提取匹配的关键字)
+     */
+    private final Function<byte[], K> keyExtractor;
+
+    /**
+     * Session locker.
+     * (会话锁)
+     */
+    private final ReentrantLock locker = new ReentrantLock();
+
+    /**
+     * Current session, bound to one socket.
+     * (当前会话，与socket绑定)
+     */
+    private Session<K> session;
+
+    public UdpClientPipeline(UdpClientBasic client, int windowSize, Function<byte[], K> keyExtractor) {
+        this.client = client;
+        this.window = new RequestWindow(windowSize);
+        this.keyExtractor = keyExtractor;
+    }
+
+    public int getWindowSize() {
+        return this.window.getWindowSize();
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.window.setWindowSize(windowSize);
+    }
+
+    /**
+     * Get the number of requests in flight.
+     * (获取正在进行中的请求数量)
+     *
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        return this.window.getInFlight();
+    }
+
+    /**
+     * Send request and return at once, the future is completed by the reader thread, retransmit it every interval
+     * until the response arrives or the retries run out.
+     * (发送请求后立即返回，future由读取线程完成，每隔一个间隔重发一次，直到收到响应或重发次数用完)
+     *
+     * @param key        match key of the request
+     * @param data       byte array of request
+     * @param interval   retransmission interval with ms, also the timeout of every attempt
+     * @param maxRetries max retransmission count, 0: no retransmission
+     * @return future of the response
+     * @throws SocketTimeoutException Socket Timeout Exception, no free window in time
+     */
+    public CompletableFuture<byte[]> sendAsync(K key, byte[] data, int interval, int maxRetries) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval<=0");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries<0");
+        }
+        CompletableFuture<byte[]> future = this.window.newRequest(interval * (maxRetries + 1));
+        Session<K> current;
+        try {
+            current = this.getAvailableSession();
+            if (!FutureUtil.register(current.pending, key, future)) {
+                return future;
+            }
+            this.send(current, data);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        AtomicInteger retries = new AtomicInteger();
+        FutureUtil.repeat(future, interval, () -> {
+            if (retries.incrementAndGet() > maxRetries) {
+                future.completeExceptionally(new SocketTimeoutException(String.format(
+                        "Wait for the response timeout, key[%s], interval[%d]ms, retries[%d]", key, interval, maxRetries)));
+                return;
+            }
+            // 重发请求
+            log.debug("Retransmit the request with key[{}], retry[{}]", key, retries.get());
+            try {
+                this.send(current, data);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Close the socket, all the requests in flight fail.
+     * (关闭socket，所有进行中的请求失败)
+     */
+    public void close() {
+        try {
+            this.locker.lock();
+            this.client.close();
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    private void send(Session<K> current, byte[] data) {
+        try {
+            current.socket.send(new DatagramPacket(data, data.length, this.client.serverAddress));
+        } catch (IOException e) {
+            throw new SocketRuntimeException(e);
+        }
+    }
+
+    /**
+     * Get available session, start a new reader thread when the socket changed.
+     * (获取有效的会话，socket变化后重新启动读取线程)
+     *
+     * @return session
+     */
+    private Session<K> getAvailableSession() {
+        try {
+            this.locker.lock();
+            DatagramSocket socket = this.client.getAvailableSocket();
+            if (this.session == null || this.session.socket != socket || !this.session.alive) {
+                if (this.session != null && this.session.socket == socket) {
+                    // 读取线程结束但是socket没有变化，需要重新创建
+                    this.client.close();
+                    socket = this.client.getAvailableSocket();
+                }
+                Session<K> newSession = new Session<>(socket);
+                Thread thread = new Thread(() -> this.waitForReceiveData(newSession), "iot-udp-pipeline-reader");
+                thread.setDaemon(true);
+                thread.start();
+                this.session = newSession;
+            }
+            return this.session;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Receive data thread handler, the datagrams from other addresses are ignored.
+     * (接收数据线程，忽略其他地址的数据报)
+     *
+     * @param current session
+     */
+    private void waitForReceiveData(Session<K> current) {
+        // 开启UDP流水线接收线程
+        log.debug("Open udp pipeline reader thread, remote address[{}]", this.client.serverAddress);
+        Exception cause = null;
+        byte[] buffer = new byte[MAX_DATAGRAM_LENGTH];
+        try {
+            current.socket.setSoTimeout(0);
+            while (!current.socket.isClosed()) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                current.socket.receive(packet);
+                if (!this.client.serverAddress.equals(packet.getSocketAddress())) {
+                    continue;
+                }
+                byte[] datagram = Arrays.copyOf(buffer, packet.getLength());
+                K key;
+                try {
+                    key = this.keyExtractor.apply(datagram);
+                } catch (RuntimeException e) {
+                    // 无法从响应中解析关键字，丢弃
+                    log.error("Unable to extract the key from the response, discard it, {}", e.getMessage());
+                    continue;
+                }
+                CompletableFuture<byte[]> future = current.pending.remove(key);
+                if (future == null) {
+                    // 响应没有对应的请求，可能是重发的多余响应或已超时，丢弃
+                    log.debug("No request matches the response with key[{}], maybe retransmitted or timeout, discard it", key);
+                    continue;
+                }
+                future.complete(datagram);
+            }
+        } catch (Exception e) {
+            cause = e;
+        } finally {
+            current.alive = false;
+            SocketRuntimeException ex = cause == null || current.socket.isClosed()
+                    ? new SocketRuntimeException("The udp pipeline is closed")
+                    : new SocketRuntimeException(cause.getMessage(), cause);
+            current.pending.values().forEach(x -> x.completeExceptionally(ex));
+            current.pending.clear();
+        }
+        // 关闭UDP流水线接收线程
+        log.debug("Close udp pipeline reader thread, remote address[{}]", this.client.serverAddress);
+    }
+
+    /**
+     * Session bound to one socket.
+     * (与socket绑定的会话)
+     *
+     * @param <K> key type
+     */
+    private static class Session<K> {
+
+        private final DatagramSocket socket;
+
+        private final Map<K, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+
+        private volatile boolean alive = true;
+
+        private Session(DatagramSocket socket) {
+            this.socket = socket;
+        }
+    }
+}
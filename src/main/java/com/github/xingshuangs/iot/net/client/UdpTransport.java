@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.client;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.net.ITransport;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketTimeoutException;
+
+/**
+ * UDP transport, a datagram read partially keeps the rest for the next read.
+ * (UDP传输通道，未读完的数据报保留剩余部分供下次读取)
+ *
+ * @author xingshuang
+ */
+public class UdpTransport implements ITransport {
+
+    /**
+     * Max length of datagram.
+     * (数据报最大长度)
+     */
+    private static final int MAX_DATAGRAM_LENGTH = 2048;
+
+    private final String host;
+
+    private final int port;
+
+    /**
+     * UDP client, created when connected.
+     * (UDP客户端，打开时创建)
+     */
+    private UdpClientBasic client;
+
+    /**
+     * Bytes of the last datagram not yet read.
+     * (上一个数据报中尚未读取的字节)
+     */
+    private final byte[] pending = new byte[MAX_DATAGRAM_LENGTH];
+
+    private int pendingOffset;
+
+    private int pendingLength;
+
+    public UdpTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void connect() {
+        if (!this.isConnected()) {
+            this.client = new UdpClientBasic(this.host, this.port);
+            this.client.getAvailableSocket();
+            this.pendingLength = 0;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.client != null && this.client.socket != null && !this.client.socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        if (this.client != null) {
+            this.client.close();
+        }
+    }
+
+    @Override
+    public void write(byte[] data) {
+        this.connect();
+        this.client.write(data);
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length, int timeout) {
+        this.connect();
+        if (this.pendingLength == 0) {
+            DatagramPacket packet = new DatagramPacket(this.pending, this.pending.length);
+            if (!this.receive(packet, timeout)) {
+                return 0;
+            }
+            this.pendingOffset = 0;
+            this.pendingLength = packet.getLength();
+        }
+        int count = Math.min(length, this.pendingLength);
+        System.arraycopy(this.pending, this.pendingOffset, data, offset, count);
+        this.pendingOffset += count;
+        this.pendingLength -= count;
+        return count;
+    }
+
+    @Override
+    public void discard() {
+        if (!this.isConnected()) {
+            return;
+        }
+        this.pendingLength = 0;
+        DatagramPacket packet = new DatagramPacket(this.pending, this.pending.length);
+        // 丢弃已到达的数据报，直到1ms内没有新的数据报
+        while (this.receive(packet, 1)) {
+            packet.setLength(this.pending.length);
+        }
+    }
+
+    /**
+     * Receive a datagram.
+     * (接收一个数据报)
+     *
+     * @param packet  datagram packet
+     * @param timeout timeout with ms, 0: no timeout
+     * @return true: received, false: timeout
+     */
+    private boolean receive(DatagramPacket packet, int timeout) {
+        DatagramSocket socket = this.client.getAvailableSocket();
+        try {
+            socket.setSoTimeout(timeout);
+            socket.receive(packet);
+            return true;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } catch (IOException e) {
+            throw new SocketRuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.server;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder of the length prefixed frame, the length field is 2 bytes in big endian by default.
+ * (长度前缀帧的解码器，长度字段为2字节，默认大端)
+ *
+ * @author xingshuang
+ */
+@Getter
+public class LengthFieldFrameDecoder {
+
+    /**
+     * TPKT, the length field is at offset 2 and contains the whole frame length.
+     * (TPKT，长度字段在偏移2处，表示整帧长度)
+     */
+    public static final LengthFieldFrameDecoder TPKT = new LengthFieldFrameDecoder(2, 0, 65535);
+
+    /**
+     * MBAP, the length field is at offset 4 and contains the length after itself.
+     * (MBAP，长度字段在偏移4处，表示其后的字节长度)
+     */
+    public static final LengthFieldFrameDecoder MBAP = new LengthFieldFrameDecoder(4, 6, 260);
+
+    /**
+     * Offset of the length field.
+     * (长度字段的偏移)
+     */
+    private final int lengthOffset;
+
+    /**
+     * Adjustment added to the length field to get the whole frame length.
+     * (长度字段加上该值得到整帧长度)
+     */
+    private final int lengthAdjustment;
+
+    /**
+     * Max frame length.
+     * (最大帧长度)
+     */
+    private final int maxFrameLength;
+
+    /**
+     * Whether the length field is little endian, e.g. melsec.
+     * (长度字段是否为小端，例如三菱)
+     */
+    private final boolean littleEndian;
+
+    public LengthFieldFrameDecoder(int lengthOffset, int lengthAdjustment, int maxFrameLength) {
+        this(lengthOffset, lengthAdjustment, maxFrameLength, false);
+    }
+
+    public LengthFieldFrameDecoder(int lengthOffset, int lengthAdjustment, int maxFrameLength, boolean littleEndian) {
+        this.lengthOffset = lengthOffset;
+        this.lengthAdjustment = lengthAdjustment;
+        this.maxFrameLength = maxFrameLength;
+        this.littleEndian = littleEndian;
+    }
+
+    /**
+     * Get the header length which contains the length field.
+     * (获取包含长度字段的头部长度)
+     *
+     * @return header length
+     */
+    public int getHeaderLength() {
+        return this.lengthOffset + 2;
+    }
+
+    /**
+     * Get the whole length of the next frame in the buffer, the buffer position is not changed.
+     * (获取缓冲区中下一帧的整帧长度，不改变缓冲区的位置)
+     *
+     * @param buffer buffer in read mode
+     * @return frame length, -1 if the header is incomplete
+     * @throws SocketRuntimeException invalid frame length
+     */
+    public int frameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < this.getHeaderLength()) {
+            return -1;
+        }
+        short value = buffer.getShort(buffer.position() + this.lengthOffset);
+        if (this.littleEndian) {
+            value = Short.reverseBytes(value);
+        }
+        int length = (value & 0xFFFF) + this.lengthAdjustment;
+        if (length <= this.getHeaderLength() || length > this.maxFrameLength) {
+            // 帧长度无效
+            throw new SocketRuntimeException("Invalid frame length: " + length);
+        }
+        return length;
+    }
+}
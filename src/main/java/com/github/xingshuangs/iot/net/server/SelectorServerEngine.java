@@ -0,0 +1,526 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.server;
+
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selector engine of the tcp server, one selector thread reads and writes all clients, the complete frames are
+ * handled by a bounded worker pool, the frames of one client are handled in order.
+ * (TCP服务端的选择器引擎，一个选择器线程读写所有客户端，完整的帧交给有界工作线程池处理，同一客户端的帧按顺序处理)
+ *
+ * @author xingshuang
+ */
+@Slf4j
+final class SelectorServerEngine {
+
+    /**
+     * Max waiting frames of one client, reading is paused when exceeded.
+     * (单个客户端最大待处理帧数，超过后暂停读取)
+     */
+    private static final int MAX_WAITING_FRAMES = 64;
+
+    private final TcpServerBasic server;
+
+    private final LengthFieldFrameDecoder decoder;
+
+    /**
+     * Sessions whose interest ops need to be updated by the selector thread.
+     * (需要由选择器线程更新关注事件的会话)
+     */
+    private final Queue<TcpServerSession> interestUpdates = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Sessions waiting for a free worker because the worker queue is full, their reading is paused.
+     * (因工作线程队列已满而等待空闲工作线程的会话，这些会话暂停读取)
+     */
+    private final Queue<TcpServerSession> waitingSessions = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+
+    private ServerSocketChannel serverChannel;
+
+    private ThreadPoolExecutor workers;
+
+    private volatile boolean running;
+
+    private Thread selectorThread;
+
+    /**
+     * Last time of the idle check, only accessed by the selector thread.
+     * (上次空闲检查的时间，只由选择器线程访问)
+     */
+    private long lastIdleCheckTime;
+
+    SelectorServerEngine(TcpServerBasic server, LengthFieldFrameDecoder decoder) {
+        this.server = server;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Start the engine.
+     * (启动)
+     *
+     * @param port              port number
+     * @param maxWorkers        max worker threads
+     * @param maxPendingClients max clients waiting for a worker
+     * @throws IOException IO exception
+     */
+    void start(int port, int maxWorkers, int maxPendingClients) throws IOException {
+        this.selector = Selector.open();
+        try {
+            this.serverChannel = ServerSocketChannel.open();
+            this.serverChannel.socket().setReuseAddress(true);
+            this.serverChannel.bind(new InetSocketAddress(port));
+            this.serverChannel.configureBlocking(false);
+            this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            this.selector.close();
+            if (this.serverChannel != null) {
+                this.serverChannel.close();
+            }
+            throw e;
+        }
+        AtomicInteger index = new AtomicInteger();
+        // 队列满时拒绝，会话暂停读取等待空闲工作线程形成背压，选择器线程不处理帧
+        this.workers = new ThreadPoolExecutor(maxWorkers, maxWorkers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxPendingClients), r -> {
+            Thread thread = new Thread(r, "iot-server-worker-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.workers.allowCoreThreadTimeOut(true);
+        this.running = true;
+        this.selectorThread = new Thread(this::selectLoop, "iot-server-selector");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * Stop the engine, all clients are closed, wait until the port is released.
+     * (停止，关闭所有客户端，等待端口释放)
+     */
+    void stop() {
+        this.running = false;
+        try {
+            this.serverChannel.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+        this.selector.wakeup();
+        this.workers.shutdown();
+        // 已注册的通道在选择器注销后才真正释放端口
+        if (Thread.currentThread() != this.selectorThread) {
+            try {
+                this.selectorThread.join(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Is the engine alive.
+     * (是否活跃着)
+     *
+     * @return true：alive，false：dead
+     */
+    boolean isAlive() {
+        return this.running && this.serverChannel.isOpen();
+    }
+
+    /**
+     * Select loop, only this thread reads the channels and changes the interest ops.
+     * (选择循环，只有该线程读取通道和修改关注事件)
+     */
+    private void selectLoop() {
+        // 开启选择器线程，端口号[{}]
+        log.debug("Open selector thread and waiting for clients, port number [{}]", this.server.getPort());
+        while (this.running) {
+            try {
+                int idleTimeout = this.server.getIdleTimeout();
+                if (idleTimeout > 0) {
+                    this.selector.select(this.idleCheckInterval(idleTimeout));
+                } else {
+                    this.selector.select();
+                }
+                TcpServerSession update;
+                while ((update = this.interestUpdates.poll()) != null) {
+                    this.updateInterest(update);
+                }
+                this.scheduleWaitingSessions();
+                Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    this.handleKey(key);
+                }
+                if (idleTimeout > 0) {
+                    this.closeIdleSessions(idleTimeout);
+                }
+            } catch (IOException e) {
+                if (this.running) {
+                    log.error(e.getMessage());
+                }
+            }
+        }
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.attachment() instanceof TcpServerSession) {
+                this.close((TcpServerSession) key.attachment());
+            }
+        }
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+        // 关闭服务端，端口号[{}]
+        log.debug("Close the server, port number [{}]", this.server.getPort());
+    }
+
+    /**
+     * Interval of the idle check, half of the idle timeout, within [10, 1000]ms.
+     * (空闲检查的间隔，空闲超时的一半，范围[10, 1000]ms)
+     *
+     * @param idleTimeout idle timeout
+     * @return interval
+     */
+    private long idleCheckInterval(int idleTimeout) {
+        return Math.max(10, Math.min(idleTimeout / 2, 1000));
+    }
+
+    /**
+     * Close the sessions which received nothing within the idle timeout and have nothing to handle or write.
+     * (关闭空闲超时时间内未收到数据且没有待处理和待写入数据的会话)
+     *
+     * @param idleTimeout idle timeout
+     */
+    private void closeIdleSessions(int idleTimeout) {
+        long now = System.currentTimeMillis();
+        if (now - this.lastIdleCheckTime < this.idleCheckInterval(idleTimeout)) {
+            return;
+        }
+        this.lastIdleCheckTime = now;
+        for (SelectionKey key : this.selector.keys()) {
+            if (!(key.attachment() instanceof TcpServerSession)) {
+                continue;
+            }
+            TcpServerSession session = (TcpServerSession) key.attachment();
+            if (now - session.lastReadTime > idleTimeout && !session.processing.get()
+                    && session.frames.isEmpty() && session.writes.isEmpty()) {
+                // 客户端[{}]空闲超时
+                log.debug("The client [{}] is idle timeout", session.getRemoteAddress());
+                this.close(session);
+            }
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            this.accept();
+            return;
+        }
+        TcpServerSession session = (TcpServerSession) key.attachment();
+        try {
+            if (key.isReadable()) {
+                this.read(session);
+            }
+            if (key.isValid() && key.isWritable()) {
+                this.flush(session);
+                this.updateInterest(session);
+            }
+        } catch (Exception e) {
+            if (session.isOpen()) {
+                log.error(e.getMessage());
+            }
+            this.close(session);
+        }
+    }
+
+    /**
+     * Accept the client.
+     * (接收客户端)
+     */
+    private void accept() {
+        SocketChannel channel = null;
+        boolean acquired = false;
+        try {
+            channel = this.serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            acquired = this.server.acquireConnection(channel.socket());
+            if (!acquired) {
+                channel.close();
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            TcpServerSession session = new TcpServerSession(channel, Math.min(this.decoder.getMaxFrameLength(), 1024));
+            session.key = channel.register(this.selector, SelectionKey.OP_READ, session);
+            // 有客户端[{}]连入
+            log.debug("The client [{}] is connected", session.getRemoteAddress());
+            this.server.clientConnected(channel.socket());
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            if (acquired) {
+                this.server.releaseConnection();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    // NOOP
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the bytes of the client and decode the complete frames.
+     * (读取客户端字节，解码出完整的帧)
+     *
+     * @param session session
+     * @throws IOException IO exception
+     */
+    private void read(TcpServerSession session) throws IOException {
+        int count = session.getChannel().read(session.readBuffer);
+        if (count < 0) {
+            this.close(session);
+            return;
+        }
+        session.lastReadTime = System.currentTimeMillis();
+        ByteBuffer buffer = session.readBuffer;
+        // 转为Buffer调用，避免JDK 9+编译后在Java 8上找不到ByteBuffer的重写方法
+        ((Buffer) buffer).flip();
+        int length;
+        while ((length = this.decoder.frameLength(buffer)) > 0 && buffer.remaining() >= length) {
+            byte[] frame = new byte[length];
+            buffer.get(frame);
+            session.frames.add(frame);
+        }
+        buffer.compact();
+        if (length > buffer.capacity()) {
+            // 帧比缓冲区大，扩容
+            ByteBuffer larger = ByteBuffer.allocate(length);
+            ((Buffer) buffer).flip();
+            larger.put(buffer);
+            session.readBuffer = larger;
+        }
+        if (session.frames.size() >= MAX_WAITING_FRAMES) {
+            session.readPaused = true;
+            this.updateInterest(session);
+        }
+        this.schedule(session);
+    }
+
+    /**
+     * Schedule the worker to handle the frames of the session if no worker is handling it.
+     * (若没有工作线程在处理该会话，则调度一个)
+     *
+     * @param session session
+     */
+    private void schedule(TcpServerSession session) {
+        if (!session.frames.isEmpty() && session.processing.compareAndSet(false, true)) {
+            try {
+                this.workers.execute(() -> this.process(session));
+            } catch (RejectedExecutionException e) {
+                // 工作线程队列已满，暂停读取该会话，等有工作线程完成后再调度
+                session.processing.set(false);
+                session.waitingWorker = true;
+                this.waitingSessions.add(session);
+                if (Thread.currentThread() == this.selectorThread) {
+                    this.updateInterest(session);
+                } else {
+                    this.requestInterestUpdate(session);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule the sessions waiting for a free worker again, only called by the selector thread, the sessions
+     * rejected again wait for the next worker to complete.
+     * (重新调度等待空闲工作线程的会话，只由选择器线程调用，再次被拒绝的会话等待下一个工作线程完成)
+     */
+    private void scheduleWaitingSessions() {
+        int count = this.waitingSessions.size();
+        for (int i = 0; i < count; i++) {
+            TcpServerSession session = this.waitingSessions.poll();
+            if (session == null) {
+                return;
+            }
+            session.waitingWorker = false;
+            if (session.isOpen()) {
+                this.schedule(session);
+                this.updateInterest(session);
+            }
+        }
+    }
+
+    /**
+     * Handle the frames of the session in order.
+     * (按顺序处理会话的帧)
+     *
+     * @param session session
+     */
+    private void process(TcpServerSession session) {
+        try {
+            byte[] frame;
+            while (session.isOpen() && (frame = session.frames.poll()) != null) {
+                byte[] response = this.server.doFrameHandle(session, frame);
+                if (response != null && response.length > 0) {
+                    this.send(session, response);
+                }
+            }
+        } catch (Exception e) {
+            if (session.isOpen()) {
+                log.error(e.getMessage());
+            }
+            this.close(session);
+        } finally {
+            session.processing.set(false);
+        }
+        if (session.readPaused) {
+            this.requestInterestUpdate(session);
+        }
+        if (session.isOpen()) {
+            this.schedule(session);
+        }
+        if (!this.waitingSessions.isEmpty()) {
+            // 有工作线程空闲，唤醒选择器线程调度等待的会话
+            this.selector.wakeup();
+        }
+    }
+
+    /**
+     * Send the response, write directly if possible, otherwise wait for the writable event.
+     * (发送响应，尽可能直接写入，否则等待可写事件)
+     *
+     * @param session session
+     * @param data    response bytes
+     * @throws IOException IO exception
+     */
+    private void send(TcpServerSession session, byte[] data) throws IOException {
+        session.writes.add(ByteBuffer.wrap(data));
+        if (!this.flush(session)) {
+            this.requestInterestUpdate(session);
+        }
+    }
+
+    /**
+     * Write the waiting responses.
+     * (写入待发送的响应)
+     *
+     * @param session session
+     * @return true: all written, false: some remain
+     * @throws IOException IO exception
+     */
+    private boolean flush(TcpServerSession session) throws IOException {
+        synchronized (session.writes) {
+            ByteBuffer buffer;
+            while ((buffer = session.writes.peek()) != null) {
+                session.getChannel().write(buffer);
+                if (buffer.hasRemaining()) {
+                    return false;
+                }
+                session.writes.poll();
+            }
+            return true;
+        }
+    }
+
+    private void requestInterestUpdate(TcpServerSession session) {
+        this.interestUpdates.add(session);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Update the interest ops, only called by the selector thread.
+     * (更新关注事件，只由选择器线程调用)
+     *
+     * @param session session
+     */
+    private void updateInterest(TcpServerSession session) {
+        if (!session.key.isValid()) {
+            return;
+        }
+        if (session.readPaused && session.frames.size() < MAX_WAITING_FRAMES / 2) {
+            session.readPaused = false;
+        }
+        int ops = session.readPaused || session.waitingWorker ? 0 : SelectionKey.OP_READ;
+        if (!session.writes.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        session.key.interestOps(ops);
+    }
+
+    /**
+     * Close the session.
+     * (关闭会话)
+     *
+     * @param session session
+     */
+    private void close(TcpServerSession session) {
+        if (!session.closed.compareAndSet(false, true)) {
+            return;
+        }
+        Socket socket = session.getSocket();
+        if (session.key != null) {
+            session.key.cancel();
+        }
+        try {
+            session.getChannel().close();
+        } catch (IOException e) {
+            // NOOP
+        }
+        this.server.clientDisconnected(socket);
+        this.server.releaseConnection();
+        // 有客户端[{}]断开
+        log.debug("The client [{}] is disconnected", session.getRemoteAddress());
+    }
+}
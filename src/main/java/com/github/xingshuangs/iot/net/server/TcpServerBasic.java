@@ -27,15 +27,22 @@ package com.github.xingshuangs.iot.net.server;
 
 import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
 import com.github.xingshuangs.iot.net.SocketUtils;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * TCP socket服务端的基础类
@@ -52,6 +59,14 @@ public class TcpServerBasic {
      */
     private ServerSocket serverSocket;
 
+    /**
+     * Accept thread of the blocking engine.
+     * (阻塞引擎的接入线程)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Thread acceptThread;
+
     /**
      * Port Number.
      * (端口号)
@@ -64,6 +79,53 @@ public class TcpServerBasic {
      */
     protected ExecutorService executorService;
 
+    /**
+     * Server engine, blocking default, the selector engine needs the frame decoder and the frame handler, and it
+     * does not call doClientHandle and readClientData.
+     * (服务端引擎，默认阻塞，选择器引擎需要帧解码器和帧处理，且不会调用doClientHandle和readClientData)
+     */
+    protected EServerEngine engine = EServerEngine.BLOCKING;
+
+    /**
+     * Max worker threads of the selector engine.
+     * (选择器引擎的最大工作线程数)
+     */
+    protected int maxWorkers = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Max clients waiting for a worker of the selector engine.
+     * (选择器引擎中等待工作线程的最大客户端数)
+     */
+    protected int maxPendingClients = 1024;
+
+    /**
+     * Max connections of the clients, the exceeding clients are closed after accepted, 0 or negative: no limit.
+     * (客户端最大连接数，超出的客户端接入后被关闭，小于等于0则不限制)
+     */
+    protected int maxConnections = 1024;
+
+    /**
+     * Idle timeout of the connection in millisecond, closed if nothing received in it, 0: never.
+     * (连接的空闲超时时间，单位毫秒，期间未收到任何数据则关闭，0则永不超时)
+     */
+    protected int idleTimeout = 0;
+
+    /**
+     * Current connection number.
+     * (当前连接数)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicInteger connectionNumber = new AtomicInteger();
+
+    /**
+     * Selector engine.
+     * (选择器引擎)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private SelectorServerEngine selectorEngine;
+
     public TcpServerBasic() {
         // NOOP
     }
@@ -92,11 +154,30 @@ public class TcpServerBasic {
         try {
             this.port = port;
             this.stop();
-            this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            this.serverSocket = new ServerSocket(port);
-            Thread thread = new Thread(this::waitForClients);
-            thread.setDaemon(true);
-            thread.start();
+            if (this.engine == EServerEngine.SELECTOR) {
+                LengthFieldFrameDecoder decoder = this.getFrameDecoder();
+                if (decoder == null) {
+                    // 选择器引擎需要帧解码器
+                    throw new SocketRuntimeException("The selector engine needs the frame decoder");
+                }
+                this.selectorEngine = new SelectorServerEngine(this, decoder);
+                this.selectorEngine.start(port, this.maxWorkers, this.maxPendingClients);
+                return;
+            }
+            // 阻塞引擎每个连接占用一个线程，连接数由maxConnections限制
+            AtomicInteger index = new AtomicInteger();
+            this.executorService = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "iot-server-client-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.serverSocket = new ServerSocket();
+            // 允许重启时端口仍处于TIME_WAIT状态，与选择器引擎一致
+            this.serverSocket.setReuseAddress(true);
+            this.serverSocket.bind(new InetSocketAddress(port));
+            this.acceptThread = new Thread(this::waitForClients);
+            this.acceptThread.setDaemon(true);
+            this.acceptThread.start();
         } catch (IOException e) {
             throw new SocketRuntimeException(e);
         }
@@ -110,14 +191,23 @@ public class TcpServerBasic {
      */
     public void stop() {
         try {
-            if (this.isAlive()) {
+            if (this.selectorEngine != null && this.selectorEngine.isAlive()) {
+                this.selectorEngine.stop();
+            }
+            if (this.serverSocket != null && !this.serverSocket.isClosed()) {
                 this.serverSocket.close();
                 this.executorService.shutdown();
+                // 阻塞在accept的线程退出后端口才真正释放，等待其退出以便立即重启
+                if (this.acceptThread != null && this.acceptThread != Thread.currentThread()) {
+                    this.acceptThread.join(1000);
+                }
                 // 关闭服务端，端口号[{}]
                 log.debug("Close the server, port number [{}]", this.port);
             }
         } catch (IOException e) {
             throw new SocketRuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -128,6 +218,9 @@ public class TcpServerBasic {
      * @return ture：alive，false：dead
      */
     public boolean isAlive() {
+        if (this.selectorEngine != null && this.selectorEngine.isAlive()) {
+            return true;
+        }
         return this.serverSocket != null && !this.serverSocket.isClosed();
     }
 
@@ -141,10 +234,25 @@ public class TcpServerBasic {
         while (this.isAlive()) {
             try {
                 Socket client = this.serverSocket.accept();
-                if (!this.checkClientValid(client)) {
+                if (!this.acquireConnection(client)) {
                     SocketUtils.close(client);
+                    continue;
                 }
-                this.executorService.execute(() -> this.doClientConnected(client));
+                try {
+                    this.executorService.execute(() -> {
+                        try {
+                            this.doClientConnected(client);
+                        } finally {
+                            this.releaseConnection();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    this.releaseConnection();
+                    SocketUtils.close(client);
+                }
+            } catch (SocketTimeoutException e) {
+                // 等待接入超时，继续等待
+                log.debug(e.getMessage());
             } catch (IOException e) {
                 if (this.isAlive()) {
                     log.error(e.getMessage());
@@ -157,6 +265,42 @@ public class TcpServerBasic {
 
     //region 客户端
 
+    /**
+     * Get the current connection number.
+     * (获取当前连接数)
+     *
+     * @return connection number
+     */
+    public int getConnectionNumber() {
+        return this.connectionNumber.get();
+    }
+
+    /**
+     * Occupy a connection if the max connections is not reached and the client is valid.
+     * (未达到最大连接数且客户端校验通过时占用一个连接)
+     *
+     * @param client client socket object
+     * @return true: occupied, false: rejected
+     */
+    boolean acquireConnection(Socket client) {
+        int number = this.connectionNumber.incrementAndGet();
+        if ((this.maxConnections > 0 && number > this.maxConnections) || !this.checkClientValid(client)) {
+            this.connectionNumber.decrementAndGet();
+            // 客户端[{}]被拒绝，当前连接数[{}]
+            log.warn("The client [{}] is rejected, connection number [{}]", client.getRemoteSocketAddress(), number - 1);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Release the connection occupied.
+     * (释放占用的连接)
+     */
+    void releaseConnection() {
+        this.connectionNumber.decrementAndGet();
+    }
+
     /**
      * Valid if the client can come in.
      * (校验客户端是否允许连入)
@@ -185,7 +329,10 @@ public class TcpServerBasic {
                 }
             }
         } catch (Exception e) {
-            if (SocketUtils.isConnected(client)) {
+            if (isTimeout(e)) {
+                // 客户端[{}]空闲超时，与选择器引擎一致按调试级别记录
+                log.debug("The client [{}] is idle timeout", client.getRemoteSocketAddress());
+            } else if (SocketUtils.isConnected(client)) {
                 log.error(e.getMessage());
             }
         } finally {
@@ -201,6 +348,22 @@ public class TcpServerBasic {
         log.debug("The client [{}] is disconnected", client.getRemoteSocketAddress());
     }
 
+    /**
+     * Whether the exception is caused by the socket timeout, e.g. the idle timeout of the connection.
+     * (异常是否由socket超时引起，例如连接的空闲超时)
+     *
+     * @param e exception
+     * @return true: timeout, false: others
+     */
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * client connected, can override
      * (客户端连入)
@@ -233,8 +396,8 @@ public class TcpServerBasic {
     }
 
     /**
-     * Do client message handler, can override.
-     * (执行客户端的业务，可重写)
+     * Do client message handler of the blocking engine, can override, not called by the selector engine.
+     * (阻塞引擎执行客户端的业务，可重写，选择器引擎不调用)
      *
      * @param socket client socket object
      * @throws SocketRuntimeException Socket Runtime Exception
@@ -245,8 +408,31 @@ public class TcpServerBasic {
     }
 
     /**
-     * Read client data, can override.
-     * (读取客户端数据)
+     * Frame decoder of the selector engine, null if not supported, can override.
+     * (选择器引擎的帧解码器，不支持则为null，可重写)
+     *
+     * @return frame decoder
+     */
+    protected LengthFieldFrameDecoder getFrameDecoder() {
+        return null;
+    }
+
+    /**
+     * Handle a complete frame of the selector engine, called by the worker thread, can override.
+     * (选择器引擎处理一个完整的帧，由工作线程调用，可重写)
+     *
+     * @param session client session
+     * @param frame   complete request frame
+     * @return response bytes, null: no response
+     */
+    protected byte[] doFrameHandle(TcpServerSession session, byte[] frame) {
+        log.debug(new String(frame));
+        return null;
+    }
+
+    /**
+     * Read client data of the blocking engine, can override, not called by the selector engine.
+     * (阻塞引擎读取客户端数据，可重写，选择器引擎不调用)
      *
      * @param socket client socket object
      * @return the bytes array read into
@@ -255,6 +441,8 @@ public class TcpServerBasic {
     protected byte[] readClientData(Socket socket) {
         try {
             InputStream in = socket.getInputStream();
+            // 等待请求的时间即空闲时间
+            socket.setSoTimeout(this.idleTimeout);
             int firstByte = in.read();
             if (firstByte == -1) {
                 SocketUtils.close(socket);
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.net.server;
+
+
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Client session of the selector engine.
+ * (选择器引擎的客户端会话)
+ *
+ * @author xingshuang
+ */
+public class TcpServerSession {
+
+    /**
+     * Client channel.
+     * (客户端通道)
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Remote address, kept after the channel closed.
+     * (远程地址，通道关闭后依然保留)
+     */
+    private final SocketAddress remoteAddress;
+
+    /**
+     * Received bytes not yet decoded.
+     * (已接收但未解码的字节)
+     */
+    ByteBuffer readBuffer;
+
+    /**
+     * Decoded frames waiting for handling, handled one by one in order.
+     * (待处理的帧，按顺序逐个处理)
+     */
+    final Queue<byte[]> frames = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Responses waiting for writing.
+     * (待写入的响应)
+     */
+    final Queue<ByteBuffer> writes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a worker is handling the frames.
+     * (是否有工作线程正在处理帧)
+     */
+    final AtomicBoolean processing = new AtomicBoolean();
+
+    /**
+     * Whether the session is closed.
+     * (会话是否关闭)
+     */
+    final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Whether reading is paused because of too many waiting frames, changed by the selector thread, read by the
+     * workers.
+     * (是否因为待处理帧过多暂停读取，由选择器线程修改，工作线程读取)
+     */
+    volatile boolean readPaused;
+
+    /**
+     * Whether the session is waiting for a free worker because the worker queue is full, reading is paused meanwhile.
+     * (是否因为工作线程队列已满而等待空闲工作线程，期间暂停读取)
+     */
+    volatile boolean waitingWorker;
+
+    /**
+     * Last time of receiving bytes, for the idle check, only accessed by the selector thread.
+     * (最近一次接收数据的时间，用于空闲检查，只由选择器线程访问)
+     */
+    long lastReadTime = System.currentTimeMillis();
+
+    /**
+     * Selection key.
+     * (选择键)
+     */
+    SelectionKey key;
+
+    TcpServerSession(SocketChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.remoteAddress = channel.socket().getRemoteSocketAddress();
+        this.readBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Get the client channel.
+     * (获取客户端通道)
+     *
+     * @return channel
+     */
+    public SocketChannel getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Get the client socket.
+     * (获取客户端socket)
+     *
+     * @return socket
+     */
+    public Socket getSocket() {
+        return this.channel.socket();
+    }
+
+    /**
+     * Get the remote address.
+     * (获取远程地址)
+     *
+     * @return remote address
+     */
+    public SocketAddress getRemoteAddress() {
+        return this.remoteAddress;
+    }
+
+    /**
+     * Is the session open.
+     * (会话是否打开)
+     *
+     * @return true: open, false: closed
+     */
+    public boolean isOpen() {
+        return !this.closed.get() && this.channel.isOpen();
+    }
+}
@@ -82,7 +82,7 @@ public class UdpServerBasic {
      */
     public DatagramSocket getAvailableSocket() {
         // 已创建的直接返回socket
-        if (this.socket != null) {
+        if (this.socket != null && !this.socket.isClosed()) {
             return this.socket;
         }
         try {
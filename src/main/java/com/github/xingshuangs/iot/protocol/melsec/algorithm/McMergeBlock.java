@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.algorithm;
+
+
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Merged block, the command and the request group are decided by the merge read algorithm.
+ * (合并后的数据块，读取指令和所属请求分组由合并读取算法决定)
+ *
+ * @author xingshuang
+ */
+@Data
+@NoArgsConstructor
+public class McMergeBlock {
+
+    /**
+     * Device code.
+     * (软元件代码)
+     */
+    private EMcDeviceCode deviceCode;
+
+    /**
+     * Head device number.
+     * (起始软元件编号)
+     */
+    private int headDeviceNumber;
+
+    /**
+     * Device points count, bit points for bit block, word points for word block.
+     * (软元件点数，位数据块为位点数，字数据块为字点数)
+     */
+    private int devicePointsCount;
+
+    /**
+     * Is bit block, true: bit device, false: word device.
+     * (是否为位数据块，true：位软元件，false：字软元件)
+     */
+    private boolean bit;
+
+    /**
+     * Read command, batch read, random read or batch read multiple blocks.
+     * (读取指令，批量读取，随机读取或多块批量读取)
+     */
+    private EMcCommand command = EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS;
+
+    /**
+     * Request group index of the random read or batch read multiple blocks, the blocks of the same group are read by
+     * one request.
+     * (随机读取或多块批量读取的请求分组索引，同一分组的数据块由一次请求读取)
+     */
+    private int groupIndex;
+
+    public McMergeBlock(EMcDeviceCode deviceCode, int headDeviceNumber, int devicePointsCount, boolean bit) {
+        this.deviceCode = deviceCode;
+        this.headDeviceNumber = headDeviceNumber;
+        this.devicePointsCount = devicePointsCount;
+        this.bit = bit;
+    }
+
+    /**
+     * Number of words occupied when read in word units, 1 word = 16 bit points.
+     * (按字读取时占用的字数，1个字 = 16个位点)
+     *
+     * @return word count
+     */
+    public int getWordCount() {
+        return this.bit ? (this.devicePointsCount + 15) / 16 : this.devicePointsCount;
+    }
+
+    /**
+     * Is the data in bit units, true: one bit point takes 4 bits, false: packed into words.
+     * (数据是否为位单位，true：1个位点占4位，false：按字打包)
+     *
+     * @return true: bit units, false: word units
+     */
+    public boolean isBitUnits() {
+        return this.bit && this.command == EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS;
+    }
+}
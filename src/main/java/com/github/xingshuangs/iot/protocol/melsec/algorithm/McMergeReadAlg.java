@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.algorithm;
+
+
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McAddressItem;
+import lombok.Data;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Merge read algorithm, merge the nearby devices of the same device code into one block, then choose the command mix
+ * with the fewest requests under the point limits of the series.
+ * 合并读取算法，将同一软元件中相近的地址合并为一个数据块，再在系列点数限制下选择请求次数最少的指令组合
+ * 每次请求的报文头约32字节(3E请求21字节+响应11字节)，间隔小于该开销时，多读间隔的数据比单独请求更划算
+ * 指令组合：
+ * 1、不超过2个字的小数据块可以用随机读取(0403)，一次请求读取多个小数据块，1E帧不支持
+ * 2、其他数据块用多块批量读取(0406)，一次请求读取多个数据块，仅4E帧支持
+ * 3、剩余的数据块用批量读取(0401)，一次请求读取一个数据块
+ * 示例：字最大间隔16
+ * D100(1), D102(2), D110(1), D500(1), M20, M25, W1A0(10)
+ * |D100(11)|D500(1)|M20(6)|W1A0(10)| 3E：随机读取D500和M20，批量读取D100和W1A0
+ *
+ * @author xingshuang
+ */
+@Data
+public class McMergeReadAlg {
+
+    /**
+     * Default max gap of word device, 16 words = 32 bytes, close to the overhead of one request.
+     * (默认的字软元件最大间隔)
+     */
+    public static final int DEFAULT_MAX_WORD_GAP = 16;
+
+    /**
+     * Default max gap of bit device, 64 bits = 32 bytes in bit units, close to the overhead of one request.
+     * (默认的位软元件最大间隔)
+     */
+    public static final int DEFAULT_MAX_BIT_GAP = 64;
+
+    /**
+     * Merged blocks.
+     * (合并后的数据块)
+     */
+    private final List<McMergeBlock> mergedBlocks;
+
+    /**
+     * Position of every raw address item, index same as raw list.
+     * (每个原始地址项的位置，索引与原始列表一致)
+     */
+    private final List<McMergeItem> positions;
+
+    /**
+     * Number of requests planned.
+     * (规划的请求次数)
+     */
+    private final int requestCount;
+
+    private McMergeReadAlg(List<McMergeBlock> mergedBlocks, List<McMergeItem> positions, int requestCount) {
+        this.mergedBlocks = mergedBlocks;
+        this.positions = positions;
+        this.requestCount = requestCount;
+    }
+
+    /**
+     * Merge address items, sort by device code and head device number, merge the ranges whose gap is not more than
+     * max gap and whose total points is not more than the batch read limit, then choose the commands.
+     * (合并地址项，按照软元件和起始编号排序，间隔不超过最大间隔且总点数不超过批量读取限制的范围合并，再选择读取指令)
+     *
+     * @param src             raw address items 原始地址项
+     * @param series          PLC series, supply the point limits 系列，提供点数限制
+     * @param blocksSupported batch read multiple blocks supported 是否支持多块批量读取
+     * @param maxWordGap      max gap of word device 字软元件最大间隔
+     * @param maxBitGap       max gap of bit device 位软元件最大间隔
+     * @return merge result
+     */
+    public static McMergeReadAlg merge(List<McAddressItem> src, EMcSeries series, boolean blocksSupported,
+                                       int maxWordGap, int maxBitGap) {
+        if (maxWordGap < 0 || maxBitGap < 0) {
+            throw new IllegalArgumentException("maxWordGap<0 || maxBitGap<0");
+        }
+        List<McMergeBlock> mergedBlocks = new ArrayList<>();
+        McMergeItem[] positions = new McMergeItem[src.size()];
+
+        List<Integer> sortedIndexes = IntStream.range(0, src.size()).boxed().collect(Collectors.toList());
+        sortedIndexes.sort(Comparator.<Integer>comparingInt(i -> src.get(i).getDeviceAddress().getDeviceCode().ordinal())
+                .thenComparingInt(i -> src.get(i).getDeviceAddress().getHeadDeviceNumber()));
+
+        McMergeBlock current = null;
+        for (int index : sortedIndexes) {
+            McAddressItem item = src.get(index);
+            EMcDeviceCode deviceCode = item.getDeviceAddress().getDeviceCode();
+            int start = item.getDeviceAddress().getHeadDeviceNumber();
+            int end = start + item.getDevicePoints();
+            int maxGap = item.isBit() ? maxBitGap : maxWordGap;
+            int maxLength = item.isBit() ? series.getDeviceBatchInBitPointsCount() : series.getDeviceBatchInWordPointsCount();
+            if (current == null
+                    || current.getDeviceCode() != deviceCode
+                    || start - (current.getHeadDeviceNumber() + current.getDevicePointsCount()) > maxGap
+                    || end - current.getHeadDeviceNumber() > maxLength) {
+                current = new McMergeBlock(deviceCode, start, end - start, item.isBit());
+                mergedBlocks.add(current);
+            } else {
+                current.setDevicePointsCount(Math.max(current.getDevicePointsCount(), end - current.getHeadDeviceNumber()));
+            }
+            positions[index] = new McMergeItem(mergedBlocks.size() - 1, start - current.getHeadDeviceNumber());
+        }
+        int requestCount = assignCommands(mergedBlocks, series, blocksSupported);
+        return new McMergeReadAlg(mergedBlocks, Arrays.asList(positions), requestCount);
+    }
+
+    /**
+     * Choose the command mix with fewer requests, small blocks by random read and the others by multiple blocks, or
+     * all by multiple blocks, the small blocks are preferred for random read when equal.
+     * (选择请求次数更少的指令组合，小数据块随机读取其他多块批量读取，或者全部多块批量读取，相等时优先随机读取小数据块)
+     *
+     * @param blocks          merged blocks
+     * @param series          PLC series
+     * @param blocksSupported batch read multiple blocks supported
+     * @return number of requests
+     */
+    private static int assignCommands(List<McMergeBlock> blocks, EMcSeries series, boolean blocksSupported) {
+        boolean randomSupported = series.getFrameType() != EMcFrameType.FRAME_1E;
+        List<Integer> all = IntStream.range(0, blocks.size()).boxed().collect(Collectors.toList());
+        List<Integer> small = new ArrayList<>();
+        List<Integer> others = new ArrayList<>();
+        for (int i : all) {
+            McMergeBlock block = blocks.get(i);
+            // 随机读取按字或双字读取，最多2个字
+            if (randomSupported && checkReadCode(block.getDeviceCode()) && block.getWordCount() <= 2) {
+                small.add(i);
+            } else {
+                others.add(i);
+            }
+        }
+        if (!blocksSupported || small.isEmpty()) {
+            return assign(blocks, small, others, series, blocksSupported);
+        }
+        int allBlocksCount = assign(blocks, Collections.emptyList(), all, series, true);
+        int mixCount = assign(blocks, small, others, series, true);
+        return allBlocksCount < mixCount ? assign(blocks, Collections.emptyList(), all, series, true) : mixCount;
+    }
+
+    /**
+     * Assign the commands and request groups.
+     * (分配读取指令和请求分组)
+     *
+     * @param blocks          merged blocks
+     * @param random          indexes of random read blocks
+     * @param others          indexes of the other blocks
+     * @param series          PLC series
+     * @param blocksSupported batch read multiple blocks supported
+     * @return number of requests
+     */
+    private static int assign(List<McMergeBlock> blocks, List<Integer> random, List<Integer> others,
+                              EMcSeries series, boolean blocksSupported) {
+        // 随机读取，字和双字都算1个点
+        int count = 0;
+        if (!random.isEmpty()) {
+            int maxRandom = series.getDeviceRandomReadInWordPointsCount();
+            for (int i = 0; i < random.size(); i++) {
+                McMergeBlock block = blocks.get(random.get(i));
+                block.setCommand(EMcCommand.DEVICE_ACCESS_RANDOM_READ_IN_UNITS);
+                block.setGroupIndex(i / maxRandom);
+            }
+            count = (random.size() + maxRandom - 1) / maxRandom;
+        }
+
+        // 多块批量读取，块数和总字数不超过限制，只有1个块的分组改为批量读取
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> group = new ArrayList<>();
+        int points = 0;
+        for (int index : others) {
+            McMergeBlock block = blocks.get(index);
+            block.setCommand(EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS);
+            block.setGroupIndex(0);
+            if (!blocksSupported || !checkReadCode(block.getDeviceCode())
+                    || block.getWordCount() > series.getDeviceBlocksWritePointsCount()) {
+                int maxLength = block.isBit() ? series.getDeviceBatchInBitPointsCount() : series.getDeviceBatchInWordPointsCount();
+                count += (block.getDevicePointsCount() + maxLength - 1) / maxLength;
+                continue;
+            }
+            if (group.size() >= series.getDeviceBlocksBlocksCount()
+                    || points + block.getWordCount() > series.getDeviceBlocksWritePointsCount()) {
+                groups.add(group);
+                group = new ArrayList<>();
+                points = 0;
+            }
+            group.add(index);
+            points += block.getWordCount();
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).size() > 1) {
+                for (int index : groups.get(i)) {
+                    blocks.get(index).setCommand(EMcCommand.DEVICE_ACCESS_BATCH_READ_MULTIPLE_BLOCKS);
+                    blocks.get(index).setGroupIndex(i);
+                }
+            }
+        }
+        return count + groups.size();
+    }
+
+    /**
+     * Check device code of random read and batch read multiple blocks, the other restricted devices are excluded by
+     * the address item.
+     * (随机读取和多块批量读取软元件约束，其他受限的软元件已由地址项排除)
+     *
+     * @param deviceCode device code
+     * @return true：match，false：mismatch
+     */
+    private static boolean checkReadCode(EMcDeviceCode deviceCode) {
+        return deviceCode != EMcDeviceCode.LCS && deviceCode != EMcDeviceCode.LCC;
+    }
+
+    /**
+     * Split the data of merged blocks to the values of raw address items.
+     * (将合并后数据块的数据拆分为原始地址项的值)
+     *
+     * @param src        raw address items 原始地址项
+     * @param blockDatas data of merged blocks, bit units for batch read of bit block, the others are word units
+     * @return values of raw address items
+     */
+    public List<Object> split(List<McAddressItem> src, List<byte[]> blockDatas) {
+        return IntStream.range(0, src.size()).mapToObj(i -> {
+            McAddressItem item = src.get(i);
+            McMergeItem position = this.positions.get(i);
+            McMergeBlock block = this.mergedBlocks.get(position.getMergedIndex());
+            byte[] data = blockDatas.get(position.getMergedIndex());
+            int offset = position.getOffset();
+            if (!item.isBit()) {
+                return item.decode(data, offset * 2);
+            }
+            if (block.isBitUnits()) {
+                // 位单位，1个字节2个点，高4位在前
+                return ((data[offset / 2] >> (offset % 2 == 0 ? 4 : 0)) & 0x0F) == 0x01;
+            }
+            // 字单位，1个字16个点，低位在前
+            return ((data[offset / 8] >> (offset % 8)) & 0x01) == 0x01;
+        }).collect(Collectors.toList());
+    }
+}
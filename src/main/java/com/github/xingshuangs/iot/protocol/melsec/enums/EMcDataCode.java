@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.enums;
+
+
+/**
+ * Communication data code, set in the "Communication Data Code" of the ethernet module.
+ * (通信数据代码，对应以太网模块中的"通信数据代码设置")
+ *
+ * @author xingshuang
+ */
+public enum EMcDataCode {
+
+    /**
+     * Binary code, the numbers are sent as little-endian bytes.
+     * (二进制代码，数值以小端字节发送)
+     */
+    BINARY,
+
+    /**
+     * ASCII code, the numbers are sent as upper case hex characters with the high digit first, the data length is
+     * doubled.
+     * (ASCII代码，数值以高位在前的大写16进制字符发送，数据长度翻倍)
+     */
+    ASCII,
+}
@@ -0,0 +1,221 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.model;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import com.github.xingshuangs.iot.utils.ByteUtil;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Mc address item, one typed tag, the address string is parsed once when created.
+ * (三菱地址项，一个带类型的点位，创建时解析一次地址字符串)
+ *
+ * @author xingshuang
+ */
+@Data
+public class McAddressItem {
+
+    /**
+     * Device address, device points count is not used.
+     * (软元件地址，软元件点数不使用)
+     */
+    private McDeviceAddress deviceAddress;
+
+    /**
+     * Data type, BOOL for bit device, the others for word device.
+     * (数据类型，位软元件为BOOL，字软元件为其他类型)
+     */
+    private EDataType dataType;
+
+    /**
+     * Byte length of BYTE and STRING, the others are decided by data type.
+     * (BYTE和STRING的字节长度，其他类型由数据类型决定)
+     */
+    private int count;
+
+    public McAddressItem(McDeviceAddress deviceAddress, EDataType dataType, int count) {
+        EMcDeviceCode deviceCode = deviceAddress.getDeviceCode();
+        if (deviceCode == EMcDeviceCode.LTS
+                || deviceCode == EMcDeviceCode.LTC
+                || deviceCode == EMcDeviceCode.LSTS
+                || deviceCode == EMcDeviceCode.LSTC) {
+            throw new McCommException("restricted access LTS、LTC、LSTS、LSTC");
+        }
+        boolean bit = EMcDeviceCode.checkBitType(deviceCode);
+        if (!bit && !EMcDeviceCode.checkWordType(deviceCode)) {
+            // 只能是位软元件或字软元件
+            throw new McCommException("It can only be bit or word device code");
+        }
+        if (bit != (dataType == EDataType.BOOL)) {
+            throw new IllegalArgumentException(String.format("The data type [%s] is not supported by [%s]",
+                    dataType.getName(), deviceCode.getSymbol()));
+        }
+        if (!bit && !isWordType(dataType)) {
+            throw new IllegalArgumentException(String.format("The data type [%s] is not supported", dataType.getName()));
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("count < 1");
+        }
+        this.deviceAddress = deviceAddress;
+        this.dataType = dataType;
+        this.count = count;
+    }
+
+    /**
+     * Create the item by address string, BOOL for bit device, INT16 for word device.
+     * (根据地址字符串创建地址项，位软元件为BOOL，字软元件为INT16)
+     *
+     * @param address address string, e.g. D100, M20, W1A0
+     * @return address item
+     */
+    public static McAddressItem createBy(String address) {
+        McDeviceAddress deviceAddress = McDeviceAddress.createBy(address);
+        EDataType dataType = EMcDeviceCode.checkBitType(deviceAddress.getDeviceCode()) ? EDataType.BOOL : EDataType.INT16;
+        return new McAddressItem(deviceAddress, dataType, 1);
+    }
+
+    /**
+     * Create the item by address string, the data type has fixed length.
+     * (根据地址字符串创建地址项，数据类型为固定长度)
+     *
+     * @param address  address string
+     * @param dataType data type
+     * @return address item
+     */
+    public static McAddressItem createBy(String address, EDataType dataType) {
+        return new McAddressItem(McDeviceAddress.createBy(address), dataType, 1);
+    }
+
+    /**
+     * Create the item by address string, the data type is BYTE or STRING.
+     * (根据地址字符串创建地址项，数据类型为BYTE或STRING)
+     *
+     * @param address  address string
+     * @param dataType BYTE or STRING
+     * @param count    byte length
+     * @return address item
+     */
+    public static McAddressItem createBy(String address, EDataType dataType, int count) {
+        return new McAddressItem(McDeviceAddress.createBy(address), dataType, count);
+    }
+
+    /**
+     * Is bit device.
+     * (是否为位软元件)
+     *
+     * @return true: bit device, false: word device
+     */
+    public boolean isBit() {
+        return this.dataType == EDataType.BOOL;
+    }
+
+    /**
+     * Device points occupied, 1 bit point for bit device, word points for word device.
+     * (占用的软元件点数，位软元件为1个位点，字软元件为字点数)
+     *
+     * @return device points
+     */
+    public int getDevicePoints() {
+        if (this.isBit()) {
+            return 1;
+        }
+        return (this.getByteLength() + 1) / 2;
+    }
+
+    /**
+     * Byte length of the data.
+     * (数据的字节长度)
+     *
+     * @return byte length
+     */
+    public int getByteLength() {
+        return this.dataType == EDataType.BYTE || this.dataType == EDataType.STRING ? this.count : this.dataType.getByteLength();
+    }
+
+    /**
+     * Decode the value from the word data, 1 word = 2 bytes little endian, the low word first for 4 or 8 bytes.
+     * (从字数据中解析值，1个字 = 2个字节小端，4或8字节数据低字在前)
+     *
+     * @param data       word data
+     * @param byteOffset byte offset
+     * @return value
+     */
+    public Object decode(byte[] data, int byteOffset) {
+        switch (this.dataType) {
+            case BYTE:
+                return Arrays.copyOfRange(data, byteOffset, byteOffset + this.count);
+            case UINT16:
+                return ByteReadBuff.newInstance(data, byteOffset, true).getUInt16();
+            case INT16:
+                return ByteReadBuff.newInstance(data, byteOffset, true).getInt16();
+            case UINT32:
+                return ByteReadBuff.newInstance(data, byteOffset, false, EByteBuffFormat.AB_CD).getUInt32();
+            case INT32:
+                return ByteReadBuff.newInstance(data, byteOffset, false, EByteBuffFormat.AB_CD).getInt32();
+            case INT64:
+                return ByteReadBuff.newInstance(data, byteOffset, false, EByteBuffFormat.AB_CD).getInt64();
+            case FLOAT32:
+                return ByteReadBuff.newInstance(data, byteOffset, false, EByteBuffFormat.AB_CD).getFloat32();
+            case FLOAT64:
+                return ByteReadBuff.newInstance(data, byteOffset, false, EByteBuffFormat.AB_CD).getFloat64();
+            case STRING:
+                return ByteUtil.toStr(data, byteOffset, this.count, StandardCharsets.US_ASCII);
+            default:
+                throw new IllegalArgumentException(String.format("The data type [%s] is not supported", this.dataType.getName()));
+        }
+    }
+
+    /**
+     * Whether the data type can be stored in the word device.
+     * (数据类型是否可以存储在字软元件中)
+     *
+     * @param dataType data type
+     * @return true: yes, false: no
+     */
+    private static boolean isWordType(EDataType dataType) {
+        switch (dataType) {
+            case BYTE:
+            case UINT16:
+            case INT16:
+            case UINT32:
+            case INT32:
+            case INT64:
+            case FLOAT32:
+            case FLOAT64:
+            case STRING:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
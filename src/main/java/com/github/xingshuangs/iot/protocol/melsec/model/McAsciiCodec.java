@@ -0,0 +1,555 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.model;
+
+
+import com.github.xingshuangs.iot.exceptions.HexParseException;
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.utils.HexUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codec of the ascii communication code, supports 1E, 3E and 4E frames.
+ * ASCII代码的编解码器，支持1E，3E，4E帧<br>
+ * 1、数值以高位在前的大写16进制字符表示，例如指令0401H为"0401"，二进制中为01H 04H<br>
+ * 2、副帧头按字节顺序表示，例如3E帧请求为"5000"<br>
+ * 3、QnA和Q/L系列的软元件为2个字符的代码+6位编号，iQ-R系列为4个字符的代码+8位编号，编号按软元件的表记(10进制或16进制)表示<br>
+ * 4、A系列(1E帧)的软元件为4个字符的16进制代码+8个字符的16进制编号<br>
+ * 5、位单位的数据每个点1个字符，"0"或"1"<br>
+ * 6、请求数据长度和响应数据长度为字符数量
+ *
+ * @author xingshuang
+ */
+public class McAsciiCodec {
+
+    private McAsciiCodec() {
+        // NOOP
+    }
+
+    /**
+     * Header length of the ascii response, including the end code.
+     * (ASCII响应头的长度，包含结束代码)
+     *
+     * @param frameType frame type
+     * @return header length
+     */
+    public static int getAckHeaderLength(EMcFrameType frameType) {
+        switch (frameType) {
+            case FRAME_1E:
+                return 4;
+            case FRAME_3E:
+                return 22;
+            case FRAME_4E:
+                return 30;
+            default:
+                throw new McCommException("unknown frame type");
+        }
+    }
+
+    /**
+     * Get the length of the remaining data behind the ascii response header of 3E and 4E.
+     * (获取3E和4E帧ASCII响应头之后的剩余数据长度)
+     *
+     * @param header    ascii response header
+     * @param frameType frame type
+     * @return remaining length
+     */
+    public static int getAckRemainLength(byte[] header, EMcFrameType frameType) {
+        if (frameType == EMcFrameType.FRAME_1E) {
+            throw new McCommException("Frame 1E has no data length");
+        }
+        int offset = frameType == EMcFrameType.FRAME_4E ? 22 : 14;
+        // 数据长度包含结束代码的4个字符
+        return (int) HexUtil.fromAsciiDigits(header, offset, 4, 16) - 4;
+    }
+
+    /**
+     * Extract the serial number from the ascii response of 4E frame.
+     * (从4E帧的ASCII响应中提取序列号)
+     *
+     * @param data ascii response
+     * @return serial number
+     */
+    public static Integer extractSerialNumber(byte[] data) {
+        return (int) HexUtil.fromAsciiDigits(data, 4, 4, 16);
+    }
+
+    /**
+     * Encode the request message to the ascii frame.
+     * (将请求消息编码为ASCII帧)
+     *
+     * @param req request message
+     * @return ascii byte array
+     */
+    public static byte[] encode(McMessageReq req) {
+        McHeaderReq header = req.getHeader();
+        McReqData data = (McReqData) req.getData();
+        // ASCII报文长度不会超过二进制报文的2倍，奇数个位点时少1个字符
+        AsciiWriter writer = new AsciiWriter(2 * req.byteArrayLength());
+        if (header.getFrameType() == EMcFrameType.FRAME_1E) {
+            writer.putHex(header.getSubHeader(), 2);
+            writer.putHex(((McFrame1EAccessRoute) header.getAccessRoute()).getPcNumber(), 2);
+            writer.putHex(header.getMonitoringTimer(), 4);
+            putReqData(writer, data);
+            return writer.getData();
+        }
+        // 副帧头按字节顺序
+        writer.putHex(header.getSubHeader() & 0xFF, 2);
+        writer.putHex((header.getSubHeader() >> 8) & 0xFF, 2);
+        if (header.getFrameType() == EMcFrameType.FRAME_4E) {
+            McHeader4EReq header4E = (McHeader4EReq) header;
+            writer.putHex(header4E.getSerialNumber(), 4);
+            writer.putHex(header4E.getFixedNumber(), 4);
+        }
+        putAccessRoute(writer, (McFrame4E3EAccessRoute) header.getAccessRoute());
+        int lengthIndex = writer.position;
+        writer.position += 4;
+        writer.putHex(header.getMonitoringTimer(), 4);
+        putReqData(writer, data);
+        // 请求数据长度，从监视定时器到请求数据为止的字符数量
+        HexUtil.toAsciiDigits(writer.position - lengthIndex - 4, 16, writer.data, lengthIndex, 4);
+        return writer.getData();
+    }
+
+    /**
+     * Decode the ascii frame to the response message, the data content is converted to the binary layout, so it is
+     * the same as the binary communication code.
+     * (将ASCII帧解码为响应消息，数据内容转换为二进制的格式，与二进制代码通信时一致)
+     *
+     * @param src ascii byte array
+     * @param req request message, used to decide the layout of the data
+     * @return response message
+     */
+    public static McMessageAck decode(byte[] src, McMessageReq req) {
+        EMcFrameType frameType = req.getHeader().getFrameType();
+        AsciiReader reader = new AsciiReader(src);
+        McMessageAck ack = new McMessageAck();
+        if (frameType == EMcFrameType.FRAME_1E) {
+            McHeader1EAck header = new McHeader1EAck();
+            header.setSubHeader(reader.getHex(2));
+            header.setEndCode(reader.getHex(2));
+            ack.setHeader(header);
+        } else {
+            McHeader3EAck header;
+            int subHeader = reader.getHex(2) | (reader.getHex(2) << 8);
+            if (frameType == EMcFrameType.FRAME_4E) {
+                McHeader4EAck header4E = new McHeader4EAck();
+                header4E.setSerialNumber(reader.getHex(4));
+                header4E.setFixedNumber(reader.getHex(4));
+                header = header4E;
+            } else {
+                header = new McHeader3EAck();
+            }
+            header.setSubHeader(subHeader);
+            header.setAccessRoute(getAccessRoute(reader));
+            int dataLength = reader.getHex(4);
+            if (dataLength != reader.remaining()) {
+                // 响应数据长度和实际长度不一致
+                throw new McCommException(String.format("The data length of ascii response is %d, but the actual length is %d",
+                        dataLength, reader.remaining()));
+            }
+            header.setEndCode(reader.getHex(4));
+            ack.setHeader(header);
+        }
+
+        if (ack.getHeader().getEndCode() == 0) {
+            McAckData ackData = new McAckData();
+            ackData.setData(getAckData(reader, req));
+            ack.setData(ackData);
+        } else if (frameType == EMcFrameType.FRAME_1E) {
+            McError1EData errorData = new McError1EData();
+            errorData.setError(reader.remaining() >= 2 ? reader.getHex(2) : 0);
+            ack.setData(errorData);
+        } else {
+            McError4E3EData errorData = new McError4E3EData();
+            errorData.setAccessRoute(getAccessRoute(reader));
+            errorData.setCommand(EMcCommand.from(reader.getHex(4)));
+            errorData.setSubcommand(reader.getHex(4));
+            ack.setData(errorData);
+        }
+        ack.selfCheck();
+        return ack;
+    }
+
+    //region 编码
+
+    /**
+     * Put the access route of 3E and 4E.
+     * (写入3E和4E帧的访问路径)
+     *
+     * @param writer ascii writer
+     * @param route  access route
+     */
+    private static void putAccessRoute(AsciiWriter writer, McFrame4E3EAccessRoute route) {
+        writer.putHex(route.getNetworkNumber(), 2);
+        writer.putHex(route.getPcNumber(), 2);
+        writer.putHex(route.getRequestDestModuleIoNumber(), 4);
+        writer.putHex(route.getRequestDestModuleStationNumber(), 2);
+    }
+
+    /**
+     * Put the request data.
+     * (写入请求数据)
+     *
+     * @param writer ascii writer
+     * @param data   request data
+     */
+    private static void putReqData(AsciiWriter writer, McReqData data) {
+        EMcSeries series = data.getSeries();
+        boolean frame1E = series.getFrameType() == EMcFrameType.FRAME_1E;
+        if (!frame1E) {
+            writer.putHex(data.getCommand().getCode(), 4);
+            writer.putHex(data.getSubcommand(), 4);
+        }
+        boolean bitUnits = (data.getSubcommand() & 0x01) != 0;
+        if (data instanceof McReadDeviceBatchReqData) {
+            McDeviceAddress address = ((McReadDeviceBatchReqData) data).getDeviceAddress();
+            putDeviceAddress(writer, series, address);
+            putPointsCount(writer, series, address.getDevicePointsCount());
+        } else if (data instanceof McWriteDeviceBatchReqData) {
+            McDeviceContent content = ((McWriteDeviceBatchReqData) data).getDeviceContent();
+            putDeviceAddress(writer, series, content);
+            putPointsCount(writer, series, content.getDevicePointsCount());
+            if (bitUnits) {
+                writer.putNibbles(content.getData(), content.getDevicePointsCount());
+            } else {
+                writer.putWords(content.getData());
+            }
+        } else if (data instanceof McReadDeviceRandomInWordReqData) {
+            McReadDeviceRandomInWordReqData randomData = (McReadDeviceRandomInWordReqData) data;
+            writer.putHex(randomData.getWordAddresses().size(), 2);
+            writer.putHex(randomData.getDwordAddresses().size(), 2);
+            randomData.getWordAddresses().forEach(x -> putDeviceAddress(writer, series, x));
+            randomData.getDwordAddresses().forEach(x -> putDeviceAddress(writer, series, x));
+        } else if (data instanceof McWriteDeviceRandomInWordReqData) {
+            McWriteDeviceRandomInWordReqData randomData = (McWriteDeviceRandomInWordReqData) data;
+            if (frame1E) {
+                putPointsCount(writer, series, randomData.getWordContents().size());
+            } else {
+                writer.putHex(randomData.getWordContents().size(), 2);
+                writer.putHex(randomData.getDwordContents().size(), 2);
+            }
+            putDeviceContents(writer, series, randomData.getWordContents());
+            putDeviceContents(writer, series, randomData.getDwordContents());
+        } else if (data instanceof McWriteDeviceRandomInBitReqData) {
+            McWriteDeviceRandomInBitReqData randomData = (McWriteDeviceRandomInBitReqData) data;
+            if (frame1E) {
+                putPointsCount(writer, series, randomData.getBitContents().size());
+            } else {
+                writer.putHex(randomData.getBitContents().size(), 2);
+            }
+            putDeviceContents(writer, series, randomData.getBitContents());
+        } else if (data instanceof McReadDeviceBatchMultiBlocksReqData) {
+            McReadDeviceBatchMultiBlocksReqData blocksData = (McReadDeviceBatchMultiBlocksReqData) data;
+            writer.putHex(blocksData.getWordAddresses().size(), 2);
+            writer.putHex(blocksData.getBitAddresses().size(), 2);
+            for (McDeviceAddress address : blocksData.getWordAddresses()) {
+                putDeviceAddress(writer, series, address);
+                putPointsCount(writer, series, address.getDevicePointsCount());
+            }
+            for (McDeviceAddress address : blocksData.getBitAddresses()) {
+                putDeviceAddress(writer, series, address);
+                putPointsCount(writer, series, address.getDevicePointsCount());
+            }
+        } else if (data instanceof McWriteDeviceBatchMultiBlocksReqData) {
+            McWriteDeviceBatchMultiBlocksReqData blocksData = (McWriteDeviceBatchMultiBlocksReqData) data;
+            writer.putHex(blocksData.getWordContents().size(), 2);
+            writer.putHex(blocksData.getBitContents().size(), 2);
+            // 位软元件的块也是按字表示，每个字16个点
+            for (McDeviceContent content : blocksData.getWordContents()) {
+                putDeviceAddress(writer, series, content);
+                putPointsCount(writer, series, content.getDevicePointsCount());
+                writer.putWords(content.getData());
+            }
+            for (McDeviceContent content : blocksData.getBitContents()) {
+                putDeviceAddress(writer, series, content);
+                putPointsCount(writer, series, content.getDevicePointsCount());
+                writer.putWords(content.getData());
+            }
+        } else if (!(data instanceof McExecuteMonitorReqData)) {
+            // ASCII代码不支持该请求数据
+            throw new McCommException("The ascii code does not support the request data: " + data.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Put the device contents of random write, the data of every device is a whole number.
+     * (写入随机写的软元件内容，每个软元件的数据是一个完整的数值)
+     *
+     * @param writer   ascii writer
+     * @param series   PLC series
+     * @param contents device contents
+     */
+    private static void putDeviceContents(AsciiWriter writer, EMcSeries series, List<McDeviceContent> contents) {
+        for (McDeviceContent content : contents) {
+            putDeviceAddress(writer, series, content);
+            writer.putReversed(content.getData(), 0, content.getData().length);
+        }
+    }
+
+    /**
+     * Put the device code and the head device number.
+     * (写入软元件代码和起始软元件编号)
+     *
+     * @param writer  ascii writer
+     * @param series  PLC series
+     * @param address device address
+     */
+    private static void putDeviceAddress(AsciiWriter writer, EMcSeries series, McDeviceAddress address) {
+        EMcDeviceCode deviceCode = address.getDeviceCode();
+        if (series == EMcSeries.A) {
+            writer.putHex(deviceCode.getBinaryCode1E(), 4);
+            writer.putHex(address.getHeadDeviceNumber(), 8);
+        } else if (series == EMcSeries.IQ_R) {
+            writer.putText(deviceCode.getAsciiCodeIqr(), 4, deviceCode);
+            writer.putDigits(address.getHeadDeviceNumber(), deviceCode.getNotation(), 8);
+        } else {
+            writer.putText(deviceCode.getAsciiCode(), 2, deviceCode);
+            writer.putDigits(address.getHeadDeviceNumber(), deviceCode.getNotation(), 6);
+        }
+    }
+
+    /**
+     * Put the device points count, 1E frame is 1-byte count + "00".
+     * (写入软元件点数，1E帧是1个字节的点数+"00")
+     *
+     * @param writer ascii writer
+     * @param series PLC series
+     * @param count  device points count
+     */
+    private static void putPointsCount(AsciiWriter writer, EMcSeries series, int count) {
+        if (series.getFrameType() == EMcFrameType.FRAME_1E) {
+            writer.putHex(count & 0xFF, 2);
+            writer.putHex((count >> 8) & 0xFF, 2);
+        } else {
+            writer.putHex(count, 4);
+        }
+    }
+
+    //endregion
+
+    //region 解码
+
+    /**
+     * Get the access route of 3E and 4E.
+     * (读取3E和4E帧的访问路径)
+     *
+     * @param reader ascii reader
+     * @return access route
+     */
+    private static McFrame4E3EAccessRoute getAccessRoute(AsciiReader reader) {
+        return new McFrame4E3EAccessRoute(reader.getHex(2), reader.getHex(2), reader.getHex(4), reader.getHex(2));
+    }
+
+    /**
+     * Get the response data in binary layout.
+     * (读取响应数据，转换为二进制的格式)
+     *
+     * @param reader ascii reader
+     * @param req    request message
+     * @return byte array
+     */
+    private static byte[] getAckData(AsciiReader reader, McMessageReq req) {
+        McReqData data = (McReqData) req.getData();
+        if (data instanceof McReadDeviceBatchReqData && (data.getSubcommand() & 0x01) != 0) {
+            return reader.getNibbles(reader.remaining());
+        }
+        int wordCount;
+        int dwordCount;
+        if (data instanceof McReadDeviceRandomInWordReqData && !(data instanceof McRegisterMonitorReqData)) {
+            wordCount = ((McReadDeviceRandomInWordReqData) data).getWordAddresses().size();
+            dwordCount = ((McReadDeviceRandomInWordReqData) data).getDwordAddresses().size();
+        } else if (data instanceof McExecuteMonitorReqData && ((McExecuteMonitorReqData) data).getDwordCount() > 0) {
+            wordCount = ((McExecuteMonitorReqData) data).getWordCount();
+            dwordCount = ((McExecuteMonitorReqData) data).getDwordCount();
+        } else {
+            // 其余都是字单位的数据
+            if (reader.remaining() % 4 != 0) {
+                throw new McCommException("The length of ascii word data must be a multiple of 4, length=" + reader.remaining());
+            }
+            wordCount = reader.remaining() / 4;
+            dwordCount = 0;
+        }
+        if (reader.remaining() != wordCount * 4 + dwordCount * 8) {
+            // 响应数据长度和请求的软元件数量不一致
+            throw new McCommException(String.format("The length of ascii data %d does not match %d words and %d dwords",
+                    reader.remaining(), wordCount, dwordCount));
+        }
+        byte[] res = new byte[wordCount * 2 + dwordCount * 4];
+        for (int i = 0; i < wordCount; i++) {
+            reader.getReversed(res, i * 2, 2);
+        }
+        for (int i = 0; i < dwordCount; i++) {
+            reader.getReversed(res, wordCount * 2 + i * 4, 4);
+        }
+        return res;
+    }
+
+    //endregion
+
+    /**
+     * Writer of ascii characters, writes into the byte array directly.
+     * (ASCII字符写入器，直接写入字节数组)
+     */
+    private static class AsciiWriter {
+
+        private final byte[] data;
+
+        private int position = 0;
+
+        private AsciiWriter(int capacity) {
+            this.data = new byte[capacity];
+        }
+
+        private void putHex(long value, int width) {
+            this.putDigits(value, 16, width);
+        }
+
+        private void putDigits(long value, int radix, int width) {
+            try {
+                HexUtil.toAsciiDigits(value, radix, this.data, this.position, width);
+            } catch (HexParseException e) {
+                throw new McCommException(e.getMessage());
+            }
+            this.position += width;
+        }
+
+        private void putText(String text, int width, EMcDeviceCode deviceCode) {
+            if (text == null || text.length() != width) {
+                // 该软元件不支持当前系列的ASCII代码
+                throw new McCommException(String.format("The device code [%s] does not support ascii code", deviceCode.getSymbol()));
+            }
+            byte[] src = text.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(src, 0, this.data, this.position, width);
+            this.position += width;
+        }
+
+        /**
+         * Put the little-endian number as hex characters with the high digit first.
+         * (将小端的数值按高位在前写入16进制字符)
+         */
+        private void putReversed(byte[] src, int offset, int length) {
+            for (int i = offset + length - 1; i >= offset; i--) {
+                HexUtil.toAsciiHex(src, i, 1, this.data, this.position);
+                this.position += 2;
+            }
+        }
+
+        private void putWords(byte[] src) {
+            for (int i = 0; i + 1 < src.length; i += 2) {
+                this.putReversed(src, i, 2);
+            }
+        }
+
+        /**
+         * Put the bit points, one nibble per point in binary, one character per point in ascii.
+         * (写入位点，二进制中每个点半个字节，ASCII中每个点1个字符)
+         */
+        private void putNibbles(byte[] src, int count) {
+            HexUtil.toAsciiHex(src, 0, count / 2, this.data, this.position);
+            this.position += count / 2 * 2;
+            if (count % 2 == 1) {
+                this.putHex((src[count / 2] >> 4) & 0x0F, 1);
+            }
+        }
+
+        private byte[] getData() {
+            return this.position == this.data.length ? this.data : Arrays.copyOf(this.data, this.position);
+        }
+    }
+
+    /**
+     * Reader of ascii characters.
+     * (ASCII字符读取器)
+     */
+    private static class AsciiReader {
+
+        private final byte[] data;
+
+        private int position = 0;
+
+        private AsciiReader(byte[] data) {
+            this.data = data;
+        }
+
+        private int remaining() {
+            return this.data.length - this.position;
+        }
+
+        private void checkRemaining(int length) {
+            if (this.remaining() < length) {
+                // ASCII响应数据长度不足
+                throw new McCommException(String.format("The ascii response is too short, need %d, remain %d", length, this.remaining()));
+            }
+        }
+
+        private int getHex(int width) {
+            this.checkRemaining(width);
+            try {
+                int res = (int) HexUtil.fromAsciiDigits(this.data, this.position, width, 16);
+                this.position += width;
+                return res;
+            } catch (HexParseException e) {
+                throw new McCommException(e.getMessage());
+            }
+        }
+
+        /**
+         * Get the hex characters with the high digit first as the little-endian number.
+         * (将高位在前的16进制字符读取为小端的数值)
+         */
+        private void getReversed(byte[] dst, int offset, int length) {
+            for (int i = offset + length - 1; i >= offset; i--) {
+                dst[i] = (byte) this.getHex(2);
+            }
+        }
+
+        /**
+         * Get the bit points, one character per point in ascii, one nibble per point in binary.
+         * (读取位点，ASCII中每个点1个字符，二进制中每个点半个字节)
+         */
+        private byte[] getNibbles(int count) {
+            this.checkRemaining(count);
+            byte[] res = new byte[(count + 1) / 2];
+            try {
+                HexUtil.fromAsciiHex(this.data, this.position, count / 2, res, 0);
+            } catch (HexParseException e) {
+                throw new McCommException(e.getMessage());
+            }
+            this.position += count / 2 * 2;
+            if (count % 2 == 1) {
+                res[count / 2] = (byte) (this.getHex(1) << 4);
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.model;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Device access request data, execute monitor, only command and sub command, the devices are the registered ones.
+ * (软元件访问监视请求数据，只有指令和子指令，软元件为已登录的监视数据)
+ *
+ * @author xingshuang
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class McExecuteMonitorReqData extends McReqData {
+
+    /**
+     * Number of the registered word devices, not counted in bytes, used to split the ascii response.
+     * (已登录的字软元件数量，注意：该字段不统计在字节计算中，用于拆分ASCII响应)
+     */
+    private int wordCount = 0;
+
+    /**
+     * Number of the registered dword devices, not counted in bytes, used to split the ascii response.
+     * (已登录的双字软元件数量，注意：该字段不统计在字节计算中，用于拆分ASCII响应)
+     */
+    private int dwordCount = 0;
+
+    public McExecuteMonitorReqData() {
+        this(EMcSeries.Q_L);
+    }
+
+    public McExecuteMonitorReqData(EMcSeries series) {
+        if (series.getFrameType() == EMcFrameType.FRAME_1E) {
+            throw new McCommException("Frame 1E not supported");
+        }
+        this.series = series;
+        this.command = EMcCommand.DEVICE_ACCESS_MONITOR;
+        this.subcommand = 0x0000;
+    }
+
+    @Override
+    public int byteArrayLength() {
+        return 4;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return ByteWriteBuff.newInstance(this.byteArrayLength(), true)
+                .putShort(this.command.getCode())
+                .putShort(this.subcommand)
+                .getData();
+    }
+}
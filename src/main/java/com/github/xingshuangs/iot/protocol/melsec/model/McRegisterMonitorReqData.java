@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.model;
+
+
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Device access request data, register monitor data, the layout is the same as random read in word.
+ * (软元件访问监视数据登录请求数据，格式与按字随机读取相同)
+ *
+ * @author xingshuang
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class McRegisterMonitorReqData extends McReadDeviceRandomInWordReqData {
+
+    public McRegisterMonitorReqData() {
+        this(EMcSeries.Q_L, new ArrayList<>(), new ArrayList<>());
+    }
+
+    public McRegisterMonitorReqData(EMcSeries series) {
+        this(series, new ArrayList<>(), new ArrayList<>());
+    }
+
+    public McRegisterMonitorReqData(EMcSeries series,
+                                    List<McDeviceAddress> wordAddresses,
+                                    List<McDeviceAddress> dwordAddresses) {
+        super(series, wordAddresses, dwordAddresses);
+        this.command = EMcCommand.DEVICE_ACCESS_REGISTER_MONITOR_DATA;
+    }
+}
@@ -363,4 +363,66 @@ public class McReqBuilder {
         req.selfCheck();
         return req;
     }
+
+    /**
+     * Create request of register monitor data.
+     * (创建监视数据登录请求)
+     *
+     * @param wordAddresses  word data address
+     * @param dwordAddresses dword data address
+     * @return request message
+     */
+    public static McMessageReq createRegisterMonitorReq(List<McDeviceAddress> wordAddresses,
+                                                        List<McDeviceAddress> dwordAddresses) {
+        McHeaderReq header = McHeaderReq.createByFrameType(EMcFrameType.FRAME_3E, McFrame4E3EAccessRoute.createDefault(),
+                MONITORING_TIMER_DEFAULT);
+        return createRegisterMonitorReq(EMcSeries.QnA, header, wordAddresses, dwordAddresses);
+    }
+
+    /**
+     * Create request of register monitor data.
+     * (创建监视数据登录请求)
+     *
+     * @param series         PLC series
+     * @param header         request header
+     * @param wordAddresses  word data address
+     * @param dwordAddresses dword data address
+     * @return request message
+     */
+    public static McMessageReq createRegisterMonitorReq(EMcSeries series,
+                                                        McHeaderReq header,
+                                                        List<McDeviceAddress> wordAddresses,
+                                                        List<McDeviceAddress> dwordAddresses) {
+        McRegisterMonitorReqData data = new McRegisterMonitorReqData(series, wordAddresses, dwordAddresses);
+        McMessageReq req = new McMessageReq(header, data);
+        req.selfCheck();
+        return req;
+    }
+
+    /**
+     * Create request of execute monitor.
+     * (创建监视请求)
+     *
+     * @return request message
+     */
+    public static McMessageReq createExecuteMonitorReq() {
+        McHeaderReq header = McHeaderReq.createByFrameType(EMcFrameType.FRAME_3E, McFrame4E3EAccessRoute.createDefault(),
+                MONITORING_TIMER_DEFAULT);
+        return createExecuteMonitorReq(EMcSeries.QnA, header);
+    }
+
+    /**
+     * Create request of execute monitor.
+     * (创建监视请求)
+     *
+     * @param series PLC series
+     * @param header request header
+     * @return request message
+     */
+    public static McMessageReq createExecuteMonitorReq(EMcSeries series, McHeaderReq header) {
+        McExecuteMonitorReqData data = new McExecuteMonitorReqData(series);
+        McMessageReq req = new McMessageReq(header, data);
+        req.selfCheck();
+        return req;
+    }
 }
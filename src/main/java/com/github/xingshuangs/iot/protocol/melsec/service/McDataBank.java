@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+
+import com.github.xingshuangs.iot.common.buff.BitTable;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Data bank of the melsec server, every bit device is stored as packed bits, every word device as little endian
+ * words, the devices of dword type use one word per device number.
+ * (三菱服务端的数据区，位软元件按位紧凑存储，字软元件按小端字存储，双字类型的软元件每个编号占一个字)
+ *
+ * @author xingshuang
+ */
+@Getter
+public class McDataBank {
+
+    /**
+     * Read and write lock.
+     * (读写锁)
+     */
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    /**
+     * Bit devices, packed bits.
+     * (位软元件，按位紧凑存储)
+     */
+    private final Map<EMcDeviceCode, BitTable> bitDevices = new EnumMap<>(EMcDeviceCode.class);
+
+    /**
+     * Word devices, 2 bytes per point.
+     * (字软元件，每个点2个字节)
+     */
+    private final Map<EMcDeviceCode, byte[]> wordDevices = new EnumMap<>(EMcDeviceCode.class);
+
+    /**
+     * Constructor.
+     * (构造方法)
+     *
+     * @param bitSize  number of points of every bit device, [1, 65536]
+     * @param wordSize number of points of every word device, [1, 65536]
+     */
+    public McDataBank(int bitSize, int wordSize) {
+        if (bitSize < 1 || bitSize > BitTable.MAX_SIZE) {
+            throw new IllegalArgumentException("bitSize < 1 || bitSize > " + BitTable.MAX_SIZE);
+        }
+        if (wordSize < 1 || wordSize > BitTable.MAX_SIZE) {
+            throw new IllegalArgumentException("wordSize < 1 || wordSize > " + BitTable.MAX_SIZE);
+        }
+        for (EMcDeviceCode deviceCode : EMcDeviceCode.values()) {
+            if (EMcDeviceCode.checkBitType(deviceCode)) {
+                this.bitDevices.put(deviceCode, new BitTable(bitSize));
+            } else {
+                this.wordDevices.put(deviceCode, new byte[wordSize * 2]);
+            }
+        }
+    }
+
+    /**
+     * Read in word units, 16 bits of the bit device make one word, the first point is the lowest bit.
+     * (按字读取，位软元件每16个点组成1个字，第一个点位于最低位)
+     *
+     * @param deviceCode       device code
+     * @param headDeviceNumber head device number
+     * @param points           number of words
+     * @return byte array, length = points * 2
+     * @throws IndexOutOfBoundsException out of range
+     */
+    public byte[] readWords(EMcDeviceCode deviceCode, int headDeviceNumber, int points) {
+        BitTable bits = this.bitDevices.get(deviceCode);
+        if (bits != null) {
+            return bits.getBytes(headDeviceNumber, points * 16);
+        }
+        byte[] words = this.wordDevices.get(deviceCode);
+        this.checkRange(words, headDeviceNumber, points);
+        byte[] res = new byte[points * 2];
+        System.arraycopy(words, headDeviceNumber * 2, res, 0, res.length);
+        return res;
+    }
+
+    /**
+     * Write in word units, 16 bits of the bit device make one word, the first point is the lowest bit.
+     * (按字写入，位软元件每16个点组成1个字，第一个点位于最低位)
+     *
+     * @param deviceCode       device code
+     * @param headDeviceNumber head device number
+     * @param points           number of words
+     * @param data             byte array, length &gt;= points * 2
+     * @throws IndexOutOfBoundsException out of range
+     */
+    public void writeWords(EMcDeviceCode deviceCode, int headDeviceNumber, int points, byte[] data) {
+        BitTable bits = this.bitDevices.get(deviceCode);
+        if (bits != null) {
+            bits.setBytes(headDeviceNumber, points * 16, data);
+            return;
+        }
+        byte[] words = this.wordDevices.get(deviceCode);
+        this.checkRange(words, headDeviceNumber, points);
+        System.arraycopy(data, 0, words, headDeviceNumber * 2, points * 2);
+    }
+
+    /**
+     * Read bit device in bit units, every point is 4 bits, the first point is the high 4 bits of the byte.
+     * (按位读取位软元件，每个点4位，第一个点位于字节的高4位)
+     *
+     * @param deviceCode       bit device code
+     * @param headDeviceNumber head device number
+     * @param points           number of points
+     * @return byte array, length = (points + 1) / 2
+     * @throws IndexOutOfBoundsException out of range
+     */
+    public byte[] readBits(EMcDeviceCode deviceCode, int headDeviceNumber, int points) {
+        BitTable bits = this.getBitTable(deviceCode);
+        byte[] res = new byte[(points + 1) / 2];
+        for (int i = 0; i < points; i++) {
+            if (bits.get(headDeviceNumber + i)) {
+                res[i / 2] |= (byte) (i % 2 == 0 ? 0x10 : 0x01);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Write bit device in bit units, every point is 4 bits, the first point is the high 4 bits of the byte.
+     * (按位写入位软元件，每个点4位，第一个点位于字节的高4位)
+     *
+     * @param deviceCode       bit device code
+     * @param headDeviceNumber head device number
+     * @param points           number of points
+     * @param data             byte array, length &gt;= (points + 1) / 2
+     * @throws IndexOutOfBoundsException out of range
+     */
+    public void writeBits(EMcDeviceCode deviceCode, int headDeviceNumber, int points, byte[] data) {
+        BitTable bits = this.getBitTable(deviceCode);
+        if (headDeviceNumber < 0 || headDeviceNumber + points > bits.size()) {
+            throw new IndexOutOfBoundsException(String.format("index[%d], quantity[%d], size[%d]", headDeviceNumber, points, bits.size()));
+        }
+        for (int i = 0; i < points; i++) {
+            int value = i % 2 == 0 ? data[i / 2] & 0xF0 : data[i / 2] & 0x0F;
+            bits.set(headDeviceNumber + i, value != 0);
+        }
+    }
+
+    /**
+     * Get the bit of the bit device.
+     * (获取位软元件的位值)
+     *
+     * @param deviceCode   bit device code
+     * @param deviceNumber device number
+     * @return true, false
+     */
+    public boolean getBit(EMcDeviceCode deviceCode, int deviceNumber) {
+        return this.getBitTable(deviceCode).get(deviceNumber);
+    }
+
+    /**
+     * Set the bit of the bit device.
+     * (设置位软元件的位值)
+     *
+     * @param deviceCode   bit device code
+     * @param deviceNumber device number
+     * @param value        true, false
+     */
+    public void setBit(EMcDeviceCode deviceCode, int deviceNumber, boolean value) {
+        this.getBitTable(deviceCode).set(deviceNumber, value);
+    }
+
+    private BitTable getBitTable(EMcDeviceCode deviceCode) {
+        BitTable bits = this.bitDevices.get(deviceCode);
+        if (bits == null) {
+            throw new IllegalArgumentException("It can only be bit device code: " + deviceCode);
+        }
+        return bits;
+    }
+
+    private void checkRange(byte[] words, int headDeviceNumber, int points) {
+        if (headDeviceNumber < 0 || points < 0 || (headDeviceNumber + points) * 2 > words.length) {
+            throw new IndexOutOfBoundsException(String.format("index[%d], quantity[%d], size[%d]", headDeviceNumber, points, words.length / 2));
+        }
+    }
+}
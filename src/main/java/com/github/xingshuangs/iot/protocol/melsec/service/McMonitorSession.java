@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceAddress;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceContent;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Monitor session for polling a fixed device set, the devices are registered once (0801), then every read only sends
+ * the tiny execute monitor request (0802), it registers again automatically after reconnecting or when another
+ * registration replaced it.
+ * (固定软元件集合的监视会话，软元件只登录一次(0801)，之后每次读取只发送很小的监视请求(0802)，重连或登录被覆盖后自动重新登录)
+ *
+ * @author xingshuang
+ */
+@Getter
+public class McMonitorSession {
+
+    /**
+     * PLC network.
+     * (PLC网络通信)
+     */
+    private final McNetwork network;
+
+    /**
+     * Word address list.
+     * (字访问地址列表)
+     */
+    private final List<McDeviceAddress> words;
+
+    /**
+     * Dword address list.
+     * (双字访问地址列表)
+     */
+    private final List<McDeviceAddress> dwords;
+
+    public McMonitorSession(McNetwork network, McMultiAddressRead multiAddressRead) {
+        this(network, multiAddressRead.getWords(), multiAddressRead.getDwords());
+    }
+
+    public McMonitorSession(McNetwork network, List<McDeviceAddress> words, List<McDeviceAddress> dwords) {
+        if (network == null) {
+            throw new NullPointerException("network");
+        }
+        network.checkMonitorCondition(words, dwords);
+        this.network = network;
+        this.words = Collections.unmodifiableList(new ArrayList<>(words));
+        this.dwords = Collections.unmodifiableList(new ArrayList<>(dwords));
+    }
+
+    /**
+     * Read the registered devices, the word contents come first, then the dword contents.
+     * (读取已登录的软元件，先字数据后双字数据)
+     *
+     * @return device content list
+     */
+    public List<McDeviceContent> read() {
+        return this.network.readByMonitor(this);
+    }
+}
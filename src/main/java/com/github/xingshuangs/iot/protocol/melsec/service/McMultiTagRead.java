@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.protocol.melsec.model.McAddressItem;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi tag read, the nearby devices are merged into blocks and the command mix is planned when reading.
+ * 多点位读，读取时相近的软元件合并为数据块并规划读取指令
+ *
+ * @author xingshuang
+ */
+@Data
+public class McMultiTagRead {
+
+    /**
+     * Address items.
+     * 地址项列表
+     */
+    private final List<McAddressItem> items = new ArrayList<>();
+
+    /**
+     * Add address item.
+     * (添加地址项)
+     *
+     * @param item address item
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addData(McAddressItem item) {
+        this.items.add(item);
+        return this;
+    }
+
+    /**
+     * Add address, Boolean for bit device, Short for word device.
+     * (添加地址，位软元件为Boolean，字软元件为Short)
+     *
+     * @param address address string, e.g. D100, M20, W1A0
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addData(String address) {
+        return this.addData(McAddressItem.createBy(address));
+    }
+
+    /**
+     * Add address with data type.
+     * (添加指定数据类型的地址)
+     *
+     * @param address  address string
+     * @param dataType data type, BOOL for bit device, the others for word device
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addData(String address, EDataType dataType) {
+        return this.addData(McAddressItem.createBy(address, dataType));
+    }
+
+    /**
+     * Add boolean of bit device.
+     * (添加位软元件的boolean)
+     *
+     * @param address address string
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addBoolean(String address) {
+        return this.addData(address, EDataType.BOOL);
+    }
+
+    /**
+     * Add int16.
+     * (添加Int16)
+     *
+     * @param address address string
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addInt16(String address) {
+        return this.addData(address, EDataType.INT16);
+    }
+
+    /**
+     * Add uint16.
+     * (添加UInt16)
+     *
+     * @param address address string
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addUInt16(String address) {
+        return this.addData(address, EDataType.UINT16);
+    }
+
+    /**
+     * Add int32.
+     * (添加Int32)
+     *
+     * @param address address string
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addInt32(String address) {
+        return this.addData(address, EDataType.INT32);
+    }
+
+    /**
+     * Add uint32.
+     * (添加UInt32)
+     *
+     * @param address address string
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addUInt32(String address) {
+        return this.addData(address, EDataType.UINT32);
+    }
+
+    /**
+     * Add float32.
+     * (添加Float32)
+     *
+     * @param address address string
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addFloat32(String address) {
+        return this.addData(address, EDataType.FLOAT32);
+    }
+
+    /**
+     * Add string, ASCII.
+     * (添加字符串，ASCII编码)
+     *
+     * @param address address string
+     * @param length  string length
+     * @return McMultiTagRead
+     */
+    public McMultiTagRead addString(String address, int length) {
+        return this.addData(McAddressItem.createBy(address, EDataType.STRING, length));
+    }
+}
@@ -31,18 +31,34 @@ import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
 import com.github.xingshuangs.iot.common.constant.GeneralConst;
 import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.net.SocketUtils;
 import com.github.xingshuangs.iot.net.client.TcpClientBasic;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.net.client.TcpClientPipeline;
+import com.github.xingshuangs.iot.protocol.melsec.algorithm.McMergeBlock;
+import com.github.xingshuangs.iot.protocol.melsec.algorithm.McMergeReadAlg;
 import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDataCode;
 import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
 import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
 import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
 import com.github.xingshuangs.iot.protocol.melsec.model.*;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
@@ -98,6 +114,89 @@ public class McNetwork extends TcpClientBasic {
      */
     protected EMcSeries series = EMcSeries.QnA;
 
+    /**
+     * Communication data code, must be the same as the "Communication Data Code" of the PLC.
+     * (通信数据代码，必须和PLC中的"通信数据代码设置"一致，默认二进制)
+     */
+    protected EMcDataCode dataCode = EMcDataCode.BINARY;
+
+    /**
+     * Pipelined, only works with 4E frame, true: several requests in flight per connection, responses matched by
+     * serial number, false: one request at a time.
+     * (是否流水线模式，仅4E帧生效，true：单连接同时发送多个请求，根据序列号匹配响应，false：单连接一次一个请求，默认false)
+     */
+    private boolean pipelined = false;
+
+    /**
+     * Max number of requests in flight per connection when pipelined.
+     * (流水线模式下单连接同时进行的最大请求数量)
+     */
+    private int maxInFlight = 8;
+
+    /**
+     * Serial number generator of 4E frame.
+     * (4E帧序列号生成器)
+     */
+    private final AtomicInteger serialNumber = new AtomicInteger();
+
+    /**
+     * Pipeline dispatcher, created when pipelined.
+     * (流水线分发器，流水线模式下创建)
+     */
+    private TcpClientPipeline<Integer> pipeline;
+
+    /**
+     * Monitor locker, keep the registration and the execution of monitor together.
+     * (监视锁，保证监视数据登录和监视执行的完整性)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final ReentrantLock monitorLocker = new ReentrantLock();
+
+    /**
+     * The monitor session registered in the PLC currently.
+     * (当前在PLC中登录的监视会话)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private McMonitorSession monitorSession;
+
+    /**
+     * The socket which the monitor data is registered on, the registration is lost after reconnecting.
+     * (监视数据登录时的socket，重连后登录失效)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Socket monitorSocket;
+
+    /**
+     * The number of the registered word devices, used to split the response of execute monitor in ascii code.
+     * (已登录的字软元件数量，ASCII代码下用于拆分监视的响应)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int monitorWordCount;
+
+    /**
+     * The number of the registered dword devices, used to split the response of execute monitor in ascii code.
+     * (已登录的双字软元件数量，ASCII代码下用于拆分监视的响应)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int monitorDwordCount;
+
+    /**
+     * Max gap of word device allowed to merge when reading multi tag.
+     * (多点位读取时允许合并的字软元件最大间隔)
+     */
+    private int mergeReadWordGap = McMergeReadAlg.DEFAULT_MAX_WORD_GAP;
+
+    /**
+     * Max gap of bit device allowed to merge when reading multi tag.
+     * (多点位读取时允许合并的位软元件最大间隔)
+     */
+    private int mergeReadBitGap = McMergeReadAlg.DEFAULT_MAX_BIT_GAP;
+
     public McNetwork() {
         super();
     }
@@ -106,6 +205,37 @@ public class McNetwork extends TcpClientBasic {
         super(host, port);
     }
 
+    /**
+     * Set max number of requests in flight per connection.
+     * (设置单连接同时进行的最大请求数量)
+     *
+     * @param maxInFlight max number of requests in flight
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight<=0");
+        }
+        try {
+            this.locker.lock();
+            this.maxInFlight = maxInFlight;
+            if (this.pipeline != null) {
+                this.pipeline.setWindowSize(maxInFlight);
+            }
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Whether the requests are sent in pipeline, needs 4E frame and long connection.
+     * (是否以流水线方式发送请求，需要4E帧和长连接)
+     *
+     * @return true: pipeline, false: one request at a time
+     */
+    protected boolean isPipelineAvailable() {
+        return this.pipelined && this.persistence && this.frameType == EMcFrameType.FRAME_4E;
+    }
+
     //region 底层数据通信部分
 
     @Override
@@ -127,7 +257,10 @@ public class McNetwork extends TcpClientBasic {
      * @return McMessageAck
      */
     protected McMessageAck readFromServer(McMessageReq req) {
-        byte[] reqBytes = req.toByteArray();
+        if (this.isPipelineAvailable()) {
+            return FutureUtil.join(this.readFromServerAsync(req));
+        }
+        byte[] reqBytes = this.encodeReq(req);
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_REQ, reqBytes);
         }
@@ -140,11 +273,130 @@ public class McNetwork extends TcpClientBasic {
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
         }
-        McMessageAck ack = McMessageAck.fromBytes(total, this.frameType);
+        McMessageAck ack = this.decodeAck(total, req);
         this.checkResult(req, ack);
         return ack;
     }
 
+    /**
+     * Encode the request by the communication data code.
+     * (根据通信数据代码编码请求)
+     *
+     * @param req McMessageReq
+     * @return byte array
+     */
+    private byte[] encodeReq(McMessageReq req) {
+        return this.dataCode == EMcDataCode.ASCII ? McAsciiCodec.encode(req) : req.toByteArray();
+    }
+
+    /**
+     * Decode the response by the communication data code.
+     * (根据通信数据代码解码响应)
+     *
+     * @param total byte array of response
+     * @param req   McMessageReq
+     * @return McMessageAck
+     */
+    private McMessageAck decodeAck(byte[] total, McMessageReq req) {
+        return this.dataCode == EMcDataCode.ASCII ? McAsciiCodec.decode(total, req) : McMessageAck.fromBytes(total, this.frameType);
+    }
+
+    /**
+     * Read data from server asynchronously, in pipeline mode the 4E serial number is assigned and the response is
+     * matched by it, the timeout of every request is the receive timeout, otherwise it is read synchronously and a
+     * completed future is returned.
+     * (异步从服务器读取数据，流水线模式下分配4E序列号并据此匹配响应，每个请求的超时时间为接收超时时间，否则同步读取并返回已完成的future)
+     *
+     * @param req McMessageReq
+     * @return future of McMessageAck
+     */
+    protected CompletableFuture<McMessageAck> readFromServerAsync(McMessageReq req) {
+        if (!this.isPipelineAvailable()) {
+            return CompletableFuture.completedFuture(this.readFromServer(req));
+        }
+        int number = this.serialNumber.getAndIncrement() & 0xFFFF;
+        ((McHeader4EReq) req.getHeader()).setSerialNumber(number);
+        byte[] reqBytes = this.encodeReq(req);
+        if (this.comCallback != null) {
+            this.comCallback.accept(GeneralConst.PACKAGE_REQ, reqBytes);
+        }
+        CompletableFuture<byte[]> future = this.getAvailablePipeline().sendAsync(number, reqBytes, this.receiveTimeout);
+        return FutureUtil.propagateCancel(future.thenApply(total -> {
+            if (this.comCallback != null) {
+                this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
+            }
+            McMessageAck ack = this.decodeAck(total, req);
+            this.checkResult(req, ack);
+            return ack;
+        }), future);
+    }
+
+    /**
+     * Get the pipeline dispatcher, create it when absent.
+     * (获取流水线分发器，不存在则创建)
+     *
+     * @return pipeline
+     */
+    private TcpClientPipeline<Integer> getAvailablePipeline() {
+        try {
+            this.locker.lock();
+            if (this.pipeline == null) {
+                this.pipeline = new TcpClientPipeline<>(this, this.maxInFlight,
+                        socket -> this.dataCode == EMcDataCode.ASCII ? readFrame4EAscii(socket) : readFrame4E(socket),
+                        data -> this.dataCode == EMcDataCode.ASCII ? McAsciiCodec.extractSerialNumber(data) : extractSerialNumber(data));
+            }
+            return this.pipeline;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Read one complete 4E frame which length is specified by the header.
+     * (读取一个完整的4E帧，长度由报文头指定)
+     *
+     * @param socket socket object
+     * @return byte array of frame
+     * @throws IOException IO exception
+     */
+    private static byte[] readFrame4E(Socket socket) throws IOException {
+        byte[] data = new byte[15];
+        SocketUtils.read(socket, data, 0, data.length, -1, 0, true);
+        McHeader4EAck header = McHeader4EAck.fromBytes(data);
+        byte[] total = new byte[data.length + header.getDataLength() - 2];
+        System.arraycopy(data, 0, total, 0, data.length);
+        SocketUtils.read(socket, total, data.length, total.length - data.length, -1, 0, true);
+        return total;
+    }
+
+    /**
+     * Read one complete 4E frame in ascii code which length is specified by the header.
+     * (读取一个完整的ASCII代码4E帧，长度由报文头指定)
+     *
+     * @param socket socket object
+     * @return byte array of frame
+     * @throws IOException IO exception
+     */
+    private static byte[] readFrame4EAscii(Socket socket) throws IOException {
+        byte[] data = new byte[McAsciiCodec.getAckHeaderLength(EMcFrameType.FRAME_4E)];
+        SocketUtils.read(socket, data, 0, data.length, -1, 0, true);
+        byte[] total = new byte[data.length + McAsciiCodec.getAckRemainLength(data, EMcFrameType.FRAME_4E)];
+        System.arraycopy(data, 0, total, 0, data.length);
+        SocketUtils.read(socket, total, data.length, total.length - data.length, -1, 0, true);
+        return total;
+    }
+
+    /**
+     * Extract the serial number from the byte array of 4E frame.
+     * (从4E帧的字节数组中提取序列号)
+     *
+     * @param data byte array of frame
+     * @return serial number
+     */
+    private static Integer extractSerialNumber(byte[] data) {
+        return ByteReadBuff.newInstance(data, true).getUInt16(2);
+    }
+
     /**
      * Read data from server of 1E.
      * (1E帧的通信交互)
@@ -186,15 +438,25 @@ public class McNetwork extends TcpClientBasic {
             this.locker.lock();
             this.write(req);
 
-            int headerLength = this.frameType == EMcFrameType.FRAME_4E ? 15 : 11;
+            boolean ascii = this.dataCode == EMcDataCode.ASCII;
+            int headerLength;
+            if (ascii) {
+                headerLength = McAsciiCodec.getAckHeaderLength(this.frameType);
+            } else {
+                headerLength = this.frameType == EMcFrameType.FRAME_4E ? 15 : 11;
+            }
             byte[] data = new byte[headerLength];
             len = this.read(data);
             if (len < headerLength) {
                 // McHeader 无效，读取长度不一致
                 throw new McCommException(" McHeader is invalid, read length is inconsistent");
             }
-            McHeader3EAck header = (McHeader3EAck) McHeaderAck.fromBytes(data, this.frameType);
-            remainLength = header.getDataLength() - 2;
+            if (ascii) {
+                remainLength = McAsciiCodec.getAckRemainLength(data, this.frameType);
+            } else {
+                McHeader3EAck header = (McHeader3EAck) McHeaderAck.fromBytes(data, this.frameType);
+                remainLength = header.getDataLength() - 2;
+            }
             total = new byte[headerLength + remainLength];
             System.arraycopy(data, 0, total, 0, data.length);
             len = this.read(total, data.length, remainLength, true);
@@ -221,6 +483,13 @@ public class McNetwork extends TcpClientBasic {
             throw new McCommException("4E frame type, the response sub header is inconsistent with the request sub header" +
                     ", the request sub header：" + req.getHeader().getSubHeader() + ", the response sub header：" + ack.getHeader().getEndCode());
         }
+        if (this.frameType == EMcFrameType.FRAME_4E
+                && ((McHeader4EReq) req.getHeader()).getSerialNumber() != ((McHeader4EAck) ack.getHeader()).getSerialNumber()) {
+            // 4E帧类型，响应序列号和请求序列号不一致
+            throw new McCommException("4E frame type, the response serial number is inconsistent with the request serial number" +
+                    ", the request serial number：" + ((McHeader4EReq) req.getHeader()).getSerialNumber()
+                    + ", the response serial number：" + ((McHeader4EAck) ack.getHeader()).getSerialNumber());
+        }
         if (this.frameType == EMcFrameType.FRAME_3E && ack.getHeader().getSubHeader() != EMcFrameType.FRAME_3E.getAckSubHeader()) {
             // "3E帧类型，响应副帧头和请求副帧头不一致，请求副帧头：" + req.getHeader().getSubHeader() + "，响应副帧头：" + ack.getHeader().getEndCode()
             throw new McCommException("3E frame type, the response sub header is inconsistent with the request sub header" +
@@ -394,14 +663,16 @@ public class McNetwork extends TcpClientBasic {
 //            int maxLength = 960;
             ByteWriteBuff buff = new ByteWriteBuff(deviceAddress.getDevicePointsCount() * 2);
 
-            LoopGroupAlg.loopExecute(actualLength, maxLength, (off, len) -> {
+            // 流水线模式下所有分组先依次发出，再按顺序等待响应
+            List<CompletableFuture<McMessageAck>> futures = new ArrayList<>();
+            this.sendAndJoinAll(futures, () -> LoopGroupAlg.loopExecute(actualLength, maxLength, (off, len) -> {
                 McDeviceAddress newAddress = new McDeviceAddress(deviceAddress.getDeviceCode(),
                         deviceAddress.getHeadDeviceNumber() + off, len);
                 McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
                 McMessageReq req = McReqBuilder.createReadDeviceBatchInWordReq(this.series, header, newAddress);
-                McMessageAck ack = this.readFromServer(req);
-                buff.putBytes(((McAckData) ack.getData()).getData());
-            });
+                futures.add(this.readFromServerAsync(req));
+            }));
+            futures.forEach(x -> buff.putBytes(((McAckData) FutureUtil.join(x).getData()).getData()));
             return McDeviceContent.createByAddress(deviceAddress, buff.getData());
         } finally {
             if (!this.persistence) {
@@ -615,21 +886,27 @@ public class McNetwork extends TcpClientBasic {
             LoopGroupItem wordItem = new LoopGroupItem(wordAddresses.size());
             LoopGroupItem dwordItem = new LoopGroupItem(dwordAddresses.size());
 
-            LoopGroupAlg.biLoopExecute(wordItem, dwordItem, biPredicate, (i1, i2) -> {
+            // 流水线模式下所有分组先依次发出，再按顺序等待响应
+            List<CompletableFuture<List<McDeviceContent>>> futures = new ArrayList<>();
+            this.sendAndJoinAll(futures, () -> LoopGroupAlg.biLoopExecute(wordItem, dwordItem, biPredicate, (i1, i2) -> {
                 List<McDeviceAddress> newWords = wordAddresses.subList(i1.getOff(), i1.getOff() + i1.getLen());
                 List<McDeviceAddress> newDWords = dwordAddresses.subList(i2.getOff(), i2.getOff() + i2.getLen());
                 McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
                 McMessageReq req = McReqBuilder.createReadDeviceRandomInWordReq(this.series, header, newWords, newDWords);
-                McMessageAck ack = this.readFromServer(req);
-
-                ByteReadBuff buff = new ByteReadBuff(((McAckData) ack.getData()).getData());
-                for (McDeviceAddress word : newWords) {
-                    result.add(McDeviceContent.createByAddress(word, buff.getBytes(2)));
-                }
-                for (McDeviceAddress dword : newDWords) {
-                    result.add(McDeviceContent.createByAddress(dword, buff.getBytes(4)));
-                }
-            });
+                CompletableFuture<McMessageAck> future = this.readFromServerAsync(req);
+                futures.add(FutureUtil.propagateCancel(future.thenApply(ack -> {
+                    List<McDeviceContent> contents = new ArrayList<>();
+                    ByteReadBuff buff = new ByteReadBuff(((McAckData) ack.getData()).getData());
+                    for (McDeviceAddress word : newWords) {
+                        contents.add(McDeviceContent.createByAddress(word, buff.getBytes(2)));
+                    }
+                    for (McDeviceAddress dword : newDWords) {
+                        contents.add(McDeviceContent.createByAddress(dword, buff.getBytes(4)));
+                    }
+                    return contents;
+                }), future));
+            }));
+            futures.forEach(x -> result.addAll(FutureUtil.join(x)));
             return result;
         } finally {
             if (!this.persistence) {
@@ -730,6 +1007,157 @@ public class McNetwork extends TcpClientBasic {
 
     //endregion
 
+    //region 软元件监视
+
+    /**
+     * Device access, register monitor data, the registration belongs to the connection and is replaced by the next
+     * one, only works with the long connection.
+     * 软元件监视数据登录；<br>
+     * 登录的数据属于当前连接，再次登录会覆盖之前的数据，只有长连接才有意义<br>
+     * 点数限制与按字随机读取相同，不可以指定下述软元件。<br>
+     * • 长定时器(触点: LTS、线圈: LTC)<br>
+     * • 长累计定时器(触点: LSTS、线圈: LSTC)<br>
+     * • 长计数器(触点: LCS、线圈: LCC)<br>
+     *
+     * @param wordAddresses  word device address
+     * @param dwordAddresses dword device address
+     */
+    public void registerMonitorData(List<McDeviceAddress> wordAddresses, List<McDeviceAddress> dwordAddresses) {
+        this.checkMonitorCondition(wordAddresses, dwordAddresses);
+        try {
+            this.monitorLocker.lock();
+            // 外部登录覆盖了会话的登录
+            this.monitorSession = null;
+            this.sendRegisterMonitorData(wordAddresses, dwordAddresses);
+        } finally {
+            this.monitorLocker.unlock();
+            if (!this.persistence) {
+                this.close();
+            }
+        }
+    }
+
+    /**
+     * Device access, execute monitor, read the registered devices, the word data come first, then the dword data.
+     * 软元件监视，读取已登录的软元件，先字数据后双字数据
+     *
+     * @return byte array
+     */
+    public byte[] executeMonitor() {
+        if (this.series.getFrameType() == EMcFrameType.FRAME_1E) {
+            throw new McCommException("Frame 1E not supported in execute monitor");
+        }
+        try {
+            McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
+            McMessageReq req = McReqBuilder.createExecuteMonitorReq(this.series, header);
+            McExecuteMonitorReqData reqData = (McExecuteMonitorReqData) req.getData();
+            reqData.setWordCount(this.monitorWordCount);
+            reqData.setDwordCount(this.monitorDwordCount);
+            McMessageAck ack = this.readFromServer(req);
+            return ((McAckData) ack.getData()).getData();
+        } finally {
+            if (!this.persistence) {
+                this.close();
+            }
+        }
+    }
+
+    /**
+     * Read the devices of the monitor session, register them first when the session is not registered on the
+     * current connection, the short connection falls back to random read in word.
+     * (读取监视会话的软元件，会话未在当前连接上登录时先登录，短连接退化为按字随机读取)
+     *
+     * @param session monitor session
+     * @return device content list
+     */
+    List<McDeviceContent> readByMonitor(McMonitorSession session) {
+        // 短连接无法保持监视登录
+        if (!this.persistence) {
+            return this.readDeviceRandomInWord(session.getWords(), session.getDwords());
+        }
+        byte[] data;
+        try {
+            this.monitorLocker.lock();
+            boolean registered = this.monitorSession == session && this.monitorSocket == this.socket;
+            if (!registered) {
+                this.sendRegisterMonitorData(session.getWords(), session.getDwords());
+                this.monitorSession = session;
+                this.monitorSocket = this.socket;
+            }
+            try {
+                data = this.executeMonitor();
+            } catch (McCommException e) {
+                if (!registered) {
+                    throw e;
+                }
+                // 登录可能已失效，例如PLC复位，重新登录后重试一次
+                log.debug("Execute monitor failed, register the monitor data again, {}", e.getMessage());
+                this.monitorSession = null;
+                this.sendRegisterMonitorData(session.getWords(), session.getDwords());
+                this.monitorSession = session;
+                this.monitorSocket = this.socket;
+                data = this.executeMonitor();
+            }
+        } finally {
+            this.monitorLocker.unlock();
+        }
+        List<McDeviceContent> result = new ArrayList<>();
+        ByteReadBuff buff = new ByteReadBuff(data);
+        for (McDeviceAddress word : session.getWords()) {
+            result.add(McDeviceContent.createByAddress(word, buff.getBytes(2)));
+        }
+        for (McDeviceAddress dword : session.getDwords()) {
+            result.add(McDeviceContent.createByAddress(dword, buff.getBytes(4)));
+        }
+        return result;
+    }
+
+    /**
+     * Send the request of register monitor data.
+     * (发送监视数据登录请求)
+     *
+     * @param wordAddresses  word device address
+     * @param dwordAddresses dword device address
+     */
+    private void sendRegisterMonitorData(List<McDeviceAddress> wordAddresses, List<McDeviceAddress> dwordAddresses) {
+        McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
+        McMessageReq req = McReqBuilder.createRegisterMonitorReq(this.series, header, wordAddresses, dwordAddresses);
+        this.readFromServer(req);
+        this.monitorWordCount = wordAddresses.size();
+        this.monitorDwordCount = dwordAddresses.size();
+    }
+
+    /**
+     * Check monitor condition, all devices must be registered at once.
+     * (监视前置校验，所有软元件必须一次登录)
+     *
+     * @param wordAddresses  word device address
+     * @param dwordAddresses dword device address
+     */
+    void checkMonitorCondition(List<McDeviceAddress> wordAddresses, List<McDeviceAddress> dwordAddresses) {
+        if (wordAddresses == null || dwordAddresses == null) {
+            throw new NullPointerException("wordAddresses or dwordAddresses");
+        }
+        if (wordAddresses.isEmpty() && dwordAddresses.isEmpty()) {
+            throw new IllegalArgumentException("wordAddresses and dwordAddresses is empty");
+        }
+        if (this.series.getFrameType() == EMcFrameType.FRAME_1E) {
+            throw new McCommException("Frame 1E not supported in register monitor data");
+        }
+        int maxLength = this.series.getDeviceRandomReadInWordPointsCount();
+        if (wordAddresses.size() + dwordAddresses.size() > maxLength) {
+            // 监视数据点数超出上限，请拆分
+            throw new McCommException(String.format("The number of monitor points exceeds the limit %d, please split them", maxLength));
+        }
+        boolean wordAllMatch = this.checkDeviceRandomCode(wordAddresses);
+        boolean dwordAllMatch = this.checkDeviceRandomCode(dwordAddresses);
+        if (!wordAllMatch || !dwordAllMatch) {
+            throw new McCommException("restricted access LTS、LTC、LSTS、LSTC、LCS、LCC");
+        }
+    }
+
+    //endregion
+
     //region 软元件多个块批量读取和写入
 
     /**
@@ -762,21 +1190,27 @@ public class McNetwork extends TcpClientBasic {
             LoopGroupItem wordItem = new LoopGroupItem(wordAddresses.size());
             LoopGroupItem bitItem = new LoopGroupItem(bitAddresses.size());
 
-            LoopGroupAlg.biLoopExecute(wordItem, bitItem, biPredicate, (i1, i2) -> {
+            // 流水线模式下所有分组先依次发出，再按顺序等待响应
+            List<CompletableFuture<List<McDeviceContent>>> futures = new ArrayList<>();
+            this.sendAndJoinAll(futures, () -> LoopGroupAlg.biLoopExecute(wordItem, bitItem, biPredicate, (i1, i2) -> {
                 List<McDeviceAddress> newWords = wordAddresses.subList(i1.getOff(), i1.getOff() + i1.getLen());
                 List<McDeviceAddress> newBits = bitAddresses.subList(i2.getOff(), i2.getOff() + i2.getLen());
                 McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
                 McMessageReq req = McReqBuilder.createReadDeviceBatchMultiBlocksReq(this.series, header, newWords, newBits);
-                McMessageAck ack = this.readFromServer(req);
-
-                ByteReadBuff buff = new ByteReadBuff(((McAckData) ack.getData()).getData());
-                for (McDeviceAddress word : newWords) {
-                    result.add(McDeviceContent.createByAddress(word, buff.getBytes(2 * word.getDevicePointsCount())));
-                }
-                for (McDeviceAddress bit : newBits) {
-                    result.add(McDeviceContent.createByAddress(bit, buff.getBytes(2 * bit.getDevicePointsCount())));
-                }
-            });
+                CompletableFuture<McMessageAck> future = this.readFromServerAsync(req);
+                futures.add(FutureUtil.propagateCancel(future.thenApply(ack -> {
+                    List<McDeviceContent> contents = new ArrayList<>();
+                    ByteReadBuff buff = new ByteReadBuff(((McAckData) ack.getData()).getData());
+                    for (McDeviceAddress word : newWords) {
+                        contents.add(McDeviceContent.createByAddress(word, buff.getBytes(2 * word.getDevicePointsCount())));
+                    }
+                    for (McDeviceAddress bit : newBits) {
+                        contents.add(McDeviceContent.createByAddress(bit, buff.getBytes(2 * bit.getDevicePointsCount())));
+                    }
+                    return contents;
+                }), future));
+            }));
+            futures.forEach(x -> result.addAll(FutureUtil.join(x)));
             return result;
         } finally {
             if (!this.persistence) {
@@ -886,6 +1320,158 @@ public class McNetwork extends TcpClientBasic {
         }
     }
 
+    /**
+     * Read the merged blocks planned by the merge read algorithm, all requests are sent before waiting for the
+     * responses in pipelined mode.
+     * (读取合并读取算法规划的数据块，流水线模式下所有请求先依次发出，再按顺序等待响应)
+     *
+     * @param mergeRead merge read result
+     * @return data of merged blocks, index same as merged blocks
+     */
+    protected List<byte[]> readMergedBlocks(McMergeReadAlg mergeRead) {
+        List<McMergeBlock> blocks = mergeRead.getMergedBlocks();
+        byte[][] blockDatas = new byte[blocks.size()][];
+        try {
+            List<CompletableFuture<McMessageAck>> futures = new ArrayList<>();
+            List<Runnable> collectors = new ArrayList<>();
+            Map<Integer, List<Integer>> randomGroups = new TreeMap<>();
+            Map<Integer, List<Integer>> multiBlocksGroups = new TreeMap<>();
+            this.sendAndJoinAll(futures, () -> {
+                for (int i = 0; i < blocks.size(); i++) {
+                    McMergeBlock block = blocks.get(i);
+                    if (block.getCommand() == EMcCommand.DEVICE_ACCESS_RANDOM_READ_IN_UNITS) {
+                        randomGroups.computeIfAbsent(block.getGroupIndex(), k -> new ArrayList<>()).add(i);
+                    } else if (block.getCommand() == EMcCommand.DEVICE_ACCESS_BATCH_READ_MULTIPLE_BLOCKS) {
+                        multiBlocksGroups.computeIfAbsent(block.getGroupIndex(), k -> new ArrayList<>()).add(i);
+                    } else {
+                        collectors.add(this.readMergedBatch(blocks, i, blockDatas, futures));
+                    }
+                }
+                randomGroups.values().forEach(x -> collectors.add(this.readMergedRandom(blocks, x, blockDatas, futures)));
+                multiBlocksGroups.values().forEach(x -> collectors.add(this.readMergedMultiBlocks(blocks, x, blockDatas, futures)));
+            });
+            collectors.forEach(Runnable::run);
+            return Arrays.asList(blockDatas);
+        } finally {
+            if (!this.persistence) {
+                this.close();
+            }
+        }
+    }
+
+    /**
+     * Send the requests and wait for all the responses, the requests still in flight are cancelled at the first
+     * failure, so their window slots are released at once instead of at the receive timeout.
+     * (发送请求并等待所有响应，任一失败时取消其余仍在进行中的请求，从而立即释放占用的窗口，而不是等到接收超时)
+     *
+     * @param futures futures of the requests, filled by the sender
+     * @param sender  send the requests
+     */
+    private void sendAndJoinAll(List<? extends CompletableFuture<?>> futures, Runnable sender) {
+        try {
+            sender.run();
+            FutureUtil.joinAll(futures);
+        } catch (RuntimeException e) {
+            FutureUtil.cancelAll(futures);
+            throw e;
+        }
+    }
+
+    /**
+     * Send the batch read requests of one merged block, split by the max points of the series.
+     * (发送一个合并数据块的批量读取请求，按照系列的最大点数拆分)
+     *
+     * @param blocks     merged blocks
+     * @param index      block index
+     * @param blockDatas data of merged blocks
+     * @param futures    futures of the requests in flight
+     * @return collector to collect the responses
+     */
+    private Runnable readMergedBatch(List<McMergeBlock> blocks, int index, byte[][] blockDatas,
+                                     List<CompletableFuture<McMessageAck>> futures) {
+        McMergeBlock block = blocks.get(index);
+        int maxLength = block.isBit() ? this.series.getDeviceBatchInBitPointsCount() : this.series.getDeviceBatchInWordPointsCount();
+        List<CompletableFuture<McMessageAck>> blockFutures = new ArrayList<>();
+        LoopGroupAlg.loopExecute(block.getDevicePointsCount(), maxLength, (off, len) -> {
+            McDeviceAddress address = new McDeviceAddress(block.getDeviceCode(), block.getHeadDeviceNumber() + off, len);
+            McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
+            McMessageReq req = block.isBit() ? McReqBuilder.createReadDeviceBatchInBitReq(this.series, header, address)
+                    : McReqBuilder.createReadDeviceBatchInWordReq(this.series, header, address);
+            CompletableFuture<McMessageAck> future = this.readFromServerAsync(req);
+            blockFutures.add(future);
+            futures.add(future);
+        });
+        return () -> {
+            // 位单位1个字节2个点，字单位1个点2个字节
+            int length = block.isBit() ? (block.getDevicePointsCount() + 1) / 2 : block.getDevicePointsCount() * 2;
+            ByteWriteBuff buff = new ByteWriteBuff(length);
+            blockFutures.forEach(x -> buff.putBytes(((McAckData) FutureUtil.join(x).getData()).getData()));
+            blockDatas[index] = buff.getData();
+        };
+    }
+
+    /**
+     * Send the random read request of one group, the block of 1 word is read as word, 2 words as dword.
+     * (发送一个分组的随机读取请求，1个字的数据块按字读取，2个字的按双字读取)
+     *
+     * @param blocks     merged blocks
+     * @param indexes    block indexes of the group
+     * @param blockDatas data of merged blocks
+     * @param futures    futures of the requests in flight
+     * @return collector to collect the response
+     */
+    private Runnable readMergedRandom(List<McMergeBlock> blocks, List<Integer> indexes, byte[][] blockDatas,
+                                      List<CompletableFuture<McMessageAck>> futures) {
+        List<Integer> wordIndexes = new ArrayList<>();
+        List<Integer> dwordIndexes = new ArrayList<>();
+        indexes.forEach(x -> (blocks.get(x).getWordCount() == 1 ? wordIndexes : dwordIndexes).add(x));
+        List<McDeviceAddress> words = new ArrayList<>();
+        List<McDeviceAddress> dwords = new ArrayList<>();
+        wordIndexes.forEach(x -> words.add(new McDeviceAddress(blocks.get(x).getDeviceCode(), blocks.get(x).getHeadDeviceNumber(), 1)));
+        dwordIndexes.forEach(x -> dwords.add(new McDeviceAddress(blocks.get(x).getDeviceCode(), blocks.get(x).getHeadDeviceNumber(), 1)));
+        McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
+        McMessageReq req = McReqBuilder.createReadDeviceRandomInWordReq(this.series, header, words, dwords);
+        CompletableFuture<McMessageAck> future = this.readFromServerAsync(req);
+        futures.add(future);
+        return () -> {
+            ByteReadBuff buff = new ByteReadBuff(((McAckData) FutureUtil.join(future).getData()).getData());
+            wordIndexes.forEach(x -> blockDatas[x] = buff.getBytes(2));
+            dwordIndexes.forEach(x -> blockDatas[x] = buff.getBytes(4));
+        };
+    }
+
+    /**
+     * Send the batch read multiple blocks request of one group, the points of bit block are words of 16 bits.
+     * (发送一个分组的多块批量读取请求，位数据块的点数是16位的字数)
+     *
+     * @param blocks     merged blocks
+     * @param indexes    block indexes of the group
+     * @param blockDatas data of merged blocks
+     * @param futures    futures of the requests in flight
+     * @return collector to collect the response
+     */
+    private Runnable readMergedMultiBlocks(List<McMergeBlock> blocks, List<Integer> indexes, byte[][] blockDatas,
+                                           List<CompletableFuture<McMessageAck>> futures) {
+        List<Integer> wordIndexes = new ArrayList<>();
+        List<Integer> bitIndexes = new ArrayList<>();
+        indexes.forEach(x -> (blocks.get(x).isBit() ? bitIndexes : wordIndexes).add(x));
+        List<McDeviceAddress> words = new ArrayList<>();
+        List<McDeviceAddress> bits = new ArrayList<>();
+        wordIndexes.forEach(x -> words.add(new McDeviceAddress(blocks.get(x).getDeviceCode(),
+                blocks.get(x).getHeadDeviceNumber(), blocks.get(x).getWordCount())));
+        bitIndexes.forEach(x -> bits.add(new McDeviceAddress(blocks.get(x).getDeviceCode(),
+                blocks.get(x).getHeadDeviceNumber(), blocks.get(x).getWordCount())));
+        McHeaderReq header = McHeaderReq.createByFrameType(this.frameType, this.accessRoute, this.monitoringTimer);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchMultiBlocksReq(this.series, header, words, bits);
+        CompletableFuture<McMessageAck> future = this.readFromServerAsync(req);
+        futures.add(future);
+        return () -> {
+            ByteReadBuff buff = new ByteReadBuff(((McAckData) FutureUtil.join(future).getData()).getData());
+            wordIndexes.forEach(x -> blockDatas[x] = buff.getBytes(2 * blocks.get(x).getWordCount()));
+            bitIndexes.forEach(x -> blockDatas[x] = buff.getBytes(2 * blocks.get(x).getWordCount()));
+        };
+    }
+
     //endregion
 
     //region 软元件boolean列表和字节数组之间数据转换
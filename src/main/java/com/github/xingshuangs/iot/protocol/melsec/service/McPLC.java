@@ -28,8 +28,10 @@ package com.github.xingshuangs.iot.protocol.melsec.service;
 import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
 import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
+import com.github.xingshuangs.iot.protocol.melsec.algorithm.McMergeReadAlg;
 import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
 import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McAddressItem;
 import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceAddress;
 import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceContent;
 import com.github.xingshuangs.iot.protocol.melsec.model.McFrame1EAccessRoute;
@@ -104,6 +106,52 @@ public class McPLC extends McNetwork {
         return this.readDeviceRandomInWord(multiAddressRead.getWords(), multiAddressRead.getDwords());
     }
 
+    /**
+     * Read multi tag, the nearby devices are merged into blocks, the command mix of random read, batch read multiple
+     * blocks and batch read with the fewest requests is chosen under the point limits of the series.
+     * (读多点位，相近的软元件合并为数据块，在系列点数限制下选择请求次数最少的随机读取、多块批量读取和批量读取组合)
+     *
+     * @param multiTagRead multi tag
+     * @return values in the same order as the tags, Boolean for bit device
+     */
+    public List<Object> readMultiTag(McMultiTagRead multiTagRead) {
+        if (multiTagRead == null || multiTagRead.getItems().isEmpty()) {
+            throw new IllegalArgumentException("multiTagRead is empty");
+        }
+        List<McAddressItem> items = multiTagRead.getItems();
+        // 3E暂不支持多块批量读取，与readDeviceBatchMultiBlocks保持一致
+        boolean blocksSupported = this.frameType == EMcFrameType.FRAME_4E
+                && this.series.getFrameType() != EMcFrameType.FRAME_1E;
+        McMergeReadAlg mergeRead = McMergeReadAlg.merge(items, this.series, blocksSupported,
+                this.getMergeReadWordGap(), this.getMergeReadBitGap());
+        return mergeRead.split(items, this.readMergedBlocks(mergeRead));
+    }
+
+    /**
+     * Read multi tag, Boolean for bit device, Short for word device.
+     * (读多点位，位软元件为Boolean，字软元件为Short)
+     *
+     * @param addresses addresses string, e.g. D100, M20, W1A0
+     * @return values in the same order as the addresses
+     */
+    public List<Object> readMultiTag(List<String> addresses) {
+        McMultiTagRead multiTagRead = new McMultiTagRead();
+        addresses.forEach(multiTagRead::addData);
+        return this.readMultiTag(multiTagRead);
+    }
+
+    /**
+     * Create monitor session for polling the multi address repeatedly, every read only sends the execute monitor
+     * request instead of all addresses.
+     * (创建监视会话用于反复轮询多地址，每次读取只发送监视请求而非全部地址)
+     *
+     * @param multiAddressRead multi address
+     * @return monitor session
+     */
+    public McMonitorSession createMonitorSession(McMultiAddressRead multiAddressRead) {
+        return new McMonitorSession(this, multiAddressRead);
+    }
+
     /**
      * Read boolean.
      * (读取booleans数据)
@@ -0,0 +1,591 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.net.SocketUtils;
+import com.github.xingshuangs.iot.net.server.LengthFieldFrameDecoder;
+import com.github.xingshuangs.iot.net.server.TcpServerBasic;
+import com.github.xingshuangs.iot.net.server.TcpServerSession;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.xingshuangs.iot.common.constant.GeneralConst.MELSEC_PORT;
+
+/**
+ * Melsec server of MC protocol, binary code of 3E and 4E frame, supports batch, random and multi blocks read and
+ * write, the frame type is recognized by the sub header, the device specification of iQ-R by the sub command.
+ * (三菱MC协议服务端，3E和4E帧的二进制代码，支持批量、随机和多块读写，根据副帧头识别帧类型，根据子指令识别iQ-R的软元件格式)
+ * 默认使用阻塞引擎，大量连接时在start之前调用setEngine(EServerEngine.SELECTOR)切换为选择器引擎
+ *
+ * @author xingshuang
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Slf4j
+public class McPLCServer extends TcpServerBasic {
+
+    /**
+     * Max frame length of request.
+     * (请求帧的最大长度)
+     */
+    private static final int MAX_FRAME_LENGTH = 8192;
+
+    /**
+     * Frame decoder of 3E, the length field is at offset 7.
+     * (3E帧解码器，长度字段在偏移7处)
+     */
+    private static final LengthFieldFrameDecoder DECODER_3E = new LengthFieldFrameDecoder(7, 9, MAX_FRAME_LENGTH, true);
+
+    /**
+     * Frame decoder of 4E, the length field is at offset 11.
+     * (4E帧解码器，长度字段在偏移11处)
+     */
+    private static final LengthFieldFrameDecoder DECODER_4E = new LengthFieldFrameDecoder(11, 13, MAX_FRAME_LENGTH, true);
+
+    /**
+     * Frame decoder, choose 3E or 4E according to the sub header.
+     * (帧解码器，根据副帧头选择3E或4E)
+     */
+    private static final LengthFieldFrameDecoder DECODER = new LengthFieldFrameDecoder(11, 13, MAX_FRAME_LENGTH, true) {
+        @Override
+        public int frameLength(ByteBuffer buffer) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int subHeader = buffer.get(buffer.position()) & 0xFF;
+            if (subHeader == EMcFrameType.FRAME_3E.getReqSubHeader()) {
+                return DECODER_3E.frameLength(buffer);
+            } else if (subHeader == EMcFrameType.FRAME_4E.getReqSubHeader()) {
+                return DECODER_4E.frameLength(buffer);
+            }
+            // 副帧头无效
+            throw new SocketRuntimeException("Invalid sub header: " + subHeader);
+        }
+    };
+
+    /**
+     * Device code of QnA and Q/L series.
+     * (QnA和Q/L系列的软元件代码)
+     */
+    private static final Map<Integer, EMcDeviceCode> DEVICE_CODES = new HashMap<>();
+
+    /**
+     * Device code of iQ-R series.
+     * (iQ-R系列的软元件代码)
+     */
+    private static final Map<Integer, EMcDeviceCode> DEVICE_CODES_IQR = new HashMap<>();
+
+    static {
+        for (EMcDeviceCode item : EMcDeviceCode.values()) {
+            if (item.getBinaryCode() != 0) {
+                DEVICE_CODES.put(item.getBinaryCode() & 0xFF, item);
+            }
+            DEVICE_CODES_IQR.put(item.getBinaryCodeIqr(), item);
+        }
+    }
+
+    /**
+     * Data bank.
+     * (数据区)
+     */
+    private final McDataBank bank;
+
+    public McPLCServer() {
+        this(MELSEC_PORT);
+    }
+
+    public McPLCServer(int port) {
+        this(port, 65536, 32768);
+    }
+
+    /**
+     * Constructor.
+     * (构造方法)
+     *
+     * @param port     port
+     * @param bitSize  number of points of every bit device, [1, 65536]
+     * @param wordSize number of points of every word device, [1, 65536]
+     */
+    public McPLCServer(int port, int bitSize, int wordSize) {
+        this.port = port;
+        this.bank = new McDataBank(bitSize, wordSize);
+    }
+
+    @Override
+    protected void doClientHandle(Socket socket) {
+        byte[] request = this.readClientData(socket);
+        this.write(socket, this.requestHandle(request));
+    }
+
+    @Override
+    protected LengthFieldFrameDecoder getFrameDecoder() {
+        return DECODER;
+    }
+
+    @Override
+    protected byte[] doFrameHandle(TcpServerSession session, byte[] frame) {
+        return this.requestHandle(frame);
+    }
+
+    /**
+     * Override read client data function, the length of the frame is specified by the header.
+     * (重写读取客户端数据，帧长度由报文头指定)
+     *
+     * @param socket client socket.
+     * @return byte array
+     */
+    @Override
+    protected byte[] readClientData(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            // 等待请求的时间即空闲时间
+            socket.setSoTimeout(this.idleTimeout);
+            int firstByte = in.read();
+            if (firstByte == -1) {
+                SocketUtils.close(socket);
+                throw new SocketRuntimeException("The client is disconnected.");
+            }
+            int headerLength = firstByte == EMcFrameType.FRAME_4E.getReqSubHeader() ? 15 : 11;
+            byte[] headerBytes = new byte[headerLength];
+            headerBytes[0] = (byte) firstByte;
+            this.read(socket, headerBytes, 1, headerLength - 1, 1024, 0, true);
+            int dataLength = ByteReadBuff.newInstance(headerBytes, true).getUInt16(headerLength - 4);
+            if (dataLength < 2 || headerLength + dataLength - 2 > MAX_FRAME_LENGTH) {
+                // 数据长度无效
+                throw new SocketRuntimeException("Invalid data length: " + dataLength);
+            }
+            byte[] total = new byte[headerLength + dataLength - 2];
+            System.arraycopy(headerBytes, 0, total, 0, headerBytes.length);
+            this.read(socket, total, headerBytes.length, total.length - headerBytes.length, 1024, 0, true);
+            return total;
+        } catch (IOException e) {
+            throw new SocketRuntimeException(e);
+        }
+    }
+
+    /**
+     * Request handler.
+     * (请求处理)
+     *
+     * @param frame request frame
+     * @return response frame
+     */
+    private byte[] requestHandle(byte[] frame) {
+        EMcFrameType frameType = (frame[0] & 0xFF) == EMcFrameType.FRAME_4E.getReqSubHeader()
+                ? EMcFrameType.FRAME_4E : EMcFrameType.FRAME_3E;
+        int headerLength = frameType == EMcFrameType.FRAME_4E ? 15 : 11;
+        ByteReadBuff buff = new ByteReadBuff(frame, headerLength, true);
+        int command = 0;
+        int subcommand = 0;
+        byte[] data;
+        int endCode = 0;
+        try {
+            this.checkRemainSize(buff, 4);
+            command = buff.getUInt16();
+            subcommand = buff.getUInt16();
+            // 子指令的bit1表示iQ-R的软元件格式，bit0表示位单位
+            EMcSeries series = (subcommand & 0x0002) != 0 ? EMcSeries.IQ_R : EMcSeries.Q_L;
+            boolean bitUnit = (subcommand & 0x0001) != 0;
+            EMcCommand mcCommand = EMcCommand.from(command);
+            if (mcCommand == null || (subcommand & ~0x0003) != 0) {
+                throw new McEndCodeException(0xC059);
+            }
+            switch (mcCommand) {
+                case DEVICE_ACCESS_BATCH_READ_IN_UNITS:
+                    data = this.readDeviceBatch(buff, series, bitUnit);
+                    break;
+                case DEVICE_ACCESS_BATCH_WRITE_IN_UNITS:
+                    data = this.writeDeviceBatch(buff, series, bitUnit);
+                    break;
+                case DEVICE_ACCESS_RANDOM_READ_IN_UNITS:
+                    data = this.readDeviceRandom(buff, series, bitUnit);
+                    break;
+                case DEVICE_ACCESS_RANDOM_WRITE_IN_UNITS:
+                    data = this.writeDeviceRandom(buff, series, bitUnit);
+                    break;
+                case DEVICE_ACCESS_BATCH_READ_MULTIPLE_BLOCKS:
+                    data = this.readDeviceBatchMultiBlocks(buff, series, bitUnit);
+                    break;
+                case DEVICE_ACCESS_BATCH_WRITE_MULTIPLE_BLOCKS:
+                    data = this.writeDeviceBatchMultiBlocks(buff, series, bitUnit);
+                    break;
+                default:
+                    throw new McEndCodeException(0xC059);
+            }
+        } catch (McEndCodeException e) {
+            endCode = e.endCode;
+            data = null;
+        } catch (IndexOutOfBoundsException e) {
+            // 写入及读取请求超出了最大地址
+            endCode = 0xC056;
+            data = null;
+        } catch (Exception e) {
+            log.error("Failed to handle the melsec request, {}", e.getMessage());
+            endCode = 0xC05F;
+            data = null;
+        }
+        return this.createAck(frame, frameType, command, subcommand, endCode, data);
+    }
+
+    /**
+     * Create the ack frame, the serial number and the access route echo the request.
+     * (创建响应帧，序列号和访问路径与请求一致)
+     *
+     * @param frame      request frame
+     * @param frameType  frame type
+     * @param command    command
+     * @param subcommand sub command
+     * @param endCode    end code
+     * @param data       response data, null when error
+     * @return ack frame
+     */
+    private byte[] createAck(byte[] frame, EMcFrameType frameType, int command, int subcommand, int endCode, byte[] data) {
+        ByteReadBuff buff = ByteReadBuff.newInstance(frame, true);
+        McHeader3EAck header;
+        if (frameType == EMcFrameType.FRAME_4E) {
+            McHeader4EAck header4E = new McHeader4EAck();
+            header4E.setSerialNumber(buff.getUInt16(2));
+            header4E.setFixedNumber(buff.getUInt16(4));
+            header = header4E;
+        } else {
+            header = new McHeader3EAck();
+        }
+        int routeOffset = frameType == EMcFrameType.FRAME_4E ? 6 : 2;
+        McAccessRoute accessRoute = McFrame4E3EAccessRoute.fromBytes(buff.getBytes(routeOffset, 5));
+        header.setSubHeader(frameType.getAckSubHeader());
+        header.setAccessRoute(accessRoute);
+        header.setEndCode(endCode);
+        McMessageAck ack = new McMessageAck();
+        ack.setHeader(header);
+        if (endCode == 0) {
+            McAckData ackData = new McAckData();
+            ackData.setData(data);
+            ack.setData(ackData);
+        } else {
+            // 异常响应携带访问路径、指令和子指令，指令可能未知，因此直接写入字节
+            McAckData errorData = new McAckData();
+            errorData.setData(ByteWriteBuff.newInstance(9, true)
+                    .putBytes(accessRoute.toByteArray())
+                    .putShort(command)
+                    .putShort(subcommand)
+                    .getData());
+            ack.setData(errorData);
+        }
+        ack.selfCheck();
+        return ack.toByteArray();
+    }
+
+    /**
+     * Batch read handler.
+     * (批量读取)
+     */
+    private byte[] readDeviceBatch(ByteReadBuff buff, EMcSeries series, boolean bitUnit) {
+        McDeviceAddress address = this.parseDeviceAddress(buff, series, true);
+        log.debug("[BATCH_READ] device[{}], head[{}], points[{}], bit unit[{}]", address.getDeviceCode(),
+                address.getHeadDeviceNumber(), address.getDevicePointsCount(), bitUnit);
+        this.checkPointsCount(address.getDevicePointsCount(), bitUnit
+                ? series.getDeviceBatchInBitPointsCount() : series.getDeviceBatchInWordPointsCount());
+        try {
+            this.bank.getRwLock().readLock().lock();
+            if (bitUnit) {
+                this.checkBitDevice(address.getDeviceCode());
+                return this.bank.readBits(address.getDeviceCode(), address.getHeadDeviceNumber(), address.getDevicePointsCount());
+            }
+            return this.bank.readWords(address.getDeviceCode(), address.getHeadDeviceNumber(), address.getDevicePointsCount());
+        } finally {
+            this.bank.getRwLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Batch write handler.
+     * (批量写入)
+     */
+    private byte[] writeDeviceBatch(ByteReadBuff buff, EMcSeries series, boolean bitUnit) {
+        McDeviceAddress address = this.parseDeviceAddress(buff, series, true);
+        log.debug("[BATCH_WRITE] device[{}], head[{}], points[{}], bit unit[{}]", address.getDeviceCode(),
+                address.getHeadDeviceNumber(), address.getDevicePointsCount(), bitUnit);
+        this.checkPointsCount(address.getDevicePointsCount(), bitUnit
+                ? series.getDeviceBatchInBitPointsCount() : series.getDeviceBatchInWordPointsCount());
+        int points = address.getDevicePointsCount();
+        this.checkRemainSize(buff, bitUnit ? (points + 1) / 2 : points * 2);
+        byte[] data = buff.getBytes(bitUnit ? (points + 1) / 2 : points * 2);
+        this.checkNoRemaining(buff);
+        try {
+            this.bank.getRwLock().writeLock().lock();
+            if (bitUnit) {
+                this.checkBitDevice(address.getDeviceCode());
+                this.bank.writeBits(address.getDeviceCode(), address.getHeadDeviceNumber(), points, data);
+            } else {
+                this.bank.writeWords(address.getDeviceCode(), address.getHeadDeviceNumber(), points, data);
+            }
+        } finally {
+            this.bank.getRwLock().writeLock().unlock();
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Random read handler, 2 bytes per word, 4 bytes per dword.
+     * (随机读取，字2个字节，双字4个字节)
+     */
+    private byte[] readDeviceRandom(ByteReadBuff buff, EMcSeries series, boolean bitUnit) {
+        if (bitUnit) {
+            throw new McEndCodeException(0xC059);
+        }
+        this.checkRemainSize(buff, 2);
+        int wordCount = buff.getByteToInt();
+        int dwordCount = buff.getByteToInt();
+        log.debug("[RANDOM_READ] word count[{}], dword count[{}]", wordCount, dwordCount);
+        this.checkPointsCount(wordCount + dwordCount, series.getDeviceRandomReadInWordPointsCount());
+        McDeviceAddress[] addresses = new McDeviceAddress[wordCount + dwordCount];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = this.parseDeviceAddress(buff, series, false);
+        }
+        this.checkNoRemaining(buff);
+        ByteWriteBuff res = new ByteWriteBuff(wordCount * 2 + dwordCount * 4);
+        try {
+            this.bank.getRwLock().readLock().lock();
+            for (int i = 0; i < addresses.length; i++) {
+                res.putBytes(this.bank.readWords(addresses[i].getDeviceCode(), addresses[i].getHeadDeviceNumber(), i < wordCount ? 1 : 2));
+            }
+        } finally {
+            this.bank.getRwLock().readLock().unlock();
+        }
+        return res.getData();
+    }
+
+    /**
+     * Random write handler, word and dword in word units, set or reset in bit units.
+     * (随机写入，字单位写入字和双字，位单位置位或复位)
+     */
+    private byte[] writeDeviceRandom(ByteReadBuff buff, EMcSeries series, boolean bitUnit) {
+        int addressLength = series.getDeviceCodeByteLength() + series.getHeadDeviceNumberByteLength();
+        try {
+            this.bank.getRwLock().writeLock().lock();
+            if (bitUnit) {
+                this.checkRemainSize(buff, 1);
+                int count = buff.getByteToInt();
+                log.debug("[RANDOM_WRITE] bit count[{}]", count);
+                this.checkPointsCount(count, series.getDeviceRandomWriteInBitPointsCount());
+                // 置位复位的字节数随系列不同，根据剩余长度计算
+                int valueLength = buff.getRemainSize() / count - addressLength;
+                if (valueLength < 1 || buff.getRemainSize() != count * (addressLength + valueLength)) {
+                    throw new McEndCodeException(0xC061);
+                }
+                for (int i = 0; i < count; i++) {
+                    McDeviceAddress address = this.parseDeviceAddress(buff, series, false);
+                    byte[] value = buff.getBytes(valueLength);
+                    this.checkBitDevice(address.getDeviceCode());
+                    this.bank.setBit(address.getDeviceCode(), address.getHeadDeviceNumber(), value[0] != 0);
+                }
+            } else {
+                this.checkRemainSize(buff, 2);
+                int wordCount = buff.getByteToInt();
+                int dwordCount = buff.getByteToInt();
+                log.debug("[RANDOM_WRITE] word count[{}], dword count[{}]", wordCount, dwordCount);
+                this.checkPointsCount(wordCount + dwordCount * 2, series.getDeviceRandomWriteInWordPointsCount());
+                if (buff.getRemainSize() != wordCount * (addressLength + 2) + dwordCount * (addressLength + 4)) {
+                    throw new McEndCodeException(0xC061);
+                }
+                for (int i = 0; i < wordCount + dwordCount; i++) {
+                    McDeviceAddress address = this.parseDeviceAddress(buff, series, false);
+                    int points = i < wordCount ? 1 : 2;
+                    this.bank.writeWords(address.getDeviceCode(), address.getHeadDeviceNumber(), points, buff.getBytes(points * 2));
+                }
+            }
+        } finally {
+            this.bank.getRwLock().writeLock().unlock();
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Multi blocks read handler, the points of the bit block are words of 16 bits.
+     * (多块批量读取，位块的点数是16位的字数)
+     */
+    private byte[] readDeviceBatchMultiBlocks(ByteReadBuff buff, EMcSeries series, boolean bitUnit) {
+        if (bitUnit) {
+            throw new McEndCodeException(0xC059);
+        }
+        McDeviceAddress[] addresses = this.parseBlocks(buff, series, false);
+        this.checkNoRemaining(buff);
+        int total = 0;
+        for (McDeviceAddress address : addresses) {
+            total += address.getDevicePointsCount();
+        }
+        ByteWriteBuff res = new ByteWriteBuff(total * 2);
+        try {
+            this.bank.getRwLock().readLock().lock();
+            for (McDeviceAddress address : addresses) {
+                res.putBytes(this.bank.readWords(address.getDeviceCode(), address.getHeadDeviceNumber(), address.getDevicePointsCount()));
+            }
+        } finally {
+            this.bank.getRwLock().readLock().unlock();
+        }
+        return res.getData();
+    }
+
+    /**
+     * Multi blocks write handler, the points of the bit block are words of 16 bits.
+     * (多块批量写入，位块的点数是16位的字数)
+     */
+    private byte[] writeDeviceBatchMultiBlocks(ByteReadBuff buff, EMcSeries series, boolean bitUnit) {
+        if (bitUnit) {
+            throw new McEndCodeException(0xC059);
+        }
+        McDeviceAddress[] addresses = this.parseBlocks(buff, series, true);
+        this.checkNoRemaining(buff);
+        try {
+            this.bank.getRwLock().writeLock().lock();
+            for (McDeviceAddress address : addresses) {
+                McDeviceContent content = (McDeviceContent) address;
+                this.bank.writeWords(content.getDeviceCode(), content.getHeadDeviceNumber(), content.getDevicePointsCount(), content.getData());
+            }
+        } finally {
+            this.bank.getRwLock().writeLock().unlock();
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Parse the word blocks and the bit blocks.
+     * (解析字块和位块)
+     *
+     * @param buff     buff
+     * @param series   series
+     * @param withData true: every block is followed by its data
+     * @return word blocks followed by bit blocks
+     */
+    private McDeviceAddress[] parseBlocks(ByteReadBuff buff, EMcSeries series, boolean withData) {
+        this.checkRemainSize(buff, 2);
+        int wordBlocks = buff.getByteToInt();
+        int bitBlocks = buff.getByteToInt();
+        log.debug("[MULTI_BLOCKS] word blocks[{}], bit blocks[{}], write[{}]", wordBlocks, bitBlocks, withData);
+        this.checkPointsCount(wordBlocks + bitBlocks, series.getDeviceBlocksBlocksCount());
+        McDeviceAddress[] addresses = new McDeviceAddress[wordBlocks + bitBlocks];
+        int total = 0;
+        for (int i = 0; i < addresses.length; i++) {
+            McDeviceAddress address = this.parseDeviceAddress(buff, series, true);
+            if (i >= wordBlocks) {
+                this.checkBitDevice(address.getDeviceCode());
+            }
+            total += address.getDevicePointsCount();
+            if (withData) {
+                this.checkRemainSize(buff, address.getDevicePointsCount() * 2);
+            }
+            addresses[i] = withData ? McDeviceContent.createByAddress(address, buff.getBytes(address.getDevicePointsCount() * 2)) : address;
+        }
+        this.checkPointsCount(total, series.getDeviceBatchInWordPointsCount());
+        return addresses;
+    }
+
+    /**
+     * Parse the device address.
+     * (解析软元件地址)
+     *
+     * @param buff        buff
+     * @param series      series, QnA and Q/L: 3 bytes number + 1 byte code, iQ-R: 4 bytes number + 2 bytes code
+     * @param pointsCount true: followed by 2 bytes points count
+     * @return device address
+     */
+    private McDeviceAddress parseDeviceAddress(ByteReadBuff buff, EMcSeries series, boolean pointsCount) {
+        this.checkRemainSize(buff, series.getDeviceCodeByteLength() + series.getHeadDeviceNumberByteLength() + (pointsCount ? 2 : 0));
+        int headDeviceNumber;
+        EMcDeviceCode deviceCode;
+        if (series == EMcSeries.IQ_R) {
+            headDeviceNumber = buff.getInt32();
+            deviceCode = DEVICE_CODES_IQR.get(buff.getUInt16());
+        } else {
+            byte[] number = buff.getBytes(3);
+            headDeviceNumber = (number[0] & 0xFF) | (number[1] & 0xFF) << 8 | (number[2] & 0xFF) << 16;
+            deviceCode = DEVICE_CODES.get(buff.getByteToInt());
+        }
+        if (deviceCode == null) {
+            // 指定了无法处理的软元件
+            throw new McEndCodeException(0xC05B);
+        }
+        return new McDeviceAddress(deviceCode, headDeviceNumber, pointsCount ? buff.getUInt16() : 1);
+    }
+
+    private void checkPointsCount(int points, int maxPoints) {
+        if (points < 1 || points > maxPoints) {
+            // 写入或读取点数超出了允许范围
+            throw new McEndCodeException(0xC051);
+        }
+    }
+
+    private void checkBitDevice(EMcDeviceCode deviceCode) {
+        if (!EMcDeviceCode.checkBitType(deviceCode)) {
+            // 对字软元件进行了以位为单位的写入及读取
+            throw new McEndCodeException(0xC05C);
+        }
+    }
+
+    private void checkRemainSize(ByteReadBuff buff, int length) {
+        if (buff.getRemainSize() < length) {
+            // 请求数据长度与数据数不一致
+            throw new McEndCodeException(0xC061);
+        }
+    }
+
+    private void checkNoRemaining(ByteReadBuff buff) {
+        if (buff.getRemainSize() != 0) {
+            // 请求数据长度与数据数不一致
+            throw new McEndCodeException(0xC061);
+        }
+    }
+
+    /**
+     * Exception with the end code of the response.
+     * (携带响应结束代码的异常)
+     */
+    private static class McEndCodeException extends RuntimeException {
+
+        private final int endCode;
+
+        private McEndCodeException(int endCode) {
+            super(String.format("end code: 0x%04X", endCode));
+            this.endCode = endCode;
+        }
+    }
+}
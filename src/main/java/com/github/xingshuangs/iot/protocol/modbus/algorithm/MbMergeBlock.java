@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.algorithm;
+
+
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbTable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Merged block, read by one request when the quantity is not more than the maximum length.
+ * (合并后的数据块，数量不超过最大长度时一次请求读取)
+ *
+ * @author xingshuang
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MbMergeBlock {
+
+    /**
+     * Unit id or slave id.
+     * (站号)
+     */
+    private int unitId;
+
+    /**
+     * Data table.
+     * (数据表)
+     */
+    private EMbTable table;
+
+    /**
+     * Start address.
+     * (起始地址)
+     */
+    private int address;
+
+    /**
+     * Quantity of coils or registers.
+     * (线圈或寄存器数量)
+     */
+    private int quantity;
+}
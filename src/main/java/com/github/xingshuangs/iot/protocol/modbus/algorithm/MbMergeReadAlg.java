@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.algorithm;
+
+
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbTable;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbAddressItem;
+import lombok.Data;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Merge read algorithm, merge the nearby addresses of the same unit id and table into one block.
+ * 合并读取算法，将同一站号同一数据表中相近的地址合并为一个数据块
+ * 每次请求的报文头约21字节(请求12字节+响应9字节)，间隔小于该开销时，多读间隔的数据比单独请求更划算
+ * 示例：寄存器最大间隔10，最大长度125
+ * 40001(2), 40003(2), 40006(1), 40100(4)
+ * |40001(6)|40100(4)|
+ *
+ * @author xingshuang
+ */
+@Data
+public class MbMergeReadAlg {
+
+    /**
+     * Default max gap of register, 10 registers = 20 bytes, close to the overhead of one request.
+     * (默认的寄存器最大间隔)
+     */
+    public static final int DEFAULT_MAX_REGISTER_GAP = 10;
+
+    /**
+     * Default max gap of coil, 160 coils = 20 bytes, close to the overhead of one request.
+     * (默认的线圈最大间隔)
+     */
+    public static final int DEFAULT_MAX_COIL_GAP = 160;
+
+    /**
+     * Merged blocks.
+     * (合并后的数据块)
+     */
+    private final List<MbMergeBlock> mergedBlocks;
+
+    /**
+     * Position of every raw address item, index same as raw list.
+     * (每个原始地址项的位置，索引与原始列表一致)
+     */
+    private final List<MbMergeItem> positions;
+
+    private MbMergeReadAlg(List<MbMergeBlock> mergedBlocks, List<MbMergeItem> positions) {
+        this.mergedBlocks = mergedBlocks;
+        this.positions = positions;
+    }
+
+    /**
+     * Merge address items, sort by unit id, table and address, merge the ranges whose gap is not more than max gap
+     * and whose total quantity is not more than max length.
+     * (合并地址项，按照站号，数据表和地址排序，间隔不超过最大间隔且总数量不超过最大长度的范围合并)
+     *
+     * @param src            raw address items 原始地址项
+     * @param maxRegisterGap max gap of register 寄存器最大间隔
+     * @param maxCoilGap     max gap of coil 线圈最大间隔
+     * @param maxLength      max length of one request for every table 每个数据表单次请求的最大长度
+     * @return merge result
+     */
+    public static MbMergeReadAlg merge(List<MbAddressItem> src, int maxRegisterGap, int maxCoilGap,
+                                       ToIntFunction<EMbTable> maxLength) {
+        if (maxRegisterGap < 0 || maxCoilGap < 0) {
+            throw new IllegalArgumentException("maxRegisterGap<0 || maxCoilGap<0");
+        }
+        List<MbMergeBlock> mergedBlocks = new ArrayList<>();
+        MbMergeItem[] positions = new MbMergeItem[src.size()];
+
+        List<Integer> sortedIndexes = IntStream.range(0, src.size()).boxed().collect(Collectors.toList());
+        sortedIndexes.sort(Comparator.<Integer>comparingInt(i -> src.get(i).getUnitId())
+                .thenComparingInt(i -> src.get(i).getTable().ordinal())
+                .thenComparingInt(i -> src.get(i).getAddress()));
+
+        MbMergeBlock current = null;
+        for (int index : sortedIndexes) {
+            MbAddressItem item = src.get(index);
+            int start = item.getAddress();
+            int end = start + item.getQuantity();
+            int maxGap = item.getTable().isBit() ? maxCoilGap : maxRegisterGap;
+            if (current == null
+                    || current.getUnitId() != item.getUnitId()
+                    || current.getTable() != item.getTable()
+                    || start - (current.getAddress() + current.getQuantity()) > maxGap
+                    || end - current.getAddress() > maxLength.applyAsInt(item.getTable())) {
+                current = new MbMergeBlock(item.getUnitId(), item.getTable(), start, end - start);
+                mergedBlocks.add(current);
+            } else {
+                current.setQuantity(Math.max(current.getQuantity(), end - current.getAddress()));
+            }
+            positions[index] = new MbMergeItem(mergedBlocks.size() - 1, start - current.getAddress());
+        }
+        return new MbMergeReadAlg(mergedBlocks, Arrays.asList(positions));
+    }
+
+    /**
+     * Split the data of merged blocks to the values of raw address items.
+     * (将合并后数据块的数据拆分为原始地址项的值)
+     *
+     * @param src        raw address items 原始地址项
+     * @param blockDatas data of merged blocks, List&lt;Boolean&gt; for bit table, byte[] for register table
+     * @return values of raw address items
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> split(List<MbAddressItem> src, List<Object> blockDatas) {
+        return IntStream.range(0, src.size()).mapToObj(i -> {
+            MbAddressItem item = src.get(i);
+            MbMergeItem position = this.positions.get(i);
+            Object data = blockDatas.get(position.getMergedIndex());
+            if (item.getTable().isBit()) {
+                return ((List<Boolean>) data).get(position.getOffset());
+            }
+            return item.decode((byte[]) data, position.getOffset() * 2);
+        }).collect(Collectors.toList());
+    }
+}
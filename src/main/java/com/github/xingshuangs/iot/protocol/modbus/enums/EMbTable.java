@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.enums;
+
+
+/**
+ * Modbus data table.
+ * (Modbus数据表)
+ *
+ * @author xingshuang
+ */
+public enum EMbTable {
+
+    /**
+     * Coil, read and write bit.
+     * 线圈，可读写的位
+     */
+    COIL(true, "coil"),
+
+    /**
+     * Discrete input, read only bit.
+     * 离散量输入，只读的位
+     */
+    DISCRETE_INPUT(true, "discrete input"),
+
+    /**
+     * Hold register, read and write register.
+     * 保持寄存器，可读写的寄存器
+     */
+    HOLD_REGISTER(false, "hold register"),
+
+    /**
+     * Input register, read only register.
+     * 输入寄存器，只读的寄存器
+     */
+    INPUT_REGISTER(false, "input register"),
+    ;
+
+    /**
+     * Bit table or not, true: bit, false: register of 2 bytes.
+     * (是否位数据表，true：位，false：2字节的寄存器)
+     */
+    private final boolean bit;
+
+    /**
+     * Description.
+     * (描述)
+     */
+    private final String description;
+
+    EMbTable(boolean bit, String description) {
+        this.bit = bit;
+        this.description = description;
+    }
+
+    public boolean isBit() {
+        return bit;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
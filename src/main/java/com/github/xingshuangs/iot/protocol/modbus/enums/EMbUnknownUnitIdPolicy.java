@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.enums;
+
+
+/**
+ * Policy of the server for the unit id without data bank.
+ * (服务端对没有数据区的站号的处理策略)
+ *
+ * @author xingshuang
+ */
+public enum EMbUnknownUnitIdPolicy {
+
+    /**
+     * Use the shared default bank, unit id is ignored.
+     * 使用共享的默认数据区，忽略站号
+     */
+    SHARED,
+
+    /**
+     * Create the data bank of the unit id lazily.
+     * 延迟创建该站号的数据区
+     */
+    CREATE,
+
+    /**
+     * Respond the exception of gateway target device failed to respond.
+     * 响应网关目标设备无响应的异常
+     */
+    EXCEPTION,
+
+    /**
+     * No response, the same as a missing slave behind the gateway.
+     * 不响应，与网关后面不存在的从站一致
+     */
+    NO_RESPONSE,
+}
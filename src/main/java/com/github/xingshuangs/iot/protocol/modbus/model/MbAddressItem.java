@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.model;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbTable;
+import com.github.xingshuangs.iot.utils.ByteUtil;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Modbus address item, one typed tag.
+ * (Modbus地址项，一个带类型的点位)
+ *
+ * @author xingshuang
+ */
+@Data
+public class MbAddressItem {
+
+    /**
+     * Unit id or slave id.
+     * (站号)
+     */
+    private int unitId = 1;
+
+    /**
+     * Data table.
+     * (数据表)
+     */
+    private EMbTable table = EMbTable.HOLD_REGISTER;
+
+    /**
+     * Modbus address.
+     * (地址)
+     */
+    private int address = 0;
+
+    /**
+     * Data type, BOOL for bit table, the others for register table.
+     * (数据类型，位数据表为BOOL，寄存器数据表为其他类型)
+     */
+    private EDataType dataType = EDataType.UINT16;
+
+    /**
+     * Byte length of BYTE and STRING, the others are decided by data type.
+     * (BYTE和STRING的字节长度，其他类型由数据类型决定)
+     */
+    private int count = 1;
+
+    /**
+     * Is little endian, true: yes, false: no.
+     * (是否小端模式)
+     */
+    private boolean littleEndian = false;
+
+    /**
+     * Format of 4 or 8 bytes.
+     * (4或8字节数据的格式)
+     */
+    private EByteBuffFormat format = EByteBuffFormat.BA_DC;
+
+    public MbAddressItem() {
+    }
+
+    public MbAddressItem(int unitId, EMbTable table, int address, EDataType dataType, int count,
+                         boolean littleEndian, EByteBuffFormat format) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (table.isBit() != (dataType == EDataType.BOOL)) {
+            throw new IllegalArgumentException(String.format("The data type [%s] is not supported by [%s]",
+                    dataType.getName(), table.getDescription()));
+        }
+        if (!table.isBit() && !isRegisterType(dataType)) {
+            throw new IllegalArgumentException(String.format("The data type [%s] is not supported", dataType.getName()));
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("count < 1");
+        }
+        this.unitId = unitId;
+        this.table = table;
+        this.address = address;
+        this.dataType = dataType;
+        this.count = count;
+        this.littleEndian = littleEndian;
+        this.format = format;
+    }
+
+    /**
+     * Create the item of bit table.
+     * (创建位数据表的地址项)
+     *
+     * @param unitId  unit id or slave id
+     * @param table   bit table, COIL or DISCRETE_INPUT
+     * @param address modbus address
+     * @return address item
+     */
+    public static MbAddressItem createBit(int unitId, EMbTable table, int address) {
+        return new MbAddressItem(unitId, table, address, EDataType.BOOL, 1, false, EByteBuffFormat.BA_DC);
+    }
+
+    /**
+     * Create the item of register table, the data type has fixed length.
+     * (创建寄存器数据表的地址项，数据类型为固定长度)
+     *
+     * @param unitId   unit id or slave id
+     * @param table    register table, HOLD_REGISTER or INPUT_REGISTER
+     * @param address  modbus address
+     * @param dataType data type
+     * @param format   format of 4 or 8 bytes
+     * @return address item
+     */
+    public static MbAddressItem createRegister(int unitId, EMbTable table, int address, EDataType dataType, EByteBuffFormat format) {
+        return new MbAddressItem(unitId, table, address, dataType, 1, false, format);
+    }
+
+    /**
+     * Create the item of register table, the data type is BYTE or STRING.
+     * (创建寄存器数据表的地址项，数据类型为BYTE或STRING)
+     *
+     * @param unitId   unit id or slave id
+     * @param table    register table, HOLD_REGISTER or INPUT_REGISTER
+     * @param address  modbus address
+     * @param dataType BYTE or STRING
+     * @param count    byte length
+     * @return address item
+     */
+    public static MbAddressItem createBytes(int unitId, EMbTable table, int address, EDataType dataType, int count) {
+        return new MbAddressItem(unitId, table, address, dataType, count, false, EByteBuffFormat.BA_DC);
+    }
+
+    /**
+     * Quantity of coils or registers occupied.
+     * (占用的线圈或寄存器数量)
+     *
+     * @return quantity
+     */
+    public int getQuantity() {
+        if (this.table.isBit()) {
+            return 1;
+        }
+        return (this.getByteLength() + 1) / 2;
+    }
+
+    /**
+     * Byte length of the data.
+     * (数据的字节长度)
+     *
+     * @return byte length
+     */
+    public int getByteLength() {
+        return this.dataType == EDataType.BYTE || this.dataType == EDataType.STRING ? this.count : this.dataType.getByteLength();
+    }
+
+    /**
+     * Decode the value from the register data.
+     * (从寄存器数据中解析值)
+     *
+     * @param data       register data
+     * @param byteOffset byte offset
+     * @return value
+     */
+    public Object decode(byte[] data, int byteOffset) {
+        ByteReadBuff buff = ByteReadBuff.newInstance(data, byteOffset, this.littleEndian, this.format);
+        switch (this.dataType) {
+            case BYTE:
+                return Arrays.copyOfRange(data, byteOffset, byteOffset + this.count);
+            case UINT16:
+                return buff.getUInt16();
+            case INT16:
+                return buff.getInt16();
+            case UINT32:
+                return buff.getUInt32();
+            case INT32:
+                return buff.getInt32();
+            case INT64:
+                return buff.getInt64();
+            case FLOAT32:
+                return buff.getFloat32();
+            case FLOAT64:
+                return buff.getFloat64();
+            case STRING:
+                return ByteUtil.toStr(data, byteOffset, this.count, StandardCharsets.US_ASCII);
+            default:
+                throw new IllegalArgumentException(String.format("The data type [%s] is not supported", this.dataType.getName()));
+        }
+    }
+
+    /**
+     * Whether the data type can be stored in the registers.
+     * (数据类型是否可以存储在寄存器中)
+     *
+     * @param dataType data type
+     * @return true: yes, false: no
+     */
+    private static boolean isRegisterType(EDataType dataType) {
+        switch (dataType) {
+            case BYTE:
+            case UINT16:
+            case INT16:
+            case UINT32:
+            case INT32:
+            case INT64:
+            case FLOAT32:
+            case FLOAT64:
+            case STRING:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
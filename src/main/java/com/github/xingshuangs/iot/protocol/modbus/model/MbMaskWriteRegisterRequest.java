@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.model;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbFunctionCode;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Mask write register request, result = (current AND andMask) OR (orMask AND (NOT andMask)).
+ * (请求屏蔽写寄存器)
+ *
+ * @author xingshuang
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public final class MbMaskWriteRegisterRequest extends MbPdu {
+
+    /**
+     * Address.
+     * 寄存器地址 0x0000 至 0xFFFF <br>
+     * 字节大小：2个字节
+     */
+    private int address;
+
+    /**
+     * And mask.
+     * 与掩码 0x0000 至 0xFFFF <br>
+     * 字节大小：2个字节
+     */
+    private int andMask;
+
+    /**
+     * Or mask.
+     * 或掩码 0x0000 至 0xFFFF <br>
+     * 字节大小：2个字节
+     */
+    private int orMask;
+
+    public MbMaskWriteRegisterRequest() {
+        this.functionCode = EMbFunctionCode.SHIELD_WRITE_REGISTER;
+    }
+
+    public MbMaskWriteRegisterRequest(int address, int andMask, int orMask) {
+        this.functionCode = EMbFunctionCode.SHIELD_WRITE_REGISTER;
+        this.address = address;
+        this.andMask = andMask;
+        this.orMask = orMask;
+    }
+
+    @Override
+    public int byteArrayLength() {
+        return super.byteArrayLength() + 6;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return ByteWriteBuff.newInstance(this.byteArrayLength())
+                .putByte(this.functionCode.getCode())
+                .putShort(this.address)
+                .putShort(this.andMask)
+                .putShort(this.orMask)
+                .getData();
+    }
+
+    /**
+     * Parses byte array and converts it to object.
+     * (解析字节数组数据)
+     *
+     * @param data byte array
+     * @return MbMaskWriteRegisterRequest
+     */
+    public static MbMaskWriteRegisterRequest fromBytes(final byte[] data) {
+        return fromBytes(data, 0);
+    }
+
+    /**
+     * Parses byte array and converts it to object.
+     * (解析字节数组数据)
+     *
+     * @param data   byte array
+     * @param offset index offset
+     * @return MbMaskWriteRegisterRequest
+     */
+    public static MbMaskWriteRegisterRequest fromBytes(final byte[] data, final int offset) {
+        ByteReadBuff buff = new ByteReadBuff(data, offset);
+        MbMaskWriteRegisterRequest res = new MbMaskWriteRegisterRequest();
+        res.functionCode = EMbFunctionCode.from(buff.getByte());
+        res.address = buff.getUInt16();
+        res.andMask = buff.getUInt16();
+        res.orMask = buff.getUInt16();
+        return res;
+    }
+}
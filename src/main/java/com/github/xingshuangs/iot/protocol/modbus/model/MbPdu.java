@@ -102,6 +102,10 @@ public class MbPdu implements IObjectByteArray {
                 return MbWriteMultipleCoilResponse.fromBytes(data, offset);
             case WRITE_MULTIPLE_REGISTER:
                 return MbWriteMultipleRegisterResponse.fromBytes(data, offset);
+            case SHIELD_WRITE_REGISTER:
+                return MbMaskWriteRegisterResponse.fromBytes(data, offset);
+            case READ_WRITE_MULTIPLE_REGISTER:
+                return MbReadWriteMultipleRegisterResponse.fromBytes(data, offset);
             case ERROR_READ_COIL:
             case ERROR_READ_DISCRETE_INPUT:
             case ERROR_READ_HOLD_REGISTER:
@@ -110,6 +114,9 @@ public class MbPdu implements IObjectByteArray {
             case ERROR_WRITE_SINGLE_REGISTER:
             case ERROR_WRITE_MULTIPLE_COIL:
             case ERROR_WRITE_MULTIPLE_REGISTER:
+            case ERROR_READ_DOCUMENT_RECORD:
+            case ERROR_SHIELD_WRITE_REGISTER:
+            case ERROR_READ_WRITE_MULTIPLE_REGISTER:
                 return MbErrorResponse.fromBytes(data, offset);
             default:
                 throw new ModbusCommException("Function code can not be recognized：" + functionCode.getDescription());
@@ -158,6 +165,10 @@ public class MbPdu implements IObjectByteArray {
                 return MbWriteMultipleCoilRequest.fromBytes(data, offset);
             case WRITE_MULTIPLE_REGISTER:
                 return MbWriteMultipleRegisterRequest.fromBytes(data, offset);
+            case SHIELD_WRITE_REGISTER:
+                return MbMaskWriteRegisterRequest.fromBytes(data, offset);
+            case READ_WRITE_MULTIPLE_REGISTER:
+                return MbReadWriteMultipleRegisterRequest.fromBytes(data, offset);
             default:
                 throw new ModbusCommException("Function code can not be recognized：" + functionCode.getDescription());
         }
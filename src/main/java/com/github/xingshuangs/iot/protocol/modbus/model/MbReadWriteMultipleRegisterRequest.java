@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.model;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbFunctionCode;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Read write multiple register request, the write is performed before the read.
+ * (请求读写多个寄存器，先写后读)
+ *
+ * @author xingshuang
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public final class MbReadWriteMultipleRegisterRequest extends MbPdu {
+
+    /**
+     * Read address.
+     * 读起始地址 0x0000 至 0xFFFF <br>
+     * 字节大小：2个字节
+     */
+    private int readAddress;
+
+    /**
+     * Read quantity.
+     * 读寄存器数量 0x0001 至 0x007D <br>
+     * 字节大小：2个字节
+     */
+    private int readQuantity;
+
+    /**
+     * Write address.
+     * 写起始地址 0x0000 至 0xFFFF <br>
+     * 字节大小：2个字节
+     */
+    private int writeAddress;
+
+    /**
+     * Write quantity.
+     * 写寄存器数量 0x0001 至 0x0079 <br>
+     * 字节大小：2个字节
+     */
+    private int writeQuantity;
+
+    /**
+     * Byte count of write.
+     * 写字节数 2×N* <br>
+     * 字节大小：1个字节
+     */
+    private int writeCount;
+
+    /**
+     * Write register data.
+     * 写寄存器值
+     * 字节大小：N*×2 个字节
+     */
+    private byte[] writeValue;
+
+    public MbReadWriteMultipleRegisterRequest() {
+        this.functionCode = EMbFunctionCode.READ_WRITE_MULTIPLE_REGISTER;
+    }
+
+    public MbReadWriteMultipleRegisterRequest(int readAddress, int readQuantity, int writeAddress, byte[] writeValue) {
+        this.functionCode = EMbFunctionCode.READ_WRITE_MULTIPLE_REGISTER;
+        this.readAddress = readAddress;
+        this.readQuantity = readQuantity;
+        this.writeAddress = writeAddress;
+        this.writeQuantity = writeValue.length / 2;
+        this.writeCount = writeValue.length;
+        this.writeValue = writeValue;
+    }
+
+    @Override
+    public int byteArrayLength() {
+        return super.byteArrayLength() + 9 + this.writeValue.length;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return ByteWriteBuff.newInstance(this.byteArrayLength())
+                .putByte(this.functionCode.getCode())
+                .putShort(this.readAddress)
+                .putShort(this.readQuantity)
+                .putShort(this.writeAddress)
+                .putShort(this.writeQuantity)
+                .putByte(this.writeCount)
+                .putBytes(this.writeValue)
+                .getData();
+    }
+
+    /**
+     * Parses byte array and converts it to object.
+     * (解析字节数组数据)
+     *
+     * @param data byte array
+     * @return MbReadWriteMultipleRegisterRequest
+     */
+    public static MbReadWriteMultipleRegisterRequest fromBytes(final byte[] data) {
+        return fromBytes(data, 0);
+    }
+
+    /**
+     * Parses byte array and converts it to object.
+     * (解析字节数组数据)
+     *
+     * @param data   byte array
+     * @param offset index offset
+     * @return MbReadWriteMultipleRegisterRequest
+     */
+    public static MbReadWriteMultipleRegisterRequest fromBytes(final byte[] data, final int offset) {
+        ByteReadBuff buff = new ByteReadBuff(data, offset);
+        MbReadWriteMultipleRegisterRequest res = new MbReadWriteMultipleRegisterRequest();
+        res.functionCode = EMbFunctionCode.from(buff.getByte());
+        res.readAddress = buff.getUInt16();
+        res.readQuantity = buff.getUInt16();
+        res.writeAddress = buff.getUInt16();
+        res.writeQuantity = buff.getUInt16();
+        res.writeCount = buff.getByteToInt();
+        res.writeValue = buff.getBytes(res.writeCount);
+        return res;
+    }
+}
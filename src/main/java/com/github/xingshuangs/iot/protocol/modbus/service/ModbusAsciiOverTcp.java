@@ -31,6 +31,7 @@ import com.github.xingshuangs.iot.protocol.modbus.model.MbAsciiRequest;
 import com.github.xingshuangs.iot.protocol.modbus.model.MbAsciiResponse;
 import com.github.xingshuangs.iot.protocol.modbus.model.MbErrorResponse;
 import com.github.xingshuangs.iot.protocol.modbus.model.MbPdu;
+import com.github.xingshuangs.iot.protocol.modbus.utils.MbFrameUtil;
 import com.github.xingshuangs.iot.utils.HexUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,7 +48,7 @@ import static com.github.xingshuangs.iot.common.constant.GeneralConst.MODBUS_POR
  * @author xingshuang
  */
 @Slf4j
-public class ModbusAsciiOverTcp extends ModbusSkeletonAbstract<MbAsciiRequest, MbAsciiResponse> {
+public class ModbusAsciiOverTcp extends ModbusTcpSkeletonAbstract<MbAsciiRequest, MbAsciiResponse> {
 
     /**
      * Communication callback.
@@ -95,21 +96,18 @@ public class ModbusAsciiOverTcp extends ModbusSkeletonAbstract<MbAsciiRequest, M
         if (this.comStringCallback != null) {
             this.comStringCallback.accept(GeneralConst.PACKAGE_REQ, reqStr);
         }
-        int len;
-        byte[] data = new byte[1024];
+        byte[] total;
         try {
             this.locker.lock();
-            this.write(reqBytes);
-            len = this.read(data);
+            // 丢弃之前超时请求迟到的响应
+            this.transport.discard();
+            this.transport.write(reqBytes);
+            // 根据功能码和字节数计算帧长度，读取完整的一帧直到LF
+            total = MbFrameUtil.readAsciiFrame(this.transport, this.receiveTimeout,
+                    req.getUnitId(), req.getPdu().getFunctionCode().getCode());
         } finally {
             this.locker.unlock();
         }
-        if (len <= 0) {
-            // Modbus数据读取长度有误
-            throw new ModbusCommException("The length of Modbus data read is incorrect");
-        }
-        byte[] total = new byte[len];
-        System.arraycopy(data, 0, total, 0, len);
         String ackStr = new String(total, StandardCharsets.UTF_8);
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
@@ -154,7 +152,7 @@ public class ModbusAsciiOverTcp extends ModbusSkeletonAbstract<MbAsciiRequest, M
         } finally {
             if (!this.persistence) {
                 // 由于短连接方式，通信完毕触发关闭连接通道，服务端IP
-                log.debug("Due to the short connection mode, the communication is completed and the connection channel is triggered to close, Server IP[{}]", this.socketAddress);
+                log.debug("Due to the short connection mode, the communication is completed and the connection channel is triggered to close, Server IP[{}]", this.getSocketAddress());
                 this.close();
             }
         }
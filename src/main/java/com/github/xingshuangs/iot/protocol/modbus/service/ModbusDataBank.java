@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+
+import com.github.xingshuangs.iot.common.buff.BitTable;
+import lombok.Getter;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Data bank of one slave in the modbus server, every bank has its own lock.
+ * (Modbus服务端中一个从站的数据区，每个数据区有自己的锁)
+ *
+ * @author xingshuang
+ */
+@Getter
+public class ModbusDataBank {
+
+    /**
+     * Read and write lock.
+     * (读写锁)
+     */
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    /**
+     * Coil data, packed bits.
+     * (线圈，按位紧凑存储)
+     */
+    private final BitTable coils;
+
+    /**
+     * Discrete input data, packed bits.
+     * (离散量输入，按位紧凑存储)
+     */
+    private final BitTable discreteInputs;
+
+    /**
+     * Input register data.
+     * (输入寄存器)
+     */
+    private final byte[] inputRegisters;
+
+    /**
+     * Hold register data.
+     * (保持寄存器)
+     */
+    private final byte[] holdRegisters;
+
+    /**
+     * Constructor.
+     * (构造方法)
+     *
+     * @param size number of points of every table, [1, 65536]
+     */
+    public ModbusDataBank(int size) {
+        if (size < 1 || size > BitTable.MAX_SIZE) {
+            throw new IllegalArgumentException("size < 1 || size > " + BitTable.MAX_SIZE);
+        }
+        this.coils = new BitTable(size);
+        this.discreteInputs = new BitTable(size);
+        this.inputRegisters = new byte[size * 2];
+        this.holdRegisters = new byte[size * 2];
+    }
+
+    /**
+     * Number of registers of every register table.
+     * (每个寄存器数据表的寄存器数量)
+     *
+     * @return number of registers
+     */
+    public int getRegisterSize() {
+        return this.holdRegisters.length / 2;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+
+import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbTable;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbAddressItem;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi address read, the nearby addresses are merged into blocks when reading.
+ * 多地址读，读取时相近的地址合并为数据块
+ *
+ * @author xingshuang
+ */
+@Data
+public class ModbusMultiAddressRead {
+
+    /**
+     * Address items.
+     * 地址项列表
+     */
+    private final List<MbAddressItem> items = new ArrayList<>();
+
+    /**
+     * Add address item.
+     * (添加地址项)
+     *
+     * @param item address item
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addData(MbAddressItem item) {
+        this.items.add(item);
+        return this;
+    }
+
+    /**
+     * Add coil.
+     * (添加线圈)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addCoil(int unitId, int address) {
+        return this.addData(MbAddressItem.createBit(unitId, EMbTable.COIL, address));
+    }
+
+    /**
+     * Add discrete input.
+     * (添加离散输入)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addDiscreteInput(int unitId, int address) {
+        return this.addData(MbAddressItem.createBit(unitId, EMbTable.DISCRETE_INPUT, address));
+    }
+
+    /**
+     * Add hold register, BA_DC format default.
+     * (添加保持寄存器，默认BA_DC格式)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param dataType data type
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addHoldRegister(int unitId, int address, EDataType dataType) {
+        return this.addHoldRegister(unitId, address, dataType, EByteBuffFormat.BA_DC);
+    }
+
+    /**
+     * Add hold register.
+     * (添加保持寄存器)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param dataType data type
+     * @param format   format of 4 or 8 bytes
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addHoldRegister(int unitId, int address, EDataType dataType, EByteBuffFormat format) {
+        return this.addData(MbAddressItem.createRegister(unitId, EMbTable.HOLD_REGISTER, address, dataType, format));
+    }
+
+    /**
+     * Add input register, BA_DC format default.
+     * (添加输入寄存器，默认BA_DC格式)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param dataType data type
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addInputRegister(int unitId, int address, EDataType dataType) {
+        return this.addInputRegister(unitId, address, dataType, EByteBuffFormat.BA_DC);
+    }
+
+    /**
+     * Add input register.
+     * (添加输入寄存器)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param dataType data type
+     * @param format   format of 4 or 8 bytes
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addInputRegister(int unitId, int address, EDataType dataType, EByteBuffFormat format) {
+        return this.addData(MbAddressItem.createRegister(unitId, EMbTable.INPUT_REGISTER, address, dataType, format));
+    }
+
+    /**
+     * Add string of hold register, ASCII.
+     * (添加保持寄存器中的字符串，ASCII编码)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @param length  string length
+     * @return ModbusMultiAddressRead
+     */
+    public ModbusMultiAddressRead addString(int unitId, int address, int length) {
+        return this.addData(MbAddressItem.createBytes(unitId, EMbTable.HOLD_REGISTER, address, EDataType.STRING, length));
+    }
+}
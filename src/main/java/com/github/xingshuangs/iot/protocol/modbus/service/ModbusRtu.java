@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+
+import com.github.xingshuangs.iot.common.constant.GeneralConst;
+import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.net.ITransport;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbErrorResponse;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbPdu;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbRtuRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbRtuResponse;
+import com.github.xingshuangs.iot.protocol.modbus.utils.MbFrameUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Modbus rtu over any transport, e.g. a RS-485 serial line, the response frame is delimited by the silent interval t3.5.
+ * (基于任意传输通道的Modbus RTU，例如RS-485串口，响应帧根据t3.5静默间隔分隔)
+ * 串口需要以数据流对方式打开，例如 new ModbusRtu(1, StreamTransport.open("/dev/ttyUSB0"), 9600)
+ * 传输通道无法重新打开时(例如直接传入数据流的StreamTransport)，忽略短连接模式，始终保持连接
+ *
+ * @author xingshuang
+ */
+@Slf4j
+public class ModbusRtu extends ModbusSkeletonAbstract<MbRtuRequest, MbRtuResponse> {
+
+    /**
+     * Default baud rate.
+     * (默认波特率)
+     */
+    public static final int DEFAULT_BAUD_RATE = 9600;
+
+    /**
+     * Transport.
+     * (传输通道)
+     */
+    private final ITransport transport;
+
+    /**
+     * Silent interval t3.5 of frame end with ms.
+     * (帧结束的t3.5静默间隔，单位毫秒)
+     */
+    private int interFrameGap;
+
+    public ModbusRtu(ITransport transport) {
+        this(1, transport, DEFAULT_BAUD_RATE);
+    }
+
+    public ModbusRtu(int unitId, ITransport transport) {
+        this(unitId, transport, DEFAULT_BAUD_RATE);
+    }
+
+    public ModbusRtu(int unitId, ITransport transport, int baudRate) {
+        super(unitId);
+        this.transport = transport;
+        this.interFrameGap = MbFrameUtil.getInterFrameGap(baudRate);
+        this.tag = "ModbusRtu";
+    }
+
+    public ITransport getTransport() {
+        return transport;
+    }
+
+    public int getInterFrameGap() {
+        return interFrameGap;
+    }
+
+    /**
+     * Set the silent interval of frame end, increase it when the usb serial adapter splits one frame with larger gaps.
+     * (设置帧结束的静默间隔，USB串口转换器将一帧拆分且间隔较大时需要调大)
+     *
+     * @param interFrameGap silent interval with ms
+     */
+    public void setInterFrameGap(int interFrameGap) {
+        if (interFrameGap <= 0) {
+            throw new IllegalArgumentException("interFrameGap <= 0");
+        }
+        this.interFrameGap = interFrameGap;
+    }
+
+    @Override
+    public boolean checkConnected() {
+        return this.transport.isConnected();
+    }
+
+    @Override
+    public void connect() {
+        try {
+            this.transport.connect();
+        } finally {
+            if (this.isShortConnection()) {
+                this.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.transport.close();
+    }
+
+    /**
+     * Is short connection, ignored when the transport can not be reopened.
+     * (是否短连接，传输通道无法重新打开时忽略短连接)
+     *
+     * @return true: short connection, false: long connection
+     */
+    private boolean isShortConnection() {
+        return !this.persistence && this.transport.isReopenable();
+    }
+
+    @Override
+    protected MbRtuResponse readFromServer(MbRtuRequest req) {
+        byte[] reqBytes = req.toByteArray();
+        if (this.comCallback != null) {
+            this.comCallback.accept(GeneralConst.PACKAGE_REQ, reqBytes);
+        }
+        byte[] total;
+        try {
+            this.locker.lock();
+            // 丢弃之前超时请求迟到的响应
+            this.transport.discard();
+            this.transport.write(reqBytes);
+            total = MbFrameUtil.readRtuFrameByGap(this.transport, this.receiveTimeout, this.interFrameGap);
+        } finally {
+            this.locker.unlock();
+        }
+        if (this.comCallback != null) {
+            this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
+        }
+        if (total.length < 5) {
+            // RTU响应帧长度不足
+            throw new ModbusCommException("The RTU response frame is too short, length: " + total.length);
+        }
+        MbRtuResponse ack = MbRtuResponse.fromBytes(total);
+        this.checkResult(req, ack);
+        return ack;
+    }
+
+    @Override
+    protected void checkResult(MbRtuRequest req, MbRtuResponse ack) {
+        if (!ack.checkCrc()) {
+            // 响应数据CRC校验失败
+            throw new ModbusCommException("Response data CRC check failed");
+        }
+        if (ack.getPdu() == null) {
+            throw new ModbusCommException("PDU is null");
+        }
+        if (ack.getUnitId() != req.getUnitId()) {
+            // 响应站号和请求站号不一致
+            throw new ModbusCommException(String.format("The response unit id [%d] is inconsistent with the request [%d]", ack.getUnitId(), req.getUnitId()));
+        }
+        if (ack.getPdu().getFunctionCode().getCode() == (req.getPdu().getFunctionCode().getCode() | (byte) 0x80)) {
+            MbErrorResponse response = (MbErrorResponse) ack.getPdu();
+            // 响应返回异常，异常码:
+            throw new ModbusCommException("The response returns an exception, the exception code:" + response.getErrorCode().getDescription());
+        }
+        if (ack.getPdu().getFunctionCode().getCode() != req.getPdu().getFunctionCode().getCode()) {
+            // 返回功能码和发送功能码不一致
+            throw new ModbusCommException("The return function code is inconsistent with the send function code");
+        }
+    }
+
+    @Override
+    protected MbPdu readModbusData(int unitId, MbPdu reqPdu) {
+        MbRtuRequest request = new MbRtuRequest(unitId, reqPdu);
+        try {
+            MbRtuResponse response = this.readFromServer(request);
+            return response.getPdu();
+        } finally {
+            if (this.isShortConnection()) {
+                log.debug("Due to the short connection mode, the communication is triggered to close the transport");
+                this.close();
+            }
+        }
+    }
+}
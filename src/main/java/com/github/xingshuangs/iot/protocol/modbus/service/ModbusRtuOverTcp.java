@@ -31,6 +31,7 @@ import com.github.xingshuangs.iot.protocol.modbus.model.MbErrorResponse;
 import com.github.xingshuangs.iot.protocol.modbus.model.MbPdu;
 import com.github.xingshuangs.iot.protocol.modbus.model.MbRtuRequest;
 import com.github.xingshuangs.iot.protocol.modbus.model.MbRtuResponse;
+import com.github.xingshuangs.iot.protocol.modbus.utils.MbFrameUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import static com.github.xingshuangs.iot.common.constant.GeneralConst.LOCALHOST;
@@ -43,7 +44,7 @@ import static com.github.xingshuangs.iot.common.constant.GeneralConst.MODBUS_POR
  * @author xingshuang
  */
 @Slf4j
-public class ModbusRtuOverTcp extends ModbusSkeletonAbstract<MbRtuRequest, MbRtuResponse> {
+public class ModbusRtuOverTcp extends ModbusTcpSkeletonAbstract<MbRtuRequest, MbRtuResponse> {
 
     public ModbusRtuOverTcp() {
         this(1, LOCALHOST, MODBUS_PORT);
@@ -76,21 +77,18 @@ public class ModbusRtuOverTcp extends ModbusSkeletonAbstract<MbRtuRequest, MbRtu
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_REQ, reqBytes);
         }
-        int len;
-        byte[] data = new byte[1024];
+        byte[] total;
         try {
             this.locker.lock();
-            this.write(reqBytes);
-            len = this.read(data);
+            // 丢弃之前超时请求迟到的响应
+            this.transport.discard();
+            this.transport.write(reqBytes);
+            // 根据功能码和字节数计算帧长度，读取完整的一帧
+            total = MbFrameUtil.readRtuFrame(this.transport, this.receiveTimeout,
+                    req.getUnitId(), req.getPdu().getFunctionCode().getCode());
         } finally {
             this.locker.unlock();
         }
-        if (len <= 0) {
-            // Modbus数据读取长度有误
-            throw new ModbusCommException("The length of Modbus data read is incorrect");
-        }
-        byte[] total = new byte[len];
-        System.arraycopy(data, 0, total, 0, len);
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
         }
@@ -128,7 +126,7 @@ public class ModbusRtuOverTcp extends ModbusSkeletonAbstract<MbRtuRequest, MbRtu
             return response.getPdu();
         } finally {
             if (!this.persistence) {
-                log.debug("Due to the short connection mode, the communication is triggered to close the connection channel, and the server IP[{}]", this.socketAddress);
+                log.debug("Due to the short connection mode, the communication is triggered to close the connection channel, and the server IP[{}]", this.getSocketAddress());
                 this.close();
             }
         }
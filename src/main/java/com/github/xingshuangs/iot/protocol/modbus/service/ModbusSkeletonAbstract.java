@@ -29,31 +29,62 @@ import com.github.xingshuangs.iot.common.algorithm.LoopGroupAlg;
 import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
 import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
-import com.github.xingshuangs.iot.net.client.TcpClientBasic;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.protocol.modbus.algorithm.MbMergeBlock;
+import com.github.xingshuangs.iot.protocol.modbus.algorithm.MbMergeReadAlg;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbTable;
 import com.github.xingshuangs.iot.protocol.modbus.model.*;
 import com.github.xingshuangs.iot.utils.BooleanUtil;
 import com.github.xingshuangs.iot.utils.ByteUtil;
+import lombok.AccessLevel;
 import lombok.Data;
-import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Modbus communication basic skeleton, abstract class.
  * (Modbus网络通信的基础结构，抽象类)
+ * <p>
+ * The function code methods have the xxxAsync form on every client. ModbusTcp in pipelined long connection keeps the
+ * requests in flight on the shared reactor thread without blocking the calling thread, ModbusUdp keeps them in
+ * flight and blocks only when the window is full, the other clients communicate on the calling thread and return a
+ * completed future. The typed helpers, e.g. readFloat32, are synchronous only, convert the future of
+ * readHoldRegisterAsync for the async way.
+ * (所有客户端的功能码方法都有xxxAsync形式；流水线长连接模式的ModbusTcp在共享的反应器线程上同时进行多个请求，不阻塞调用线程，ModbusUdp同时进行
+ * 多个请求，仅在窗口已满时阻塞，其他客户端在调用线程上通信并返回已完成的future；readFloat32等类型化方法只有同步形式，异步方式可转换
+ * readHoldRegisterAsync的future)
  *
  * @author xingshuang
  */
 @Data
-@EqualsAndHashCode(callSuper = true)
 @Slf4j
-public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
+public abstract class ModbusSkeletonAbstract<T, R> {
+
+    /**
+     * TAG name.
+     * (TAG名)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected String tag = "";
+
+    /**
+     * Receive timeout in millisecond, 10_000ms default.
+     * (接收数据超时时间，默认是10s)
+     */
+    protected int receiveTimeout = 10_000;
 
     /**
      * Unit id, slave id also.
@@ -115,25 +146,41 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
      */
     private int maxLengthOfReadInputRegister = 125;
 
-    public ModbusSkeletonAbstract() {
-        super();
-    }
+    /**
+     * Max gap of register allowed to merge when reading multi address.
+     * (多地址读取时允许合并的寄存器最大间隔)
+     */
+    private int mergeReadRegisterGap = MbMergeReadAlg.DEFAULT_MAX_REGISTER_GAP;
+
+    /**
+     * Max gap of coil and discrete input allowed to merge when reading multi address.
+     * (多地址读取时允许合并的线圈和离散输入最大间隔)
+     */
+    private int mergeReadCoilGap = MbMergeReadAlg.DEFAULT_MAX_COIL_GAP;
 
-    public ModbusSkeletonAbstract(int unitId, String host, int port) {
-        super(host, port);
+    protected ModbusSkeletonAbstract(int unitId) {
         this.unitId = unitId;
     }
 
-    @Override
-    public void connect() {
-        try {
-            super.connect();
-        } finally {
-            if (!this.persistence) {
-                this.close();
-            }
-        }
-    }
+    /**
+     * Check connected state.
+     * (校验连接状态)
+     *
+     * @return true: connected, false: disconnected
+     */
+    public abstract boolean checkConnected();
+
+    /**
+     * Connect the server, the connection is closed at once in the short connection mode.
+     * (连接服务端，短连接模式下立即关闭连接)
+     */
+    public abstract void connect();
+
+    /**
+     * Close the connection.
+     * (关闭连接)
+     */
+    public abstract void close();
 
     //region 底层数据通信部分
 
@@ -166,6 +213,50 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
      */
     protected abstract MbPdu readModbusData(int unitId, MbPdu reqPdu);
 
+    /**
+     * Read modbus data as a future, by default it communicates on the calling thread and returns a completed future,
+     * the subclass keeping several requests in flight without blocking the calling thread overrides it.
+     * (以future的形式读取modbus数据，默认在调用线程上通信并返回已完成的future，能不阻塞调用线程同时进行多个请求的子类重写该方法)
+     *
+     * @param unitId unit id or slave id
+     * @param reqPdu request pdu.
+     * @return future of ack result
+     */
+    protected CompletableFuture<MbPdu> readModbusDataAsync(int unitId, MbPdu reqPdu) {
+        return CompletableFuture.completedFuture(this.readModbusData(unitId, reqPdu));
+    }
+
+    /**
+     * Combine the futures of all groups into one, cancel the combined future will cancel all the groups.
+     * (将所有分组的future合并为一个，取消合并后的future会同时取消所有分组)
+     *
+     * @param groups   futures of all groups
+     * @param supplier supply the result after all groups are completed
+     * @param <V>      result type
+     * @return combined future
+     */
+    private static <V> CompletableFuture<V> allOfGroups(List<? extends CompletableFuture<?>> groups, Supplier<V> supplier) {
+        CompletableFuture<?>[] array = groups.toArray(new CompletableFuture<?>[0]);
+        return FutureUtil.propagateCancel(CompletableFuture.allOf(array).thenApply(x -> supplier.get()), array);
+    }
+
+    /**
+     * Send the groups in order, stop at the first exception and turn it into the failed future, the same as the
+     * synchronous way.
+     * (按顺序发送分组，出现异常时停止发送并转为失败的future，与同步方式一致)
+     *
+     * @param sender send all groups and return the combined future
+     * @param <V>    result type
+     * @return combined future
+     */
+    private static <V> CompletableFuture<V> sendGroups(Supplier<CompletableFuture<V>> sender) {
+        try {
+            return sender.get();
+        } catch (RuntimeException e) {
+            return FutureUtil.failed(e);
+        }
+    }
+
     //endregion
 
     //region 线圈和寄存器的读取
@@ -199,14 +290,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
             throw new IllegalArgumentException("quantity<1");
         }
 
-        List<Boolean> res = new ArrayList<>();
-        LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadCoil, (off, len) -> {
-            MbReadCoilRequest reqPdu = new MbReadCoilRequest(address + off, len);
-            MbReadCoilResponse resPdu = (MbReadCoilResponse) this.readModbusData(unitId, reqPdu);
-            List<Boolean> booleans = BooleanUtil.byteArrayToList(len, resPdu.getCoilStatus());
-            res.addAll(booleans);
-        });
-        return res;
+        return FutureUtil.join(this.readCoilAsync(unitId, address, quantity));
     }
 
     /**
@@ -233,8 +317,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
             throw new IllegalArgumentException("address < 0 || address > 65535");
         }
 
-        MbWriteSingleCoilRequest reqPdu = new MbWriteSingleCoilRequest(address, coilStatus);
-        this.readModbusData(unitId, reqPdu);
+        FutureUtil.join(this.writeCoilAsync(unitId, address, coilStatus));
     }
 
     /**
@@ -264,12 +347,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
             throw new IllegalArgumentException("coilStatus list is empty");
         }
 
-        LoopGroupAlg.loopExecute(coilStatus.size(), this.maxLengthOfWriteCoil, (off, len) -> {
-            List<Boolean> booleanList = coilStatus.subList(off, off + len);
-            byte[] values = BooleanUtil.listToByteArray(booleanList);
-            MbWriteMultipleCoilRequest reqPdu = new MbWriteMultipleCoilRequest(address + off, len, values);
-            this.readModbusData(unitId, reqPdu);
-        });
+        FutureUtil.join(this.writeCoilAsync(unitId, address, coilStatus));
     }
 
     /**
@@ -301,14 +379,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
             throw new IllegalArgumentException("quantity<1");
         }
 
-        List<Boolean> res = new ArrayList<>();
-        LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadDiscreteInput, (off, len) -> {
-            MbReadDiscreteInputRequest reqPdu = new MbReadDiscreteInputRequest(address + off, len);
-            MbReadDiscreteInputResponse resPdu = (MbReadDiscreteInputResponse) this.readModbusData(unitId, reqPdu);
-            List<Boolean> booleans = BooleanUtil.byteArrayToList(len, resPdu.getInputStatus());
-            res.addAll(booleans);
-        });
-        return res;
+        return FutureUtil.join(this.readDiscreteInputAsync(unitId, address, quantity));
     }
 
     /**
@@ -341,13 +412,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
         }
 
         // TODO: 实际在slave中测试，没有125的约束，暂时先这么写着
-        ByteWriteBuff buff = ByteWriteBuff.newInstance(quantity * 2);
-        LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadHoldRegister, (off, len) -> {
-            MbReadHoldRegisterRequest reqPdu = new MbReadHoldRegisterRequest(address + off, len);
-            MbReadHoldRegisterResponse resPdu = (MbReadHoldRegisterResponse) this.readModbusData(unitId, reqPdu);
-            buff.putBytes(resPdu.getRegister());
-        });
-        return buff.getData();
+        return FutureUtil.join(this.readHoldRegisterAsync(unitId, address, quantity));
 
 //        MbReadHoldRegisterRequest reqPdu = new MbReadHoldRegisterRequest(address, quantity);
 //        MbReadHoldRegisterResponse resPdu = (MbReadHoldRegisterResponse) this.readModbusData(unitId, reqPdu);
@@ -382,8 +447,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
             throw new IllegalArgumentException("value < 0 || value > 65535");
         }
 
-        MbWriteSingleRegisterRequest reqPdu = new MbWriteSingleRegisterRequest(address, value);
-        this.readModbusData(unitId, reqPdu);
+        FutureUtil.join(this.writeHoldRegisterAsync(unitId, address, value));
     }
 
     /**
@@ -409,17 +473,7 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
         if (address < 0 || address > 65535) {
             throw new IllegalArgumentException("address < 0 || address > 65535");
         }
-        byte[] newValues = values;
-        if (values.length % 2 != 0) {
-            newValues = ByteWriteBuff.newInstance(values.length + 1).putBytes(values).getData();
-        }
-
-        ByteReadBuff buff = ByteReadBuff.newInstance(newValues);
-        LoopGroupAlg.loopExecute(newValues.length / 2, this.maxLengthOfWriteHoldRegister, (off, len) -> {
-            byte[] bytes = buff.getBytes(off * 2, len * 2);
-            MbWriteMultipleRegisterRequest reqPdu = new MbWriteMultipleRegisterRequest(address + off, len, bytes);
-            this.readModbusData(unitId, reqPdu);
-        });
+        FutureUtil.join(this.writeHoldRegisterAsync(unitId, address, values));
     }
 
     /**
@@ -480,13 +534,586 @@ public abstract class ModbusSkeletonAbstract<T, R> extends TcpClientBasic {
             throw new IllegalArgumentException("quantity < 1");
         }
 
-        ByteWriteBuff buff = ByteWriteBuff.newInstance(quantity * 2);
-        LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadInputRegister, (off, len) -> {
-            MbReadInputRegisterRequest reqPdu = new MbReadInputRegisterRequest(address + off, len);
-            MbReadInputRegisterResponse resPdu = (MbReadInputRegisterResponse) this.readModbusData(unitId, reqPdu);
-            buff.putBytes(resPdu.getRegister());
+        return FutureUtil.join(this.readInputRegisterAsync(unitId, address, quantity));
+    }
+
+    /**
+     * Write and then read multiple hold register in one transaction, e.g. write the setpoint and read the feedback.
+     * (在一次请求中先写后读多个保持寄存器，例如写入设定值并读取反馈)
+     *
+     * @param readAddress  read modbus address
+     * @param readQuantity read register quantity, [1, 125]
+     * @param writeAddress write modbus address
+     * @param writeValues  write value, [2, 242] bytes
+     * @return byte array read
+     */
+    public byte[] readWriteHoldRegister(int readAddress, int readQuantity, int writeAddress, byte[] writeValues) {
+        return this.readWriteHoldRegister(this.unitId, readAddress, readQuantity, writeAddress, writeValues);
+    }
+
+    /**
+     * Write and then read multiple hold register in one transaction, e.g. write the setpoint and read the feedback.
+     * (在一次请求中先写后读多个保持寄存器，例如写入设定值并读取反馈)
+     *
+     * @param unitId       unit id or slave id
+     * @param readAddress  read modbus address
+     * @param readQuantity read register quantity, [1, 125]
+     * @param writeAddress write modbus address
+     * @param writeValues  write value, [2, 242] bytes
+     * @return byte array read
+     */
+    public byte[] readWriteHoldRegister(int unitId, int readAddress, int readQuantity, int writeAddress, byte[] writeValues) {
+        return FutureUtil.join(this.readWriteHoldRegisterAsync(unitId, readAddress, readQuantity, writeAddress, writeValues));
+    }
+
+    /**
+     * Mask write hold register, result = (current AND andMask) OR (orMask AND (NOT andMask)), atomic in the server.
+     * (屏蔽写保持寄存器，结果 = (当前值 AND andMask) OR (orMask AND (NOT andMask))，在服务端原子执行)
+     *
+     * @param address modbus address
+     * @param andMask and mask, 2 bytes
+     * @param orMask  or mask, 2 bytes
+     */
+    public void maskWriteHoldRegister(int address, int andMask, int orMask) {
+        this.maskWriteHoldRegister(this.unitId, address, andMask, orMask);
+    }
+
+    /**
+     * Mask write hold register, result = (current AND andMask) OR (orMask AND (NOT andMask)), atomic in the server.
+     * (屏蔽写保持寄存器，结果 = (当前值 AND andMask) OR (orMask AND (NOT andMask))，在服务端原子执行)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @param andMask and mask, 2 bytes
+     * @param orMask  or mask, 2 bytes
+     */
+    public void maskWriteHoldRegister(int unitId, int address, int andMask, int orMask) {
+        FutureUtil.join(this.maskWriteHoldRegisterAsync(unitId, address, andMask, orMask));
+    }
+    //endregion
+
+    //region future形式的读写
+
+    /**
+     * Read coil as a future, the requests are in flight together when pipelined.
+     * (以future形式读取线圈，流水线模式下所有分组同时进行)
+     *
+     * @param address  modbus address
+     * @param quantity coil quantity
+     * @return future of boolean list
+     */
+    public CompletableFuture<List<Boolean>> readCoilAsync(int address, int quantity) {
+        return this.readCoilAsync(this.unitId, address, quantity);
+    }
+
+    /**
+     * Read coil as a future, the requests are in flight together when pipelined.
+     * (以future形式读取线圈，流水线模式下所有分组同时进行)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param quantity coil quantity
+     * @return future of boolean list
+     */
+    public CompletableFuture<List<Boolean>> readCoilAsync(int unitId, int address, int quantity) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity<1");
+        }
+
+        return sendGroups(() -> {
+            List<CompletableFuture<List<Boolean>>> groups = new ArrayList<>();
+            LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadCoil, (off, len) -> {
+                MbReadCoilRequest reqPdu = new MbReadCoilRequest(address + off, len);
+                CompletableFuture<MbPdu> future = this.readModbusDataAsync(unitId, reqPdu);
+                groups.add(FutureUtil.propagateCancel(future.thenApply(x ->
+                        BooleanUtil.byteArrayToList(len, ((MbReadCoilResponse) x).getCoilStatus())), future));
+            });
+            return allOfGroups(groups, () -> {
+                List<Boolean> res = new ArrayList<>(quantity);
+                groups.forEach(x -> res.addAll(x.join()));
+                return res;
+            });
+        });
+    }
+
+    /**
+     * Write single coil as a future.
+     * (以future形式写单线圈)
+     *
+     * @param address    modbus address
+     * @param coilStatus coil status
+     * @return future
+     */
+    public CompletableFuture<Void> writeCoilAsync(int address, boolean coilStatus) {
+        return this.writeCoilAsync(this.unitId, address, coilStatus);
+    }
+
+    /**
+     * Write single coil as a future.
+     * (以future形式写单线圈)
+     *
+     * @param unitId     unit id or slave id
+     * @param address    modbus address
+     * @param coilStatus coil status
+     * @return future
+     */
+    public CompletableFuture<Void> writeCoilAsync(int unitId, int address, boolean coilStatus) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+
+        MbWriteSingleCoilRequest reqPdu = new MbWriteSingleCoilRequest(address, coilStatus);
+        return sendGroups(() -> allOfGroups(Collections.singletonList(this.readModbusDataAsync(unitId, reqPdu)), () -> null));
+    }
+
+    /**
+     * Write multiple coil as a future, the groups are sent in order, cancel may leave part of them written.
+     * (以future形式写多线圈，分组按顺序发送，取消时可能已写入部分分组)
+     *
+     * @param address    modbus address
+     * @param coilStatus coil status list
+     * @return future
+     */
+    public CompletableFuture<Void> writeCoilAsync(int address, List<Boolean> coilStatus) {
+        return this.writeCoilAsync(this.unitId, address, coilStatus);
+    }
+
+    /**
+     * Write multiple coil as a future, the groups are sent in order, cancel may leave part of them written.
+     * (以future形式写多线圈，分组按顺序发送，取消时可能已写入部分分组)
+     *
+     * @param unitId     unit id or slave id
+     * @param address    modbus address
+     * @param coilStatus coil status list
+     * @return future
+     */
+    public CompletableFuture<Void> writeCoilAsync(int unitId, int address, List<Boolean> coilStatus) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (coilStatus.isEmpty()) {
+            throw new IllegalArgumentException("coilStatus list is empty");
+        }
+
+        return sendGroups(() -> {
+            List<CompletableFuture<MbPdu>> groups = new ArrayList<>();
+            LoopGroupAlg.loopExecute(coilStatus.size(), this.maxLengthOfWriteCoil, (off, len) -> {
+                List<Boolean> booleanList = coilStatus.subList(off, off + len);
+                byte[] values = BooleanUtil.listToByteArray(booleanList);
+                MbWriteMultipleCoilRequest reqPdu = new MbWriteMultipleCoilRequest(address + off, len, values);
+                groups.add(this.readModbusDataAsync(unitId, reqPdu));
+            });
+            return allOfGroups(groups, () -> null);
+        });
+    }
+
+    /**
+     * Read discrete input as a future.
+     * (以future形式读取离散输入)
+     *
+     * @param address  modbus address
+     * @param quantity quantity
+     * @return future of boolean list
+     */
+    public CompletableFuture<List<Boolean>> readDiscreteInputAsync(int address, int quantity) {
+        return this.readDiscreteInputAsync(this.unitId, address, quantity);
+    }
+
+    /**
+     * Read discrete input as a future.
+     * (以future形式读取离散输入)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param quantity quantity
+     * @return future of boolean list
+     */
+    public CompletableFuture<List<Boolean>> readDiscreteInputAsync(int unitId, int address, int quantity) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity<1");
+        }
+
+        return sendGroups(() -> {
+            List<CompletableFuture<List<Boolean>>> groups = new ArrayList<>();
+            LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadDiscreteInput, (off, len) -> {
+                MbReadDiscreteInputRequest reqPdu = new MbReadDiscreteInputRequest(address + off, len);
+                CompletableFuture<MbPdu> future = this.readModbusDataAsync(unitId, reqPdu);
+                groups.add(FutureUtil.propagateCancel(future.thenApply(x ->
+                        BooleanUtil.byteArrayToList(len, ((MbReadDiscreteInputResponse) x).getInputStatus())), future));
+            });
+            return allOfGroups(groups, () -> {
+                List<Boolean> res = new ArrayList<>(quantity);
+                groups.forEach(x -> res.addAll(x.join()));
+                return res;
+            });
+        });
+    }
+
+    /**
+     * Read multiple hold register as a future.
+     * (以future形式读取保持寄存器， modbus 1个寄存器占2个字节)
+     *
+     * @param address  modbus address
+     * @param quantity quantity of register
+     * @return future of byte array
+     */
+    public CompletableFuture<byte[]> readHoldRegisterAsync(int address, int quantity) {
+        return this.readHoldRegisterAsync(this.unitId, address, quantity);
+    }
+
+    /**
+     * Read multiple hold register as a future, the requests are in flight together when pipelined.
+     * (以future形式读取保持寄存器，流水线模式下所有分组同时进行， modbus 1个寄存器占2个字节)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param quantity quantity of register
+     * @return future of byte array
+     */
+    public CompletableFuture<byte[]> readHoldRegisterAsync(int unitId, int address, int quantity) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity < 1");
+        }
+
+        return sendGroups(() -> {
+            ByteWriteBuff buff = ByteWriteBuff.newInstance(quantity * 2);
+            List<CompletableFuture<Void>> groups = new ArrayList<>();
+            LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadHoldRegister, (off, len) -> {
+                MbReadHoldRegisterRequest reqPdu = new MbReadHoldRegisterRequest(address + off, len);
+                CompletableFuture<MbPdu> future = this.readModbusDataAsync(unitId, reqPdu);
+                groups.add(FutureUtil.propagateCancel(future.thenAccept(x ->
+                        buff.putBytes(((MbReadHoldRegisterResponse) x).getRegister(), 0, off * 2)), future));
+            });
+            return allOfGroups(groups, buff::getData);
+        });
+    }
+
+    /**
+     * Write single hold register as a future.
+     * (以future形式写入单个保持寄存器)
+     *
+     * @param address modbus address
+     * @param value   value, 2 bytes
+     * @return future
+     */
+    public CompletableFuture<Void> writeHoldRegisterAsync(int address, int value) {
+        return this.writeHoldRegisterAsync(this.unitId, address, value);
+    }
+
+    /**
+     * Write single hold register as a future.
+     * (以future形式写入单个保持寄存器)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @param value   value, 2 bytes
+     * @return future
+     */
+    public CompletableFuture<Void> writeHoldRegisterAsync(int unitId, int address, int value) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (value < 0 || value > 65535) {
+            throw new IllegalArgumentException("value < 0 || value > 65535");
+        }
+
+        MbWriteSingleRegisterRequest reqPdu = new MbWriteSingleRegisterRequest(address, value);
+        return sendGroups(() -> allOfGroups(Collections.singletonList(this.readModbusDataAsync(unitId, reqPdu)), () -> null));
+    }
+
+    /**
+     * Write multiple hold register as a future, the groups are sent in order, cancel may leave part of them written.
+     * (以future形式按byte array写入保持寄存器，分组按顺序发送，取消时可能已写入部分分组)
+     *
+     * @param address modbus address
+     * @param values  value list
+     * @return future
+     */
+    public CompletableFuture<Void> writeHoldRegisterAsync(int address, byte[] values) {
+        return this.writeHoldRegisterAsync(this.unitId, address, values);
+    }
+
+    /**
+     * Write multiple hold register as a future, the groups are sent in order, cancel may leave part of them written.
+     * (以future形式按byte array写入保持寄存器，分组按顺序发送，取消时可能已写入部分分组)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @param values  value list
+     * @return future
+     */
+    public CompletableFuture<Void> writeHoldRegisterAsync(int unitId, int address, byte[] values) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        byte[] newValues = values;
+        if (values.length % 2 != 0) {
+            newValues = ByteWriteBuff.newInstance(values.length + 1).putBytes(values).getData();
+        }
+
+        int quantity = newValues.length / 2;
+        ByteReadBuff buff = ByteReadBuff.newInstance(newValues);
+        return sendGroups(() -> {
+            List<CompletableFuture<MbPdu>> groups = new ArrayList<>();
+            LoopGroupAlg.loopExecute(quantity, this.maxLengthOfWriteHoldRegister, (off, len) -> {
+                byte[] bytes = buff.getBytes(off * 2, len * 2);
+                MbWriteMultipleRegisterRequest reqPdu = new MbWriteMultipleRegisterRequest(address + off, len, bytes);
+                groups.add(this.readModbusDataAsync(unitId, reqPdu));
+            });
+            return allOfGroups(groups, () -> null);
         });
-        return buff.getData();
+    }
+
+    /**
+     * Write multiple hold register as a future, the groups are sent in order, cancel may leave part of them written.
+     * (以future形式按数值数组写入多个保持寄存器，分组按顺序发送，取消时可能已写入部分分组)
+     *
+     * @param address modbus address
+     * @param values  value list
+     * @return future
+     */
+    public CompletableFuture<Void> writeHoldRegisterAsync(int address, List<Integer> values) {
+        return this.writeHoldRegisterAsync(this.unitId, address, values);
+    }
+
+    /**
+     * Write multiple hold register as a future, the groups are sent in order, cancel may leave part of them written.
+     * (以future形式按数值数组写入多个保持寄存器，分组按顺序发送，取消时可能已写入部分分组)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @param values  value list
+     * @return future
+     */
+    public CompletableFuture<Void> writeHoldRegisterAsync(int unitId, int address, List<Integer> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("values is empty");
+        }
+
+        ByteWriteBuff buff = ByteWriteBuff.newInstance(values.size() * 2);
+        values.forEach(buff::putShort);
+        return this.writeHoldRegisterAsync(unitId, address, buff.getData());
+    }
+
+    /**
+     * Read multiple input register as a future, the requests are in flight together when pipelined.
+     * (以future形式读取输入寄存器，流水线模式下所有分组同时进行， modbus 1个寄存器占2个字节)
+     *
+     * @param address  modbus address
+     * @param quantity register quantity
+     * @return future of byte array
+     */
+    public CompletableFuture<byte[]> readInputRegisterAsync(int address, int quantity) {
+        return this.readInputRegisterAsync(this.unitId, address, quantity);
+    }
+
+    /**
+     * Read multiple input register as a future, the requests are in flight together when pipelined.
+     * (以future形式读取输入寄存器，流水线模式下所有分组同时进行， modbus 1个寄存器占2个字节)
+     *
+     * @param unitId   unit id or slave id
+     * @param address  modbus address
+     * @param quantity register quantity
+     * @return future of byte array
+     */
+    public CompletableFuture<byte[]> readInputRegisterAsync(int unitId, int address, int quantity) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity < 1");
+        }
+
+        return sendGroups(() -> {
+            ByteWriteBuff buff = ByteWriteBuff.newInstance(quantity * 2);
+            List<CompletableFuture<Void>> groups = new ArrayList<>();
+            LoopGroupAlg.loopExecute(quantity, this.maxLengthOfReadInputRegister, (off, len) -> {
+                MbReadInputRegisterRequest reqPdu = new MbReadInputRegisterRequest(address + off, len);
+                CompletableFuture<MbPdu> future = this.readModbusDataAsync(unitId, reqPdu);
+                groups.add(FutureUtil.propagateCancel(future.thenAccept(x ->
+                        buff.putBytes(((MbReadInputRegisterResponse) x).getRegister(), 0, off * 2)), future));
+            });
+            return allOfGroups(groups, buff::getData);
+        });
+    }
+
+    /**
+     * Write and then read multiple hold register in one transaction as a future.
+     * (以future形式在一次请求中先写后读多个保持寄存器)
+     *
+     * @param readAddress  read modbus address
+     * @param readQuantity read register quantity, [1, 125]
+     * @param writeAddress write modbus address
+     * @param writeValues  write value, [2, 242] bytes
+     * @return future of byte array read
+     */
+    public CompletableFuture<byte[]> readWriteHoldRegisterAsync(int readAddress, int readQuantity,
+                                                                int writeAddress, byte[] writeValues) {
+        return this.readWriteHoldRegisterAsync(this.unitId, readAddress, readQuantity, writeAddress, writeValues);
+    }
+
+    /**
+     * Write and then read multiple hold register in one transaction as a future.
+     * (以future形式在一次请求中先写后读多个保持寄存器)
+     *
+     * @param unitId       unit id or slave id
+     * @param readAddress  read modbus address
+     * @param readQuantity read register quantity, [1, 125]
+     * @param writeAddress write modbus address
+     * @param writeValues  write value, [2, 242] bytes
+     * @return future of byte array read
+     */
+    public CompletableFuture<byte[]> readWriteHoldRegisterAsync(int unitId, int readAddress, int readQuantity,
+                                                                int writeAddress, byte[] writeValues) {
+        if (readAddress < 0 || readAddress > 65535) {
+            throw new IllegalArgumentException("readAddress < 0 || readAddress > 65535");
+        }
+        if (readQuantity < 1 || readQuantity > 125) {
+            throw new IllegalArgumentException("readQuantity < 1 || readQuantity > 125");
+        }
+        if (writeAddress < 0 || writeAddress > 65535) {
+            throw new IllegalArgumentException("writeAddress < 0 || writeAddress > 65535");
+        }
+        if (writeValues.length < 1 || writeValues.length > 242) {
+            throw new IllegalArgumentException("writeValues.length < 1 || writeValues.length > 242");
+        }
+        byte[] newValues = writeValues;
+        if (writeValues.length % 2 != 0) {
+            newValues = ByteWriteBuff.newInstance(writeValues.length + 1).putBytes(writeValues).getData();
+        }
+
+        MbReadWriteMultipleRegisterRequest reqPdu = new MbReadWriteMultipleRegisterRequest(readAddress, readQuantity, writeAddress, newValues);
+        return sendGroups(() -> {
+            CompletableFuture<MbPdu> future = this.readModbusDataAsync(unitId, reqPdu);
+            return FutureUtil.propagateCancel(future.thenApply(x ->
+                    ((MbReadWriteMultipleRegisterResponse) x).getRegister()), future);
+        });
+    }
+
+    /**
+     * Mask write hold register as a future.
+     * (以future形式屏蔽写保持寄存器)
+     *
+     * @param address modbus address
+     * @param andMask and mask, 2 bytes
+     * @param orMask  or mask, 2 bytes
+     * @return future
+     */
+    public CompletableFuture<Void> maskWriteHoldRegisterAsync(int address, int andMask, int orMask) {
+        return this.maskWriteHoldRegisterAsync(this.unitId, address, andMask, orMask);
+    }
+
+    /**
+     * Mask write hold register as a future.
+     * (以future形式屏蔽写保持寄存器)
+     *
+     * @param unitId  unit id or slave id
+     * @param address modbus address
+     * @param andMask and mask, 2 bytes
+     * @param orMask  or mask, 2 bytes
+     * @return future
+     */
+    public CompletableFuture<Void> maskWriteHoldRegisterAsync(int unitId, int address, int andMask, int orMask) {
+        if (address < 0 || address > 65535) {
+            throw new IllegalArgumentException("address < 0 || address > 65535");
+        }
+        if (andMask < 0 || andMask > 65535) {
+            throw new IllegalArgumentException("andMask < 0 || andMask > 65535");
+        }
+        if (orMask < 0 || orMask > 65535) {
+            throw new IllegalArgumentException("orMask < 0 || orMask > 65535");
+        }
+
+        MbMaskWriteRegisterRequest reqPdu = new MbMaskWriteRegisterRequest(address, andMask, orMask);
+        return sendGroups(() -> allOfGroups(Collections.singletonList(this.readModbusDataAsync(unitId, reqPdu)), () -> null));
+    }
+    //endregion
+
+    //region 多地址读取
+
+    /**
+     * Read multi address, the nearby addresses of the same unit id and table are merged into one block.
+     * (多地址读取，同一站号同一数据表中相近的地址合并为一个数据块读取)
+     *
+     * @param multiAddressRead multi address
+     * @return values in the order of address items, Boolean for bit table, the others decided by data type
+     */
+    public List<Object> readMultiAddress(ModbusMultiAddressRead multiAddressRead) {
+        return FutureUtil.join(this.readMultiAddressAsync(multiAddressRead));
+    }
+
+    /**
+     * Read multi address as a future, the blocks are in flight together when pipelined.
+     * (以future形式多地址读取，流水线模式下所有数据块同时进行)
+     *
+     * @param multiAddressRead multi address
+     * @return future of values in the order of address items
+     */
+    public CompletableFuture<List<Object>> readMultiAddressAsync(ModbusMultiAddressRead multiAddressRead) {
+        if (multiAddressRead == null || multiAddressRead.getItems().isEmpty()) {
+            throw new IllegalArgumentException("multiAddressRead is empty");
+        }
+
+        List<MbAddressItem> items = new ArrayList<>(multiAddressRead.getItems());
+        MbMergeReadAlg mergeRead = MbMergeReadAlg.merge(items, this.mergeReadRegisterGap, this.mergeReadCoilGap,
+                this::getMaxLengthOfRead);
+        return sendGroups(() -> {
+            List<CompletableFuture<?>> groups = new ArrayList<>();
+            for (MbMergeBlock block : mergeRead.getMergedBlocks()) {
+                groups.add(this.readBlockFuture(block));
+            }
+            return allOfGroups(groups, () -> mergeRead.split(items,
+                    groups.stream().map(CompletableFuture::join).collect(Collectors.toList())));
+        });
+    }
+
+    /**
+     * Read one merged block as a future.
+     * (以future形式读取一个合并后的数据块)
+     *
+     * @param block merged block
+     * @return future of List&lt;Boolean&gt; for bit table, byte[] for register table
+     */
+    private CompletableFuture<?> readBlockFuture(MbMergeBlock block) {
+        switch (block.getTable()) {
+            case COIL:
+                return this.readCoilAsync(block.getUnitId(), block.getAddress(), block.getQuantity());
+            case DISCRETE_INPUT:
+                return this.readDiscreteInputAsync(block.getUnitId(), block.getAddress(), block.getQuantity());
+            case HOLD_REGISTER:
+                return this.readHoldRegisterAsync(block.getUnitId(), block.getAddress(), block.getQuantity());
+            default:
+                return this.readInputRegisterAsync(block.getUnitId(), block.getAddress(), block.getQuantity());
+        }
+    }
+
+    /**
+     * Get the maximum length of read in a single communication.
+     * (获取单次通信读取的最大长度)
+     *
+     * @param table data table
+     * @return maximum length
+     */
+    private int getMaxLengthOfRead(EMbTable table) {
+        switch (table) {
+            case COIL:
+                return this.maxLengthOfReadCoil;
+            case DISCRETE_INPUT:
+                return this.maxLengthOfReadDiscreteInput;
+            case HOLD_REGISTER:
+                return this.maxLengthOfReadHoldRegister;
+            default:
+                return this.maxLengthOfReadInputRegister;
+        }
     }
     //endregion
 
@@ -25,22 +25,48 @@
 package com.github.xingshuangs.iot.protocol.modbus.service;
 
 
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.common.constant.GeneralConst;
 import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.net.client.TcpClientChannel;
 import com.github.xingshuangs.iot.protocol.modbus.model.*;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
+
 import static com.github.xingshuangs.iot.common.constant.GeneralConst.LOCALHOST;
 import static com.github.xingshuangs.iot.common.constant.GeneralConst.MODBUS_PORT;
 
 /**
  * Modbus tcp.
  * (modbus 1个寄存器占2个字节)
+ * 开启流水线模式(pipelined)后，单个连接可同时发送不超过maxInFlight个请求，连接由所有客户端共用的反应器线程驱动，根据事务标识符匹配响应，
+ * 不为每个连接占用线程；未开启流水线或短连接时xxxAsync方法在调用线程上同步通信并返回已完成的future
  *
  * @author xingshuang
  */
 @Slf4j
-public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpResponse> {
+public class ModbusTcp extends ModbusTcpSkeletonAbstract<MbTcpRequest, MbTcpResponse> {
+
+    /**
+     * Pipelined, true: several requests in flight per connection, responses matched by transaction id,
+     * false: one request at a time.
+     * (是否流水线模式，true：单连接同时发送多个请求，根据事务标识符匹配响应，false：单连接一次一个请求，默认false)
+     */
+    private boolean pipelined = false;
+
+    /**
+     * Max number of requests in flight per connection when pipelined.
+     * (流水线模式下单连接同时进行的最大请求数量)
+     */
+    private int maxInFlight = 8;
+
+    /**
+     * Non-blocking channel, created when pipelined.
+     * (非阻塞通道，流水线模式下创建)
+     */
+    private TcpClientChannel<Integer> channel;
 
     public ModbusTcp() {
         this(1, LOCALHOST, MODBUS_PORT);
@@ -67,6 +93,88 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
         this.tag = "ModbusTcp";
     }
 
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Set pipelined, the pipeline only works with the long connection.
+     * (设置流水线模式，只有长连接才生效)
+     *
+     * @param pipelined true: pipelined, false: one request at a time
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Set max number of requests in flight per connection, many gateways handle 8 to 16.
+     * (设置单连接同时进行的最大请求数量，多数网关支持8到16个)
+     *
+     * @param maxInFlight max number of requests in flight
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight<=0");
+        }
+        try {
+            this.locker.lock();
+            this.maxInFlight = maxInFlight;
+            if (this.channel != null) {
+                this.channel.setWindowSize(maxInFlight);
+            }
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Is the pipeline available, the short connection is closed after every request, so it can not be pipelined.
+     * (流水线是否可用，短连接每次通信后关闭，无法流水线)
+     *
+     * @return true: available, false: not available
+     */
+    protected boolean isPipelineAvailable() {
+        return this.pipelined && this.persistence;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return this.isPipelineAvailable() ? this.channel != null : super.isOpened();
+    }
+
+    @Override
+    public boolean checkConnected() {
+        return this.isPipelineAvailable() ? this.channel != null && this.channel.isConnected() : super.checkConnected();
+    }
+
+    @Override
+    public void connect() {
+        if (this.isPipelineAvailable()) {
+            FutureUtil.join(this.getAvailableChannel().connect());
+            return;
+        }
+        super.connect();
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.locker.lock();
+            if (this.channel != null) {
+                this.channel.close();
+                this.channel = null;
+            }
+        } finally {
+            this.locker.unlock();
+        }
+        super.close();
+    }
+
     //region 底层数据通信部分
 
     /**
@@ -78,6 +186,9 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
      */
     @Override
     protected MbTcpResponse readFromServer(MbTcpRequest req) {
+        if (this.isPipelineAvailable()) {
+            return FutureUtil.join(this.readFromServerAsync(req));
+        }
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_REQ, req.toByteArray());
         }
@@ -86,10 +197,10 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
         byte[] total;
         try {
             this.locker.lock();
-            this.write(req.toByteArray());
+            this.transport.write(req.toByteArray());
 
             byte[] data = new byte[MbapHeader.BYTE_LENGTH];
-            len = this.read(data);
+            len = this.getClient().read(data);
             if (len < MbapHeader.BYTE_LENGTH) {
                 // MbapHeader 无效，读取长度不一致
                 throw new ModbusCommException("MbapHeader is invalid, the read length is inconsistent");
@@ -97,7 +208,7 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
             header = MbapHeader.fromBytes(data);
             total = new byte[data.length + header.getLength() - 1];
             System.arraycopy(data, 0, total, 0, data.length);
-            len = this.read(total, data.length, header.getLength() - 1);
+            len = this.getClient().read(total, data.length, header.getLength() - 1);
         } finally {
             this.locker.unlock();
         }
@@ -113,6 +224,78 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
         return ack;
     }
 
+    /**
+     * Read data from server asynchronously in pipeline without blocking the calling thread, matched by transaction
+     * id, the timeout of every request is the receive timeout, cancel the future to release the window slot at once.
+     * (以流水线的方式异步从服务器读取数据，不阻塞调用线程，根据事务标识符匹配响应，每个请求的超时时间为接收超时时间，取消future可立即释放窗口)
+     *
+     * @param req request data
+     * @return future of response data
+     */
+    protected CompletableFuture<MbTcpResponse> readFromServerAsync(MbTcpRequest req) {
+        byte[] sendData = req.toByteArray();
+        if (this.comCallback != null) {
+            this.comCallback.accept(GeneralConst.PACKAGE_REQ, sendData);
+        }
+        CompletableFuture<byte[]> future = this.getAvailableChannel()
+                .sendAsync(req.getHeader().getTransactionId(), sendData, this.receiveTimeout);
+        return FutureUtil.propagateCancel(future.thenApply(total -> {
+            if (this.comCallback != null) {
+                this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
+            }
+            MbTcpResponse ack = MbTcpResponse.fromBytes(total);
+            this.checkResult(req, ack);
+            return ack;
+        }), future);
+    }
+
+    /**
+     * Get the non-blocking channel, create it when absent.
+     * (获取非阻塞通道，不存在则创建)
+     *
+     * @return channel
+     */
+    private TcpClientChannel<Integer> getAvailableChannel() {
+        try {
+            this.locker.lock();
+            if (this.channel == null) {
+                this.channel = new TcpClientChannel<>(this.getSocketAddress(), this.getConnectTimeout(), this.maxInFlight,
+                        ModbusTcp::frameLength, ModbusTcp::extractTransactionId);
+            }
+            return this.channel;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Get the length of the modbus tcp frame which is specified by MBAP header.
+     * (获取modbus tcp帧的长度，由MBAP头指定)
+     *
+     * @param data   byte array of the received bytes
+     * @param offset offset of the frame head
+     * @param length number of the received bytes from the offset
+     * @return frame length, -1: MBAP header is incomplete
+     */
+    private static int frameLength(byte[] data, int offset, int length) {
+        if (length < MbapHeader.BYTE_LENGTH) {
+            return -1;
+        }
+        // 长度字段包含单元标识符，而单元标识符属于MBAP头
+        return MbapHeader.BYTE_LENGTH - 1 + ByteReadBuff.newInstance(data).getUInt16(offset + 4);
+    }
+
+    /**
+     * Extract the transaction id from the byte array of modbus tcp frame.
+     * (从modbus tcp帧的字节数组中提取事务标识符)
+     *
+     * @param data byte array of frame
+     * @return transaction id
+     */
+    private static Integer extractTransactionId(byte[] data) {
+        return ByteReadBuff.newInstance(data).getUInt16(0);
+    }
+
     /**
      * Check result.
      * (校验请求数据和响应数据)
@@ -143,6 +326,19 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
 
     //endregion
 
+    @Override
+    protected CompletableFuture<MbPdu> readModbusDataAsync(int unitId, MbPdu reqPdu) {
+        if (!this.isPipelineAvailable()) {
+            return super.readModbusDataAsync(unitId, reqPdu);
+        }
+        MbTcpRequest request = MbTcpRequest.createDefault();
+        request.getHeader().setUnitId(unitId);
+        request.setPdu(reqPdu);
+        request.selfCheck();
+        CompletableFuture<MbTcpResponse> future = this.readFromServerAsync(request);
+        return FutureUtil.propagateCancel(future.thenApply(MbTcpResponse::getPdu), future);
+    }
+
     /**
      * 读取modbus数据
      *
@@ -160,7 +356,7 @@ public class ModbusTcp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpRespons
             return response.getPdu();
         } finally {
             if (!this.persistence) {
-                log.debug("Due to the short connection mode, the communication is triggered to close the connection channel, and the server IP[{}]", this.socketAddress);
+                log.debug("Due to the short connection mode, the communication is triggered to close the connection channel, and the server IP[{}]", this.getSocketAddress());
                 this.close();
             }
         }
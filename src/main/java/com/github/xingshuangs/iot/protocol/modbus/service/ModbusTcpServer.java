@@ -25,14 +25,17 @@
 package com.github.xingshuangs.iot.protocol.modbus.service;
 
 
+import com.github.xingshuangs.iot.common.buff.BitTable;
 import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
 import com.github.xingshuangs.iot.net.SocketUtils;
+import com.github.xingshuangs.iot.net.server.LengthFieldFrameDecoder;
 import com.github.xingshuangs.iot.net.server.TcpServerBasic;
+import com.github.xingshuangs.iot.net.server.TcpServerSession;
 import com.github.xingshuangs.iot.protocol.modbus.enums.EMbExceptionCode;
 import com.github.xingshuangs.iot.protocol.modbus.enums.EMbFunctionCode;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbUnknownUnitIdPolicy;
 import com.github.xingshuangs.iot.protocol.modbus.model.*;
-import com.github.xingshuangs.iot.utils.BooleanUtil;
 import com.github.xingshuangs.iot.utils.HexUtil;
 import com.github.xingshuangs.iot.utils.ShortUtil;
 import lombok.Data;
@@ -42,16 +45,13 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Modbus tcp server, ignore unitId.
- * (ModbusTcp服务端，目前忽略unitId)
+ * Modbus tcp server, every unit id can have its own data bank, the unit ids without bank are handled by the policy.
+ * (ModbusTcp服务端，每个站号可以有自己的数据区，没有数据区的站号按策略处理，默认共享同一个数据区)
+ * 默认使用阻塞引擎，大量连接时在start之前调用setEngine(EServerEngine.SELECTOR)切换为选择器引擎
  *
  * @author xingshuang
  */
@@ -61,141 +61,279 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class ModbusTcpServer extends TcpServerBasic {
 
     /**
-     * Read and write lock.
-     * (读写锁)
+     * Data banks of the unit ids.
+     * (各站号的数据区)
      */
-    private ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private final Map<Integer, ModbusDataBank> banks = new ConcurrentHashMap<>();
 
     /**
-     * Coil data.
-     * (线圈)
+     * Default data bank, shared by the unit ids without their own bank when the policy is SHARED.
+     * (默认数据区，策略为SHARED时由没有自己数据区的站号共享)
      */
-    private List<Boolean> coils = new ArrayList<>();
+    private final ModbusDataBank defaultBank;
 
     /**
-     * Discrete input data.
-     * (离散量输入)
+     * Number of points of every table in a bank.
+     * (数据区中每个数据表的点数)
      */
-    private List<Boolean> discreteInputs = new ArrayList<>();
+    private final int bankSize;
 
+    /**
+     * Policy for the unit id without data bank, SHARED default, the same as ignoring the unit id.
+     * (没有数据区的站号的处理策略，默认SHARED，即忽略站号)
+     */
+    private EMbUnknownUnitIdPolicy unknownUnitIdPolicy = EMbUnknownUnitIdPolicy.SHARED;
+
+    public ModbusTcpServer() {
+        this(502, 2000);
+    }
+
+    public ModbusTcpServer(int port) {
+        this(port, 2000);
+    }
 
     /**
-     * Input register data.
-     * (输入寄存器)
+     * Constructor.
+     * (构造方法)
+     *
+     * @param port port
+     * @param size number of points of every table, [1, 65536]
      */
-    private byte[] inputRegisters;
+    public ModbusTcpServer(int port, int size) {
+        this.port = port;
+        this.bankSize = size;
+        this.defaultBank = new ModbusDataBank(size);
+    }
 
     /**
-     * Hold register data.
-     * (保持寄存器)
+     * Get the data bank of the unit id, create it when absent, e.g. prepare the data of the slave before polling.
+     * (获取站号的数据区，不存在则创建，例如轮询前准备从站的数据)
+     *
+     * @param unitId unit id, [0, 255]
+     * @return data bank
      */
-    private byte[] holdRegisters;
+    public ModbusDataBank getBank(int unitId) {
+        if (unitId < 0 || unitId > 255) {
+            throw new IllegalArgumentException("unitId < 0 || unitId > 255");
+        }
+        return this.banks.computeIfAbsent(unitId, k -> new ModbusDataBank(this.bankSize));
+    }
 
     /**
-     * current connected client number.
-     * (客户端当前的连接数量)
+     * Remove the data bank of the unit id.
+     * (移除站号的数据区)
+     *
+     * @param unitId unit id
      */
-    private AtomicInteger connectedNumber = new AtomicInteger();
+    public void removeBank(int unitId) {
+        this.banks.remove(unitId);
+    }
 
     /**
-     * Max available number of client.
-     * (客户端连接的最大允许数量)
+     * Get the coils of the default bank.
+     * (获取默认数据区的线圈)
+     *
+     * @return coils
      */
-    private Integer maxAvailableNumber;
+    public BitTable getCoils() {
+        return this.defaultBank.getCoils();
+    }
 
-    public ModbusTcpServer() {
-        this(502, 2000);
+    /**
+     * Set the coils of the default bank, the bits are copied.
+     * (设置默认数据区的线圈，拷贝位值)
+     *
+     * @param coils coils, the same size as the bank
+     */
+    public void setCoils(BitTable coils) {
+        this.copyBits(coils, this.defaultBank.getCoils());
     }
 
-    public ModbusTcpServer(int port) {
-        this(port, 2000);
+    /**
+     * Get the discrete inputs of the default bank.
+     * (获取默认数据区的离散量输入)
+     *
+     * @return discrete inputs
+     */
+    public BitTable getDiscreteInputs() {
+        return this.defaultBank.getDiscreteInputs();
     }
 
-    public ModbusTcpServer(int port, int size) {
-        this.port = port;
-        for (int i = 0; i < size; i++) {
-            this.coils.add(false);
-            this.discreteInputs.add(false);
-        }
-        this.inputRegisters = new byte[size * 2];
-        this.holdRegisters = new byte[size * 2];
-        this.maxAvailableNumber = Runtime.getRuntime().availableProcessors();
+    /**
+     * Set the discrete inputs of the default bank, the bits are copied.
+     * (设置默认数据区的离散量输入，拷贝位值)
+     *
+     * @param discreteInputs discrete inputs, the same size as the bank
+     */
+    public void setDiscreteInputs(BitTable discreteInputs) {
+        this.copyBits(discreteInputs, this.defaultBank.getDiscreteInputs());
     }
 
     /**
-     * Is the client valid.
-     * (校验客户端是否允许连入)
+     * Get the input registers of the default bank.
+     * (获取默认数据区的输入寄存器)
      *
-     * @param client client socket.
-     * @return true: check success，false：check failed.
+     * @return input registers
      */
-    @Override
-    protected boolean checkClientValid(Socket client) {
-        return this.connectedNumber.get() < this.maxAvailableNumber;
+    public byte[] getInputRegisters() {
+        return this.defaultBank.getInputRegisters();
     }
 
     /**
-     * Client connected.
-     * (客户端连入)
+     * Set the input registers of the default bank, the bytes are copied.
+     * (设置默认数据区的输入寄存器，拷贝字节)
      *
-     * @param socket client socket.
+     * @param inputRegisters input registers, the same length as the bank
      */
-    @Override
-    protected void clientConnected(Socket socket) {
-        this.connectedNumber.getAndIncrement();
+    public void setInputRegisters(byte[] inputRegisters) {
+        this.copyBytes(inputRegisters, this.defaultBank.getInputRegisters());
     }
 
     /**
-     * Client disconnected.
-     * (客户端断开)
+     * Get the hold registers of the default bank.
+     * (获取默认数据区的保持寄存器)
      *
-     * @param socket client socket.
+     * @return hold registers
      */
-    @Override
-    protected void clientDisconnected(Socket socket) {
-        this.connectedNumber.getAndDecrement();
+    public byte[] getHoldRegisters() {
+        return this.defaultBank.getHoldRegisters();
+    }
+
+    /**
+     * Set the hold registers of the default bank, the bytes are copied.
+     * (设置默认数据区的保持寄存器，拷贝字节)
+     *
+     * @param holdRegisters hold registers, the same length as the bank
+     */
+    public void setHoldRegisters(byte[] holdRegisters) {
+        this.copyBytes(holdRegisters, this.defaultBank.getHoldRegisters());
+    }
+
+    private void copyBits(BitTable src, BitTable dst) {
+        if (src.size() != dst.size()) {
+            throw new IllegalArgumentException("The size of bits is inconsistent with the bank size " + dst.size());
+        }
+        try {
+            this.defaultBank.getRwLock().writeLock().lock();
+            dst.setBytes(0, dst.size(), src.getBytes(0, src.size()));
+        } finally {
+            this.defaultBank.getRwLock().writeLock().unlock();
+        }
+    }
+
+    private void copyBytes(byte[] src, byte[] dst) {
+        if (src.length != dst.length) {
+            throw new IllegalArgumentException("The length of bytes is inconsistent with the bank length " + dst.length);
+        }
+        try {
+            this.defaultBank.getRwLock().writeLock().lock();
+            System.arraycopy(src, 0, dst, 0, dst.length);
+        } finally {
+            this.defaultBank.getRwLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the bank used by the unit id according to the policy, null if the unit id is not accepted.
+     * (根据策略获取站号使用的数据区，站号不被接受时为null)
+     *
+     * @param unitId unit id
+     * @return data bank
+     */
+    private ModbusDataBank resolveBank(int unitId) {
+        ModbusDataBank bank = this.banks.get(unitId);
+        if (bank != null) {
+            return bank;
+        }
+        switch (this.unknownUnitIdPolicy) {
+            case SHARED:
+                return this.defaultBank;
+            case CREATE:
+                return this.getBank(unitId);
+            default:
+                return null;
+        }
     }
 
     @Override
     protected void doClientHandle(Socket socket) {
         MbTcpRequest request = this.readModbusDataFromClient(socket);
+        MbTcpResponse response = this.requestHandle(request);
+        if (response != null) {
+            this.write(socket, response.toByteArray());
+        }
+    }
+
+    @Override
+    protected LengthFieldFrameDecoder getFrameDecoder() {
+        return LengthFieldFrameDecoder.MBAP;
+    }
+
+    @Override
+    protected byte[] doFrameHandle(TcpServerSession session, byte[] frame) {
+        MbTcpResponse response = this.requestHandle(MbTcpRequest.fromBytes(frame));
+        return response == null ? null : response.toByteArray();
+    }
+
+    /**
+     * Request handler, dispatched to the data bank of the unit id, also used by the udp server sharing the banks.
+     * (请求处理，根据站号分发到对应的数据区，共享数据区的UDP服务端也使用)
+     *
+     * @param request request
+     * @return response, null: no response
+     */
+    MbTcpResponse requestHandle(MbTcpRequest request) {
+        ModbusDataBank bank = this.resolveBank(request.getHeader().getUnitId());
+        if (bank == null) {
+            if (this.unknownUnitIdPolicy == EMbUnknownUnitIdPolicy.NO_RESPONSE) {
+                log.debug("No data bank of unit id[{}], no response", request.getHeader().getUnitId());
+                return null;
+            }
+            EMbFunctionCode errorFunctionCode = EMbFunctionCode.from((byte) (request.getPdu().getFunctionCode().getCode() | ((byte) 0x80)));
+            return new MbTcpResponse(request.getHeader(), new MbErrorResponse(errorFunctionCode, EMbExceptionCode.GATEWAY_TARGET_DEVICE_FAILED_TO_RESPOND));
+        }
         MbTcpResponse response;
         try {
             switch (request.getPdu().getFunctionCode()) {
                 case READ_COIL:
-                    response = this.readCoil(request);
+                    response = this.readCoil(request, bank);
                     break;
                 case READ_DISCRETE_INPUT:
-                    response = this.readDiscreteInput(request);
+                    response = this.readDiscreteInput(request, bank);
                     break;
                 case READ_HOLD_REGISTER:
-                    response = this.readHoldRegister(request);
+                    response = this.readHoldRegister(request, bank);
                     break;
                 case READ_INPUT_REGISTER:
-                    response = this.readInputRegister(request);
+                    response = this.readInputRegister(request, bank);
                     break;
                 case WRITE_SINGLE_COIL:
-                    response = this.writeSingleCoil(request);
+                    response = this.writeSingleCoil(request, bank);
                     break;
                 case WRITE_SINGLE_REGISTER:
-                    response = this.writeSingleRegister(request);
+                    response = this.writeSingleRegister(request, bank);
                     break;
                 case WRITE_MULTIPLE_COIL:
-                    response = this.writeMultipleCoil(request);
+                    response = this.writeMultipleCoil(request, bank);
                     break;
                 case WRITE_MULTIPLE_REGISTER:
-                    response = this.writeMultipleRegister(request);
+                    response = this.writeMultipleRegister(request, bank);
+                    break;
+                case SHIELD_WRITE_REGISTER:
+                    response = this.maskWriteRegister(request, bank);
+                    break;
+                case READ_WRITE_MULTIPLE_REGISTER:
+                    response = this.readWriteMultipleRegister(request, bank);
                     break;
                 default:
                     EMbFunctionCode errorFunctionCode = EMbFunctionCode.from((byte) (request.getPdu().getFunctionCode().getCode() | ((byte) 0x80)));
                     response = new MbTcpResponse(request.getHeader(), new MbErrorResponse(errorFunctionCode, EMbExceptionCode.ILLEGAL_FUNCTION));
                     break;
             }
-            this.write(socket, response.toByteArray());
+            return response;
         } catch (Exception e) {
             EMbFunctionCode errorFunctionCode = EMbFunctionCode.from((byte) (request.getPdu().getFunctionCode().getCode() | ((byte) 0x80)));
-            response = new MbTcpResponse(request.getHeader(), new MbErrorResponse(errorFunctionCode, EMbExceptionCode.SLAVE_DEVICE_FAILURE));
-            this.write(socket, response.toByteArray());
+            return new MbTcpResponse(request.getHeader(), new MbErrorResponse(errorFunctionCode, EMbExceptionCode.SLAVE_DEVICE_FAILURE));
         }
     }
 
@@ -222,6 +360,8 @@ public class ModbusTcpServer extends TcpServerBasic {
     protected byte[] readClientData(Socket socket) {
         try {
             InputStream in = socket.getInputStream();
+            // 等待请求的时间即空闲时间
+            socket.setSoTimeout(this.idleTimeout);
             int firstByte = in.read();
             if (firstByte == -1) {
                 SocketUtils.close(socket);
@@ -246,27 +386,27 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (读取线圈数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse readCoil(MbTcpRequest request) {
+    private MbTcpResponse readCoil(MbTcpRequest request, ModbusDataBank bank) {
         MbReadCoilRequest reqPdu = (MbReadCoilRequest) request.getPdu();
         log.debug("[READ_COIL] address[{}], quantity[{}]", reqPdu.getAddress(), reqPdu.getQuantity());
-        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > this.coils.size()) {
+        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > 0x7D0) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_COIL, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
         if (reqPdu.getAddress() < 0
-                || reqPdu.getAddress() > this.coils.size() - 1
-                || reqPdu.getAddress() + reqPdu.getQuantity() > this.coils.size() - 1) {
+                || reqPdu.getAddress() > bank.getCoils().size() - 1
+                || reqPdu.getAddress() + reqPdu.getQuantity() > bank.getCoils().size()) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_COIL, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         byte[] bytes;
         try {
-            this.rwLock.readLock().lock();
-            List<Boolean> booleans = this.coils.subList(reqPdu.getAddress(), reqPdu.getAddress() + reqPdu.getQuantity());
-            bytes = BooleanUtil.listToByteArray(booleans);
+            bank.getRwLock().readLock().lock();
+            bytes = bank.getCoils().getBytes(reqPdu.getAddress(), reqPdu.getQuantity());
         } finally {
-            this.rwLock.readLock().unlock();
+            bank.getRwLock().readLock().unlock();
         }
 
         MbReadCoilResponse ackPdu = new MbReadCoilResponse();
@@ -280,27 +420,27 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (读取读取离散输入的数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse readDiscreteInput(MbTcpRequest request) {
+    private MbTcpResponse readDiscreteInput(MbTcpRequest request, ModbusDataBank bank) {
         MbReadDiscreteInputRequest reqPdu = (MbReadDiscreteInputRequest) request.getPdu();
         log.debug("[READ_DISCRETE_INPUT] address[{}], quantity[{}]", reqPdu.getAddress(), reqPdu.getQuantity());
-        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > this.discreteInputs.size()) {
+        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > 0x7D0) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_DISCRETE_INPUT, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
         if (reqPdu.getAddress() < 0
-                || reqPdu.getAddress() > this.discreteInputs.size() - 1
-                || reqPdu.getAddress() + reqPdu.getQuantity() > this.discreteInputs.size() - 1) {
+                || reqPdu.getAddress() > bank.getDiscreteInputs().size() - 1
+                || reqPdu.getAddress() + reqPdu.getQuantity() > bank.getDiscreteInputs().size()) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_DISCRETE_INPUT, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         byte[] bytes;
         try {
-            this.rwLock.readLock().lock();
-            List<Boolean> booleans = this.discreteInputs.subList(reqPdu.getAddress(), reqPdu.getAddress() + reqPdu.getQuantity());
-            bytes = BooleanUtil.listToByteArray(booleans);
+            bank.getRwLock().readLock().lock();
+            bytes = bank.getDiscreteInputs().getBytes(reqPdu.getAddress(), reqPdu.getQuantity());
         } finally {
-            this.rwLock.readLock().unlock();
+            bank.getRwLock().readLock().unlock();
         }
 
         MbReadDiscreteInputResponse ackPdu = new MbReadDiscreteInputResponse();
@@ -314,27 +454,28 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (读取保持寄存器的数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse readHoldRegister(MbTcpRequest request) {
+    private MbTcpResponse readHoldRegister(MbTcpRequest request, ModbusDataBank bank) {
         MbReadHoldRegisterRequest reqPdu = (MbReadHoldRegisterRequest) request.getPdu();
         log.debug("[READ_HOLD_REGISTER] address[{}], quantity[{}]", reqPdu.getAddress(), reqPdu.getQuantity());
-        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > (this.holdRegisters.length / 2)) {
+        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > 0x7D) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_HOLD_REGISTER, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
         if (reqPdu.getAddress() < 0
-                || reqPdu.getAddress() > (this.holdRegisters.length / 2) - 1
-                || reqPdu.getAddress() + reqPdu.getQuantity() > (this.holdRegisters.length / 2) - 1) {
+                || reqPdu.getAddress() > (bank.getHoldRegisters().length / 2) - 1
+                || reqPdu.getAddress() + reqPdu.getQuantity() > (bank.getHoldRegisters().length / 2)) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_HOLD_REGISTER, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         byte[] bytes;
         try {
-            this.rwLock.readLock().lock();
-            ByteReadBuff buff = ByteReadBuff.newInstance(this.holdRegisters);
+            bank.getRwLock().readLock().lock();
+            ByteReadBuff buff = ByteReadBuff.newInstance(bank.getHoldRegisters());
             bytes = buff.getBytes(reqPdu.getAddress() * 2, reqPdu.getQuantity() * 2);
         } finally {
-            this.rwLock.readLock().unlock();
+            bank.getRwLock().readLock().unlock();
         }
 
         MbReadHoldRegisterResponse ackPdu = new MbReadHoldRegisterResponse();
@@ -348,27 +489,28 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (读取输入寄存器的数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse readInputRegister(MbTcpRequest request) {
+    private MbTcpResponse readInputRegister(MbTcpRequest request, ModbusDataBank bank) {
         MbReadInputRegisterRequest reqPdu = (MbReadInputRegisterRequest) request.getPdu();
         log.debug("[READ_INPUT_REGISTER] address[{}], quantity[{}]", reqPdu.getAddress(), reqPdu.getQuantity());
-        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > (this.inputRegisters.length / 2)) {
+        if (reqPdu.getQuantity() < 1 || reqPdu.getQuantity() > 0x7D) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_INPUT_REGISTER, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
         if (reqPdu.getAddress() < 0
-                || reqPdu.getAddress() > (this.inputRegisters.length / 2) - 1
-                || reqPdu.getAddress() + reqPdu.getQuantity() > (this.inputRegisters.length / 2) - 1) {
+                || reqPdu.getAddress() > (bank.getInputRegisters().length / 2) - 1
+                || reqPdu.getAddress() + reqPdu.getQuantity() > (bank.getInputRegisters().length / 2)) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_INPUT_REGISTER, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         byte[] bytes;
         try {
-            this.rwLock.readLock().lock();
-            ByteReadBuff buff = ByteReadBuff.newInstance(this.inputRegisters);
+            bank.getRwLock().readLock().lock();
+            ByteReadBuff buff = ByteReadBuff.newInstance(bank.getInputRegisters());
             bytes = buff.getBytes(reqPdu.getAddress() * 2, reqPdu.getQuantity() * 2);
         } finally {
-            this.rwLock.readLock().unlock();
+            bank.getRwLock().readLock().unlock();
         }
 
         MbReadInputRegisterResponse ackPdu = new MbReadInputRegisterResponse();
@@ -382,21 +524,22 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (写入单线圈数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse writeSingleCoil(MbTcpRequest request) {
+    private MbTcpResponse writeSingleCoil(MbTcpRequest request, ModbusDataBank bank) {
         MbWriteSingleCoilRequest reqPdu = (MbWriteSingleCoilRequest) request.getPdu();
         log.debug("[WRITE_SINGLE_COIL] address[{}], value[{}]", reqPdu.getAddress(), reqPdu.isValue());
 
-        if (reqPdu.getAddress() < 0 || reqPdu.getAddress() > this.coils.size() - 1) {
+        if (reqPdu.getAddress() < 0 || reqPdu.getAddress() > bank.getCoils().size() - 1) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_SINGLE_COIL, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         try {
-            this.rwLock.writeLock().lock();
-            this.coils.set(reqPdu.getAddress(), reqPdu.isValue());
+            bank.getRwLock().writeLock().lock();
+            bank.getCoils().set(reqPdu.getAddress(), reqPdu.isValue());
         } finally {
-            this.rwLock.writeLock().unlock();
+            bank.getRwLock().writeLock().unlock();
         }
 
         MbWriteSingleCoilResponse ackPdu = new MbWriteSingleCoilResponse();
@@ -410,24 +553,25 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (写入单寄存器数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse writeSingleRegister(MbTcpRequest request) {
+    private MbTcpResponse writeSingleRegister(MbTcpRequest request, ModbusDataBank bank) {
         MbWriteSingleRegisterRequest reqPdu = (MbWriteSingleRegisterRequest) request.getPdu();
         log.debug("[WRITE_SINGLE_REGISTER] address[{}], value[{}]", reqPdu.getAddress(), reqPdu.getValue());
         if (reqPdu.getValue() < 0 || reqPdu.getValue() > 65535) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_SINGLE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
-        if (reqPdu.getAddress() < 0 || reqPdu.getAddress() > (this.holdRegisters.length / 2) - 1) {
+        if (reqPdu.getAddress() < 0 || reqPdu.getAddress() > (bank.getHoldRegisters().length / 2) - 1) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_SINGLE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         try {
-            this.rwLock.writeLock().lock();
+            bank.getRwLock().writeLock().lock();
             byte[] bytes = ShortUtil.toByteArray(reqPdu.getValue());
-            System.arraycopy(bytes, 0, this.holdRegisters, reqPdu.getAddress() * 2, bytes.length);
+            System.arraycopy(bytes, 0, bank.getHoldRegisters(), reqPdu.getAddress() * 2, bytes.length);
         } finally {
-            this.rwLock.writeLock().unlock();
+            bank.getRwLock().writeLock().unlock();
         }
 
         MbWriteSingleRegisterResponse ackPdu = new MbWriteSingleRegisterResponse();
@@ -441,31 +585,30 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (写入多线圈数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse writeMultipleCoil(MbTcpRequest request) {
+    private MbTcpResponse writeMultipleCoil(MbTcpRequest request, ModbusDataBank bank) {
         MbWriteMultipleCoilRequest reqPdu = (MbWriteMultipleCoilRequest) request.getPdu();
-        List<Boolean> booleans = BooleanUtil.byteArrayToList(reqPdu.getQuantity(), reqPdu.getValue());
-        log.debug("[WRITE_MULTIPLE_COIL] address[{}], quantity[{}], value[{}]", reqPdu.getAddress(), reqPdu.getQuantity(), Arrays.toString(booleans.toArray()));
+        log.debug("[WRITE_MULTIPLE_COIL] address[{}], quantity[{}], value[{}]", reqPdu.getAddress(), reqPdu.getQuantity(), HexUtil.toHexString(reqPdu.getValue()));
 
         if (reqPdu.getQuantity() < 1
-                || reqPdu.getQuantity() > this.coils.size()
-                || reqPdu.getCount() != reqPdu.getValue().length) {
+                || reqPdu.getQuantity() > 0x7B0
+                || reqPdu.getCount() != reqPdu.getValue().length
+                || reqPdu.getCount() < (reqPdu.getQuantity() + 7) / 8) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_MULTIPLE_COIL, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
         if (reqPdu.getAddress() < 0
-                || reqPdu.getAddress() > this.coils.size() - 1
-                || reqPdu.getAddress() + reqPdu.getQuantity() > this.coils.size() - 1) {
+                || reqPdu.getAddress() > bank.getCoils().size() - 1
+                || reqPdu.getAddress() + reqPdu.getQuantity() > bank.getCoils().size()) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_MULTIPLE_COIL, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         try {
-            this.rwLock.writeLock().lock();
-            for (int i = 0; i < booleans.size(); i++) {
-                this.coils.set(reqPdu.getAddress() + i, booleans.get(i));
-            }
+            bank.getRwLock().writeLock().lock();
+            bank.getCoils().setBytes(reqPdu.getAddress(), reqPdu.getQuantity(), reqPdu.getValue());
         } finally {
-            this.rwLock.writeLock().unlock();
+            bank.getRwLock().writeLock().unlock();
         }
 
         MbWriteMultipleCoilResponse ackPdu = new MbWriteMultipleCoilResponse();
@@ -479,27 +622,28 @@ public class ModbusTcpServer extends TcpServerBasic {
      * (写入多寄存器数据)
      *
      * @param request request
+     * @param bank    data bank
      * @return response
      */
-    private MbTcpResponse writeMultipleRegister(MbTcpRequest request) {
+    private MbTcpResponse writeMultipleRegister(MbTcpRequest request, ModbusDataBank bank) {
         MbWriteMultipleRegisterRequest reqPdu = (MbWriteMultipleRegisterRequest) request.getPdu();
         log.debug("[WRITE_MULTIPLE_REGISTER] address[{}], quantity[{}], value[{}]", reqPdu.getAddress(), reqPdu.getQuantity(), HexUtil.toHexString(reqPdu.getValue()));
         if (reqPdu.getQuantity() < 1
-                || reqPdu.getQuantity() > (this.holdRegisters.length / 2)
+                || reqPdu.getQuantity() > 0x7B
                 || reqPdu.getCount() != reqPdu.getQuantity() * 2) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_MULTIPLE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_VALUE));
         }
         if (reqPdu.getAddress() < 0
-                || reqPdu.getAddress() > (this.holdRegisters.length / 2) - 1
-                || reqPdu.getAddress() + reqPdu.getQuantity() > (this.holdRegisters.length / 2) - 1) {
+                || reqPdu.getAddress() > (bank.getHoldRegisters().length / 2) - 1
+                || reqPdu.getAddress() + reqPdu.getQuantity() > (bank.getHoldRegisters().length / 2)) {
             return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_WRITE_MULTIPLE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
         }
 
         try {
-            this.rwLock.writeLock().lock();
-            System.arraycopy(reqPdu.getValue(), 0, this.holdRegisters, reqPdu.getAddress() * 2, reqPdu.getCount());
+            bank.getRwLock().writeLock().lock();
+            System.arraycopy(reqPdu.getValue(), 0, bank.getHoldRegisters(), reqPdu.getAddress() * 2, reqPdu.getCount());
         } finally {
-            this.rwLock.writeLock().unlock();
+            bank.getRwLock().writeLock().unlock();
         }
 
         MbWriteMultipleRegisterResponse ackPdu = new MbWriteMultipleRegisterResponse();
@@ -507,4 +651,74 @@ public class ModbusTcpServer extends TcpServerBasic {
         ackPdu.setQuantity(reqPdu.getQuantity());
         return new MbTcpResponse(request.getHeader(), ackPdu);
     }
+
+    /**
+     * Mask write register handler, read-modify-write under the write lock.
+     * (屏蔽写寄存器，在写锁内完成读改写)
+     *
+     * @param request request
+     * @param bank    data bank
+     * @return response
+     */
+    private MbTcpResponse maskWriteRegister(MbTcpRequest request, ModbusDataBank bank) {
+        MbMaskWriteRegisterRequest reqPdu = (MbMaskWriteRegisterRequest) request.getPdu();
+        log.debug("[SHIELD_WRITE_REGISTER] address[{}], andMask[{}], orMask[{}]", reqPdu.getAddress(), reqPdu.getAndMask(), reqPdu.getOrMask());
+        if (reqPdu.getAddress() < 0 || reqPdu.getAddress() > (bank.getHoldRegisters().length / 2) - 1) {
+            return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_SHIELD_WRITE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
+        }
+
+        byte[] registers = bank.getHoldRegisters();
+        int index = reqPdu.getAddress() * 2;
+        try {
+            bank.getRwLock().writeLock().lock();
+            int current = ((registers[index] & 0xFF) << 8) | (registers[index + 1] & 0xFF);
+            int result = (current & reqPdu.getAndMask()) | (reqPdu.getOrMask() & ~reqPdu.getAndMask());
+            registers[index] = (byte) (result >> 8);
+            registers[index + 1] = (byte) result;
+        } finally {
+            bank.getRwLock().writeLock().unlock();
+        }
+
+        MbMaskWriteRegisterResponse ackPdu = new MbMaskWriteRegisterResponse(reqPdu.getAddress(), reqPdu.getAndMask(), reqPdu.getOrMask());
+        return new MbTcpResponse(request.getHeader(), ackPdu);
+    }
+
+    /**
+     * Read write multiple register handler, write before read under the write lock.
+     * (读写多个寄存器，在写锁内先写后读)
+     *
+     * @param request request
+     * @param bank    data bank
+     * @return response
+     */
+    private MbTcpResponse readWriteMultipleRegister(MbTcpRequest request, ModbusDataBank bank) {
+        MbReadWriteMultipleRegisterRequest reqPdu = (MbReadWriteMultipleRegisterRequest) request.getPdu();
+        log.debug("[READ_WRITE_MULTIPLE_REGISTER] readAddress[{}], readQuantity[{}], writeAddress[{}], writeQuantity[{}], value[{}]",
+                reqPdu.getReadAddress(), reqPdu.getReadQuantity(), reqPdu.getWriteAddress(), reqPdu.getWriteQuantity(),
+                HexUtil.toHexString(reqPdu.getWriteValue()));
+        int registerSize = bank.getHoldRegisters().length / 2;
+        if (reqPdu.getReadQuantity() < 1 || reqPdu.getReadQuantity() > 0x7D
+                || reqPdu.getWriteQuantity() < 1 || reqPdu.getWriteQuantity() > 0x79
+                || reqPdu.getWriteCount() != reqPdu.getWriteQuantity() * 2) {
+            return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_WRITE_MULTIPLE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_VALUE));
+        }
+        if (reqPdu.getReadAddress() + reqPdu.getReadQuantity() > registerSize
+                || reqPdu.getWriteAddress() + reqPdu.getWriteQuantity() > registerSize) {
+            return new MbTcpResponse(request.getHeader(), new MbErrorResponse(EMbFunctionCode.ERROR_READ_WRITE_MULTIPLE_REGISTER, EMbExceptionCode.ILLEGAL_DATA_ADDRESS));
+        }
+
+        byte[] bytes = new byte[reqPdu.getReadQuantity() * 2];
+        try {
+            bank.getRwLock().writeLock().lock();
+            System.arraycopy(reqPdu.getWriteValue(), 0, bank.getHoldRegisters(), reqPdu.getWriteAddress() * 2, reqPdu.getWriteCount());
+            System.arraycopy(bank.getHoldRegisters(), reqPdu.getReadAddress() * 2, bytes, 0, bytes.length);
+        } finally {
+            bank.getRwLock().writeLock().unlock();
+        }
+
+        MbReadWriteMultipleRegisterResponse ackPdu = new MbReadWriteMultipleRegisterResponse();
+        ackPdu.setCount(bytes.length);
+        ackPdu.setRegister(bytes);
+        return new MbTcpResponse(request.getHeader(), ackPdu);
+    }
 }
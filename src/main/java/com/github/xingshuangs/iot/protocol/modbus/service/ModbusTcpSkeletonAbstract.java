@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+
+import com.github.xingshuangs.iot.net.client.IPoolableClient;
+import com.github.xingshuangs.iot.net.client.TcpClientBasic;
+import com.github.xingshuangs.iot.net.client.TcpTransport;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Modbus skeleton over a tcp connection, the framing is done by the subclass and the connection by the composed tcp
+ * transport.
+ * (基于TCP连接的Modbus基础结构，子类负责组帧，组合的TCP传输通道负责连接)
+ *
+ * @author xingshuang
+ */
+public abstract class ModbusTcpSkeletonAbstract<T, R> extends ModbusSkeletonAbstract<T, R> implements IPoolableClient {
+
+    /**
+     * Tcp transport.
+     * (TCP传输通道)
+     */
+    protected final TcpTransport transport;
+
+    protected ModbusTcpSkeletonAbstract(int unitId, String host, int port) {
+        super(unitId);
+        this.transport = new TcpTransport(host, port);
+        this.transport.getClient().setReceiveTimeout(this.receiveTimeout);
+    }
+
+    public TcpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Get the tcp client of the transport.
+     * (获取传输通道的TCP客户端)
+     *
+     * @return tcp client
+     */
+    protected TcpClientBasic getClient() {
+        return this.transport.getClient();
+    }
+
+    @Override
+    public InetSocketAddress getSocketAddress() {
+        return this.getClient().getSocketAddress();
+    }
+
+    public int getConnectTimeout() {
+        return this.getClient().getConnectTimeout();
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.getClient().setConnectTimeout(connectTimeout);
+    }
+
+    @Override
+    public void setReceiveTimeout(int receiveTimeout) {
+        super.setReceiveTimeout(receiveTimeout);
+        this.getClient().setReceiveTimeout(receiveTimeout);
+    }
+
+    public boolean isEnableReconnect() {
+        return this.getClient().isEnableReconnect();
+    }
+
+    public void setEnableReconnect(boolean enableReconnect) {
+        this.getClient().setEnableReconnect(enableReconnect);
+    }
+
+    @Override
+    public boolean isOpened() {
+        return this.getClient().isOpened();
+    }
+
+    @Override
+    public boolean checkConnected() {
+        return this.getClient().checkConnected();
+    }
+
+    @Override
+    public void connect() {
+        try {
+            this.getClient().connect();
+        } finally {
+            if (!this.persistence) {
+                this.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.transport.close();
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.constant.GeneralConst;
+import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.net.client.UdpClientBasic;
+import com.github.xingshuangs.iot.net.client.UdpClientPipeline;
+import com.github.xingshuangs.iot.protocol.modbus.model.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.xingshuangs.iot.common.constant.GeneralConst.LOCALHOST;
+import static com.github.xingshuangs.iot.common.constant.GeneralConst.MODBUS_PORT;
+
+/**
+ * Modbus udp, MBAP over datagram, the requests are in flight together and matched by transaction id, the request
+ * without response is retransmitted.
+ * (Modbus UDP，基于数据报的MBAP，请求可同时进行并根据事务标识符匹配响应，未响应的请求会重发)
+ * 重发的写请求可能被服务端重复执行，Modbus的写操作是幂等的，一般没有影响
+ *
+ * @author xingshuang
+ */
+@Slf4j
+public class ModbusUdp extends ModbusSkeletonAbstract<MbTcpRequest, MbTcpResponse> {
+
+    /**
+     * Udp client.
+     * (UDP客户端)
+     */
+    private final UdpClientBasic udpClient;
+
+    /**
+     * Max number of requests in flight.
+     * (同时进行的最大请求数量)
+     */
+    private int maxInFlight = 16;
+
+    /**
+     * Retransmission interval with ms, also the timeout of every attempt.
+     * (重发间隔，单位毫秒，也是每次尝试的超时时间)
+     */
+    private int retransmitInterval = 1000;
+
+    /**
+     * Max retransmission count, the total timeout is retransmitInterval * (maxRetries + 1).
+     * (最大重发次数，总超时时间为 retransmitInterval * (maxRetries + 1))
+     */
+    private int maxRetries = 2;
+
+    /**
+     * Pipeline dispatcher, created at the first request.
+     * (流水线分发器，第一次请求时创建)
+     */
+    private UdpClientPipeline<Integer> pipeline;
+
+    public ModbusUdp() {
+        this(1, LOCALHOST, MODBUS_PORT);
+    }
+
+    public ModbusUdp(String ip) {
+        this(1, ip, MODBUS_PORT);
+    }
+
+    public ModbusUdp(String ip, int port) {
+        this(1, ip, port);
+    }
+
+    public ModbusUdp(int unitId, String ip, int port) {
+        super(unitId);
+        this.udpClient = new UdpClientBasic(ip, port);
+        this.tag = "ModbusUdp";
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight<=0");
+        }
+        try {
+            this.locker.lock();
+            this.maxInFlight = maxInFlight;
+            if (this.pipeline != null) {
+                this.pipeline.setWindowSize(maxInFlight);
+            }
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    public int getRetransmitInterval() {
+        return retransmitInterval;
+    }
+
+    public void setRetransmitInterval(int retransmitInterval) {
+        if (retransmitInterval <= 0) {
+            throw new IllegalArgumentException("retransmitInterval<=0");
+        }
+        this.retransmitInterval = retransmitInterval;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries<0");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public boolean checkConnected() {
+        return this.pipeline != null;
+    }
+
+    @Override
+    public void connect() {
+        this.getAvailablePipeline();
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.locker.lock();
+            if (this.pipeline != null) {
+                this.pipeline.close();
+                this.pipeline = null;
+            }
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    //region 底层数据通信部分
+
+    @Override
+    protected MbTcpResponse readFromServer(MbTcpRequest req) {
+        return FutureUtil.join(this.readFromServerAsync(req));
+    }
+
+    /**
+     * Read data from server asynchronously, matched by transaction id.
+     * (异步从服务器读取数据，根据事务标识符匹配响应)
+     *
+     * @param req request data
+     * @return future of response data
+     */
+    protected CompletableFuture<MbTcpResponse> readFromServerAsync(MbTcpRequest req) {
+        byte[] sendData = req.toByteArray();
+        if (this.comCallback != null) {
+            this.comCallback.accept(GeneralConst.PACKAGE_REQ, sendData);
+        }
+        CompletableFuture<byte[]> future = this.getAvailablePipeline()
+                .sendAsync(req.getHeader().getTransactionId(), sendData, this.retransmitInterval, this.maxRetries);
+        return FutureUtil.propagateCancel(future.thenApply(total -> {
+            if (this.comCallback != null) {
+                this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
+            }
+            MbTcpResponse ack = MbTcpResponse.fromBytes(total);
+            this.checkResult(req, ack);
+            return ack;
+        }), future);
+    }
+
+    /**
+     * Get the pipeline dispatcher, create it when absent.
+     * (获取流水线分发器，不存在则创建)
+     *
+     * @return pipeline
+     */
+    private UdpClientPipeline<Integer> getAvailablePipeline() {
+        try {
+            this.locker.lock();
+            if (this.pipeline == null) {
+                this.pipeline = new UdpClientPipeline<>(this.udpClient, this.maxInFlight,
+                        data -> ByteReadBuff.newInstance(data).getUInt16(0));
+            }
+            return this.pipeline;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    @Override
+    protected void checkResult(MbTcpRequest req, MbTcpResponse ack) {
+        if (ack.getPdu() == null) {
+            throw new ModbusCommException("PDU is null");
+        }
+        if (req.getHeader().getTransactionId() != ack.getHeader().getTransactionId()) {
+            // 事务元标识符Id不一致
+            throw new ModbusCommException("The transaction meta identifier Id is inconsistent");
+        }
+        if (ack.getPdu().getFunctionCode().getCode() == (req.getPdu().getFunctionCode().getCode() | (byte) 0x80)) {
+            MbErrorResponse response = (MbErrorResponse) ack.getPdu();
+            // 响应返回异常，异常码:
+            throw new ModbusCommException("The response returns an exception, the exception code: " + response.getErrorCode().getDescription());
+        }
+        if (ack.getPdu().getFunctionCode().getCode() != req.getPdu().getFunctionCode().getCode()) {
+            // 返回功能码和发送功能码不一致
+            throw new ModbusCommException("The return function code is inconsistent with the send function code");
+        }
+    }
+
+    //endregion
+
+    @Override
+    protected CompletableFuture<MbPdu> readModbusDataAsync(int unitId, MbPdu reqPdu) {
+        MbTcpRequest request = MbTcpRequest.createDefault();
+        request.getHeader().setUnitId(unitId);
+        request.setPdu(reqPdu);
+        request.selfCheck();
+        CompletableFuture<MbTcpResponse> future = this.readFromServerAsync(request);
+        return FutureUtil.propagateCancel(future.thenApply(MbTcpResponse::getPdu), future);
+    }
+
+    @Override
+    protected MbPdu readModbusData(int unitId, MbPdu reqPdu) {
+        return FutureUtil.join(this.readModbusDataAsync(unitId, reqPdu));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.net.server.UdpServerBasic;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbTcpRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbTcpResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.util.Arrays;
+
+/**
+ * Modbus udp server, MBAP over datagram, one datagram one request, the requests are handled by the data banks of a
+ * ModbusTcpServer, which can be shared with the tcp server.
+ * (Modbus UDP服务端，基于数据报的MBAP，一个数据报一个请求，由ModbusTcpServer的数据区处理，可与TCP服务端共享数据)
+ *
+ * @author xingshuang
+ */
+@Slf4j
+public class ModbusUdpServer extends UdpServerBasic {
+
+    /**
+     * Max length of the modbus datagram.
+     * (Modbus数据报最大长度)
+     */
+    private static final int MAX_DATAGRAM_LENGTH = 260;
+
+    /**
+     * Server holding the data banks and handling the requests.
+     * (持有数据区并处理请求的服务端)
+     */
+    private final ModbusTcpServer dataServer;
+
+    private volatile boolean running;
+
+    private Thread serverThread;
+
+    public ModbusUdpServer() {
+        this(502);
+    }
+
+    public ModbusUdpServer(int port) {
+        this(port, new ModbusTcpServer(port));
+    }
+
+    /**
+     * Constructor.
+     * (构造方法)
+     *
+     * @param port       port
+     * @param dataServer server holding the data banks, e.g. the tcp server serving the same data
+     */
+    public ModbusUdpServer(int port, ModbusTcpServer dataServer) {
+        super(port);
+        this.dataServer = dataServer;
+    }
+
+    public ModbusTcpServer getDataServer() {
+        return dataServer;
+    }
+
+    /**
+     * Get the data bank of the unit id, create it when absent.
+     * (获取站号的数据区，不存在则创建)
+     *
+     * @param unitId unit id, [0, 255]
+     * @return data bank
+     */
+    public ModbusDataBank getBank(int unitId) {
+        return this.dataServer.getBank(unitId);
+    }
+
+    /**
+     * Start the server.
+     * (启动)
+     *
+     * @throws SocketRuntimeException Socket Runtime Exception
+     */
+    public void start() {
+        this.stop();
+        DatagramSocket socket = this.getAvailableSocket();
+        this.running = true;
+        this.serverThread = new Thread(() -> this.waitForRequests(socket), "iot-modbus-udp-server");
+        this.serverThread.setDaemon(true);
+        this.serverThread.start();
+    }
+
+    /**
+     * Stop the server, wait until the port is released.
+     * (停止，等待端口释放)
+     */
+    public void stop() {
+        this.running = false;
+        this.close();
+        // 阻塞在接收中的线程退出后端口才真正释放
+        if (this.serverThread != null && Thread.currentThread() != this.serverThread) {
+            try {
+                this.serverThread.join(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Is the server alive.
+     * (是否活跃着)
+     *
+     * @return true：alive，false：dead
+     */
+    public boolean isAlive() {
+        return this.running;
+    }
+
+    /**
+     * Receive the requests and send back the responses to the source address.
+     * (接收请求并将响应发回来源地址)
+     *
+     * @param socket server socket
+     */
+    private void waitForRequests(DatagramSocket socket) {
+        // 开启Modbus UDP服务端线程，端口号[{}]
+        log.debug("Open modbus udp server thread, port number [{}]", this.getPort());
+        byte[] buffer = new byte[MAX_DATAGRAM_LENGTH];
+        while (this.running && !socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                MbTcpRequest request = MbTcpRequest.fromBytes(Arrays.copyOf(buffer, packet.getLength()));
+                MbTcpResponse response = this.dataServer.requestHandle(request);
+                if (response != null) {
+                    byte[] data = response.toByteArray();
+                    socket.send(new DatagramPacket(data, data.length, packet.getSocketAddress()));
+                }
+            } catch (Exception e) {
+                if (this.running && !socket.isClosed()) {
+                    // 无效的请求数据报，丢弃
+                    log.error("Invalid request datagram from [{}], discard it, {}", packet.getSocketAddress(), e.getMessage());
+                }
+            }
+        }
+        // 关闭Modbus UDP服务端线程，端口号[{}]
+        log.debug("Close modbus udp server thread, port number [{}]", this.getPort());
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.utils;
+
+
+import com.github.xingshuangs.iot.exceptions.HexParseException;
+import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.ITransport;
+import com.github.xingshuangs.iot.utils.HexUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Modbus RTU and ASCII frame reader, calculate the frame length by function code and byte count, or delimit the RTU
+ * frame by the silent interval on the serial line.
+ * Modbus RTU和ASCII的帧读取工具，根据功能码和字节数计算帧长度，串口上的RTU帧也可以根据静默间隔分隔
+ * 响应的头部（站号+功能码）与请求不一致时视为垃圾数据，逐字节丢弃直到重新同步
+ *
+ * @author xingshuang
+ */
+public class MbFrameUtil {
+
+    /**
+     * Max count of garbage bytes skipped before the frame head.
+     * (帧头之前允许丢弃的最大垃圾字节数)
+     */
+    public static final int MAX_SKIP_LENGTH = 512;
+
+    /**
+     * Max length of RTU frame, unit id + pdu(253) + crc.
+     * (RTU帧最大长度，站号+PDU(253)+CRC)
+     */
+    public static final int MAX_RTU_FRAME_LENGTH = 256;
+
+    private MbFrameUtil() {
+        // NOOP
+    }
+
+    /**
+     * Read one RTU response frame, unit id + pdu + crc.
+     * (读取一个RTU响应帧，站号+PDU+CRC)
+     *
+     * @param transport    transport
+     * @param timeout      timeout with ms of every read, 0: no timeout
+     * @param unitId       unit id of request
+     * @param functionCode function code of request
+     * @return byte array of frame
+     * @throws SocketTimeoutException not enough bytes received within the timeout
+     */
+    public static byte[] readRtuFrame(ITransport transport, int timeout, int unitId, byte functionCode) {
+        byte[] head = new byte[2];
+        transport.readFully(head, 0, 2, timeout);
+        int skipped = 0;
+        while (!isFrameHead(head[0], head[1], unitId, functionCode)) {
+            checkSkipped(++skipped);
+            head[0] = head[1];
+            transport.readFully(head, 1, 1, timeout);
+        }
+        int pduLength = getFixedPduLength(head[1]);
+        byte[] total;
+        int offset;
+        if (pduLength > 0) {
+            total = new byte[1 + pduLength + 2];
+            offset = 2;
+        } else {
+            byte[] count = new byte[1];
+            transport.readFully(count, 0, 1, timeout);
+            pduLength = 2 + (count[0] & 0xFF);
+            total = new byte[1 + pduLength + 2];
+            total[2] = count[0];
+            offset = 3;
+        }
+        total[0] = head[0];
+        total[1] = head[1];
+        transport.readFully(total, offset, total.length - offset, timeout);
+        return total;
+    }
+
+    /**
+     * Read one RTU frame delimited by the silent interval of t3.5, the content is checked by the caller.
+     * (读取一个以t3.5静默间隔分隔的RTU帧，内容由调用方校验)
+     *
+     * @param transport      transport
+     * @param receiveTimeout timeout of the first byte with ms, 0: no timeout
+     * @param interFrameGap  silent interval of frame end with ms, t3.5
+     * @return byte array of frame
+     * @throws SocketTimeoutException no byte received within the receive timeout
+     */
+    public static byte[] readRtuFrameByGap(ITransport transport, int receiveTimeout, int interFrameGap) {
+        byte[] buffer = new byte[MAX_RTU_FRAME_LENGTH + 1];
+        int count = transport.read(buffer, 0, buffer.length, receiveTimeout);
+        if (count == 0) {
+            // 接收响应超时
+            throw new SocketTimeoutException(String.format("No response is received within %d ms", receiveTimeout));
+        }
+        int num;
+        while (count <= MAX_RTU_FRAME_LENGTH
+                && (num = transport.read(buffer, count, buffer.length - count, interFrameGap)) > 0) {
+            count += num;
+        }
+        if (count > MAX_RTU_FRAME_LENGTH) {
+            // RTU帧长度超过上限
+            throw new ModbusCommException("The RTU frame length exceeds " + MAX_RTU_FRAME_LENGTH);
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Get the silent interval t3.5 by baud rate, 11 bits per character, fixed 1.75ms when the baud rate is greater
+     * than 19200, rounded up to ms.
+     * (根据波特率计算t3.5静默间隔，每个字符11位，波特率大于19200时固定为1.75ms，向上取整到毫秒)
+     *
+     * @param baudRate baud rate
+     * @return silent interval with ms
+     */
+    public static int getInterFrameGap(int baudRate) {
+        if (baudRate <= 0) {
+            throw new IllegalArgumentException("baudRate <= 0");
+        }
+        if (baudRate > 19200) {
+            return 2;
+        }
+        return (int) Math.ceil(3.5 * 11 * 1000 / baudRate);
+    }
+
+    /**
+     * Read one ASCII response frame, ':' + hex string of (unit id + pdu + lrc) + CR LF.
+     * (读取一个ASCII响应帧，':'+站号、PDU、LRC的十六进制字符串+回车换行)
+     *
+     * @param transport    transport
+     * @param timeout      timeout with ms of every read, 0: no timeout
+     * @param unitId       unit id of request
+     * @param functionCode function code of request
+     * @return byte array of frame, ASCII
+     * @throws SocketTimeoutException not enough bytes received within the timeout
+     */
+    public static byte[] readAsciiFrame(ITransport transport, int timeout, int unitId, byte functionCode) {
+        byte[] head = new byte[5];
+        byte[] bytes;
+        int skipped = 0;
+        while (true) {
+            transport.readFully(head, 0, 1, timeout);
+            if (head[0] != ':') {
+                checkSkipped(++skipped);
+                continue;
+            }
+            transport.readFully(head, 1, 4, timeout);
+            bytes = decodeHex(head, 1, 4);
+            if (isFrameHead(bytes[0], bytes[1], unitId, functionCode)) {
+                break;
+            }
+            skipped += head.length;
+            checkSkipped(skipped);
+        }
+        int pduLength = getFixedPduLength(bytes[1]);
+        byte[] total;
+        int offset;
+        if (pduLength > 0) {
+            // ':' + 站号 + PDU + LRC + CR LF
+            total = new byte[1 + (1 + pduLength + 1) * 2 + 2];
+            offset = head.length;
+        } else {
+            byte[] count = new byte[2];
+            transport.readFully(count, 0, 2, timeout);
+            pduLength = 2 + (decodeHex(count, 0, 2)[0] & 0xFF);
+            total = new byte[1 + (1 + pduLength + 1) * 2 + 2];
+            System.arraycopy(count, 0, total, head.length, count.length);
+            offset = head.length + count.length;
+        }
+        System.arraycopy(head, 0, total, 0, head.length);
+        transport.readFully(total, offset, total.length - offset, timeout);
+        if (total[total.length - 1] != '\n') {
+            // ASCII帧没有以LF结尾
+            throw new ModbusCommException("The ASCII frame does not end with LF");
+        }
+        return total;
+    }
+
+    /**
+     * Get the fixed pdu length of response by function code.
+     * (根据功能码获取响应固定的PDU长度)
+     *
+     * @param functionCode function code of response
+     * @return pdu length, 0: decided by the byte count after function code
+     */
+    public static int getFixedPduLength(byte functionCode) {
+        if ((functionCode & 0x80) != 0) {
+            // 异常响应：功能码+异常码
+            return 2;
+        }
+        switch (functionCode) {
+            case 0x01:
+            case 0x02:
+            case 0x03:
+            case 0x04:
+            case 0x0C:
+            case 0x11:
+            case 0x14:
+            case 0x15:
+            case 0x17:
+                // 功能码+字节数+数据
+                return 0;
+            case 0x07:
+                return 2;
+            case 0x05:
+            case 0x06:
+            case 0x08:
+            case 0x0B:
+            case 0x0F:
+            case 0x10:
+                return 5;
+            case 0x16:
+                return 7;
+            default:
+                // 无法确定功能码的响应长度
+                throw new ModbusCommException(String.format("Unable to determine the response length of function code [%02X]", functionCode));
+        }
+    }
+
+    /**
+     * Whether it is the head of response frame.
+     * (是否为响应帧的头部)
+     *
+     * @param unitIdByte       unit id byte of response
+     * @param functionCodeByte function code byte of response
+     * @param unitId           unit id of request
+     * @param functionCode     function code of request
+     * @return true: yes, false: no
+     */
+    private static boolean isFrameHead(byte unitIdByte, byte functionCodeByte, int unitId, byte functionCode) {
+        return (unitIdByte & 0xFF) == unitId && (functionCodeByte & 0x7F) == (functionCode & 0x7F);
+    }
+
+    /**
+     * Check the count of garbage bytes skipped.
+     * (校验丢弃的垃圾字节数)
+     *
+     * @param skipped count of skipped bytes
+     */
+    private static void checkSkipped(int skipped) {
+        if (skipped > MAX_SKIP_LENGTH) {
+            // 丢弃的字节数超过上限，无法找到响应帧头
+            throw new ModbusCommException(String.format("Unable to find the response frame head after skipping [%d] bytes", skipped));
+        }
+    }
+
+    /**
+     * Decode the ASCII hex characters, zero bytes returned when they are invalid.
+     * (解析ASCII十六进制字符，无效时返回全0字节)
+     *
+     * @param data   ASCII bytes
+     * @param offset offset
+     * @param length length
+     * @return byte array
+     */
+    private static byte[] decodeHex(byte[] data, int offset, int length) {
+        try {
+            return HexUtil.toHexArray(new String(data, offset, length, StandardCharsets.US_ASCII));
+        } catch (HexParseException e) {
+            // 非十六进制字符，按无效数据处理
+            return new byte[length / 2];
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.algorithm;
+
+
+import com.github.xingshuangs.iot.protocol.s7.enums.EArea;
+import com.github.xingshuangs.iot.protocol.s7.enums.EDataVariableType;
+import com.github.xingshuangs.iot.protocol.s7.enums.EParamVariableType;
+import com.github.xingshuangs.iot.protocol.s7.model.DataItem;
+import com.github.xingshuangs.iot.protocol.s7.model.RequestItem;
+import com.github.xingshuangs.iot.utils.BooleanUtil;
+import lombok.Data;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Merge read algorithm, merge the adjacent or overlapping addresses of the same area into one request item.
+ * 合并读取算法，将同一区域相邻或重叠的地址合并为一个请求项
+ * 每个请求项需要12字节的参数，响应中需要4~5字节的数据头，间隔小于该开销时，多读间隔的数据比单独请求更划算
+ * 示例：最大间隔17
+ * DB1.0(4), DB1.4(2), DB1.6(4), DB1.40(2), M0.1(bit)
+ * |DB1.0(10)|DB1.40(2)|M0(1)|
+ *
+ * @author xingshuang
+ */
+@Data
+public class S7MergeReadAlg {
+
+    /**
+     * Default max gap, 17=12(request item)+5(data item header).
+     * (默认的最大间隔)
+     */
+    public static final int DEFAULT_MAX_GAP = RequestItem.BYTE_LENGTH + 5;
+
+    /**
+     * Areas allowed to merge, reading the gap bytes of them has no side effect.
+     * (允许合并的区域，读取其中的间隔字节没有副作用)
+     */
+    private static final Set<EArea> MERGEABLE_AREAS = EnumSet.of(EArea.INPUTS, EArea.OUTPUTS, EArea.FLAGS,
+            EArea.DATA_BLOCKS, EArea.INSTANCE_DATA_BLOCKS);
+
+    /**
+     * Merged request items.
+     * (合并后的请求项)
+     */
+    private final List<RequestItem> mergedItems;
+
+    /**
+     * Position of every raw request item, index same as raw list.
+     * (每个原始请求项的位置，索引与原始列表一致)
+     */
+    private final List<S7MergeItem> positions;
+
+    /**
+     * Max gap used when merging.
+     * (合并时使用的最大间隔)
+     */
+    private final int maxGap;
+
+    private S7MergeReadAlg(List<RequestItem> mergedItems, List<S7MergeItem> positions, int maxGap) {
+        this.mergedItems = mergedItems;
+        this.positions = positions;
+        this.maxGap = maxGap;
+    }
+
+    /**
+     * Merge request items, sort by area, db number and byte address, merge the ranges whose gap is not more than max gap.
+     * (合并请求项，按照区域，DB编号和字节地址排序，间隔不超过最大间隔的范围合并)
+     *
+     * @param src    raw request items 原始请求项
+     * @param maxGap max gap in byte 最大间隔字节数
+     * @return merge result
+     */
+    public static S7MergeReadAlg merge(List<RequestItem> src, int maxGap) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("maxGap<0");
+        }
+        List<RequestItem> mergedItems = new ArrayList<>();
+        S7MergeItem[] positions = new S7MergeItem[src.size()];
+
+        // 不可合并的直接保留，可合并的排序
+        List<Integer> sortedIndexes = new ArrayList<>();
+        for (int i = 0; i < src.size(); i++) {
+            if (isMergeable(src.get(i))) {
+                sortedIndexes.add(i);
+            } else {
+                positions[i] = new S7MergeItem(mergedItems.size(), 0);
+                mergedItems.add(src.get(i).copy());
+            }
+        }
+        sortedIndexes.sort(Comparator.<Integer>comparingInt(i -> src.get(i).getArea().getCode())
+                .thenComparingInt(i -> src.get(i).getDbNumber())
+                .thenComparingInt(i -> src.get(i).getByteAddress()));
+
+        RequestItem current = null;
+        for (int index : sortedIndexes) {
+            RequestItem item = src.get(index);
+            int start = item.getByteAddress();
+            int end = start + byteLength(item);
+            if (current == null
+                    || current.getArea() != item.getArea()
+                    || current.getDbNumber() != item.getDbNumber()
+                    || start - (current.getByteAddress() + current.getCount()) > maxGap) {
+                current = RequestItem.createByParams(EParamVariableType.BYTE, end - start, item.getArea(), item.getDbNumber(), start, 0);
+                mergedItems.add(current);
+            } else {
+                current.setCount(Math.max(current.getCount(), end - current.getByteAddress()));
+            }
+            positions[index] = new S7MergeItem(mergedItems.size() - 1, start - current.getByteAddress());
+        }
+        return new S7MergeReadAlg(mergedItems, Arrays.asList(positions), maxGap);
+    }
+
+    /**
+     * Split the data items of merged request items to the data items of raw request items.
+     * (将合并后请求项的数据拆分为原始请求项的数据)
+     *
+     * @param src       raw request items 原始请求项
+     * @param dataItems data items of the merged request items 合并后请求项的数据
+     * @return data items of raw request items
+     */
+    public List<DataItem> split(List<RequestItem> src, List<DataItem> dataItems) {
+        return IntStream.range(0, src.size()).mapToObj(i -> {
+            RequestItem item = src.get(i);
+            S7MergeItem position = this.positions.get(i);
+            byte[] data = dataItems.get(position.getMergedIndex()).getData();
+            if (!isMergeable(item)) {
+                return dataItems.get(position.getMergedIndex());
+            }
+            if (item.getVariableType() == EParamVariableType.BIT) {
+                boolean bit = BooleanUtil.getValue(data[position.getByteOffset()], item.getBitAddress());
+                return DataItem.createReq(new byte[]{(byte) (bit ? 0x01 : 0x00)}, EDataVariableType.BIT);
+            }
+            byte[] res = Arrays.copyOfRange(data, position.getByteOffset(), position.getByteOffset() + item.getCount());
+            return DataItem.createReq(res, EDataVariableType.BYTE_WORD_DWORD);
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Whether the request item can be merged.
+     * (请求项是否可合并)
+     *
+     * @param item request item
+     * @return true: mergeable, false: not mergeable
+     */
+    private static boolean isMergeable(RequestItem item) {
+        return (item.getVariableType() == EParamVariableType.BYTE || item.getVariableType() == EParamVariableType.BIT)
+                && MERGEABLE_AREAS.contains(item.getArea());
+    }
+
+    /**
+     * Byte length of the request item, a bit occupies one byte.
+     * (请求项的字节长度，位占用一个字节)
+     *
+     * @param item request item
+     * @return byte length
+     */
+    private static int byteLength(RequestItem item) {
+        return item.getVariableType() == EParamVariableType.BIT ? 1 : item.getCount();
+    }
+}
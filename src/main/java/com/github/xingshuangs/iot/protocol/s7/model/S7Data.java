@@ -214,11 +214,23 @@ public class S7Data implements IObjectByteArray {
      * @return s7data
      */
     public static S7Data createConnectDtData(int pduLength) {
+        return createConnectDtData(pduLength, 1);
+    }
+
+    /**
+     * Create connect dt data request.
+     * (创建连接setup，可指定Ack队列大小)
+     *
+     * @param pduLength PDU length
+     * @param maxAmq    max amq of caller and callee
+     * @return s7data
+     */
+    public static S7Data createConnectDtData(int pduLength, int maxAmq) {
         S7Data s7Data = new S7Data();
         s7Data.tpkt = new TPKT();
         s7Data.cotp = COTPData.createDefault();
         s7Data.header = Header.createDefault();
-        s7Data.parameter = SetupComParameter.createDefault(pduLength);
+        s7Data.parameter = SetupComParameter.createDefault(pduLength, maxAmq);
         s7Data.selfCheck();
         return s7Data;
     }
@@ -254,7 +266,30 @@ public class S7Data implements IObjectByteArray {
         s7Data.tpkt = new TPKT();
         s7Data.cotp = COTPData.createDefault();
         s7Data.header = AckHeader.createDefault(request.header, errorClass, errorCode);
-        s7Data.parameter = ReadWriteParameter.createAckParameter((ReadWriteParameter) request.parameter);
+        // 其他功能的错误响应不带参数
+        if (request.parameter instanceof ReadWriteParameter) {
+            s7Data.parameter = ReadWriteParameter.createAckParameter((ReadWriteParameter) request.parameter);
+        }
+        s7Data.selfCheck();
+        return s7Data;
+    }
+
+    /**
+     * Create ack response with the parameter and datum.
+     * (创建带参数和数据的响应)
+     *
+     * @param request   request s7 data
+     * @param parameter ack parameter
+     * @param datum     ack datum, can be null
+     * @return S7 data
+     */
+    public static S7Data createAckResponse(S7Data request, Parameter parameter, Datum datum) {
+        S7Data s7Data = new S7Data();
+        s7Data.tpkt = new TPKT();
+        s7Data.cotp = COTPData.createDefault();
+        s7Data.header = AckHeader.createDefault(request.header, EErrorClass.NO_ERROR, 0);
+        s7Data.parameter = parameter;
+        s7Data.datum = datum;
         s7Data.selfCheck();
         return s7Data;
     }
@@ -117,11 +117,23 @@ public class SetupComParameter extends Parameter implements IObjectByteArray {
      * @return SetupComParameter
      */
     public static SetupComParameter createDefault(int pduLength) {
+        return createDefault(pduLength, 1);
+    }
+
+    /**
+     * Create default setup parameter.
+     * 创建默认的设置通信参数，可指定Ack队列的大小，用于同时发送多个请求
+     *
+     * @param pduLength PDU length
+     * @param maxAmq    max amq of caller and callee
+     * @return SetupComParameter
+     */
+    public static SetupComParameter createDefault(int pduLength, int maxAmq) {
         SetupComParameter parameter = new SetupComParameter();
         parameter.functionCode = EFunctionCode.SETUP_COMMUNICATION;
         parameter.reserved = (byte) 0x00;
-        parameter.maxAmqCaller = 1;
-        parameter.maxAmqCallee = 1;
+        parameter.maxAmqCaller = maxAmq;
+        parameter.maxAmqCallee = maxAmq;
         // 默认最大PDU长度240
         parameter.pduLength = pduLength;
         return parameter;
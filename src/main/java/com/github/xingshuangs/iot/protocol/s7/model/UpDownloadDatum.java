@@ -95,9 +95,10 @@ public class UpDownloadDatum extends Datum {
      * @return UpDownloadDatum
      */
     public static UpDownloadDatum fromBytes(byte[] data, int offset, EMessageType messageType) {
-        if (EMessageType.ACK_DATA != messageType) {
-            // 不是响应数据
-            throw new S7CommException("Not response data");
+        // 上传的数据在响应中，下载的数据在请求中
+        if (EMessageType.ACK_DATA != messageType && EMessageType.JOB != messageType) {
+            // 不是请求或响应数据
+            throw new S7CommException("Not job or response data");
         }
         UpDownloadDatum res = new UpDownloadDatum();
         ByteReadBuff buff = new ByteReadBuff(data, offset);
@@ -125,4 +126,22 @@ public class UpDownloadDatum extends Datum {
         res.data = data;
         return res;
     }
+
+    /**
+     * Create upload data, used by the server.
+     * 根据字节数据创建上传数据结构，服务端使用
+     *
+     * @param data data
+     * @return UpDownloadDatum
+     */
+    public static UpDownloadDatum createUploadData(byte[] data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data");
+        }
+        UpDownloadDatum res = new UpDownloadDatum();
+        res.length = data.length;
+        res.unknownBytes = 0x00FB;
+        res.data = data;
+        return res;
+    }
 }
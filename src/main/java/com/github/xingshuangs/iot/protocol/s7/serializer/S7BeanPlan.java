@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.serializer;
+
+
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.exceptions.S7CommException;
+import com.github.xingshuangs.iot.protocol.s7.algorithm.S7MergeReadAlg;
+import com.github.xingshuangs.iot.protocol.s7.model.DataItem;
+import com.github.xingshuangs.iot.protocol.s7.model.RequestItem;
+import com.github.xingshuangs.iot.protocol.s7.service.S7PLC;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled read and write plan of the bean class, parsed once and reused.
+ * (类的读写计划，只解析一次，重复使用)
+ * <p>
+ * Hold the parsed request items, the merged read layout and the field accessors based on method handle.
+ * (包含解析后的请求项，合并读取的布局，以及基于MethodHandle的字段访问器)
+ *
+ * @param <T> bean type
+ * @author xingshuang
+ */
+final class S7BeanPlan<T> {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * Target class.
+     * (目标类)
+     */
+    private final Class<T> targetClass;
+
+    /**
+     * Constructor without parameters, null if absent.
+     * (无参构造方法，不存在则为null)
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Parsed data of the fields, read only.
+     * (字段解析数据，只读)
+     */
+    private final List<S7ParseData> parseDataList;
+
+    /**
+     * Request items of the fields, read only.
+     * (字段的请求项，只读)
+     */
+    private final List<RequestItem> requestItems;
+
+    /**
+     * Setters of the fields.
+     * (字段的setter)
+     */
+    private final MethodHandle[] setters;
+
+    /**
+     * Getters of the fields.
+     * (字段的getter)
+     */
+    private final MethodHandle[] getters;
+
+    /**
+     * Merged read layout, depends on the max gap.
+     * (合并读取的布局，依赖最大间隔)
+     */
+    private volatile S7MergeReadAlg mergeRead;
+
+    S7BeanPlan(Class<T> targetClass, List<S7ParseData> parseDataList) {
+        this.targetClass = targetClass;
+        this.parseDataList = Collections.unmodifiableList(new ArrayList<>(parseDataList));
+        this.requestItems = Collections.unmodifiableList(parseDataList.stream()
+                .map(S7ParseData::getRequestItem).collect(Collectors.toList()));
+        this.setters = new MethodHandle[parseDataList.size()];
+        this.getters = new MethodHandle[parseDataList.size()];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (int i = 0; i < parseDataList.size(); i++) {
+                Field field = parseDataList.get(i).getField();
+                field.setAccessible(true);
+                this.setters[i] = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                this.getters[i] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            }
+        } catch (IllegalAccessException e) {
+            throw new S7CommException("Serialization plan creation error:" + e.getMessage(), e);
+        }
+        this.constructor = this.findConstructor(lookup);
+    }
+
+    /**
+     * Read the bean from plc.
+     * (从PLC读取对象)
+     *
+     * @param s7PLC plc object
+     * @return bean
+     */
+    T read(S7PLC s7PLC) {
+        if (this.parseDataList.isEmpty()) {
+            // 解析出的注解数据个数为空，无法读取数据
+            throw new S7CommException("The number of parsed annotation data is empty, and the data cannot be read");
+        }
+        List<DataItem> dataItems = this.readDataItems(s7PLC);
+        if (this.parseDataList.size() != dataItems.size()) {
+            // 所需的字段解析项个数与返回的数据项数量不一致，错误
+            throw new S7CommException("The number of field parsing items required is inconsistent with the number of data items returned");
+        }
+        try {
+            if (this.constructor == null) {
+                throw new InstantiationException(this.targetClass.getName() + " has no constructor without parameters");
+            }
+            Object result = this.constructor.invoke();
+            for (int i = 0; i < this.parseDataList.size(); i++) {
+                S7ParseData item = this.parseDataList.get(i);
+                Object value = S7Serializer.toFieldValue(item.getDataType(), item.getCount(), dataItems.get(i).getData());
+                this.setters[i].invoke(result, value);
+            }
+            return this.targetClass.cast(result);
+        } catch (Throwable e) {
+            throw new S7CommException("Serialization fetch data error:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write the bean to plc, the null fields are ignored.
+     * (将对象写入PLC，null字段忽略)
+     *
+     * @param s7PLC      plc object
+     * @param targetBean bean
+     */
+    void write(S7PLC s7PLC, T targetBean) {
+        if (this.parseDataList.isEmpty()) {
+            // 解析出的注解数据个数为空，无法读取数据
+            throw new S7CommException("The number of parsed annotation data is empty, and the data cannot be read");
+        }
+        List<RequestItem> newRequestItems = new ArrayList<>(this.parseDataList.size());
+        List<DataItem> dataItems = new ArrayList<>(this.parseDataList.size());
+        try {
+            for (int i = 0; i < this.parseDataList.size(); i++) {
+                Object data = this.getters[i].invoke(targetBean);
+                if (data == null) {
+                    continue;
+                }
+                S7ParseData item = this.parseDataList.get(i);
+                DataItem dataItem = S7Serializer.toDataItem(item.getDataType(), item.getCount(), data);
+                RequestItem requestItem = this.requestItems.get(i).copy();
+                if (item.getDataType() == EDataType.STRING) {
+                    // 根据实际情况获取最小字符串长度+1，重新更新待写入的数据长度
+                    requestItem.setCount(dataItem.getCount());
+                }
+                newRequestItems.add(requestItem);
+                dataItems.add(dataItem);
+            }
+        } catch (Throwable e) {
+            // 序列化填充字节数据错误
+            throw new S7CommException("Serialized fill byte data error:" + e.getMessage(), e);
+        }
+        s7PLC.writeS7Data(newRequestItems, dataItems);
+    }
+
+    /**
+     * Read the data items, merged layout is reused when merge read.
+     * (读取数据项，合并读取时复用合并布局)
+     *
+     * @param s7PLC plc object
+     * @return data items
+     */
+    private List<DataItem> readDataItems(S7PLC s7PLC) {
+        if (!s7PLC.isMergeRead() || this.requestItems.size() <= 1) {
+            return s7PLC.readS7Data(this.requestItems);
+        }
+        S7MergeReadAlg merge = this.mergeRead;
+        if (merge == null || merge.getMaxGap() != s7PLC.getMergeReadGap()) {
+            merge = S7MergeReadAlg.merge(this.requestItems, s7PLC.getMergeReadGap());
+            this.mergeRead = merge;
+        }
+        return s7PLC.readS7Data(this.requestItems, merge);
+    }
+
+    /**
+     * Find the constructor without parameters.
+     * (查找无参构造方法)
+     *
+     * @param lookup lookup
+     * @return method handle of constructor, null if absent
+     */
+    private MethodHandle findConstructor(MethodHandles.Lookup lookup) {
+        try {
+            Constructor<T> declaredConstructor = this.targetClass.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            return lookup.unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+}
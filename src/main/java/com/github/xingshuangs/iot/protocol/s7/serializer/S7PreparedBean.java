@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.serializer;
+
+
+import com.github.xingshuangs.iot.protocol.s7.service.S7PLC;
+
+/**
+ * Prepared bean reader and writer, reuse the compiled plan of the class for every call.
+ * (预编译的对象读写器，每次调用都复用类的读写计划)
+ *
+ * @param <T> bean type
+ * @author xingshuang
+ */
+public class S7PreparedBean<T> {
+
+    private final S7PLC s7PLC;
+
+    private final S7BeanPlan<T> plan;
+
+    S7PreparedBean(S7PLC s7PLC, S7BeanPlan<T> plan) {
+        this.s7PLC = s7PLC;
+        this.plan = plan;
+    }
+
+    /**
+     * Read the bean from plc.
+     * (读取对象)
+     *
+     * @return bean
+     */
+    public T read() {
+        return this.plan.read(this.s7PLC);
+    }
+
+    /**
+     * Write the bean to plc, the null fields are ignored.
+     * (写入对象，null字段忽略)
+     *
+     * @param targetBean bean
+     */
+    public void write(T targetBean) {
+        this.plan.write(this.s7PLC, targetBean);
+    }
+}
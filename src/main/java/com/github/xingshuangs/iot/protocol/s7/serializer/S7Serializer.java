@@ -53,6 +53,15 @@ import java.util.stream.Collectors;
  */
 public class S7Serializer implements IPLCSerializable {
 
+    /**
+     * Plans of the bean classes, the string offset of S200_SMART is different, so cached separately.
+     * The plan is attached to the class by ClassValue, released together with the class and its class loader.
+     * (类的读写计划缓存，S200_SMART的字符串偏移不同，单独缓存；计划通过ClassValue挂在类上，随类和类加载器一起释放)
+     */
+    private static final PlanCache PLAN_CACHE = new PlanCache(false);
+
+    private static final PlanCache SMART_PLAN_CACHE = new PlanCache(true);
+
     private final S7PLC s7PLC;
 
     public S7Serializer(S7PLC s7PLC) {
@@ -75,9 +84,10 @@ public class S7Serializer implements IPLCSerializable {
      * 将类根据S7Variable注解转换为解析数据
      *
      * @param targetClass target object class
+     * @param smart       is S200_SMART
      * @return result data list
      */
-    private List<S7ParseData> parseBean(final Class<?> targetClass) {
+    private static List<S7ParseData> parseBean(final Class<?> targetClass, boolean smart) {
         List<S7ParseData> s7ParseDataList = new ArrayList<>();
 
         for (final Field field : targetClass.getDeclaredFields()) {
@@ -88,7 +98,7 @@ public class S7Serializer implements IPLCSerializable {
             }
 
             S7Parameter parameter = new S7Parameter(s7Variable.address(), s7Variable.type(), s7Variable.count());
-            S7ParseData s7ParseData = this.createS7ParseData(parameter, field);
+            S7ParseData s7ParseData = createS7ParseData(parameter, field, smart);
 
             s7ParseDataList.add(s7ParseData);
         }
@@ -110,7 +120,8 @@ public class S7Serializer implements IPLCSerializable {
                     // parameters列表中存在null
                     throw new S7CommException("null exists in the parameters list");
                 }
-                S7ParseData s7ParseData = this.createS7ParseData(p, p.getClass().getDeclaredField("value"));
+                S7ParseData s7ParseData = createS7ParseData(p, p.getClass().getDeclaredField("value"),
+                        this.s7PLC.getPlcType() == EPlcType.S200_SMART);
                 s7ParseDataList.add(s7ParseData);
             }
             return s7ParseDataList;
@@ -125,7 +136,7 @@ public class S7Serializer implements IPLCSerializable {
      *
      * @param parameter parameter
      */
-    private void checkS7Variable(final S7Parameter parameter) {
+    private static void checkS7Variable(final S7Parameter parameter) {
         if (parameter.getAddress().isEmpty()) {
             // S7参数中[address]不能为空
             throw new S7CommException("[address] in the S7 parameter cannot be empty");
@@ -177,10 +188,11 @@ public class S7Serializer implements IPLCSerializable {
      *
      * @param p     S7Parameter data
      * @param field target field
+     * @param smart is S200_SMART
      * @return S7ParseData
      */
-    private S7ParseData createS7ParseData(S7Parameter p, Field field) {
-        this.checkS7Variable(p);
+    private static S7ParseData createS7ParseData(S7Parameter p, Field field, boolean smart) {
+        checkS7Variable(p);
         // 组装S7解析数据
         S7ParseData s7ParseData = new S7ParseData();
         s7ParseData.setDataType(p.getDataType());
@@ -193,7 +205,7 @@ public class S7Serializer implements IPLCSerializable {
             // 为什么字节索引+1，为了避免修改PLC中string[60]类型的第一个字节数据，该数据为字符串的允许最大长度
             // S1200（非S200Smart）:数据类型为 string 的操作数可存储多个字符，最多可包括 254 个字符。字符串中的第一个字节为总长度，第二个字节为有效字符数量。
             // S200SMART:字符串由变量存储时，字符串长度为0至254个字符，最长为255个字节，其中第一个字符为长度字节
-            int offset = this.s7PLC.getPlcType() == EPlcType.S200_SMART ? 0 : 1;
+            int offset = smart ? 0 : 1;
             requestItem.setByteAddress(requestItem.getByteAddress() + offset);
             s7ParseData.setRequestItem(requestItem);
         } else {
@@ -206,9 +218,33 @@ public class S7Serializer implements IPLCSerializable {
 
     @Override
     public <T> T read(Class<T> targetClass) {
-        List<S7ParseData> s7ParseDataList = this.parseBean(targetClass);
-        this.readDataByCondition(s7ParseDataList);
-        return this.fillData(targetClass, s7ParseDataList);
+        return this.getPlan(targetClass).read(this.s7PLC);
+    }
+
+    /**
+     * Prepare the bean class, the annotations are parsed only once, and reused for every read and write.
+     * (预编译类，注解只解析一次，每次读写复用)
+     *
+     * @param targetClass target class
+     * @param <T>         type
+     * @return prepared bean
+     */
+    public <T> S7PreparedBean<T> prepare(Class<T> targetClass) {
+        return new S7PreparedBean<>(this.s7PLC, this.getPlan(targetClass));
+    }
+
+    /**
+     * Get the cached plan of the class, create it when absent.
+     * (获取类的缓存计划，不存在则创建)
+     *
+     * @param targetClass target class
+     * @param <T>         type
+     * @return plan
+     */
+    @SuppressWarnings("unchecked")
+    private <T> S7BeanPlan<T> getPlan(Class<T> targetClass) {
+        PlanCache cache = this.s7PLC.getPlcType() == EPlcType.S200_SMART ? SMART_PLAN_CACHE : PLAN_CACHE;
+        return (S7BeanPlan<T>) cache.get(targetClass);
     }
 
     /**
@@ -225,28 +261,6 @@ public class S7Serializer implements IPLCSerializable {
         return parameters;
     }
 
-    /**
-     * Fill value of field.
-     * (提取数据)
-     *
-     * @param targetClass     target class
-     * @param s7ParseDataList S7ParseData list
-     * @param <T>             type
-     * @return target object.
-     */
-    private <T> T fillData(Class<T> targetClass, List<S7ParseData> s7ParseDataList) {
-        try {
-            final T result = targetClass.newInstance();
-            for (S7ParseData item : s7ParseDataList) {
-                this.fillField(result, item);
-            }
-            return result;
-
-        } catch (Exception e) {
-            throw new S7CommException("Serialization fetch data error:" + e.getMessage(), e);
-        }
-    }
-
     /**
      * Fill value of field.
      * (填充数据)
@@ -276,49 +290,48 @@ public class S7Serializer implements IPLCSerializable {
      * @throws IllegalAccessException IllegalAccessException
      */
     private <T> void fillField(T result, S7ParseData item) throws IllegalAccessException {
-        ByteReadBuff buff = new ByteReadBuff(item.getDataItem().getData());
         item.getField().setAccessible(true);
-        switch (item.getDataType()) {
+        item.getField().set(result, toFieldValue(item.getDataType(), item.getCount(), item.getDataItem().getData()));
+    }
+
+    /**
+     * Convert the byte array to the value of field.
+     * (将字节数组转换为字段值)
+     *
+     * @param dataType data type
+     * @param count    data count
+     * @param data     byte array
+     * @return field value
+     */
+    static Object toFieldValue(EDataType dataType, int count, byte[] data) {
+        ByteReadBuff buff = new ByteReadBuff(data);
+        switch (dataType) {
             case BOOL:
-                item.getField().set(result, buff.getBoolean(0));
-                break;
+                return buff.getBoolean(0);
             case BYTE:
-                item.getField().set(result, buff.getBytes(item.getCount()));
-                break;
+                return buff.getBytes(count);
             case UINT16:
-                item.getField().set(result, buff.getUInt16());
-                break;
+                return buff.getUInt16();
             case INT16:
-                item.getField().set(result, buff.getInt16());
-                break;
+                return buff.getInt16();
             case TIME:
             case UINT32:
-                item.getField().set(result, buff.getUInt32());
-                break;
+                return buff.getUInt32();
             case INT32:
-                item.getField().set(result, buff.getInt32());
-                break;
+                return buff.getInt32();
             case INT64:
-                item.getField().set(result, buff.getInt64());
-                break;
+                return buff.getInt64();
             case FLOAT32:
-                item.getField().set(result, buff.getFloat32());
-                break;
+                return buff.getFloat32();
             case FLOAT64:
-                item.getField().set(result, buff.getFloat64());
-                break;
+                return buff.getFloat64();
             case STRING:
                 int length = buff.getByteToInt(0);
-                item.getField().set(result, buff.getString(1, Math.min(length, item.getCount()), Charset.forName("GB2312")));
-                break;
+                return buff.getString(1, Math.min(length, count), Charset.forName("GB2312"));
             case DATE:
-                LocalDate date = LocalDate.of(1990, 1, 1).plusDays(buff.getUInt16());
-                item.getField().set(result, date);
-                break;
+                return LocalDate.of(1990, 1, 1).plusDays(buff.getUInt16());
             case TIME_OF_DAY:
-                LocalTime time = LocalTime.ofSecondOfDay(buff.getUInt32() / 1000);
-                item.getField().set(result, time);
-                break;
+                return LocalTime.ofSecondOfDay(buff.getUInt32() / 1000);
             case DTL:
                 int year = buff.getUInt16();
                 int month = buff.getByteToInt();
@@ -328,9 +341,7 @@ public class S7Serializer implements IPLCSerializable {
                 int minute = buff.getByteToInt();
                 int second = buff.getByteToInt();
                 long nanoOfSecond = buff.getUInt32();
-                LocalDateTime dateTime = LocalDateTime.of(year, month, dayOfMonth, hour, minute, second, (int) nanoOfSecond);
-                item.getField().set(result, dateTime);
-                break;
+                return LocalDateTime.of(year, month, dayOfMonth, hour, minute, second, (int) nanoOfSecond);
             default:
                 throw new S7CommException("Data type can not be recognized");
         }
@@ -340,22 +351,9 @@ public class S7Serializer implements IPLCSerializable {
 
     // region write
     @Override
+    @SuppressWarnings("unchecked")
     public <T> void write(T targetBean) {
-        // 解析参数
-        List<S7ParseData> s7ParseDataList = this.parseBean(targetBean.getClass());
-
-        if (s7ParseDataList.isEmpty()) {
-            // 解析出的注解数据个数为空，无法读取数据
-            throw new S7CommException("The number of parsed annotation data is empty, and the data cannot be read");
-        }
-
-        // 填充字节数据
-        s7ParseDataList = this.extractData(targetBean, s7ParseDataList);
-
-        // 写入PLC
-        List<RequestItem> requestItems = s7ParseDataList.stream().map(S7ParseData::getRequestItem).collect(Collectors.toList());
-        List<DataItem> dataItems = s7ParseDataList.stream().map(S7ParseData::getDataItem).collect(Collectors.toList());
-        this.s7PLC.writeS7Data(requestItems, dataItems);
+        this.getPlan((Class<T>) targetBean.getClass()).write(this.s7PLC, targetBean);
     }
 
     /**
@@ -382,32 +380,6 @@ public class S7Serializer implements IPLCSerializable {
         this.s7PLC.writeS7Data(requestItems, dataItems);
     }
 
-    /**
-     * Extract data.
-     * (提取数据)
-     *
-     * @param targetBean      target object
-     * @param s7ParseDataList List<S7ParseData>
-     * @param <T>             type
-     * @return List<S7ParseData>
-     */
-    private <T> List<S7ParseData> extractData(T targetBean, List<S7ParseData> s7ParseDataList) {
-        try {
-            for (S7ParseData item : s7ParseDataList) {
-                item.getField().setAccessible(true);
-                Object data = item.getField().get(targetBean);
-                if (data == null) {
-                    continue;
-                }
-                this.extractField(item, data);
-            }
-            return s7ParseDataList.stream().filter(x -> x.getDataItem() != null).collect(Collectors.toList());
-        } catch (Exception e) {
-            // 序列化填充字节数据错误
-            throw new S7CommException("Serialized fill byte data error:" + e.getMessage(), e);
-        }
-    }
-
     /**
      * Extract data.
      * (提取数据)
@@ -441,65 +413,58 @@ public class S7Serializer implements IPLCSerializable {
      * @param data data source
      */
     private void extractField(S7ParseData item, Object data) {
-        switch (item.getDataType()) {
+        item.setDataItem(toDataItem(item.getDataType(), item.getCount(), data));
+        if (item.getDataType() == EDataType.STRING) {
+            // 根据实际情况获取最小字符串长度+1，重新更新待写入的数据长度
+            item.getRequestItem().setCount(item.getDataItem().getCount());
+        }
+    }
+
+    /**
+     * Convert the value of field to data item.
+     * (将字段值转换为数据项)
+     *
+     * @param dataType data type
+     * @param count    data count
+     * @param data     field value
+     * @return data item
+     */
+    static DataItem toDataItem(EDataType dataType, int count, Object data) {
+        switch (dataType) {
             case BOOL:
-                item.setDataItem(DataItem.createReqByBoolean((Boolean) data));
-                break;
+                return DataItem.createReqByBoolean((Boolean) data);
             case BYTE:
-                item.setDataItem(DataItem.createReqByByte(ByteReadBuff.newInstance((byte[]) data)
-                        .getBytes(item.getCount())));
-                break;
+                return DataItem.createReqByByte(ByteReadBuff.newInstance((byte[]) data).getBytes(count));
             case UINT16:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(2)
-                        .putShort((Integer) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(2).putShort((Integer) data).getData());
             case INT16:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(2)
-                        .putShort((Short) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(2).putShort((Short) data).getData());
             case TIME:
             case UINT32:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(4)
-                        .putInteger((Long) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(4).putInteger((Long) data).getData());
             case INT32:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(4)
-                        .putInteger((Integer) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(4).putInteger((Integer) data).getData());
             case INT64:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(8)
-                        .putLong((Long) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(8).putLong((Long) data).getData());
             case FLOAT32:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(4)
-                        .putFloat((Float) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(4).putFloat((Float) data).getData());
             case FLOAT64:
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(8)
-                        .putDouble((Double) data).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(8).putDouble((Double) data).getData());
             case STRING:
                 byte[] bytes = ((String) data).getBytes(Charset.forName("GB2312"));
-                int actualLength = Math.min(bytes.length, item.getCount());
+                int actualLength = Math.min(bytes.length, count);
                 byte[] targetBytes = new byte[1 + actualLength];
                 targetBytes[0] = (byte) actualLength;
                 System.arraycopy(bytes, 0, targetBytes, 1, actualLength);
-                item.setDataItem(DataItem.createReqByByte(targetBytes));
-                // 根据实际情况获取最小字符串长度+1，重新更新待写入的数据长度
-                item.getRequestItem().setCount(targetBytes.length);
-                break;
+                return DataItem.createReqByByte(targetBytes);
             case DATE:
                 // TODO: 后面时间采用工具类
                 LocalDate start = LocalDate.of(1990, 1, 1);
                 long date = ((LocalDate) data).toEpochDay() - start.toEpochDay();
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(2)
-                        .putShort((short) date).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(2).putShort((short) date).getData());
             case TIME_OF_DAY:
                 long timeOfDay = ((LocalTime) data).toSecondOfDay() * 1000L;
-                item.setDataItem(DataItem.createReqByByte(ByteWriteBuff.newInstance(4)
-                        .putInteger(timeOfDay).getData()));
-                break;
+                return DataItem.createReqByByte(ByteWriteBuff.newInstance(4).putInteger(timeOfDay).getData());
             case DTL:
                 LocalDateTime dateTime = (LocalDateTime) data;
                 byte[] dateTimeData = ByteWriteBuff.newInstance(12)
@@ -512,12 +477,29 @@ public class S7Serializer implements IPLCSerializable {
                         .putByte(dateTime.getSecond())
                         .putInteger(dateTime.getNano())
                         .getData();
-                item.setDataItem(DataItem.createReqByByte(dateTimeData));
-                break;
+                return DataItem.createReqByByte(dateTimeData);
             default:
                 // 无法识别数据类型
                 throw new S7CommException("Data type can not be recognized");
         }
     }
     // endregion
+
+    /**
+     * Plan cache of the bean classes, the value is held by the class itself instead of a static map.
+     * (类的读写计划缓存，值由类自身持有而非静态Map)
+     */
+    private static final class PlanCache extends ClassValue<S7BeanPlan<?>> {
+
+        private final boolean smart;
+
+        private PlanCache(boolean smart) {
+            this.smart = smart;
+        }
+
+        @Override
+        protected S7BeanPlan<?> computeValue(Class<?> type) {
+            return new S7BeanPlan<>(type, parseBean(type, this.smart));
+        }
+    }
 }
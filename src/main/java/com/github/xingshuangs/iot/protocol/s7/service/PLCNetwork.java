@@ -29,9 +29,13 @@ import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
 import com.github.xingshuangs.iot.common.constant.GeneralConst;
 import com.github.xingshuangs.iot.exceptions.S7CommException;
+import com.github.xingshuangs.iot.net.SocketUtils;
 import com.github.xingshuangs.iot.net.client.TcpClientBasic;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.net.client.TcpClientPipeline;
 import com.github.xingshuangs.iot.protocol.s7.algorithm.S7ComGroup;
 import com.github.xingshuangs.iot.protocol.s7.algorithm.S7ComItem;
+import com.github.xingshuangs.iot.protocol.s7.algorithm.S7MergeReadAlg;
 import com.github.xingshuangs.iot.protocol.s7.algorithm.S7SequentialGroupAlg;
 import com.github.xingshuangs.iot.protocol.s7.constant.ErrorCode;
 import com.github.xingshuangs.iot.protocol.s7.enums.*;
@@ -40,14 +44,18 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.net.Socket;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
  * plc的网络通信
+ * 开启流水线模式(pipelined)后，单个连接可同时发送不超过MaxAmq个请求，由读取线程根据pduReference匹配响应
  * 最大读取字节数组大小是240-18=222，480-18=462,960-18=942
  * 根据测试S1200[CPU 1214C]，单次读多字节
  * 发送：最大字节读取长度是 216 = 240 - 24, 24(请求报文的PDU)=10(header)+14(parameter)
@@ -105,6 +113,42 @@ public class PLCNetwork extends TcpClientBasic {
      */
     private BiConsumer<String, byte[]> comCallback;
 
+    /**
+     * Merge read, true: merge the adjacent or overlapping addresses before reading, false: read in order.
+     * (是否合并读取，true：读取前合并相邻或重叠的地址，false：按顺序读取，默认true)
+     */
+    private boolean mergeRead = true;
+
+    /**
+     * Max gap in byte allowed to merge when merge read.
+     * (合并读取时允许合并的最大间隔字节数)
+     */
+    private int mergeReadGap = S7MergeReadAlg.DEFAULT_MAX_GAP;
+
+    /**
+     * Pipelined, true: several jobs in flight per connection, responses matched by pdu reference, false: one job at a time.
+     * (是否流水线模式，true：单连接同时发送多个请求，根据pdu引用匹配响应，false：单连接一次一个请求，默认false)
+     */
+    private boolean pipelined = false;
+
+    /**
+     * Max amq requested in the setup communication when pipelined, the actual value is negotiated with PLC.
+     * (流水线模式下setup通信请求的Ack队列大小，实际值以PLC协商结果为准)
+     */
+    private int maxAmq = 8;
+
+    /**
+     * Max amq negotiated with PLC, the number of jobs in flight per connection.
+     * (与PLC协商的Ack队列大小，即单连接同时进行的请求数量)
+     */
+    private int negotiatedAmq = 1;
+
+    /**
+     * Pipeline dispatcher, created when pipelined.
+     * (流水线分发器，流水线模式下创建)
+     */
+    private TcpClientPipeline<Integer> pipeline;
+
     public PLCNetwork() {
         super();
     }
@@ -135,8 +179,13 @@ public class PLCNetwork extends TcpClientBasic {
     protected void doAfterConnected() {
         this.connectionRequest();
         // 存在设置的PDULength != 实际PLC的PDULength，因此以PLC的为准
-        this.pduLength = this.connectDtData();
-        log.debug("PLC[{}] handshake success, rack[{}]，slot[{}]，PDULength[{}]", this.plcType, this.rack, this.slot, this.pduLength);
+        SetupComParameter parameter = this.connectDtData();
+        this.pduLength = parameter.getPduLength();
+        this.negotiatedAmq = Math.max(1, Math.min(parameter.getMaxAmqCaller(), parameter.getMaxAmqCallee()));
+        if (this.pipeline != null) {
+            this.pipeline.setWindowSize(this.negotiatedAmq);
+        }
+        log.debug("PLC[{}] handshake success, rack[{}]，slot[{}]，PDULength[{}]，MaxAmq[{}]", this.plcType, this.rack, this.slot, this.pduLength, this.negotiatedAmq);
     }
 
     /**
@@ -183,7 +232,7 @@ public class PLCNetwork extends TcpClientBasic {
                 break;
         }
         S7Data req = S7Data.createConnectRequest(local, remote);
-        S7Data ack = this.readFromServer(req);
+        S7Data ack = this.readFromServerSync(req);
         if (ack.getCotp().getPduType() != EPduType.CONNECT_CONFIRM) {
             // 连接请求被拒绝
             throw new S7CommException("The connection request was denied");
@@ -194,11 +243,11 @@ public class PLCNetwork extends TcpClientBasic {
      * Connection setup.
      * (连接setup)
      *
-     * @return pduLength pdu长度
+     * @return setup communication parameter negotiated, setup参数
      */
-    private int connectDtData() {
-        S7Data req = S7Data.createConnectDtData(this.pduLength);
-        S7Data ack = this.readFromServer(req);
+    private SetupComParameter connectDtData() {
+        S7Data req = S7Data.createConnectDtData(this.pduLength, this.pipelined ? this.maxAmq : 1);
+        S7Data ack = this.readFromServerSync(req);
         if (ack.getCotp().getPduType() != EPduType.DT_DATA) {
             // 连接Setup响应错误
             throw new S7CommException("Connection Setup response error");
@@ -207,12 +256,12 @@ public class PLCNetwork extends TcpClientBasic {
             // 连接Setup响应错误，缺失响应头header或响应头长度不够[12]
             throw new S7CommException("Connection Setup response error, missing response header or insufficient response header length [12]");
         }
-        int length = ((SetupComParameter) ack.getParameter()).getPduLength();
-        if (length <= 0) {
+        SetupComParameter parameter = (SetupComParameter) ack.getParameter();
+        if (parameter.getPduLength() <= 0) {
             // PDU的最大长度小于0
             throw new S7CommException("The maximum length of a PDU is less than 0");
         }
-        return length;
+        return parameter;
     }
     //endregion
 
@@ -226,6 +275,20 @@ public class PLCNetwork extends TcpClientBasic {
      * @return ack data
      */
     private S7Data readFromServer(S7Data req) {
+        if (this.pipelined) {
+            return FutureUtil.join(this.readFromServerAsync(req));
+        }
+        return this.readFromServerSync(req);
+    }
+
+    /**
+     * Read data from server, one job at a time, the handshake always uses this way.
+     * (从服务器读取数据，一次一个请求，握手始终采用该方式)
+     *
+     * @param req req data
+     * @return ack data
+     */
+    private S7Data readFromServerSync(S7Data req) {
         byte[] sendData = req.toByteArray();
         byte[] total = this.readFromServer(sendData);
         S7Data ack = S7Data.fromBytes(total);
@@ -234,22 +297,122 @@ public class PLCNetwork extends TcpClientBasic {
     }
 
     /**
-     * Data interaction with the server as byte array
-     * (以字节数组的方式和服务器进行数据交互)
+     * Read data from server asynchronously, the future is completed at once when not pipelined.
+     * (异步从服务器读取数据，非流水线模式下直接同步完成)
+     *
+     * @param req req data
+     * @return future of ack data
+     */
+    private CompletableFuture<S7Data> readFromServerAsync(S7Data req) {
+        if (!this.pipelined) {
+            return CompletableFuture.completedFuture(this.readFromServerSync(req));
+        }
+        return this.readFromServerAsync(req.toByteArray()).thenApply(total -> {
+            S7Data ack = S7Data.fromBytes(total);
+            this.checkPostedCom(req, ack);
+            return ack;
+        });
+    }
+
+    /**
+     * Data interaction with the server as byte array in pipeline, matched by pdu reference.
+     * (以流水线的方式和服务器进行数据交互，根据pdu引用匹配响应)
      *
      * @param sendData byte array of request
-     * @return byte array of response
+     * @return future of the response byte array
      */
-    private byte[] readFromServer(byte[] sendData) {
+    private CompletableFuture<byte[]> readFromServerAsync(byte[] sendData) {
         if (this.comCallback != null) {
             this.comCallback.accept(GeneralConst.PACKAGE_REQ, sendData);
         }
+        this.checkSendLength(sendData);
+        return this.getAvailablePipeline().sendAsync(extractPduReference(sendData), sendData, this.receiveTimeout)
+                .thenApply(total -> {
+                    if (this.comCallback != null) {
+                        this.comCallback.accept(GeneralConst.PACKAGE_ACK, total);
+                    }
+                    return total;
+                });
+    }
 
+    /**
+     * Get the pipeline dispatcher, create it when absent.
+     * (获取流水线分发器，不存在则创建)
+     *
+     * @return pipeline
+     */
+    private TcpClientPipeline<Integer> getAvailablePipeline() {
+        try {
+            this.locker.lock();
+            if (this.pipeline == null) {
+                this.pipeline = new TcpClientPipeline<>(this, this.negotiatedAmq, this::readFrame, PLCNetwork::extractPduReference);
+            }
+            return this.pipeline;
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Read one complete S7 frame which length is specified by TPKT.
+     * (读取一个完整的S7帧，长度由TPKT指定)
+     *
+     * @param socket socket object
+     * @return byte array of frame
+     * @throws IOException IO exception
+     */
+    private byte[] readFrame(Socket socket) throws IOException {
+        byte[] data = new byte[TPKT.BYTE_LENGTH];
+        SocketUtils.read(socket, data, 0, data.length, -1, 0, true);
+        TPKT tpkt = TPKT.fromBytes(data);
+        byte[] total = new byte[tpkt.getLength()];
+        System.arraycopy(data, 0, total, 0, data.length);
+        SocketUtils.read(socket, total, TPKT.BYTE_LENGTH, total.length - TPKT.BYTE_LENGTH, -1, 0, true);
+        return total;
+    }
+
+    /**
+     * Extract the pdu reference from the byte array of S7 frame.
+     * (从S7帧的字节数组中提取pdu引用)
+     *
+     * @param data byte array of frame
+     * @return pdu reference
+     */
+    private static Integer extractPduReference(byte[] data) {
+        // 11=4(tpkt)+3(cotp)+4(protocolId+messageType+reserved)，pduReference占2个字节
+        if (data.length < 13 || data[5] != EPduType.DT_DATA.getCode()) {
+            // 报文中不存在pdu引用
+            throw new S7CommException("The pdu reference does not exist in the data");
+        }
+        return ByteReadBuff.newInstance(data, 11).getUInt16();
+    }
+
+    /**
+     * Check the length of sending data.
+     * (校验发送数据的长度)
+     *
+     * @param sendData byte array of request
+     */
+    private void checkSendLength(byte[] sendData) {
         // 将报文中的TPKT和COTP减掉，剩下PDU的内容，7=4(tpkt)+3(cotp)
         if (this.pduLength > 0 && sendData.length - 7 > this.pduLength) {
             // 发送请求的字节数过长[%d]，已经大于最大的PDU长度[%d]
             throw new S7CommException(String.format("The number of bytes sent for the request is too long [%d], which is larger than the maximum PDU length [%d].", sendData.length, this.pduLength));
         }
+    }
+
+    /**
+     * Data interaction with the server as byte array
+     * (以字节数组的方式和服务器进行数据交互)
+     *
+     * @param sendData byte array of request
+     * @return byte array of response
+     */
+    private byte[] readFromServer(byte[] sendData) {
+        if (this.comCallback != null) {
+            this.comCallback.accept(GeneralConst.PACKAGE_REQ, sendData);
+        }
+        this.checkSendLength(sendData);
 
         TPKT tpkt;
         int len;
@@ -307,6 +470,9 @@ public class PLCNetwork extends TcpClientBasic {
      */
     public byte[] readFromServerByPersistence(byte[] req) {
         try {
+            if (this.pipelined) {
+                return FutureUtil.join(this.readFromServerAsync(req));
+            }
             return this.readFromServer(req);
         } finally {
             if (!this.persistence) {
@@ -381,6 +547,45 @@ public class PLCNetwork extends TcpClientBasic {
             // 请求项缺失，无法获取数据
             throw new S7CommException("The request item is missing and the data cannot be retrieved");
         }
+        if (this.mergeRead && requestItems.size() > 1) {
+            // 先合并相邻或重叠的地址，读取后再拆分回原始请求项
+            S7MergeReadAlg mergeRead = S7MergeReadAlg.merge(requestItems, this.mergeReadGap);
+            if (mergeRead.getMergedItems().size() < requestItems.size()) {
+                List<DataItem> dataItems = this.readS7DataInOrder(mergeRead.getMergedItems());
+                return mergeRead.split(requestItems, dataItems);
+            }
+        }
+        return this.readS7DataInOrder(requestItems);
+    }
+
+    /**
+     * Read S7 protocol data by the merge layout prepared before, the layout must be created by the same request items.
+     * (按照预先创建的合并布局读取S7协议数据，布局必须由相同的请求项创建)
+     *
+     * @param requestItems raw request items
+     * @param mergeRead    merge layout
+     * @return data items
+     */
+    public List<DataItem> readS7Data(List<RequestItem> requestItems, S7MergeReadAlg mergeRead) {
+        if (requestItems == null || requestItems.isEmpty()) {
+            // 请求项缺失，无法获取数据
+            throw new S7CommException("The request item is missing and the data cannot be retrieved");
+        }
+        if (mergeRead.getMergedItems().size() >= requestItems.size()) {
+            return this.readS7DataInOrder(requestItems);
+        }
+        List<DataItem> dataItems = this.readS7DataInOrder(mergeRead.getMergedItems());
+        return mergeRead.split(requestItems, dataItems);
+    }
+
+    /**
+     * Read S7 data in order, without merging.
+     * (按顺序读取S7协议数据，不合并)
+     *
+     * @param requestItems request items
+     * @return ack data items
+     */
+    private List<DataItem> readS7DataInOrder(List<RequestItem> requestItems) {
         // 根据原始请求列表提取每个请求数据大小
         List<Integer> rawNumbers = requestItems.stream().map(RequestItem::getCount).collect(Collectors.toList());
         // 根据原始请求列表构建最终结果列表
@@ -393,7 +598,8 @@ public class PLCNetwork extends TcpClientBasic {
         // 接收： 14=12(header)+2(parameter),5(DataItem)，dataItem可能4或5，统一采用5
         List<S7ComGroup> s7ComGroups = S7SequentialGroupAlg.readRecombination(rawNumbers, this.pduLength - 14, 5, 12);
         try {
-            s7ComGroups.forEach(x -> {
+            // 流水线模式下所有分组先依次发出，再统一等待响应
+            List<CompletableFuture<Void>> futures = s7ComGroups.stream().map(x -> {
                 // 根据分组构建对应的请求列表
                 List<S7ComItem> comItemList = x.getItems();
                 List<RequestItem> newRequestItems = comItemList.stream().map(i -> {
@@ -405,18 +611,20 @@ public class PLCNetwork extends TcpClientBasic {
 
                 // S7数据请求
                 S7Data req = S7Data.createReadRequest(newRequestItems);
-                S7Data ack = this.readFromServer(req);
-                ReadWriteDatum datum = (ReadWriteDatum) ack.getDatum();
-                List<DataItem> dataItems = datum.getReturnItems().stream().map(DataItem.class::cast).collect(Collectors.toList());
-
-                // 将获取的数据重装实际结果列表中
-                for (int i = 0; i < comItemList.size(); i++) {
-                    S7ComItem comItem = comItemList.get(i);
-                    byte[] src = dataItems.get(i).getData();
-                    byte[] des = resultList.get(comItem.getIndex()).getData();
-                    System.arraycopy(src, 0, des, comItem.getSplitOffset(), src.length);
-                }
-            });
+                return this.readFromServerAsync(req).thenAccept(ack -> {
+                    ReadWriteDatum datum = (ReadWriteDatum) ack.getDatum();
+                    List<DataItem> dataItems = datum.getReturnItems().stream().map(DataItem.class::cast).collect(Collectors.toList());
+
+                    // 将获取的数据重装实际结果列表中
+                    for (int i = 0; i < comItemList.size(); i++) {
+                        S7ComItem comItem = comItemList.get(i);
+                        byte[] src = dataItems.get(i).getData();
+                        byte[] des = resultList.get(comItem.getIndex()).getData();
+                        System.arraycopy(src, 0, des, comItem.getSplitOffset(), src.length);
+                    }
+                });
+            }).collect(Collectors.toList());
+            futures.forEach(FutureUtil::join);
             return resultList;
         } finally {
             if (!this.persistence) {
@@ -468,7 +676,8 @@ public class PLCNetwork extends TcpClientBasic {
         // 接收：14=12(header)+2(parameter),1(DataItem)
         List<S7ComGroup> s7ComGroups = S7SequentialGroupAlg.writeRecombination(rawNumbers, this.pduLength - 12, 17);
         try {
-            s7ComGroups.forEach(x -> {
+            // 流水线模式下所有分组先依次发出，再统一等待响应
+            List<CompletableFuture<S7Data>> futures = s7ComGroups.stream().map(x -> {
                 // 根据分组构建对应的请求列表
                 List<S7ComItem> comItemList = x.getItems();
                 List<RequestItem> newRequestItems = comItemList.stream().map(i -> {
@@ -487,8 +696,9 @@ public class PLCNetwork extends TcpClientBasic {
 
                 // S7数据请求
                 S7Data req = S7Data.createWriteRequest(newRequestItems, newDataItems);
-                this.readFromServer(req);
-            });
+                return this.readFromServerAsync(req);
+            }).collect(Collectors.toList());
+            futures.forEach(FutureUtil::join);
         } finally {
             if (!this.persistence) {
                 this.close();
@@ -26,30 +26,43 @@ package com.github.xingshuangs.iot.protocol.s7.service;
 
 
 import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.exceptions.S7CommException;
 import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
 import com.github.xingshuangs.iot.net.SocketUtils;
+import com.github.xingshuangs.iot.net.server.LengthFieldFrameDecoder;
 import com.github.xingshuangs.iot.net.server.TcpServerBasic;
+import com.github.xingshuangs.iot.net.server.TcpServerSession;
 import com.github.xingshuangs.iot.protocol.s7.enums.*;
 import com.github.xingshuangs.iot.protocol.s7.model.*;
-import com.github.xingshuangs.iot.protocol.s7.utils.AddressUtil;
-import com.github.xingshuangs.iot.utils.BooleanUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 /**
  * S7 plc server class.
  * S7的PLC服务端
+ * 默认使用阻塞引擎，大量连接时在start之前调用setEngine(EServerEngine.SELECTOR)切换为选择器引擎
  *
  * @author xingshuang
  */
@@ -57,35 +70,111 @@ import java.util.stream.Collectors;
 public class S7PLCServer extends TcpServerBasic {
 
     /**
-     * Locker.
-     * (数据Map操作锁)
+     * Default area size in byte.
+     * (默认的区域字节大小)
+     */
+    public static final int AREA_SIZE = 65536;
+
+    /**
+     * Suffix of the area file.
+     * (区域文件的后缀)
+     */
+    private static final String AREA_FILE_SUFFIX = ".bin";
+
+    /**
+     * Magic number of the snapshot file.
+     * (快照文件的魔数)
+     */
+    private static final int SNAPSHOT_MAGIC = 0x53375353;
+
+    /**
+     * Max data length of one upload response.
+     * (一次上传响应的最大数据长度)
+     */
+    private static final int UPLOAD_CHUNK_SIZE = 200;
+
+    /**
+     * Locker for adding area.
+     * (添加区域的锁)
      */
     private final ReentrantLock locker = new ReentrantLock();
 
     /**
-     * Write and read lock.
-     * (读写锁)
+     * All areas, key from {@link S7ServerArea#keyOf}, every area has its own lock.
+     * (所有数据区，键由S7ServerArea.keyOf生成，每个区有自己的锁)
+     */
+    protected final Map<Integer, S7ServerArea> areas = new ConcurrentHashMap<>();
+
+    /**
+     * Storage directory of the memory mapped area files, null: areas on heap.
+     * (内存映射区域文件的存储目录，null：区域在堆上)
      */
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private final Path storageDirectory;
 
     /**
-     * All data for operating.
-     * (所有数据)
+     * Blocks in the server, key from {@link #blockKeyOf}.
+     * (服务端中的块，键由blockKeyOf生成)
      */
-    protected final HashMap<String, byte[]> dataMap = new HashMap<>();
+    private final Map<String, byte[]> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * Download sessions in progress, key: client address + block key.
+     * (进行中的下载会话，键：客户端地址 + 块的键)
+     */
+    private final Map<String, ByteArrayOutputStream> downloadSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Upload sessions in progress, key: upload id.
+     * (进行中的上传会话，键：上传编号)
+     */
+    private final Map<Long, UploadSession> uploadSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Upload id generator.
+     * (上传编号生成器)
+     */
+    private final AtomicLong uploadId = new AtomicLong();
+
+    /**
+     * NCK data, key from {@link #nckKeyOf}.
+     * (NCK数据，键由nckKeyOf生成)
+     */
+    private final Map<String, byte[]> nckData = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the cpu is running, changed by hot restart, cold restart and plc stop.
+     * (CPU是否运行，由热重启，冷重启和PLC停止改变)
+     */
+    private volatile boolean cpuRunning = true;
 
     public S7PLCServer() {
         this(102);
     }
 
     public S7PLCServer(int port) {
+        this(port, null);
+    }
+
+    /**
+     * Create the server, every area is backed by a memory mapped file in the storage directory if it is not null,
+     * the area files existing in the directory are loaded.
+     * (创建服务端，若存储目录不为null，则每个区域由目录中的内存映射文件支撑，目录中已有的区域文件会被加载)
+     *
+     * @param port             port number
+     * @param storageDirectory storage directory, null: areas on heap
+     */
+    public S7PLCServer(int port, Path storageDirectory) {
         this.port = port;
-        this.dataMap.put("DB1", new byte[65536]);
-        this.dataMap.put("M", new byte[65536]);
-        this.dataMap.put("I", new byte[65536]);
-        this.dataMap.put("Q", new byte[65536]);
-        this.dataMap.put("T", new byte[65536]);
-        this.dataMap.put("C", new byte[65536]);
+        this.storageDirectory = storageDirectory;
+        if (storageDirectory != null) {
+            this.loadAreaFiles(storageDirectory);
+        }
+        this.addArea("DB1");
+        this.addArea("M");
+        this.addArea("I");
+        this.addArea("Q");
+        this.addArea("T");
+        this.addArea("C");
     }
 
     /**
@@ -95,12 +184,7 @@ public class S7PLCServer extends TcpServerBasic {
      * @return data areas
      */
     public Set<String> getAvailableAreas() {
-        try {
-            this.locker.lock();
-            return this.dataMap.keySet();
-        } finally {
-            this.locker.unlock();
-        }
+        return this.areas.values().stream().map(S7ServerArea::getName).collect(Collectors.toSet());
     }
 
     /**
@@ -114,12 +198,237 @@ public class S7PLCServer extends TcpServerBasic {
         try {
             this.locker.lock();
             for (int x : dbNumbers) {
-                String name = String.format("DB%s", x);
-                this.dataMap.computeIfAbsent(name, key -> new byte[65536]);
+                this.addArea("DB" + x);
+            }
+        } finally {
+            this.locker.unlock();
+        }
+    }
+
+    /**
+     * Add area if absent.
+     * (若不存在则添加区域)
+     *
+     * @param name area name
+     * @return area
+     */
+    private S7ServerArea addArea(String name) {
+        return this.areas.computeIfAbsent(S7ServerArea.keyOf(name), key -> this.storageDirectory == null
+                ? new S7ServerArea(name, AREA_SIZE)
+                : S7ServerArea.mapFile(name, this.storageDirectory.resolve(name + AREA_FILE_SUFFIX), AREA_SIZE));
+    }
+
+    /**
+     * Load the area files existing in the storage directory.
+     * (加载存储目录中已有的区域文件)
+     *
+     * @param directory storage directory
+     */
+    private void loadAreaFiles(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + AREA_FILE_SUFFIX)) {
+                for (Path file : stream) {
+                    String fileName = file.getFileName().toString();
+                    String name = fileName.substring(0, fileName.length() - AREA_FILE_SUFFIX.length());
+                    try {
+                        this.addArea(name);
+                    } catch (IllegalArgumentException e) {
+                        // 忽略无法识别的文件
+                        log.warn("Ignore the unknown area file [{}]", file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new S7CommException("Failed to load the area files: " + directory, e);
+        }
+    }
+
+    /**
+     * Force the memory mapped areas to the storage device.
+     * (将内存映射的区域刷写到存储设备)
+     */
+    public void flush() {
+        this.areas.values().forEach(S7ServerArea::force);
+    }
+
+    /**
+     * Save the snapshot of all areas to the file, all areas are locked together so the snapshot is consistent,
+     * the file is written to a temporary file first and then moved atomically.
+     * (将所有区域的快照保存到文件，所有区域同时加锁保证快照一致，先写入临时文件再原子移动)
+     *
+     * @param file snapshot file
+     */
+    public void snapshot(Path file) {
+        List<S7ServerArea> sortedAreas = this.sortedAreas();
+        List<byte[]> contents = new ArrayList<>(sortedAreas.size());
+        long[] stamps = new long[sortedAreas.size()];
+        for (int i = 0; i < sortedAreas.size(); i++) {
+            stamps[i] = sortedAreas.get(i).getLock().readLock();
+        }
+        try {
+            for (S7ServerArea area : sortedAreas) {
+                byte[] content = new byte[area.size()];
+                area.copyTo(0, content, 0, content.length);
+                contents.add(content);
             }
+        } finally {
+            for (int i = sortedAreas.size() - 1; i >= 0; i--) {
+                sortedAreas.get(i).getLock().unlockRead(stamps[i]);
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(sortedAreas.size());
+                for (int i = 0; i < sortedAreas.size(); i++) {
+                    out.writeUTF(sortedAreas.get(i).getName());
+                    out.writeInt(contents.get(i).length);
+                    out.write(contents.get(i));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new S7CommException("Failed to save the snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Restore all areas in the snapshot file, the areas absent are added, all areas are locked together so clients
+     * never see a partially restored state, the areas not in the snapshot are not changed.
+     * (从快照文件恢复所有区域，不存在的区域会被添加，所有区域同时加锁，客户端不会看到恢复一半的状态，快照中没有的区域不变)
+     *
+     * @param file snapshot file
+     */
+    public void restore(Path file) {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                // 不是快照文件
+                throw new S7CommException("The file is not a snapshot: " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                contents.put(name, content);
+            }
+        } catch (IOException e) {
+            throw new S7CommException("Failed to read the snapshot: " + file, e);
+        }
+
+        try {
+            this.locker.lock();
+            contents.keySet().forEach(this::addArea);
         } finally {
             this.locker.unlock();
         }
+        List<S7ServerArea> sortedAreas = this.sortedAreas().stream()
+                .filter(x -> contents.containsKey(x.getName()))
+                .collect(Collectors.toList());
+        long[] stamps = new long[sortedAreas.size()];
+        for (int i = 0; i < sortedAreas.size(); i++) {
+            stamps[i] = sortedAreas.get(i).getLock().writeLock();
+        }
+        try {
+            for (S7ServerArea area : sortedAreas) {
+                byte[] content = contents.get(area.getName());
+                area.copyFrom(0, content, 0, Math.min(content.length, area.size()));
+            }
+        } finally {
+            for (int i = sortedAreas.size() - 1; i >= 0; i--) {
+                sortedAreas.get(i).getLock().unlockWrite(stamps[i]);
+            }
+        }
+        log.debug("Restore {} areas from the snapshot [{}]", sortedAreas.size(), file);
+    }
+
+    /**
+     * Get the areas sorted by key, the locks are always taken in this order to avoid dead lock.
+     * (获取按键排序的区域，总是按该顺序加锁避免死锁)
+     *
+     * @return sorted areas
+     */
+    private List<S7ServerArea> sortedAreas() {
+        return this.areas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        this.flush();
+    }
+
+    /**
+     * Whether the cpu is running.
+     * (CPU是否运行)
+     *
+     * @return true: running, false: stopped
+     */
+    public boolean isCpuRunning() {
+        return this.cpuRunning;
+    }
+
+    /**
+     * Put the block which can be uploaded by the client, replaced by the block downloaded with the same type and number.
+     * (放入客户端可以上传的块，相同类型和编号的块下载后会被替换)
+     *
+     * @param blockType   block type
+     * @param blockNumber block number
+     * @param data        block content
+     */
+    public void putBlock(EFileBlockType blockType, int blockNumber, byte[] data) {
+        this.blocks.put(blockKeyOf(blockType, blockNumber), data.clone());
+    }
+
+    /**
+     * Get the block content.
+     * (获取块的内容)
+     *
+     * @param blockType   block type
+     * @param blockNumber block number
+     * @return block content, null if absent
+     */
+    public byte[] getBlock(EFileBlockType blockType, int blockNumber) {
+        byte[] data = this.blocks.get(blockKeyOf(blockType, blockNumber));
+        return data == null ? null : data.clone();
+    }
+
+    /**
+     * Put the NCK data answered to the client, the line count of the item is ignored.
+     * (放入回复给客户端的NCK数据，忽略请求项的行数)
+     *
+     * @param item NCK request item
+     * @param data NCK data
+     */
+    public void putNckData(RequestNckItem item, byte[] data) {
+        this.nckData.put(nckKeyOf(item), data.clone());
+    }
+
+    private static String blockKeyOf(EFileBlockType blockType, int blockNumber) {
+        return blockType.name() + blockNumber;
+    }
+
+    private static String nckKeyOf(RequestNckItem item) {
+        return item.getArea().name() + "/" + item.getUnit() + "/" + item.getColumnNumber()
+                + "/" + item.getLineNumber() + "/" + item.getModule().name();
+    }
+
+    /**
+     * Get the area of the request item.
+     * (获取请求项对应的区域)
+     *
+     * @param item request item
+     * @return area, null if absent
+     */
+    private S7ServerArea getArea(RequestItem item) {
+        return this.areas.get(S7ServerArea.keyOf(item.getArea(), item.getDbNumber()));
     }
 
     @Override
@@ -152,122 +461,357 @@ public class S7PLCServer extends TcpServerBasic {
     @Override
     protected void doClientHandle(Socket socket) {
         S7Data req = this.readS7DataFromClient(socket);
+        this.write(socket, this.jobHandle(socket.getRemoteSocketAddress(), req));
+    }
+
+    @Override
+    protected LengthFieldFrameDecoder getFrameDecoder() {
+        return LengthFieldFrameDecoder.TPKT;
+    }
+
+    @Override
+    protected byte[] doFrameHandle(TcpServerSession session, byte[] frame) {
+        S7Data req = S7Data.fromBytes(frame);
+        // 选择器引擎中握手也是普通的请求响应
+        if (req.getCotp() instanceof COTPConnection
+                && req.getCotp().getPduType() == EPduType.CONNECT_REQUEST) {
+            return S7Data.createConnectConfirm(req).toByteArray();
+        }
+        if (req.getCotp() instanceof COTPData
+                && req.getParameter() != null
+                && req.getParameter().getFunctionCode() == EFunctionCode.SETUP_COMMUNICATION) {
+            log.debug("The client [{}] handshake succeeded", session.getRemoteAddress());
+            return S7Data.createConnectAckDtData(req).toByteArray();
+        }
+        return this.jobHandle(session.getRemoteAddress(), req);
+    }
+
+    @Override
+    protected void clientDisconnected(Socket socket) {
+        SocketAddress client = socket.getRemoteSocketAddress();
+        if (client == null) {
+            return;
+        }
+        // 客户端断开或中途放弃时清除未完成的上传下载会话，避免块数据一直驻留
+        String downloadPrefix = client + "/";
+        this.downloadSessions.keySet().removeIf(x -> x.startsWith(downloadPrefix));
+        this.uploadSessions.values().removeIf(x -> x.client.equals(client.toString()));
+    }
+
+    /**
+     * Get the number of upload and download sessions in progress.
+     * (获取进行中的上传和下载会话数量)
+     *
+     * @return number of sessions
+     */
+    public int getTransferSessionNumber() {
+        return this.downloadSessions.size() + this.uploadSessions.size();
+    }
+
+    /**
+     * Job handler.
+     * (任务处理)
+     *
+     * @param client client address
+     * @param req    request data
+     * @return response bytes
+     */
+    private byte[] jobHandle(SocketAddress client, S7Data req) {
         if (!(req.getCotp() instanceof COTPData)
                 || req.getCotp().getPduType() != EPduType.DT_DATA
                 || req.getHeader().getMessageType() != EMessageType.JOB) {
-            S7Data response = S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SUPPLIES, 0x8500);
-            this.write(socket, response.toByteArray());
+            return S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SUPPLIES, 0x8500).toByteArray();
         }
 
         try {
             switch (req.getParameter().getFunctionCode()) {
                 case READ_VARIABLE:
-                    this.readVariableHandle(socket, req);
-                    return;
+                    ReadWriteParameter parameter = (ReadWriteParameter) req.getParameter();
+                    if (!parameter.getRequestItems().isEmpty() && parameter.getRequestItems().get(0) instanceof RequestNckItem) {
+                        return this.readNckHandle(client, req);
+                    }
+                    return this.readVariableHandle(client, req);
                 case WRITE_VARIABLE:
-                    this.writeVariableHandle(socket, req);
-                    return;
+                    return this.writeVariableHandle(client, req);
+                case START_DOWNLOAD:
+                case DOWNLOAD:
+                case END_DOWNLOAD:
+                    return this.downloadHandle(client, req);
+                case START_UPLOAD:
+                case UPLOAD:
+                case END_UPLOAD:
+                    return this.uploadHandle(client, req);
+                case PLC_CONTROL:
+                case PLC_STOP:
+                    return this.plcControlHandle(client, req);
                 default:
-                    S7Data response = S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SUPPLIES, 0x8500);
-                    this.write(socket, response.toByteArray());
+                    return S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SUPPLIES, 0x8500).toByteArray();
             }
         } catch (Exception e) {
-            S7Data response = S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SERVICE_PROCESSING, 0x8404);
-            this.write(socket, response.toByteArray());
+            // 客户端[{}]任务处理失败
+            log.error("Client[{}] failed to handle the job, {}", client, e.getMessage(), e);
+            return S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SERVICE_PROCESSING, 0x8404).toByteArray();
         }
     }
 
     /**
-     * Read data handler.
-     * (读数据处理)
+     * Read data handler, the response frame is filled straight from the areas.
+     * (读数据处理，响应帧直接从数据区填充)
      *
-     * @param socket socket object
+     * @param client client address
      * @param req    request data
+     * @return response bytes
      */
-    private void readVariableHandle(Socket socket, S7Data req) {
+    private byte[] readVariableHandle(SocketAddress client, S7Data req) {
         ReadWriteParameter parameter = (ReadWriteParameter) req.getParameter();
-        List<ReturnItem> returnItems = new ArrayList<>();
-        try {
-            this.rwLock.readLock().lock();
-            parameter.getRequestItems().forEach(p1 -> {
-                RequestItem p = (RequestItem) p1;
-                // 判定该区域的数据是否存在
-                String area = AddressUtil.parseArea(p);
-                if (!this.dataMap.containsKey(area)) {
-                    // 客户端[{}]读取[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]，无该区域地址数据
-                    log.error("Client[{}] read [{}] data, area[{}], byte index[{}], bit index[{}], length[{}], no the address data",
-                            socket.getRemoteSocketAddress(), p.getVariableType(), area, p.getByteAddress(), p.getBitAddress(), p.getCount());
-                    returnItems.add(ReturnItem.createDefault(EReturnCode.OBJECT_DOES_NOT_EXIST));
-                    return;
-                }
-                // 提取指定地址的字节数据
-                byte[] bytes = this.dataMap.get(area);
-                ByteReadBuff buff = new ByteReadBuff(bytes);
-                byte[] data;
-                if (p.getVariableType() == EParamVariableType.BYTE) {
-                    data = buff.getBytes(p.getByteAddress(), p.getCount());
-                } else {
-                    byte oldData = buff.getByte(p.getByteAddress());
-                    data = BooleanUtil.getValue(oldData, p.getBitAddress()) ? new byte[]{(byte) 0x01} : new byte[]{(byte) 0x00};
-                }
-                // 客户端[{}]读取[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]，区域地址数据{}
-                log.debug("Client[{}] read [{}] data, area[{}], byte index[{}], bit index[{}], length[{}], address data{}",
-                        socket.getRemoteSocketAddress(), p.getVariableType(), area, p.getByteAddress(), p.getBitAddress(), p.getCount(), data);
-                DataItem dataItem = DataItem.createAckBy(data, p.getVariableType() == EParamVariableType.BYTE ? EDataVariableType.BYTE_WORD_DWORD : EDataVariableType.BIT);
-                returnItems.add(dataItem);
-            });
-        } finally {
-            this.rwLock.readLock().unlock();
+        int size = parameter.getRequestItems().size();
+        S7ServerArea[] itemAreas = new S7ServerArea[size];
+        EReturnCode[] returnCodes = new EReturnCode[size];
+        // 先计算数据部分的长度，再直接从数据区复制到响应帧中
+        int datumLength = 0;
+        for (int i = 0; i < size; i++) {
+            RequestItem p = (RequestItem) parameter.getRequestItems().get(i);
+            int length = p.getVariableType() == EParamVariableType.BYTE ? p.getCount() : 1;
+            itemAreas[i] = this.getArea(p);
+            if (itemAreas[i] == null) {
+                // 客户端[{}]读取[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]，无该区域地址数据
+                log.error("Client[{}] read [{}] data, area[{}], db number[{}], byte index[{}], bit index[{}], length[{}], no the address data",
+                        client, p.getVariableType(), p.getArea(), p.getDbNumber(), p.getByteAddress(), p.getBitAddress(), p.getCount());
+                returnCodes[i] = EReturnCode.OBJECT_DOES_NOT_EXIST;
+            } else if (!itemAreas[i].contains(p.getByteAddress(), length)) {
+                returnCodes[i] = EReturnCode.INVALID_ADDRESS;
+            } else {
+                returnCodes[i] = EReturnCode.SUCCESS;
+            }
+            if (returnCodes[i] != EReturnCode.SUCCESS) {
+                datumLength += 1;
+                continue;
+            }
+            datumLength += 4 + length;
+            // 当数据不是最后一个的时候，如果数据长度为奇数，S7协议会多填充一个字节
+            if (i != size - 1 && length % 2 == 1) {
+                datumLength++;
+            }
+        }
+
+        S7Data head = S7Data.createReadWriteResponse(req, new ArrayList<>());
+        head.getHeader().setDataLength(datumLength);
+        byte[] headBytes = head.toByteArray();
+        byte[] frame = new byte[headBytes.length + datumLength];
+        System.arraycopy(headBytes, 0, frame, 0, headBytes.length);
+        frame[2] = (byte) (frame.length >> 8);
+        frame[3] = (byte) frame.length;
+
+        int offset = headBytes.length;
+        for (int i = 0; i < size; i++) {
+            RequestItem p = (RequestItem) parameter.getRequestItems().get(i);
+            frame[offset++] = returnCodes[i].getCode();
+            if (returnCodes[i] != EReturnCode.SUCCESS) {
+                continue;
+            }
+            if (p.getVariableType() == EParamVariableType.BYTE) {
+                frame[offset++] = EDataVariableType.BYTE_WORD_DWORD.getCode();
+                frame[offset++] = (byte) ((p.getCount() * 8) >> 8);
+                frame[offset++] = (byte) (p.getCount() * 8);
+                itemAreas[i].read(p.getByteAddress(), frame, offset, p.getCount());
+                offset += p.getCount();
+            } else {
+                frame[offset++] = EDataVariableType.BIT.getCode();
+                frame[offset++] = 0x00;
+                frame[offset++] = 0x01;
+                frame[offset++] = itemAreas[i].readBit(p.getByteAddress(), p.getBitAddress()) ? (byte) 0x01 : (byte) 0x00;
+            }
+            // 当数据不是最后一个的时候，如果数据长度为奇数，S7协议会多填充一个字节
+            if (i != size - 1 && (p.getVariableType() != EParamVariableType.BYTE || p.getCount() % 2 == 1)) {
+                offset++;
+            }
+            if (log.isDebugEnabled()) {
+                // 客户端[{}]读取[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]
+                log.debug("Client[{}] read [{}] data, area[{}], byte index[{}], bit index[{}], length[{}]",
+                        client, p.getVariableType(), itemAreas[i].getName(), p.getByteAddress(), p.getBitAddress(), p.getCount());
+            }
         }
-        S7Data ack = S7Data.createReadWriteResponse(req, returnItems);
-        this.write(socket, ack.toByteArray());
+        return frame;
+    }
+
+    /**
+     * Read NCK data handler.
+     * (读NCK数据处理)
+     *
+     * @param client client address
+     * @param req    request data
+     * @return response bytes
+     */
+    private byte[] readNckHandle(SocketAddress client, S7Data req) {
+        ReadWriteParameter parameter = (ReadWriteParameter) req.getParameter();
+        List<ReturnItem> returnItems = new ArrayList<>(parameter.getItemCount());
+        for (RequestBaseItem item : parameter.getRequestItems()) {
+            RequestNckItem p = (RequestNckItem) item;
+            byte[] data = this.nckData.get(nckKeyOf(p));
+            if (data == null) {
+                // 客户端[{}]读取NCK数据，区域[{}]，单元[{}]，列[{}]，行[{}]，模块[{}]，无该数据
+                log.error("Client[{}] read NCK data, area[{}], unit[{}], column[{}], line[{}], module[{}], no the data",
+                        client, p.getArea(), p.getUnit(), p.getColumnNumber(), p.getLineNumber(), p.getModule());
+                returnItems.add(ReturnItem.createDefault(EReturnCode.OBJECT_DOES_NOT_EXIST));
+                continue;
+            }
+            returnItems.add(DataItem.createAckBy(data, EDataVariableType.OCTET_STRING));
+        }
+        return S7Data.createReadWriteResponse(req, returnItems).toByteArray();
+    }
+
+    /**
+     * Download handler, the data of one client is collected until the end of download, then the block is replaced.
+     * (下载处理，收集一个客户端的数据直到下载结束，然后替换块)
+     *
+     * @param client client address
+     * @param req    request data
+     * @return response bytes
+     */
+    private byte[] downloadHandle(SocketAddress client, S7Data req) {
+        DownloadParameter parameter = (DownloadParameter) req.getParameter();
+        String blockKey = blockKeyOf(parameter.getBlockType(), parameter.getBlockNumber());
+        String sessionKey = client + "/" + blockKey;
+        EFunctionCode functionCode = parameter.getFunctionCode();
+        if (functionCode == EFunctionCode.START_DOWNLOAD) {
+            this.downloadSessions.put(sessionKey, new ByteArrayOutputStream());
+            log.debug("Client[{}] start downloading the block [{}]", client, blockKey);
+            return S7Data.createAckResponse(req, new Parameter(functionCode), null).toByteArray();
+        }
+        ByteArrayOutputStream session = functionCode == EFunctionCode.DOWNLOAD
+                ? this.downloadSessions.get(sessionKey)
+                : this.downloadSessions.remove(sessionKey);
+        if (session == null) {
+            // 客户端[{}]下载块[{}]，未开始下载
+            log.error("Client[{}] download the block [{}], the download is not started", client, blockKey);
+            return S7Data.createErrorResponse(req, EErrorClass.ERROR_ON_SERVICE_PROCESSING, 0x8401).toByteArray();
+        }
+        if (functionCode == EFunctionCode.DOWNLOAD) {
+            UpDownloadDatum datum = (UpDownloadDatum) req.getDatum();
+            if (datum != null) {
+                session.write(datum.getData(), 0, datum.getData().length);
+            }
+        } else {
+            this.blocks.put(blockKey, session.toByteArray());
+            log.debug("Client[{}] downloaded the block [{}], length[{}]", client, blockKey, session.size());
+        }
+        return S7Data.createAckResponse(req, new Parameter(functionCode), null).toByteArray();
+    }
+
+    /**
+     * Upload handler, the block content is copied when the upload starts, and sent in chunks.
+     * (上传处理，上传开始时复制块内容，分块发送)
+     *
+     * @param client client address
+     * @param req    request data
+     * @return response bytes
+     */
+    private byte[] uploadHandle(SocketAddress client, S7Data req) {
+        EFunctionCode functionCode = req.getParameter().getFunctionCode();
+        if (functionCode == EFunctionCode.START_UPLOAD) {
+            StartUploadParameter parameter = (StartUploadParameter) req.getParameter();
+            String blockKey = blockKeyOf(parameter.getBlockType(), parameter.getBlockNumber());
+            byte[] data = this.blocks.get(blockKey);
+            if (data == null) {
+                // 客户端[{}]上传块[{}]，无该块
+                log.error("Client[{}] upload the block [{}], no the block", client, blockKey);
+                return S7Data.createErrorResponse(req, EErrorClass.DOWNLOAD_ERROR, 0xD209).toByteArray();
+            }
+            long id = this.uploadId.incrementAndGet() & 0xFFFFFFFFL;
+            this.uploadSessions.put(id, new UploadSession(client.toString(), new ByteReadBuff(data)));
+            log.debug("Client[{}] start uploading the block [{}], id[{}]", client, blockKey, id);
+            StartUploadAckParameter ackParameter = new StartUploadAckParameter();
+            ackParameter.setId(id);
+            ackParameter.setBlockLength(data.length);
+            return S7Data.createAckResponse(req, ackParameter, null).toByteArray();
+        }
+
+        UploadParameter parameter = (UploadParameter) req.getParameter();
+        if (functionCode == EFunctionCode.END_UPLOAD) {
+            this.uploadSessions.remove(parameter.getId());
+            return S7Data.createAckResponse(req, new Parameter(functionCode), null).toByteArray();
+        }
+        UploadAckParameter ackParameter = new UploadAckParameter();
+        UploadSession upload = this.uploadSessions.get(parameter.getId());
+        if (upload == null) {
+            // 客户端[{}]上传编号[{}]，未开始上传
+            log.error("Client[{}] upload id [{}], the upload is not started", client, parameter.getId());
+            ackParameter.setErrorStatus(true);
+            return S7Data.createAckResponse(req, ackParameter, UpDownloadDatum.createUploadData(new byte[0])).toByteArray();
+        }
+        ByteReadBuff session = upload.buff;
+        byte[] data = session.getBytes(Math.min(session.getRemainSize(), UPLOAD_CHUNK_SIZE));
+        ackParameter.setMoreDataFollowing(session.getRemainSize() > 0);
+        return S7Data.createAckResponse(req, ackParameter, UpDownloadDatum.createUploadData(data)).toByteArray();
+    }
+
+    /**
+     * PLC control handler, hot restart and cold restart run the cpu, plc stop stops it, the others are only answered.
+     * (PLC控制处理，热重启和冷重启使CPU运行，PLC停止使其停止，其他的只做响应)
+     *
+     * @param client client address
+     * @param req    request data
+     * @return response bytes
+     */
+    private byte[] plcControlHandle(SocketAddress client, S7Data req) {
+        if (req.getParameter().getFunctionCode() == EFunctionCode.PLC_STOP) {
+            this.cpuRunning = false;
+            log.debug("Client[{}] stop the cpu", client);
+            return S7Data.createAckResponse(req, new Parameter(EFunctionCode.PLC_STOP), null).toByteArray();
+        }
+        PlcControlParameter parameter = (PlcControlParameter) req.getParameter();
+        if (PlcControlParameter.P_PROGRAM.equals(parameter.getPiService())) {
+            this.cpuRunning = true;
+            log.debug("Client[{}] restart the cpu", client);
+        } else {
+            log.debug("Client[{}] execute the service [{}]", client, parameter.getPiService());
+        }
+        return S7Data.createAckResponse(req, new PlcControlAckParameter(), null).toByteArray();
     }
 
     /**
      * Write data handler.
      * (写入数据处理)
      *
-     * @param socket socket object
+     * @param client client address
      * @param req    request data
+     * @return response bytes
      */
-    private void writeVariableHandle(Socket socket, S7Data req) {
+    private byte[] writeVariableHandle(SocketAddress client, S7Data req) {
         ReadWriteParameter parameter = (ReadWriteParameter) req.getParameter();
         ReadWriteDatum datum = (ReadWriteDatum) req.getDatum();
-        List<DataItem> dataItems = datum.getReturnItems().stream().map(DataItem.class::cast).collect(Collectors.toList());
-        List<ReturnItem> returnItems = new ArrayList<>();
-        try {
-            this.rwLock.writeLock().lock();
-            for (int i = 0; i < parameter.getItemCount(); i++) {
-                RequestItem p = (RequestItem) (parameter.getRequestItems().get(i));
-                DataItem d = dataItems.get(i);
-                // 判定该区域的数据是否存在
-                String area = AddressUtil.parseArea(p);
-                if (!this.dataMap.containsKey(area)) {
-                    // 客户端[{}]写入[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]，无该区域地址
-                    log.error("Client[{}] write [{}] data, area[{}], byte index[{}], bit index[{}], length[{}], no the address data",
-                            socket.getRemoteSocketAddress(), p.getVariableType(), area, p.getByteAddress(), p.getBitAddress(), p.getCount());
-                    returnItems.add(ReturnItem.createDefault(EReturnCode.OBJECT_DOES_NOT_EXIST));
-                    continue;
-                }
-                // 写入指定地址的数据
-                byte[] bytes = this.dataMap.get(area);
-                if (p.getVariableType() == EParamVariableType.BYTE) {
-                    System.arraycopy(d.getData(), 0, bytes, p.getByteAddress(), d.getData().length);
-                } else {
-                    byte newData = BooleanUtil.setBit(bytes[p.getByteAddress()], p.getBitAddress(), d.getData()[0] == 1);
-                    System.arraycopy(new byte[]{newData}, 0, bytes, p.getByteAddress(), 1);
-                }
+        List<ReturnItem> returnItems = new ArrayList<>(parameter.getItemCount());
+        for (int i = 0; i < parameter.getItemCount(); i++) {
+            RequestItem p = (RequestItem) (parameter.getRequestItems().get(i));
+            DataItem d = (DataItem) datum.getReturnItems().get(i);
+            // 判定该区域的数据是否存在
+            S7ServerArea area = this.getArea(p);
+            if (area == null) {
+                // 客户端[{}]写入[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]，无该区域地址
+                log.error("Client[{}] write [{}] data, area[{}], db number[{}], byte index[{}], bit index[{}], length[{}], no the address data",
+                        client, p.getVariableType(), p.getArea(), p.getDbNumber(), p.getByteAddress(), p.getBitAddress(), p.getCount());
+                returnItems.add(ReturnItem.createDefault(EReturnCode.OBJECT_DOES_NOT_EXIST));
+                continue;
+            }
+            int length = p.getVariableType() == EParamVariableType.BYTE ? d.getData().length : 1;
+            if (!area.contains(p.getByteAddress(), length)) {
+                returnItems.add(ReturnItem.createDefault(EReturnCode.INVALID_ADDRESS));
+                continue;
+            }
+            // 写入指定地址的数据
+            if (p.getVariableType() == EParamVariableType.BYTE) {
+                area.write(p.getByteAddress(), d.getData(), 0, length);
+            } else {
+                area.writeBit(p.getByteAddress(), p.getBitAddress(), d.getData()[0] == 1);
+            }
+            if (log.isDebugEnabled()) {
                 // 客户端[{}]写入[{}]数据，区域[{}]，字节索引[{}]，位索引[{}]，长度[{}]，区域地址数据{}
                 log.debug("Client[{}] write [{}] data, area[{}], byte index[{}], bit index[{}], length[{}], address data{}",
-                        socket.getRemoteSocketAddress(), p.getVariableType(), area, p.getByteAddress(), p.getBitAddress(), p.getCount(), d.getData());
-                returnItems.add(ReturnItem.createDefault(EReturnCode.SUCCESS));
+                        client, p.getVariableType(), area.getName(), p.getByteAddress(), p.getBitAddress(), p.getCount(), d.getData());
             }
-        } finally {
-            this.rwLock.writeLock().unlock();
+            returnItems.add(ReturnItem.createDefault(EReturnCode.SUCCESS));
         }
-
-        S7Data ack = S7Data.createReadWriteResponse(req, returnItems);
-        this.write(socket, ack.toByteArray());
+        return S7Data.createReadWriteResponse(req, returnItems).toByteArray();
     }
 
     /**
@@ -293,6 +837,8 @@ public class S7PLCServer extends TcpServerBasic {
     protected byte[] readClientData(Socket socket) {
         try {
             InputStream in = socket.getInputStream();
+            // 等待请求的时间即空闲时间
+            socket.setSoTimeout(this.idleTimeout);
             int firstByte = in.read();
             if (firstByte == -1) {
                 SocketUtils.close(socket);
@@ -312,4 +858,20 @@ public class S7PLCServer extends TcpServerBasic {
             throw new SocketRuntimeException(e);
         }
     }
+
+    /**
+     * Upload session, bound to the client which started the upload.
+     * (上传会话，与开始上传的客户端绑定)
+     */
+    private static final class UploadSession {
+
+        private final String client;
+
+        private final ByteReadBuff buff;
+
+        private UploadSession(String client, ByteReadBuff buff) {
+            this.client = client;
+            this.buff = buff;
+        }
+    }
 }
@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.service;
+
+
+import com.github.xingshuangs.iot.exceptions.S7CommException;
+import com.github.xingshuangs.iot.protocol.s7.enums.EArea;
+import com.github.xingshuangs.iot.utils.BooleanUtil;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Data area of the S7 server, every area has its own lock, reads are optimistic and retried with the read lock
+ * when a write happened meanwhile.
+ * (S7服务端的数据区，每个区有自己的锁，读取为乐观读，期间有写入时再用读锁重试)
+ *
+ * @author xingshuang
+ */
+public class S7ServerArea {
+
+    /**
+     * Area name, e.g. DB1, M, I.
+     * (区域名称)
+     */
+    private final String name;
+
+    /**
+     * Backing buffer.
+     * (存储缓冲区)
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Backing array, null if the buffer is not on heap.
+     * (存储数组，缓冲区不在堆上时为null)
+     */
+    private final byte[] array;
+
+    private final int arrayOffset;
+
+    private final StampedLock lock = new StampedLock();
+
+    public S7ServerArea(String name, int size) {
+        this(name, ByteBuffer.allocate(size));
+    }
+
+    public S7ServerArea(String name, ByteBuffer buffer) {
+        this.name = name;
+        this.buffer = buffer;
+        this.array = buffer.hasArray() ? buffer.array() : null;
+        this.arrayOffset = buffer.hasArray() ? buffer.arrayOffset() : 0;
+    }
+
+    /**
+     * Create the area backed by a memory mapped file, the file is created if absent, the content survives restarts.
+     * (创建由内存映射文件支撑的区域，文件不存在则创建，内容在重启后依然保留)
+     *
+     * @param name area name
+     * @param file file path
+     * @param size area size in byte
+     * @return area
+     */
+    public static S7ServerArea mapFile(String name, Path file, int size) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射关闭通道后依然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new S7ServerArea(name, buffer);
+        } catch (IOException e) {
+            throw new S7CommException("Failed to map the area file: " + file, e);
+        }
+    }
+
+    /**
+     * Get the integer key of the area by name, e.g. DB1, M, I, Q, T, C.
+     * (根据名称获取区域的整数键)
+     *
+     * @param name area name
+     * @return key
+     */
+    public static int keyOf(String name) {
+        switch (name) {
+            case "I":
+                return keyOf(EArea.INPUTS, 0);
+            case "Q":
+                return keyOf(EArea.OUTPUTS, 0);
+            case "M":
+                return keyOf(EArea.FLAGS, 0);
+            case "T":
+                return keyOf(EArea.S7_TIMERS, 0);
+            case "C":
+                return keyOf(EArea.S7_COUNTERS, 0);
+            default:
+                if (name.matches("DB\\d{1,5}") && Integer.parseInt(name.substring(2)) <= 0xFFFF) {
+                    return keyOf(EArea.DATA_BLOCKS, Integer.parseInt(name.substring(2)));
+                }
+                // 无法解析的区域名称
+                throw new IllegalArgumentException("The area name could not be resolved: " + name);
+        }
+    }
+
+    /**
+     * Get the integer key of the area.
+     * (获取区域的整数键)
+     *
+     * @param area     area
+     * @param dbNumber db number, only for DB
+     * @return key
+     */
+    public static int keyOf(EArea area, int dbNumber) {
+        return area == EArea.DATA_BLOCKS ? dbNumber : 0x10000 | (area.getCode() & 0xFF);
+    }
+
+    /**
+     * Get the area name.
+     * (获取区域名称)
+     *
+     * @return name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the backing buffer, access it without the lock is not thread safe.
+     * (获取存储缓冲区，不加锁访问非线程安全)
+     *
+     * @return buffer
+     */
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Get the area size in byte.
+     * (获取区域字节大小)
+     *
+     * @return size
+     */
+    public int size() {
+        return this.buffer.capacity();
+    }
+
+    /**
+     * Whether the range is in the area.
+     * (范围是否在区域内)
+     *
+     * @param offset byte offset
+     * @param length byte length
+     * @return true: in, false: out
+     */
+    public boolean contains(int offset, int length) {
+        return offset >= 0 && length >= 0 && offset + length <= this.buffer.capacity();
+    }
+
+    /**
+     * Read bytes into the destination.
+     * (读取字节到目标数组)
+     *
+     * @param offset    byte offset in area
+     * @param dst       destination
+     * @param dstOffset offset in destination
+     * @param length    byte length
+     */
+    public void read(int offset, byte[] dst, int dstOffset, int length) {
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            this.copyTo(offset, dst, dstOffset, length);
+            if (this.lock.validate(stamp)) {
+                return;
+            }
+        }
+        stamp = this.lock.readLock();
+        try {
+            this.copyTo(offset, dst, dstOffset, length);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Read bytes.
+     * (读取字节)
+     *
+     * @param offset byte offset
+     * @param length byte length
+     * @return bytes
+     */
+    public byte[] read(int offset, int length) {
+        byte[] data = new byte[length];
+        this.read(offset, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Read bit.
+     * (读取位)
+     *
+     * @param offset byte offset
+     * @param bit    bit index
+     * @return bit value
+     */
+    public boolean readBit(int offset, int bit) {
+        long stamp = this.lock.tryOptimisticRead();
+        boolean value = BooleanUtil.getValue(this.buffer.get(offset), bit);
+        if (stamp != 0 && this.lock.validate(stamp)) {
+            return value;
+        }
+        stamp = this.lock.readLock();
+        try {
+            return BooleanUtil.getValue(this.buffer.get(offset), bit);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Write bytes from the source.
+     * (从源数组写入字节)
+     *
+     * @param offset    byte offset in area
+     * @param src       source
+     * @param srcOffset offset in source
+     * @param length    byte length
+     */
+    public void write(int offset, byte[] src, int srcOffset, int length) {
+        long stamp = this.lock.writeLock();
+        try {
+            this.copyFrom(offset, src, srcOffset, length);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write bit.
+     * (写入位)
+     *
+     * @param offset byte offset
+     * @param bit    bit index
+     * @param value  bit value
+     */
+    public void writeBit(int offset, int bit, boolean value) {
+        long stamp = this.lock.writeLock();
+        try {
+            this.buffer.put(offset, BooleanUtil.setBit(this.buffer.get(offset), bit, value));
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Force the content to the storage device if backed by a memory mapped file.
+     * (若由内存映射文件支撑，将内容刷写到存储设备)
+     */
+    public void force() {
+        if (this.buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) this.buffer).force();
+        }
+    }
+
+    /**
+     * Get the lock, used to lock several areas together.
+     * (获取锁，用于同时锁定多个区域)
+     *
+     * @return lock
+     */
+    StampedLock getLock() {
+        return this.lock;
+    }
+
+    /**
+     * Copy bytes without the lock.
+     * (不加锁复制字节)
+     *
+     * @param offset    byte offset in area
+     * @param dst       destination
+     * @param dstOffset offset in destination
+     * @param length    byte length
+     */
+    void copyTo(int offset, byte[] dst, int dstOffset, int length) {
+        if (this.array != null) {
+            System.arraycopy(this.array, this.arrayOffset + offset, dst, dstOffset, length);
+        } else {
+            ByteBuffer source = this.buffer.duplicate();
+            // 转为Buffer调用，避免JDK 9+编译后在Java 8上找不到ByteBuffer的重写方法
+            ((Buffer) source).position(offset);
+            source.get(dst, dstOffset, length);
+        }
+    }
+
+    /**
+     * Copy bytes into the area without the lock.
+     * (不加锁复制字节到区域)
+     *
+     * @param offset    byte offset in area
+     * @param src       source
+     * @param srcOffset offset in source
+     * @param length    byte length
+     */
+    void copyFrom(int offset, byte[] src, int srcOffset, int length) {
+        if (this.array != null) {
+            System.arraycopy(src, srcOffset, this.array, this.arrayOffset + offset, length);
+        } else {
+            ByteBuffer target = this.buffer.duplicate();
+            ((Buffer) target).position(offset);
+            target.put(src, srcOffset, length);
+        }
+    }
+}
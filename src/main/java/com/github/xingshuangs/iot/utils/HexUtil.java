@@ -27,6 +27,8 @@ package com.github.xingshuangs.iot.utils;
 
 import com.github.xingshuangs.iot.exceptions.HexParseException;
 
+import java.util.Arrays;
+
 /**
  * Hex tool.
  *
@@ -48,6 +50,32 @@ public class HexUtil {
      */
     private static final String REGEX = "^[a-f0-9A-F]+$";
 
+    /**
+     * Upper case digit characters, index is the digit value.
+     * (大写数字字符表，下标即数值)
+     */
+    private static final char[] UPPER_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Lower case digit characters, index is the digit value.
+     * (小写数字字符表，下标即数值)
+     */
+    private static final char[] LOWER_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Digit value of the ascii character, -1: not a hex digit.
+     * (ASCII字符对应的数值，-1：非16进制字符)
+     */
+    private static final byte[] DIGIT_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(DIGIT_VALUES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            DIGIT_VALUES[UPPER_DIGITS[i]] = (byte) i;
+            DIGIT_VALUES[LOWER_DIGITS[i]] = (byte) i;
+        }
+    }
+
     /**
      * Converts a string to a hexadecimal array, string like 1a6BdE8c.
      * (将字符串转换为16进制的数组)
@@ -115,14 +143,113 @@ public class HexUtil {
         if (src == null || src.length == 0) {
             return "";
         }
-        StringBuilder sb = new StringBuilder();
-        String format = upperCase ? "%02X" : "%02x";
+        char[] digits = upperCase ? UPPER_DIGITS : LOWER_DIGITS;
+        StringBuilder sb = new StringBuilder(src.length * (2 + splitStr.length()));
         for (int i = 0; i < src.length; i++) {
-            sb.append(String.format(format, src[i]));
+            sb.append(digits[(src[i] >> 4) & 0x0F]).append(digits[src[i] & 0x0F]);
             if (i != src.length - 1) {
                 sb.append(splitStr);
             }
         }
         return sb.toString().trim();
     }
+
+    /**
+     * Encodes the bytes as upper case ascii hex characters into the destination, 2 characters per byte.
+     * (将字节编码为大写的ASCII16进制字符写入目标数组，每个字节2个字符)
+     *
+     * @param src       source byte array
+     * @param srcOffset source offset
+     * @param length    number of bytes
+     * @param dst       destination byte array
+     * @param dstOffset destination offset
+     */
+    public static void toAsciiHex(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            int value = src[srcOffset + i];
+            dst[dstOffset + 2 * i] = (byte) UPPER_DIGITS[(value >> 4) & 0x0F];
+            dst[dstOffset + 2 * i + 1] = (byte) UPPER_DIGITS[value & 0x0F];
+        }
+    }
+
+    /**
+     * Decodes the ascii hex characters into the destination, 2 characters per byte.
+     * (将ASCII16进制字符解码写入目标数组，每2个字符对应1个字节)
+     *
+     * @param src       source ascii byte array
+     * @param srcOffset source offset
+     * @param length    number of decoded bytes
+     * @param dst       destination byte array
+     * @param dstOffset destination offset
+     * @throws HexParseException the character is not [0-9|a-f|A-F]
+     */
+    public static void fromAsciiHex(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++) {
+            int high = digitOf(src[srcOffset + 2 * i], 16);
+            int low = digitOf(src[srcOffset + 2 * i + 1], 16);
+            dst[dstOffset + i] = (byte) ((high << 4) | low);
+        }
+    }
+
+    /**
+     * Encodes the value as fixed width upper case ascii digits, padded with '0' on the left.
+     * (将数值编码为定长的大写ASCII数字字符，左侧补'0')
+     *
+     * @param value  non-negative value
+     * @param radix  radix, 2 ~ 16
+     * @param dst    destination byte array
+     * @param offset destination offset
+     * @param width  number of characters
+     * @throws HexParseException the value does not fit the width
+     */
+    public static void toAsciiDigits(long value, int radix, byte[] dst, int offset, int width) {
+        if (value < 0) {
+            throw new HexParseException("The value cannot be negative, value=" + value);
+        }
+        long remain = value;
+        for (int i = offset + width - 1; i >= offset; i--) {
+            dst[i] = (byte) UPPER_DIGITS[(int) (remain % radix)];
+            remain /= radix;
+        }
+        if (remain != 0) {
+            // 数值超出了字符宽度
+            throw new HexParseException(String.format("The value %d exceeds %d digits of radix %d", value, width, radix));
+        }
+    }
+
+    /**
+     * Decodes the fixed width ascii digits to the value.
+     * (将定长的ASCII数字字符解码为数值)
+     *
+     * @param src    source ascii byte array
+     * @param offset source offset
+     * @param width  number of characters
+     * @param radix  radix, 2 ~ 16
+     * @return value
+     * @throws HexParseException the character is not a digit of the radix
+     */
+    public static long fromAsciiDigits(byte[] src, int offset, int width, int radix) {
+        long res = 0;
+        for (int i = offset; i < offset + width; i++) {
+            res = res * radix + digitOf(src[i], radix);
+        }
+        return res;
+    }
+
+    /**
+     * Get the digit value of the ascii character.
+     * (获取ASCII字符对应的数值)
+     *
+     * @param ch    ascii character
+     * @param radix radix
+     * @return digit value
+     */
+    private static int digitOf(byte ch, int radix) {
+        int value = ch < 0 ? -1 : DIGIT_VALUES[ch];
+        if (value < 0 || value >= radix) {
+            // 字符不是有效的数字
+            throw new HexParseException(String.format("The character 0x%02X is not a digit of radix %d", ch & 0xFF, radix));
+        }
+        return value;
+    }
 }
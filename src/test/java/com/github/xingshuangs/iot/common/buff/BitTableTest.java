@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.common.buff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class BitTableTest {
+
+    @Test
+    public void getAndSet() {
+        BitTable table = new BitTable(BitTable.MAX_SIZE);
+        table.set(0, true);
+        table.set(63, true);
+        table.set(64, true);
+        table.set(65535, true);
+        assertTrue(table.get(0));
+        assertFalse(table.get(1));
+        assertTrue(table.get(63));
+        assertTrue(table.get(64));
+        assertTrue(table.get(65535));
+        table.set(63, false);
+        assertFalse(table.get(63));
+    }
+
+    @Test
+    public void getBytes() {
+        BitTable table = new BitTable(200);
+        table.set(60, true);
+        table.set(62, true);
+        table.set(66, true);
+        table.set(69, true);
+        // 60~69 -> 1010001001
+        assertArrayEquals(new byte[]{0x45, 0x02}, table.getBytes(60, 10));
+        assertArrayEquals(new byte[]{0x01}, table.getBytes(62, 1));
+        assertArrayEquals(new byte[]{0x00}, table.getBytes(63, 3));
+    }
+
+    @Test
+    public void setBytes() {
+        BitTable table = new BitTable(200);
+        table.setBytes(60, 10, new byte[]{0x45, (byte) 0xFE});
+        assertTrue(table.get(60));
+        assertFalse(table.get(61));
+        assertTrue(table.get(62));
+        assertTrue(table.get(66));
+        assertTrue(table.get(69));
+        assertFalse(table.get(70));
+        assertArrayEquals(new byte[]{0x45, 0x02}, table.getBytes(60, 10));
+
+        byte[] all = new byte[25];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) (i * 37);
+        }
+        table.setBytes(0, 200, all);
+        assertArrayEquals(all, table.getBytes(0, 200));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRange() {
+        new BitTable(16).getBytes(10, 7);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.algorithm;
+
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McAddressItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class McMergeReadAlgTest {
+
+    private final List<McAddressItem> src = Arrays.asList(
+            McAddressItem.createBy("D102", EDataType.INT32),
+            McAddressItem.createBy("M25"),
+            McAddressItem.createBy("D100"),
+            McAddressItem.createBy("W1A0", EDataType.FLOAT32),
+            McAddressItem.createBy("D500", EDataType.UINT16),
+            McAddressItem.createBy("M20"),
+            McAddressItem.createBy("D110"),
+            McAddressItem.createBy("M21"),
+            McAddressItem.createBy("W1A9", EDataType.UINT16));
+
+    private McMergeReadAlg merge(EMcSeries series, boolean blocksSupported) {
+        return McMergeReadAlg.merge(this.src, series, blocksSupported,
+                McMergeReadAlg.DEFAULT_MAX_WORD_GAP, McMergeReadAlg.DEFAULT_MAX_BIT_GAP);
+    }
+
+    @Test
+    public void merge() {
+        McMergeReadAlg alg = this.merge(EMcSeries.Q_L, false);
+        List<McMergeBlock> blocks = alg.getMergedBlocks();
+        assertEquals(4, blocks.size());
+        assertEquals("M", blocks.get(0).getDeviceCode().getSymbol());
+        assertEquals(20, blocks.get(0).getHeadDeviceNumber());
+        assertEquals(6, blocks.get(0).getDevicePointsCount());
+        assertEquals(100, blocks.get(1).getHeadDeviceNumber());
+        assertEquals(11, blocks.get(1).getDevicePointsCount());
+        assertEquals(500, blocks.get(2).getHeadDeviceNumber());
+        assertEquals(1, blocks.get(2).getDevicePointsCount());
+        assertEquals(0x1A0, blocks.get(3).getHeadDeviceNumber());
+        assertEquals(10, blocks.get(3).getDevicePointsCount());
+
+        assertEquals(new McMergeItem(1, 2), alg.getPositions().get(0));
+        assertEquals(new McMergeItem(0, 5), alg.getPositions().get(1));
+        assertEquals(new McMergeItem(1, 10), alg.getPositions().get(6));
+        assertEquals(new McMergeItem(3, 9), alg.getPositions().get(8));
+
+        // 3E：小数据块随机读取，其他批量读取
+        assertEquals(EMcCommand.DEVICE_ACCESS_RANDOM_READ_IN_UNITS, blocks.get(0).getCommand());
+        assertEquals(EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS, blocks.get(1).getCommand());
+        assertEquals(EMcCommand.DEVICE_ACCESS_RANDOM_READ_IN_UNITS, blocks.get(2).getCommand());
+        assertEquals(EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS, blocks.get(3).getCommand());
+        assertEquals(3, alg.getRequestCount());
+    }
+
+    @Test
+    public void mergeMultiBlocks() {
+        // 全部多块批量读取只需要1次请求，少于随机读取+多块批量读取的2次
+        McMergeReadAlg alg = this.merge(EMcSeries.Q_L, true);
+        assertEquals(1, alg.getRequestCount());
+        alg.getMergedBlocks().forEach(x -> {
+            assertEquals(EMcCommand.DEVICE_ACCESS_BATCH_READ_MULTIPLE_BLOCKS, x.getCommand());
+            assertEquals(0, x.getGroupIndex());
+        });
+    }
+
+    @Test
+    public void mergeFrame1E() {
+        // A系列批量读取最多10个字，不支持随机读取
+        McMergeReadAlg alg = this.merge(EMcSeries.A, false);
+        List<McMergeBlock> blocks = alg.getMergedBlocks();
+        assertEquals(5, blocks.size());
+        assertEquals(4, blocks.get(1).getDevicePointsCount());
+        assertEquals(110, blocks.get(2).getHeadDeviceNumber());
+        blocks.forEach(x -> assertEquals(EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS, x.getCommand()));
+        assertEquals(5, alg.getRequestCount());
+    }
+
+    @Test
+    public void mergeRandomLimit() {
+        List<McAddressItem> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(McAddressItem.createBy("D" + i * 100));
+        }
+        McMergeReadAlg alg = McMergeReadAlg.merge(items, EMcSeries.QnA, false,
+                McMergeReadAlg.DEFAULT_MAX_WORD_GAP, McMergeReadAlg.DEFAULT_MAX_BIT_GAP);
+        assertEquals(100, alg.getMergedBlocks().size());
+        assertEquals(2, alg.getRequestCount());
+        assertEquals(0, alg.getMergedBlocks().get(95).getGroupIndex());
+        assertEquals(1, alg.getMergedBlocks().get(96).getGroupIndex());
+
+        assertThrows(IllegalArgumentException.class, () -> McMergeReadAlg.merge(items, EMcSeries.QnA, false, -1, 0));
+    }
+
+    @Test
+    public void split() {
+        McMergeReadAlg alg = this.merge(EMcSeries.Q_L, false);
+        byte[] d100 = new byte[22];
+        d100[0] = (byte) 0xFE;
+        d100[1] = (byte) 0xFF;
+        d100[4] = 0x45;
+        d100[5] = 0x23;
+        d100[6] = 0x01;
+        d100[20] = 0x07;
+        byte[] w1a0 = new byte[20];
+        w1a0[2] = (byte) 0xC0;
+        w1a0[3] = 0x3F;
+        w1a0[18] = (byte) 0xFF;
+        w1a0[19] = (byte) 0xFF;
+        List<byte[]> blockDatas = Arrays.asList(new byte[]{0x21, 0x00}, d100, new byte[]{0x34, 0x12}, w1a0);
+        List<Object> values = alg.split(this.src, blockDatas);
+        assertEquals(Arrays.asList(0x12345, true, (short) -2, 1.5f, 0x1234, true, (short) 7, false, 0xFFFF), values);
+    }
+
+    @Test
+    public void splitBitUnits() {
+        McMergeReadAlg alg = this.merge(EMcSeries.A, false);
+        List<byte[]> blockDatas = Arrays.asList(new byte[]{0x10, 0x00, 0x01}, new byte[8], new byte[2],
+                new byte[2], new byte[20]);
+        List<Object> values = alg.split(this.src, blockDatas);
+        assertEquals(true, values.get(1));
+        assertEquals(true, values.get(5));
+        assertEquals(false, values.get(7));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.model;
+
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcCommand;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+
+public class McAsciiCodecTest {
+
+    private static String encode(McMessageReq req) {
+        return new String(McAsciiCodec.encode(req), StandardCharsets.US_ASCII);
+    }
+
+    private static McMessageAck decode(String ack, McMessageReq req) {
+        return McAsciiCodec.decode(ack.getBytes(StandardCharsets.US_ASCII), req);
+    }
+
+    @Test
+    public void readDeviceBatchInWord3E() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchInWordReq(EMcSeries.Q_L, header,
+                new McDeviceAddress(EMcDeviceCode.D, 100, 3));
+        assertEquals("500000FF03FF000018000A04010000D*0001000003", encode(req));
+
+        McMessageAck ack = decode("D00000FF03FF00001000001234ABCD0005", req);
+        assertEquals(0x00D0, ack.getHeader().getSubHeader());
+        assertEquals(0, ack.getHeader().getEndCode());
+        assertEquals(8, ((McHeader3EAck) ack.getHeader()).getDataLength());
+        assertArrayEquals(new byte[]{0x34, 0x12, (byte) 0xCD, (byte) 0xAB, 0x05, 0x00}, ((McAckData) ack.getData()).getData());
+    }
+
+    @Test
+    public void readDeviceBatchInBit3E() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchInBitReq(EMcSeries.Q_L, header,
+                new McDeviceAddress(EMcDeviceCode.X, 0x1A0, 5));
+        assertEquals("500000FF03FF000018000A04010001X*0001A00005", encode(req));
+
+        McMessageAck ack = decode("D00000FF03FF000009000010011", req);
+        assertArrayEquals(new byte[]{0x10, 0x01, 0x10}, ((McAckData) ack.getData()).getData());
+    }
+
+    @Test
+    public void writeDeviceBatch3E() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createWriteDeviceBatchInWordReq(EMcSeries.Q_L, header,
+                new McDeviceContent(EMcDeviceCode.D, 100, 2, new byte[]{0x34, 0x12, (byte) 0xCD, (byte) 0xAB}));
+        assertEquals("500000FF03FF000020000A14010000D*00010000021234ABCD", encode(req));
+
+        header = new McHeader3EReq(2500);
+        req = McReqBuilder.createWriteDeviceBatchInBitReq(EMcSeries.Q_L, header,
+                new McDeviceContent(EMcDeviceCode.M, 100, 3, new byte[]{0x10, 0x10}));
+        assertEquals("500000FF03FF00001B000A14010001M*0001000003101", encode(req));
+    }
+
+    @Test
+    public void readDeviceBatch4EAndIqr() {
+        McHeader4EReq header = new McHeader4EReq(2500);
+        header.setSerialNumber(0x1234);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchInWordReq(EMcSeries.IQ_R, header,
+                new McDeviceAddress(EMcDeviceCode.D, 100, 1));
+        assertEquals("540012340000" + "00FF03FF00" + "001C" + "000A" + "04010002D***000001000001", encode(req));
+        assertEquals(0x1234, (int) McAsciiCodec.extractSerialNumber(encode(req).getBytes(StandardCharsets.US_ASCII)));
+
+        McMessageAck ack = decode("D40012340000" + "00FF03FF00" + "0008" + "0000" + "0064", req);
+        assertEquals(EMcFrameType.FRAME_4E.getAckSubHeader(), ack.getHeader().getSubHeader());
+        assertEquals(0x1234, ((McHeader4EAck) ack.getHeader()).getSerialNumber());
+        assertArrayEquals(new byte[]{0x64, 0x00}, ((McAckData) ack.getData()).getData());
+    }
+
+    @Test
+    public void deviceRandom3E() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createReadDeviceRandomInWordReq(EMcSeries.Q_L, header,
+                Arrays.asList(new McDeviceAddress(EMcDeviceCode.D, 0), new McDeviceAddress(EMcDeviceCode.TN, 0)),
+                Collections.singletonList(new McDeviceAddress(EMcDeviceCode.D, 1500)));
+        assertEquals("500000FF03FF000028000A040300000201D*000000TN000000D*001500", encode(req));
+
+        McMessageAck ack = decode("D00000FF03FF00001400000001000212345678", req);
+        assertArrayEquals(new byte[]{0x01, 0x00, 0x02, 0x00, 0x78, 0x56, 0x34, 0x12}, ((McAckData) ack.getData()).getData());
+
+        header = new McHeader3EReq(2500);
+        req = McReqBuilder.createWriteDeviceRandomInWordReq(EMcSeries.Q_L, header,
+                Collections.singletonList(new McDeviceContent(EMcDeviceCode.D, 0, new byte[]{0x50, 0x05})),
+                Collections.singletonList(new McDeviceContent(EMcDeviceCode.D, 1500, new byte[]{0x78, 0x56, 0x34, 0x12})));
+        assertEquals("500000FF03FF00002C000A140200000101D*0000000550D*00150012345678", encode(req));
+
+        header = new McHeader3EReq(2500);
+        req = McReqBuilder.createWriteDeviceRandomInBitReq(EMcSeries.Q_L, header,
+                Arrays.asList(new McDeviceContent(EMcDeviceCode.M, 50, new byte[]{0x00}),
+                        new McDeviceContent(EMcDeviceCode.Y, 0x2F, new byte[]{0x01})));
+        assertEquals("500000FF03FF000022000A1402000102M*00005000Y*00002F01", encode(req));
+    }
+
+    @Test
+    public void deviceBatchMultiBlocks4E() {
+        McHeaderReq header = new McHeader4EReq(2500);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchMultiBlocksReq(EMcSeries.Q_L, header,
+                Collections.singletonList(new McDeviceAddress(EMcDeviceCode.D, 0, 2)),
+                Collections.singletonList(new McDeviceAddress(EMcDeviceCode.M, 0, 1)));
+        assertEquals("540000000000" + "00FF03FF00" + "0028" + "000A" + "040600000101D*0000000002M*0000000001", encode(req));
+
+        McMessageAck ack = decode("D40000000000" + "00FF03FF00" + "0010" + "0000" + "000100020003", req);
+        assertArrayEquals(new byte[]{0x01, 0x00, 0x02, 0x00, 0x03, 0x00}, ((McAckData) ack.getData()).getData());
+
+        header = new McHeader4EReq(2500);
+        req = McReqBuilder.createWriteDeviceBatchMultiBlocksReq(EMcSeries.Q_L, header,
+                Collections.singletonList(new McDeviceContent(EMcDeviceCode.D, 0, 1, new byte[]{0x34, 0x12})),
+                Collections.singletonList(new McDeviceContent(EMcDeviceCode.M, 16, 1, new byte[]{0x05, 0x00})));
+        assertEquals("540000000000" + "00FF03FF00" + "0030" + "000A" + "140600000101D*00000000011234M*00001600010005", encode(req));
+    }
+
+    @Test
+    public void monitor3E() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createRegisterMonitorReq(EMcSeries.Q_L, header,
+                Collections.singletonList(new McDeviceAddress(EMcDeviceCode.D, 0)),
+                Collections.singletonList(new McDeviceAddress(EMcDeviceCode.D, 2)));
+        assertEquals("500000FF03FF000020000A080100000101D*000000D*000002", encode(req));
+
+        header = new McHeader3EReq(2500);
+        req = McReqBuilder.createExecuteMonitorReq(EMcSeries.Q_L, header);
+        assertEquals("500000FF03FF00000C000A08020000", encode(req));
+        McExecuteMonitorReqData data = (McExecuteMonitorReqData) req.getData();
+        data.setWordCount(1);
+        data.setDwordCount(1);
+        McMessageAck ack = decode("D00000FF03FF0000100000000112345678", req);
+        assertArrayEquals(new byte[]{0x01, 0x00, 0x78, 0x56, 0x34, 0x12}, ((McAckData) ack.getData()).getData());
+    }
+
+    @Test
+    public void frame1E() {
+        McHeaderReq header = new McHeader1EReq(new McFrame1EAccessRoute(), 2500);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchInWordReq(EMcSeries.A, header,
+                new McDeviceAddress(EMcDeviceCode.D, 50, 2));
+        assertEquals("01FF000A4420000000320200", encode(req));
+        McMessageAck ack = decode("810012345678", req);
+        assertEquals(0x81, ack.getHeader().getSubHeader());
+        assertArrayEquals(new byte[]{0x34, 0x12, 0x78, 0x56}, ((McAckData) ack.getData()).getData());
+
+        header = new McHeader1EReq(new McFrame1EAccessRoute(), 2500);
+        req = McReqBuilder.createReadDeviceBatchInBitReq(EMcSeries.A, header,
+                new McDeviceAddress(EMcDeviceCode.X, 0x40, 3));
+        assertEquals("00FF000A5820000000400300", encode(req));
+        ack = decode("8000101", req);
+        assertArrayEquals(new byte[]{0x10, 0x10}, ((McAckData) ack.getData()).getData());
+
+        ack = decode("805B10", req);
+        assertEquals(0x5B, ack.getHeader().getEndCode());
+        assertEquals(0x10, ((McError1EData) ack.getData()).getError());
+    }
+
+    @Test
+    public void errorAck3E() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchInWordReq(EMcSeries.Q_L, header,
+                new McDeviceAddress(EMcDeviceCode.D, 100, 1));
+        McMessageAck ack = decode("D00000FF03FF000016C05900FF03FF0004010000", req);
+        assertEquals(0xC059, ack.getHeader().getEndCode());
+        McError4E3EData errorData = (McError4E3EData) ack.getData();
+        assertEquals(EMcCommand.DEVICE_ACCESS_BATCH_READ_IN_UNITS, errorData.getCommand());
+        assertEquals(0x03FF, ((McFrame4E3EAccessRoute) errorData.getAccessRoute()).getRequestDestModuleIoNumber());
+    }
+
+    @Test
+    public void invalidAck() {
+        McHeaderReq header = new McHeader3EReq(2500);
+        McMessageReq req = McReqBuilder.createReadDeviceBatchInWordReq(EMcSeries.Q_L, header,
+                new McDeviceAddress(EMcDeviceCode.D, 100, 1));
+        // 长度不一致
+        assertThrows(McCommException.class, () -> decode("D00000FF03FF000010000012", req));
+        // 非16进制字符
+        assertThrows(McCommException.class, () -> decode("D00000FF03FF0000080000G012", req));
+        // QnA系列没有LZ的ASCII代码
+        McMessageReq lzReq = McReqBuilder.createReadDeviceBatchInWordReq(EMcSeries.QnA, new McHeader3EReq(2500),
+                new McDeviceAddress(EMcDeviceCode.LZ, 0, 1));
+        assertThrows(McCommException.class, () -> McAsciiCodec.encode(lzReq));
+    }
+}
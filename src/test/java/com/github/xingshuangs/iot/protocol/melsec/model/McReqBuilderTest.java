@@ -424,4 +424,36 @@ public class McReqBuilderTest {
         byte[] actual = req.toByteArray();
         assertArrayEquals(expect, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createRegisterMonitorReq() {
+        byte[] expect = new byte[]{
+                0x50, 0x00, 0x00, (byte) 0xFF, (byte) 0xFF, 0x03, 0x00,
+                0x14, 0x00, 0x0C, 0x00,
+                0x01, 0x08, 0x00, 0x00, 0x02, 0x01,
+                0x00, 0x00, 0x00, (byte) 0xA8,
+                0x64, 0x00, 0x00, (byte) 0xA8,
+                (byte) 0xDC, 0x05, 0x00, (byte) 0xA8
+        };
+        List<McDeviceAddress> wordAddresses = new ArrayList<>();
+        wordAddresses.add(new McDeviceAddress(EMcDeviceCode.D, 0));
+        wordAddresses.add(new McDeviceAddress(EMcDeviceCode.D, 100));
+        List<McDeviceAddress> dwordAddresses = new ArrayList<>();
+        dwordAddresses.add(new McDeviceAddress(EMcDeviceCode.D, 1500));
+        McMessageReq req = McReqBuilder.createRegisterMonitorReq(wordAddresses, dwordAddresses);
+        byte[] actual = req.toByteArray();
+        assertArrayEquals(expect, actual);
+    }
+
+    @Test
+    public void createExecuteMonitorReq() {
+        byte[] expect = new byte[]{
+                0x50, 0x00, 0x00, (byte) 0xFF, (byte) 0xFF, 0x03, 0x00,
+                0x06, 0x00, 0x0C, 0x00,
+                0x02, 0x08, 0x00, 0x00
+        };
+        McMessageReq req = McReqBuilder.createExecuteMonitorReq();
+        byte[] actual = req.toByteArray();
+        assertArrayEquals(expect, actual);
+    }
+}
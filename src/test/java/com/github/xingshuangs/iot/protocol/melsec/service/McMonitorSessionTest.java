@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceContent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * The simulator supports 3E random read (0403), register monitor data (0801) and execute monitor (0802) of QnA
+ * series, the value of D[n] is n, the registration belongs to the connection.
+ */
+public class McMonitorSessionTest {
+
+    private ServerSocket serverSocket;
+
+    private final AtomicInteger registerCount = new AtomicInteger();
+
+    private final AtomicInteger executeCount = new AtomicInteger();
+
+    private final AtomicInteger randomReadCount = new AtomicInteger();
+
+    private final List<Integer> requestLengths = new ArrayList<>();
+
+    private McPLC mcPLC;
+
+    @Before
+    public void before() throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(this::simulate);
+        thread.setDaemon(true);
+        thread.start();
+        this.mcPLC = new McPLC(EMcSeries.QnA, EMcFrameType.FRAME_3E, "127.0.0.1", this.serverSocket.getLocalPort());
+    }
+
+    @After
+    public void after() throws IOException {
+        this.mcPLC.close();
+        this.serverSocket.close();
+    }
+
+    private void simulate() {
+        while (!this.serverSocket.isClosed()) {
+            try (Socket socket = this.serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                int[] registered = null;
+                while (!socket.isClosed()) {
+                    byte[] header = new byte[11];
+                    in.readFully(header);
+                    int dataLength = ByteReadBuff.newInstance(header, true).getUInt16(7);
+                    byte[] body = new byte[dataLength - 2];
+                    in.readFully(body);
+                    synchronized (this.requestLengths) {
+                        this.requestLengths.add(header.length + body.length);
+                    }
+                    ByteReadBuff buff = ByteReadBuff.newInstance(body, true);
+                    int command = buff.getUInt16();
+                    buff.getUInt16();
+                    byte[] data;
+                    int endCode = 0;
+                    if (command == 0x0801 || command == 0x0403) {
+                        int[] items = this.parseItems(buff);
+                        if (command == 0x0801) {
+                            this.registerCount.incrementAndGet();
+                            registered = items;
+                            data = new byte[0];
+                        } else {
+                            this.randomReadCount.incrementAndGet();
+                            data = this.createData(items);
+                        }
+                    } else if (command == 0x0802) {
+                        this.executeCount.incrementAndGet();
+                        if (registered == null) {
+                            // 未进行监视登录
+                            endCode = 0xC05D;
+                            data = new byte[0];
+                        } else {
+                            data = this.createData(registered);
+                        }
+                    } else {
+                        endCode = 0xC059;
+                        data = new byte[0];
+                    }
+                    if (endCode != 0) {
+                        // 异常响应携带访问路径、指令和子指令
+                        data = ByteWriteBuff.newInstance(9, true)
+                                .putBytes(Arrays.copyOfRange(header, 2, 7))
+                                .putBytes(Arrays.copyOfRange(body, 0, 4))
+                                .getData();
+                    }
+                    out.write(ByteWriteBuff.newInstance(11 + data.length, true)
+                            .putShort(EMcFrameType.FRAME_3E.getAckSubHeader())
+                            .putBytes(Arrays.copyOfRange(header, 2, 7))
+                            .putShort(2 + data.length)
+                            .putShort(endCode)
+                            .putBytes(data)
+                            .getData());
+                }
+            } catch (IOException e) {
+                // 连接关闭
+            }
+        }
+    }
+
+    /**
+     * Word count and dword count followed by the device numbers, negative numbers mark the dwords.
+     */
+    private int[] parseItems(ByteReadBuff buff) {
+        int wordCount = buff.getByteToInt();
+        int dwordCount = buff.getByteToInt();
+        int[] items = new int[wordCount + dwordCount];
+        for (int i = 0; i < items.length; i++) {
+            byte[] address = buff.getBytes(4);
+            int number = (address[0] & 0xFF) | (address[1] & 0xFF) << 8 | (address[2] & 0xFF) << 16;
+            items[i] = i < wordCount ? number : -number - 1;
+        }
+        return items;
+    }
+
+    private byte[] createData(int[] items) {
+        ByteWriteBuff buff = new ByteWriteBuff(items.length * 4, true);
+        int length = 0;
+        for (int item : items) {
+            if (item >= 0) {
+                buff.putShort(item);
+                length += 2;
+            } else {
+                buff.putInteger(-item - 1);
+                length += 4;
+            }
+        }
+        return Arrays.copyOf(buff.getData(), length);
+    }
+
+    private McMonitorSession createSession(int wordCount) {
+        McMultiAddressRead addressRead = new McMultiAddressRead();
+        for (int i = 0; i < wordCount; i++) {
+            addressRead.addWordData("D" + (i * 2));
+        }
+        addressRead.addDWordData("D1000");
+        return this.mcPLC.createMonitorSession(addressRead);
+    }
+
+    private void assertContents(List<McDeviceContent> contents, int wordCount) {
+        assertEquals(wordCount + 1, contents.size());
+        for (int i = 0; i < wordCount; i++) {
+            assertEquals(i * 2, ByteReadBuff.newInstance(contents.get(i).getData(), true).getUInt16());
+        }
+        assertEquals(1000, ByteReadBuff.newInstance(contents.get(wordCount).getData(), true).getUInt32());
+    }
+
+    @Test
+    public void registerOnceThenExecute() {
+        McMonitorSession session = this.createSession(90);
+        for (int i = 0; i < 5; i++) {
+            this.assertContents(session.read(), 90);
+        }
+        assertEquals(1, this.registerCount.get());
+        assertEquals(5, this.executeCount.get());
+        // 执行监视请求只有15个字节，而随机读取需要每次发送全部地址
+        assertEquals(15, (int) this.requestLengths.get(this.requestLengths.size() - 1));
+        assertTrue(this.requestLengths.get(0) > 15 * 20);
+    }
+
+    @Test
+    public void registerAgainAfterReconnect() {
+        McMonitorSession session = this.createSession(10);
+        this.assertContents(session.read(), 10);
+        this.mcPLC.close();
+        this.assertContents(session.read(), 10);
+        assertEquals(2, this.registerCount.get());
+    }
+
+    @Test
+    public void switchBetweenSessions() {
+        McMonitorSession session1 = this.createSession(10);
+        McMonitorSession session2 = this.createSession(20);
+        this.assertContents(session1.read(), 10);
+        this.assertContents(session2.read(), 20);
+        this.assertContents(session2.read(), 20);
+        this.assertContents(session1.read(), 10);
+        assertEquals(3, this.registerCount.get());
+    }
+
+    @Test
+    public void shortConnectionFallsBackToRandomRead() {
+        this.mcPLC.setPersistence(false);
+        McMonitorSession session = this.createSession(10);
+        this.assertContents(session.read(), 10);
+        assertEquals(0, this.registerCount.get());
+        assertEquals(1, this.randomReadCount.get());
+    }
+
+    @Test
+    public void executeWithoutRegistration() {
+        McCommException exception = assertThrows(McCommException.class, () -> this.mcPLC.executeMonitor());
+        assertTrue(exception.getMessage().contains("No monitored login"));
+    }
+
+    @Test
+    public void tooManyPoints() {
+        assertThrows(McCommException.class, () -> this.createSession(EMcSeries.QnA.getDeviceRandomReadInWordPointsCount()));
+    }
+}
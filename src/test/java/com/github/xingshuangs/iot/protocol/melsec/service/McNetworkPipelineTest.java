@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
+import com.github.xingshuangs.iot.common.buff.ByteWriteBuff;
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceAddress;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceContent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * The simulator answers 4E batch word read, every word is the low 16 bits of its device number, the responses of
+ * every two requests are sent in reverse order, the device number 8888 is answered with an error end code, the device
+ * numbers from 9999 are never answered.
+ */
+public class McNetworkPipelineTest {
+
+    private ServerSocket serverSocket;
+
+    private final AtomicInteger maxPending = new AtomicInteger();
+
+    private McPLC mcPLC;
+
+    @Before
+    public void before() throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(this::simulate);
+        thread.setDaemon(true);
+        thread.start();
+        this.mcPLC = new McPLC(EMcSeries.QnA, EMcFrameType.FRAME_4E, "127.0.0.1", this.serverSocket.getLocalPort());
+        this.mcPLC.setPipelined(true);
+    }
+
+    @After
+    public void after() throws IOException {
+        this.mcPLC.close();
+        this.serverSocket.close();
+    }
+
+    private void simulate() {
+        while (!this.serverSocket.isClosed()) {
+            try (Socket socket = this.serverSocket.accept()) {
+                socket.setSoTimeout(50);
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                List<byte[]> pending = new ArrayList<>();
+                while (!socket.isClosed()) {
+                    try {
+                        byte[] header = new byte[15];
+                        in.readFully(header);
+                        int dataLength = ByteReadBuff.newInstance(header, true).getUInt16(11);
+                        byte[] req = new byte[15 + dataLength - 2];
+                        System.arraycopy(header, 0, req, 0, header.length);
+                        in.readFully(req, 15, req.length - 15);
+                        pending.add(req);
+                        this.maxPending.accumulateAndGet(pending.size(), Math::max);
+                        if (pending.size() < 2) {
+                            continue;
+                        }
+                    } catch (java.net.SocketTimeoutException e) {
+                        if (pending.isEmpty()) {
+                            continue;
+                        }
+                    }
+                    Collections.reverse(pending);
+                    for (byte[] req : pending) {
+                        byte[] ack = this.createAck(req);
+                        if (ack.length > 0) {
+                            out.write(ack);
+                        }
+                    }
+                    pending.clear();
+                }
+            } catch (IOException e) {
+                // 连接关闭
+            }
+        }
+    }
+
+    private byte[] createAck(byte[] req) {
+        ByteReadBuff buff = ByteReadBuff.newInstance(req, true);
+        int number = (req[19] & 0xFF) | (req[20] & 0xFF) << 8 | (req[21] & 0xFF) << 16;
+        int count = buff.getUInt16(23);
+        if (number >= 9999) {
+            return new byte[0];
+        }
+        if (number == 8888) {
+            // 错误响应的数据为访问路径、指令和子指令
+            return ByteWriteBuff.newInstance(24, true)
+                    .putShort(EMcFrameType.FRAME_4E.getAckSubHeader())
+                    .putBytes(Arrays.copyOfRange(req, 2, 11))
+                    .putShort(11)
+                    .putShort(0xC051)
+                    .putBytes(Arrays.copyOfRange(req, 6, 11))
+                    .putBytes(Arrays.copyOfRange(req, 15, 19))
+                    .getData();
+        }
+        ByteWriteBuff ack = ByteWriteBuff.newInstance(15 + count * 2, true)
+                .putShort(EMcFrameType.FRAME_4E.getAckSubHeader())
+                .putBytes(Arrays.copyOfRange(req, 2, 11))
+                .putShort(2 + count * 2)
+                .putShort(0);
+        for (int i = 0; i < count; i++) {
+            ack.putShort(number + i);
+        }
+        return ack.getData();
+    }
+
+    private int readWord(int number) {
+        McDeviceContent content = this.mcPLC.readDeviceBatchInWord(McDeviceAddress.createBy("D" + number, 1));
+        return ByteReadBuff.newInstance(content.getData(), true).getUInt16();
+    }
+
+    private void assertIdle() throws InterruptedException {
+        // 窗口在响应完成后释放，稍作等待
+        for (int i = 0; i < 50 && this.mcPLC.getPipeline().getInFlight() > 0; i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(0, this.mcPLC.getPipeline().getInFlight());
+    }
+
+    @Test
+    public void readDeviceBatchInWordOutOfOrder() throws InterruptedException {
+        McDeviceContent content = this.mcPLC.readDeviceBatchInWord(McDeviceAddress.createBy("D0", 1500));
+        ByteReadBuff buff = ByteReadBuff.newInstance(content.getData(), true);
+        for (int i = 0; i < 1500; i++) {
+            assertEquals(i, buff.getUInt16());
+        }
+        assertTrue(this.maxPending.get() >= 2);
+        this.assertIdle();
+    }
+
+    @Test
+    public void concurrentRead() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int number = i * 10;
+                futures.add(executor.submit(() -> this.readWord(number)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i * 10, (int) futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        this.assertIdle();
+    }
+
+    @Test
+    public void timeout() throws InterruptedException {
+        this.mcPLC.setReceiveTimeout(300);
+        assertThrows(SocketTimeoutException.class, () -> this.readWord(9999));
+        this.assertIdle();
+        assertEquals(10, this.readWord(10));
+    }
+
+    @Test
+    public void failureCancelsInFlight() throws InterruptedException {
+        // 第1组返回错误，第4组(D10328)无响应，失败后应立即取消而不是等到接收超时
+        this.mcPLC.setReceiveTimeout(5000);
+        long start = System.currentTimeMillis();
+        assertThrows(McCommException.class, () -> this.mcPLC.readDeviceBatchInWord(McDeviceAddress.createBy("D8888", 1500)));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        this.assertIdle();
+        assertEquals(10, this.readWord(10));
+    }
+
+    @Test
+    public void mergedReadFailureCancelsInFlight() throws InterruptedException {
+        // 1500个字的数据块按批量读取拆分为4组，与failureCancelsInFlight相同
+        this.mcPLC.setReceiveTimeout(5000);
+        McMultiTagRead multiTagRead = new McMultiTagRead().addString("D8888", 3000);
+        long start = System.currentTimeMillis();
+        assertThrows(McCommException.class, () -> this.mcPLC.readMultiTag(multiTagRead));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        this.assertIdle();
+    }
+
+    @Test
+    public void pipelineIgnoredFor3E() {
+        this.mcPLC.setFrameType(EMcFrameType.FRAME_3E);
+        assertFalse(this.mcPLC.isPipelineAvailable());
+        this.mcPLC.setFrameType(EMcFrameType.FRAME_4E);
+        this.mcPLC.setPersistence(false);
+        assertFalse(this.mcPLC.isPipelineAvailable());
+    }
+}
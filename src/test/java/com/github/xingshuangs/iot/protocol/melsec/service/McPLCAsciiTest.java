@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDataCode;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceAddress;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceContent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * The simulator answers 3E and 4E frames in ascii code, every word is the low 16 bits of its device number, every
+ * dword is 0x12345678, the bit points are 1, 0, 1, 0 ..., the device number 9999 is answered with error C056.
+ */
+public class McPLCAsciiTest {
+
+    private ServerSocket serverSocket;
+
+    private volatile String lastReq;
+
+    @Before
+    public void before() throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(this::simulate);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void after() throws IOException {
+        this.serverSocket.close();
+    }
+
+    private void simulate() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                Thread thread = new Thread(() -> this.handle(socket));
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // 服务端关闭
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            while (!s.isClosed()) {
+                byte[] first = new byte[4];
+                in.readFully(first);
+                boolean frame4E = first[1] == '4';
+                byte[] header = new byte[frame4E ? 26 : 18];
+                System.arraycopy(first, 0, header, 0, 4);
+                in.readFully(header, 4, header.length - 4);
+                int length = Integer.parseInt(new String(header, header.length - 4, 4, StandardCharsets.US_ASCII), 16);
+                byte[] body = new byte[length];
+                in.readFully(body);
+                String headerStr = new String(header, StandardCharsets.US_ASCII);
+                String bodyStr = new String(body, StandardCharsets.US_ASCII);
+                this.lastReq = headerStr + bodyStr;
+                out.write(this.createAck(headerStr, bodyStr));
+            }
+        } catch (IOException e) {
+            // 连接关闭
+        }
+    }
+
+    private byte[] createAck(String header, String body) {
+        String prefix = (header.charAt(1) == '4' ? "D4" : "D0") + header.substring(2, header.length() - 4);
+        String command = body.substring(4, 8);
+        String sub = body.substring(8, 12);
+        StringBuilder data = new StringBuilder();
+        String endCode = "0000";
+        if ("0401".equals(command)) {
+            int number = Integer.parseInt(body.substring(14, 20), body.charAt(12) == 'D' ? 10 : 16);
+            int count = Integer.parseInt(body.substring(20, 24), 16);
+            if (number == 9999) {
+                endCode = "C056";
+                data.append(header, header.length() - 14, header.length() - 4).append(command).append(sub);
+            } else if (sub.endsWith("1")) {
+                for (int i = 0; i < count; i++) {
+                    data.append(i % 2 == 0 ? '1' : '0');
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    data.append(String.format("%04X", (number + i) & 0xFFFF));
+                }
+            }
+        } else if ("0403".equals(command)) {
+            int wordCount = Integer.parseInt(body.substring(12, 14), 16);
+            int dwordCount = Integer.parseInt(body.substring(14, 16), 16);
+            for (int i = 0; i < wordCount; i++) {
+                data.append(String.format("%04X", Integer.parseInt(body.substring(18 + i * 8, 24 + i * 8))));
+            }
+            for (int i = 0; i < dwordCount; i++) {
+                data.append("12345678");
+            }
+        }
+        String ack = prefix + String.format("%04X", 4 + data.length()) + endCode + data;
+        return ack.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private McPLC createPLC(EMcFrameType frameType) {
+        McPLC plc = new McPLC(EMcSeries.QnA, frameType, "127.0.0.1", this.serverSocket.getLocalPort());
+        plc.setDataCode(EMcDataCode.ASCII);
+        return plc;
+    }
+
+    @Test
+    public void readWord3E() {
+        McPLC plc = this.createPLC(EMcFrameType.FRAME_3E);
+        try {
+            assertEquals(100, plc.readInt16("D100"));
+            assertEquals("500000FF03FF000018000C04010000D*0001000001", this.lastReq);
+            McDeviceContent content = plc.readDeviceBatchInWord(McDeviceAddress.createBy("D1000", 3));
+            assertArrayEquals(new byte[]{(byte) 0xE8, 0x03, (byte) 0xE9, 0x03, (byte) 0xEA, 0x03}, content.getData());
+        } finally {
+            plc.close();
+        }
+    }
+
+    @Test
+    public void readBit3E() {
+        McPLC plc = this.createPLC(EMcFrameType.FRAME_3E);
+        try {
+            List<Boolean> booleans = plc.readBoolean("M100", 5);
+            assertEquals(Arrays.asList(true, false, true, false, true), booleans);
+            assertEquals("500000FF03FF000018000C04010001M*0001000005", this.lastReq);
+        } finally {
+            plc.close();
+        }
+    }
+
+    @Test
+    public void readRandom3E() {
+        McPLC plc = this.createPLC(EMcFrameType.FRAME_3E);
+        try {
+            List<McDeviceContent> contents = plc.readDeviceRandomInWord(
+                    Arrays.asList(McDeviceAddress.createBy("D10"), McDeviceAddress.createBy("D20")),
+                    Collections.singletonList(McDeviceAddress.createBy("D30")));
+            assertArrayEquals(new byte[]{0x0A, 0x00}, contents.get(0).getData());
+            assertArrayEquals(new byte[]{0x14, 0x00}, contents.get(1).getData());
+            assertArrayEquals(new byte[]{0x78, 0x56, 0x34, 0x12}, contents.get(2).getData());
+        } finally {
+            plc.close();
+        }
+    }
+
+    @Test
+    public void readError3E() {
+        McPLC plc = this.createPLC(EMcFrameType.FRAME_3E);
+        try {
+            McCommException e = assertThrows(McCommException.class, () -> plc.readInt16("D9999"));
+            assertTrue(e.getMessage().contains(String.valueOf(0xC056)));
+        } finally {
+            plc.close();
+        }
+    }
+
+    @Test
+    public void readWord4EPipelined() throws Exception {
+        McPLC plc = this.createPLC(EMcFrameType.FRAME_4E);
+        plc.setPipelined(true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                int number = i;
+                futures.add(executor.submit(() -> (int) plc.readInt16("D" + number)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, (int) futures.get(i).get());
+            }
+            assertTrue(this.lastReq.startsWith("5400"));
+        } finally {
+            executor.shutdownNow();
+            plc.close();
+        }
+    }
+}
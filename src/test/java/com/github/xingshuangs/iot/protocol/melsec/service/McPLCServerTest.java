@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.melsec.service;
+
+import com.github.xingshuangs.iot.exceptions.McCommException;
+import com.github.xingshuangs.iot.net.server.EServerEngine;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcDeviceCode;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcFrameType;
+import com.github.xingshuangs.iot.protocol.melsec.enums.EMcSeries;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceAddress;
+import com.github.xingshuangs.iot.protocol.melsec.model.McDeviceContent;
+import com.github.xingshuangs.iot.utils.HexUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class McPLCServerTest {
+
+    private McPLCServer server;
+    private McPLC mcPLC;
+
+    @Before
+    public void init() {
+        this.server = new McPLCServer();
+        this.server.start(6001);
+        this.mcPLC = new McPLC(EMcSeries.Q_L, EMcFrameType.FRAME_3E, "127.0.0.1", 6001);
+        this.mcPLC.setComCallback((tag, bytes) -> System.out.printf("%s[%d] %s%n", tag, bytes.length, HexUtil.toHexString(bytes)));
+    }
+
+    @After
+    public void destroy() {
+        this.mcPLC.close();
+        this.server.stop();
+    }
+
+    @Test
+    public void readWriteDeviceBatchInWord() {
+        byte[] expect = new byte[]{0x34, 0x12, 0x02, 0x00};
+        this.mcPLC.writeDeviceBatchInWord(McDeviceContent.createBy("D110", 2, expect));
+        McDeviceContent content = this.mcPLC.readDeviceBatchInWord(McDeviceAddress.createBy("D110", 2));
+        assertArrayEquals(expect, content.getData());
+
+        // 超过单次最大点数时客户端拆分请求
+        List<Short> data = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            data.add((short) i);
+        }
+        this.mcPLC.writeInt16("D1000", data);
+        assertEquals(1999, this.mcPLC.readInt16("D2999"));
+        assertEquals(Arrays.asList((short) 0, (short) 1000), this.mcPLC.readInt16("D1000", "D2000"));
+    }
+
+    @Test
+    public void readWriteDeviceBatchInBit() {
+        List<Boolean> expect = Arrays.asList(true, false, true, true, false);
+        this.mcPLC.writeBoolean("M100", expect);
+        assertEquals(expect, this.mcPLC.readBoolean("M100", 5));
+        assertTrue(this.mcPLC.readBoolean("M103"));
+        this.mcPLC.writeBoolean("Y1F", true);
+        assertTrue(this.mcPLC.readBoolean("Y1F"));
+    }
+
+    @Test
+    public void bitDeviceInWordUnits() {
+        this.mcPLC.writeBoolean("M16", true);
+        this.mcPLC.writeBoolean("M31", true);
+        // M16~M31组成1个字，M16为最低位
+        McDeviceContent content = this.mcPLC.readDeviceBatchInWord(McDeviceAddress.createBy("M16", 1));
+        assertArrayEquals(new byte[]{0x01, (byte) 0x80}, content.getData());
+        this.mcPLC.writeDeviceBatchInWord(McDeviceContent.createBy("M32", 1, new byte[]{0x02, 0x00}));
+        assertEquals(Arrays.asList(false, true, false), this.mcPLC.readBoolean("M32", 3));
+    }
+
+    @Test
+    public void readWriteDeviceRandom() {
+        McMultiAddressWrite write = new McMultiAddressWrite();
+        write.addInt16("D10", 10).addInt16("W20", -20).addInt32("D100", 100000).addFloat32("R30", 1.5f);
+        this.mcPLC.writeMultiAddress(write);
+        assertEquals(Arrays.asList((short) 10, (short) -20), this.mcPLC.readInt16("D10", "W20"));
+        assertEquals(100000, this.mcPLC.readInt32("D100"));
+        assertEquals(1.5f, this.mcPLC.readFloat32("R30"), 0.0001);
+
+        List<McDeviceContent> bits = new ArrayList<>();
+        bits.add(McDeviceContent.createBy("M200", new byte[]{0x01}));
+        bits.add(McDeviceContent.createBy("B1A", new byte[]{0x01}));
+        this.mcPLC.writeDeviceRandomInBit(bits);
+        assertTrue(this.mcPLC.readBoolean("M200"));
+        assertTrue(this.mcPLC.readBoolean("B1A"));
+    }
+
+    @Test
+    public void readWriteDeviceBatchMultiBlocks() {
+        this.mcPLC.setFrameType(EMcFrameType.FRAME_4E);
+        List<McDeviceContent> words = new ArrayList<>();
+        words.add(McDeviceContent.createBy("D0", 2, new byte[]{0x01, 0x00, 0x02, 0x00}));
+        words.add(McDeviceContent.createBy("W100", 1, new byte[]{0x03, 0x00}));
+        List<McDeviceContent> bits = new ArrayList<>();
+        bits.add(McDeviceContent.createBy("M0", 1, new byte[]{0x05, 0x00}));
+        this.mcPLC.writeDeviceBatchMultiBlocks(words, bits);
+
+        List<McDeviceAddress> wordAddresses = Arrays.asList(McDeviceAddress.createBy("D0", 2), McDeviceAddress.createBy("W100", 1));
+        List<McDeviceAddress> bitAddresses = Collections.singletonList(McDeviceAddress.createBy("M0", 1));
+        List<McDeviceContent> contents = this.mcPLC.readDeviceBatchMultiBlocks(wordAddresses, bitAddresses);
+        assertEquals(3, contents.size());
+        assertArrayEquals(new byte[]{0x01, 0x00, 0x02, 0x00}, contents.get(0).getData());
+        assertArrayEquals(new byte[]{0x03, 0x00}, contents.get(1).getData());
+        assertArrayEquals(new byte[]{0x05, 0x00}, contents.get(2).getData());
+        assertEquals(Arrays.asList(true, false, true), this.mcPLC.readBoolean("M0", 3));
+    }
+
+    @Test
+    public void readMultiTag() {
+        this.mcPLC.writeInt16("D100", (short) -2);
+        this.mcPLC.writeInt32("D102", 123456);
+        this.mcPLC.writeFloat32("W1A0", 1.5f);
+        this.mcPLC.writeUInt16("D500", 4660);
+        this.mcPLC.writeBoolean("M20", true);
+        this.mcPLC.writeBoolean("M25", true);
+        this.mcPLC.writeString("D2000", "hello");
+        McMultiTagRead multiTagRead = new McMultiTagRead()
+                .addInt32("D102")
+                .addData("M25")
+                .addInt16("D100")
+                .addFloat32("W1A0")
+                .addUInt16("D500")
+                .addBoolean("M20")
+                .addBoolean("M21")
+                .addString("D2000", 5);
+        List<Object> expect = Arrays.asList(123456, true, (short) -2, 1.5f, 4660, true, false, "hello");
+        assertEquals(expect, this.mcPLC.readMultiTag(multiTagRead));
+        assertEquals(Arrays.asList((short) -2, true, (short) 4660), this.mcPLC.readMultiTag(Arrays.asList("D100", "M20", "D500")));
+
+        // 4E帧支持多块批量读取
+        this.mcPLC.setFrameType(EMcFrameType.FRAME_4E);
+        assertEquals(expect, this.mcPLC.readMultiTag(multiTagRead));
+        this.mcPLC.setPipelined(true);
+        assertEquals(expect, this.mcPLC.readMultiTag(multiTagRead));
+    }
+
+    @Test
+    public void frame4EAndIqr() {
+        McPLC iqr = new McPLC(EMcSeries.IQ_R, EMcFrameType.FRAME_4E, "127.0.0.1", 6001);
+        try {
+            iqr.writeInt32("D500", 123456);
+            iqr.writeBoolean("M500", true);
+            assertEquals(123456, iqr.readInt32("D500"));
+            assertTrue(iqr.readBoolean("M500"));
+            assertEquals(Arrays.asList(123456, 0), iqr.readInt32("D500", "D502"));
+        } finally {
+            iqr.close();
+        }
+        // 两种格式访问的是同一个数据区
+        assertEquals(123456, this.mcPLC.readInt32("D500"));
+        assertTrue(this.mcPLC.readBoolean("M500"));
+    }
+
+    @Test
+    public void serverBank() {
+        this.server.getBank().writeWords(EMcDeviceCode.D, 0, 1, new byte[]{0x0A, 0x00});
+        this.server.getBank().setBit(EMcDeviceCode.X, 0x10, true);
+        assertEquals(10, this.mcPLC.readInt16("D0"));
+        assertTrue(this.mcPLC.readBoolean("X10"));
+    }
+
+    @Test
+    public void errorEndCode() {
+        McCommException exception = assertThrows(McCommException.class, () -> this.mcPLC.readInt16("D40000"));
+        assertTrue(exception.getMessage().contains("exceeded the maximum address"));
+        exception = assertThrows(McCommException.class,
+                () -> this.mcPLC.readDeviceBatchInBit(McDeviceAddress.createBy("D0", 1)));
+        assertTrue(exception.getMessage().contains("It can only be bit device code"));
+        exception = assertThrows(McCommException.class, () -> this.mcPLC.executeMonitor());
+        assertTrue(exception.getMessage().contains("instruction or subinstruction"));
+        // 异常后连接仍然可用
+        this.mcPLC.writeInt16("D0", (short) 7);
+        assertEquals(7, this.mcPLC.readInt16("D0"));
+    }
+
+    @Test
+    public void selectorEngine() {
+        this.server.stop();
+        this.server = new McPLCServer();
+        this.server.setEngine(EServerEngine.SELECTOR);
+        this.server.start(6001);
+        this.mcPLC.close();
+        this.mcPLC.writeInt16("D0", (short) 9);
+        assertEquals(9, this.mcPLC.readInt16("D0"));
+        this.mcPLC.setFrameType(EMcFrameType.FRAME_4E);
+        assertEquals(9, this.mcPLC.readInt16("D0"));
+    }
+
+    @Test
+    public void idleTimeoutBlockingEngine() throws Exception {
+        this.server.stop();
+        this.server = new McPLCServer();
+        this.server.setEngine(EServerEngine.BLOCKING);
+        this.server.setIdleTimeout(300);
+        this.server.start(6001);
+        this.mcPLC.close();
+        assertEquals(0, this.mcPLC.readInt16("D0"));
+        assertEquals(1, this.server.getConnectionNumber());
+        Thread.sleep(1000);
+        assertEquals(0, this.server.getConnectionNumber());
+    }
+
+    @Test
+    public void concurrentSessions() throws Exception {
+        int sessions = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    McPLC plc = new McPLC(EMcSeries.Q_L, index % 2 == 0 ? EMcFrameType.FRAME_3E : EMcFrameType.FRAME_4E, "127.0.0.1", 6001);
+                    try {
+                        for (int j = 0; j < 20; j++) {
+                            plc.writeInt16("D" + (index * 10), (short) (index * 100 + j));
+                            if (plc.readInt16("D" + (index * 10)) != index * 100 + j) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    } finally {
+                        plc.close();
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
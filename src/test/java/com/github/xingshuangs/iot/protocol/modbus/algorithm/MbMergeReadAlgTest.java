@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.algorithm;
+
+import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
+import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbTable;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbAddressItem;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class MbMergeReadAlgTest {
+
+    @Test
+    public void merge() {
+        List<MbAddressItem> src = Arrays.asList(
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 3, EDataType.FLOAT32, EByteBuffFormat.BA_DC),
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 0, EDataType.FLOAT32, EByteBuffFormat.BA_DC),
+                MbAddressItem.createBit(1, EMbTable.COIL, 5),
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 100, EDataType.UINT16, EByteBuffFormat.BA_DC),
+                MbAddressItem.createRegister(2, EMbTable.HOLD_REGISTER, 6, EDataType.INT16, EByteBuffFormat.BA_DC),
+                MbAddressItem.createRegister(1, EMbTable.INPUT_REGISTER, 6, EDataType.INT16, EByteBuffFormat.BA_DC),
+                MbAddressItem.createBit(1, EMbTable.COIL, 0));
+        MbMergeReadAlg alg = MbMergeReadAlg.merge(src, MbMergeReadAlg.DEFAULT_MAX_REGISTER_GAP,
+                MbMergeReadAlg.DEFAULT_MAX_COIL_GAP, x -> x.isBit() ? 2000 : 125);
+        List<MbMergeBlock> blocks = alg.getMergedBlocks();
+        assertEquals(5, blocks.size());
+        assertEquals(new MbMergeBlock(1, EMbTable.COIL, 0, 6), blocks.get(0));
+        assertEquals(new MbMergeBlock(1, EMbTable.HOLD_REGISTER, 0, 5), blocks.get(1));
+        assertEquals(new MbMergeBlock(1, EMbTable.HOLD_REGISTER, 100, 1), blocks.get(2));
+        assertEquals(new MbMergeBlock(1, EMbTable.INPUT_REGISTER, 6, 1), blocks.get(3));
+        assertEquals(new MbMergeBlock(2, EMbTable.HOLD_REGISTER, 6, 1), blocks.get(4));
+
+        assertEquals(new MbMergeItem(1, 3), alg.getPositions().get(0));
+        assertEquals(new MbMergeItem(1, 0), alg.getPositions().get(1));
+        assertEquals(new MbMergeItem(0, 5), alg.getPositions().get(2));
+        assertEquals(new MbMergeItem(0, 0), alg.getPositions().get(6));
+    }
+
+    @Test
+    public void mergeGapAndLength() {
+        List<MbAddressItem> src = Arrays.asList(
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 0, EDataType.UINT16, EByteBuffFormat.BA_DC),
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 4, EDataType.UINT16, EByteBuffFormat.BA_DC),
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 8, EDataType.UINT16, EByteBuffFormat.BA_DC));
+        assertEquals(3, MbMergeReadAlg.merge(src, 2, 0, x -> 125).getMergedBlocks().size());
+        assertEquals(1, MbMergeReadAlg.merge(src, 3, 0, x -> 125).getMergedBlocks().size());
+        assertEquals(2, MbMergeReadAlg.merge(src, 3, 0, x -> 6).getMergedBlocks().size());
+    }
+
+    @Test
+    public void split() {
+        List<MbAddressItem> src = Arrays.asList(
+                MbAddressItem.createRegister(1, EMbTable.HOLD_REGISTER, 2, EDataType.INT16, EByteBuffFormat.BA_DC),
+                MbAddressItem.createBit(1, EMbTable.COIL, 1),
+                MbAddressItem.createBytes(1, EMbTable.HOLD_REGISTER, 0, EDataType.STRING, 3));
+        MbMergeReadAlg alg = MbMergeReadAlg.merge(src, 10, 10, x -> 125);
+        List<Object> values = alg.split(src, Arrays.asList(Collections.singletonList(true),
+                new byte[]{0x61, 0x62, 0x63, 0x00, (byte) 0xFF, (byte) 0xFE}));
+        assertEquals((short) -2, values.get(0));
+        assertEquals(true, values.get(1));
+        assertEquals("abc", values.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedType() {
+        MbAddressItem.createRegister(1, EMbTable.COIL, 0, EDataType.INT16, EByteBuffFormat.BA_DC);
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.ITransport;
+import com.github.xingshuangs.iot.net.client.StreamTransport;
+import com.github.xingshuangs.iot.net.client.TcpTransport;
+import com.github.xingshuangs.iot.net.client.UdpTransport;
+import com.github.xingshuangs.iot.protocol.modbus.model.*;
+import com.github.xingshuangs.iot.utils.HexUtil;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class ModbusRtuTest {
+
+    private ModbusRtu modbusRtu;
+
+    private final byte[] registers = new byte[200];
+
+    /**
+     * 0: normal, 1: split the response with a short pause, 2: no response, 3: bad crc
+     */
+    private volatile int slaveMode;
+
+    private Thread slave;
+
+    private OutputStream slaveOut;
+
+    @Before
+    public void init() throws IOException {
+        PipedInputStream clientIn = new PipedInputStream(1024);
+        PipedInputStream slaveIn = new PipedInputStream(1024);
+        this.slaveOut = new PipedOutputStream(clientIn);
+        OutputStream clientOut = new PipedOutputStream(slaveIn);
+        this.modbusRtu = new ModbusRtu(1, new StreamTransport(clientIn, clientOut), 9600);
+        this.modbusRtu.setReceiveTimeout(500);
+        this.modbusRtu.setComCallback((tag, bytes) -> System.out.printf("%s[%d] %s%n", tag, bytes.length, HexUtil.toHexString(bytes)));
+        this.slave = new Thread(() -> this.simulateSlave(slaveIn, this.slaveOut));
+        this.slave.setDaemon(true);
+        this.slave.start();
+    }
+
+    @After
+    public void destroy() {
+        this.modbusRtu.close();
+        this.slave.interrupt();
+    }
+
+    /**
+     * Simple slave of unit id 1 over a stream pair, read and write hold register only.
+     */
+    private void simulateSlave(InputStream in, OutputStream out) {
+        byte[] request = new byte[8];
+        try {
+            while (true) {
+                int count = 0;
+                while (count < request.length) {
+                    int num = in.read(request, count, request.length - count);
+                    if (num < 0) {
+                        return;
+                    }
+                    count += num;
+                }
+                byte[] bytes = this.respond(request);
+                if (bytes == null) {
+                    continue;
+                }
+                if (this.slaveMode == 1) {
+                    out.write(bytes, 0, 3);
+                    out.flush();
+                    // 小于t3.5的间隔
+                    Thread.sleep(1);
+                    out.write(bytes, 3, bytes.length - 3);
+                } else {
+                    out.write(bytes);
+                }
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // 测试结束
+        }
+    }
+
+    /**
+     * Response of the request by the slave mode.
+     *
+     * @param request request frame
+     * @return response frame, null: no response
+     */
+    private byte[] respond(byte[] request) {
+        MbPdu reqPdu = MbPdu.fromBytesToRequest(request, 1);
+        MbPdu ackPdu;
+        if (reqPdu instanceof MbReadHoldRegisterRequest) {
+            MbReadHoldRegisterRequest req = (MbReadHoldRegisterRequest) reqPdu;
+            MbReadHoldRegisterResponse ack = new MbReadHoldRegisterResponse();
+            byte[] bytes = new byte[req.getQuantity() * 2];
+            System.arraycopy(this.registers, req.getAddress() * 2, bytes, 0, bytes.length);
+            ack.setCount(bytes.length);
+            ack.setRegister(bytes);
+            ackPdu = ack;
+        } else {
+            MbWriteSingleRegisterRequest req = (MbWriteSingleRegisterRequest) reqPdu;
+            this.registers[req.getAddress() * 2] = (byte) (req.getValue() >> 8);
+            this.registers[req.getAddress() * 2 + 1] = (byte) req.getValue();
+            MbWriteSingleRegisterResponse ack = new MbWriteSingleRegisterResponse();
+            ack.setAddress(req.getAddress());
+            ack.setValue(new byte[]{(byte) (req.getValue() >> 8), (byte) req.getValue()});
+            ackPdu = ack;
+        }
+        MbRtuResponse response = new MbRtuResponse();
+        response.setUnitId(request[0] & 0xFF);
+        response.setPdu(ackPdu);
+        response.selfCheck();
+        byte[] bytes = response.toByteArray();
+        if (this.slaveMode == 2) {
+            return null;
+        }
+        if (this.slaveMode == 3) {
+            bytes[bytes.length - 1]++;
+        }
+        return bytes;
+    }
+
+    @Test
+    public void readWriteHoldRegister() {
+        this.modbusRtu.writeHoldRegister(3, 0x1234);
+        assertEquals(0x1234, this.modbusRtu.readUInt16(3));
+        assertArrayEquals(new byte[]{0x00, 0x00, 0x12, 0x34}, this.modbusRtu.readHoldRegister(2, 2));
+    }
+
+    @Test
+    public void splitResponse() {
+        this.slaveMode = 1;
+        this.modbusRtu.setInterFrameGap(20);
+        this.modbusRtu.writeHoldRegister(5, 0x0102);
+        assertEquals(0x0102, this.modbusRtu.readUInt16(5));
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void noResponse() {
+        this.slaveMode = 2;
+        this.modbusRtu.readUInt16(0);
+    }
+
+    @Test
+    public void crcError() {
+        this.slaveMode = 3;
+        try {
+            this.modbusRtu.readUInt16(0);
+            fail();
+        } catch (ModbusCommException e) {
+            assertTrue(e.getMessage().contains("CRC"));
+        }
+        this.slaveMode = 0;
+        assertEquals(0, this.modbusRtu.readUInt16(0));
+    }
+
+    @Test
+    public void shortConnectionOverStream() {
+        // 直接传入的数据流无法重新打开，忽略短连接
+        this.modbusRtu.setPersistence(false);
+        this.modbusRtu.connect();
+        this.modbusRtu.writeHoldRegister(4, 0x0506);
+        assertEquals(0x0506, this.modbusRtu.readUInt16(4));
+        assertTrue(this.modbusRtu.checkConnected());
+    }
+
+    @Test
+    public void shortConnectionOverDevice() throws IOException {
+        File device = File.createTempFile("modbus-rtu", ".dev");
+        device.deleteOnExit();
+        ModbusRtu rtu = new ModbusRtu(1, StreamTransport.open(device.getPath()), 9600);
+        try {
+            rtu.setPersistence(false);
+            assertTrue(rtu.getTransport().isReopenable());
+            rtu.connect();
+            assertFalse(rtu.checkConnected());
+            // 关闭后重新打开设备
+            rtu.getTransport().write(new byte[]{0x01, 0x02});
+            assertTrue(rtu.checkConnected());
+        } finally {
+            rtu.close();
+        }
+    }
+
+    /**
+     * Accept the tcp connections and simulate the slave on every connection.
+     *
+     * @param server server socket
+     */
+    private void startTcpSlave(ServerSocket server) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = server.accept();
+                    Thread handler = new Thread(() -> {
+                        try {
+                            this.simulateSlave(socket.getInputStream(), socket.getOutputStream());
+                            socket.close();
+                        } catch (IOException e) {
+                            // 测试结束
+                        }
+                    });
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException e) {
+                // 测试结束
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Test
+    public void readOverTcp() throws IOException {
+        try (ServerSocket server = new ServerSocket(8505)) {
+            this.startTcpSlave(server);
+            this.readWriteOver(new TcpTransport("127.0.0.1", 8505));
+        }
+    }
+
+    @Test
+    public void rtuOverTcp() throws IOException {
+        try (ServerSocket server = new ServerSocket(8507)) {
+            this.startTcpSlave(server);
+            ModbusRtuOverTcp rtu = new ModbusRtuOverTcp("127.0.0.1", 8507);
+            rtu.setReceiveTimeout(300);
+            try {
+                rtu.writeHoldRegister(3, 0x1234);
+                assertEquals(0x1234, rtu.readUInt16(3));
+                assertArrayEquals(new byte[]{0x12, 0x34}, rtu.readHoldRegisterAsync(3, 1).join());
+                // 分段到达的响应按长度读取完整
+                this.slaveMode = 1;
+                assertEquals(0x1234, rtu.readUInt16(3));
+                this.slaveMode = 2;
+                assertThrows(SocketTimeoutException.class, () -> rtu.readUInt16(3));
+                this.slaveMode = 0;
+                assertEquals(0x1234, rtu.readUInt16(3));
+            } finally {
+                rtu.close();
+            }
+        }
+    }
+
+    @Test
+    public void readOverUdp() throws IOException {
+        try (DatagramSocket server = new DatagramSocket(8506)) {
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[256];
+                try {
+                    while (true) {
+                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                        server.receive(packet);
+                        byte[] bytes = this.respond(Arrays.copyOf(buffer, packet.getLength()));
+                        if (bytes != null) {
+                            server.send(new DatagramPacket(bytes, bytes.length, packet.getSocketAddress()));
+                        }
+                    }
+                } catch (IOException e) {
+                    // 测试结束
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            this.readWriteOver(new UdpTransport("127.0.0.1", 8506));
+        }
+    }
+
+    @Test
+    public void readOverPseudoTerminal() throws Exception {
+        Path directory = Files.createTempDirectory("modbus-rtu");
+        Path master = directory.resolve("master");
+        Path slave = directory.resolve("slave");
+        Process bridge = this.startPseudoTerminalBridge(master, slave);
+        Assume.assumeNotNull("socat or python3 is needed for the pseudo-terminal pair", bridge);
+        FileChannel slaveIn = null;
+        FileChannel slaveOut = null;
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!(Files.exists(master) && Files.exists(slave)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assume.assumeTrue("the pseudo-terminal pair is not created", Files.exists(master) && Files.exists(slave));
+            slaveIn = FileChannel.open(slave, StandardOpenOption.READ);
+            slaveOut = FileChannel.open(slave, StandardOpenOption.WRITE);
+            InputStream in = Channels.newInputStream(slaveIn);
+            OutputStream out = Channels.newOutputStream(slaveOut);
+            Thread thread = new Thread(() -> this.simulateSlave(in, out));
+            thread.setDaemon(true);
+            thread.start();
+            this.readWriteOver(StreamTransport.open(master.toString()));
+        } finally {
+            if (slaveIn != null) {
+                slaveIn.close();
+            }
+            if (slaveOut != null) {
+                slaveOut.close();
+            }
+            bridge.destroy();
+            bridge.waitFor();
+            Files.deleteIfExists(master);
+            Files.deleteIfExists(slave);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Read and write by the long connection and the short connection over the transport.
+     *
+     * @param transport transport
+     */
+    private void readWriteOver(ITransport transport) {
+        ModbusRtu rtu = new ModbusRtu(1, transport, 9600);
+        rtu.setReceiveTimeout(1000);
+        try {
+            rtu.writeHoldRegister(3, 0x1234);
+            assertEquals(0x1234, rtu.readUInt16(3));
+            // 短连接每次通信后关闭，再次通信时重新打开
+            rtu.setPersistence(false);
+            for (int i = 0; i < 20; i++) {
+                rtu.writeHoldRegister(6, i);
+                assertEquals(i, rtu.readUInt16(6));
+                assertFalse(rtu.checkConnected());
+            }
+        } finally {
+            rtu.close();
+        }
+    }
+
+    /**
+     * Start the bridge of two pseudo-terminals linked to the paths, socat first, then python3 openpty.
+     *
+     * @param master link path of the client side
+     * @param slave  link path of the slave side
+     * @return bridge process, null: neither socat nor python3 is available
+     */
+    private Process startPseudoTerminalBridge(Path master, Path slave) {
+        String python = "import os,pty,select,sys,tty\n"
+                + "a,sa=pty.openpty()\n"
+                + "b,sb=pty.openpty()\n"
+                + "tty.setraw(sa)\n"
+                + "tty.setraw(sb)\n"
+                + "os.symlink(os.ttyname(sa),sys.argv[1])\n"
+                + "os.symlink(os.ttyname(sb),sys.argv[2])\n"
+                + "while True:\n"
+                + "    for f in select.select([a,b],[],[])[0]:\n"
+                + "        os.write(b if f==a else a,os.read(f,1024))\n";
+        List<List<String>> commands = Arrays.asList(
+                Arrays.asList("socat", "pty,raw,echo=0,link=" + master, "pty,raw,echo=0,link=" + slave),
+                Arrays.asList("python3", "-c", python, master.toString(), slave.toString()));
+        for (List<String> command : commands) {
+            try {
+                return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.INHERIT).start();
+            } catch (IOException e) {
+                // 命令不存在，尝试下一个
+            }
+        }
+        return null;
+    }
+}
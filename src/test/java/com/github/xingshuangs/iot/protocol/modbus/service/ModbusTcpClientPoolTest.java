@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+import com.github.xingshuangs.iot.net.client.EPoolDispatch;
+import com.github.xingshuangs.iot.net.client.TcpClientPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+
+public class ModbusTcpClientPoolTest {
+
+    private ModbusTcpServer server;
+
+    @Before
+    public void init() {
+        this.server = new ModbusTcpServer();
+        this.server.start(511);
+    }
+
+    @After
+    public void destroy() {
+        this.server.stop();
+    }
+
+    @Test
+    public void poolReadWrite() {
+        int maxSize = 4;
+        try (TcpClientPool<ModbusTcp> pool = new TcpClientPool<>(() -> new ModbusTcp("127.0.0.1", 511), maxSize)) {
+            IntStream.range(0, 40).parallel().forEach(i -> {
+                pool.run(plc -> plc.writeInt16(i, (short) i));
+                assertEquals((short) i, (short) pool.execute(plc -> plc.readInt16(i)));
+            });
+            assertTrue(pool.size() <= maxSize);
+            assertEquals(pool.size(), this.server.getConnectionNumber());
+        }
+    }
+
+    @Test
+    public void leastBusyDispatch() throws Exception {
+        try (TcpClientPool<ModbusTcp> pool = new TcpClientPool<>(() -> new ModbusTcp("127.0.0.1", 511), 2, EPoolDispatch.LEAST_BUSY)) {
+            CountDownLatch borrowed = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<ModbusTcp> holder = CompletableFuture.supplyAsync(() -> pool.execute(plc -> {
+                plc.writeInt16(0, (short) 1);
+                borrowed.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return plc;
+            }));
+            borrowed.await();
+            // 第一个连接繁忙，创建第二个连接，之后一直选择空闲的第二个连接
+            List<ModbusTcp> used = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                used.add(pool.execute(plc -> {
+                    assertEquals(1, plc.readInt16(0));
+                    return plc;
+                }));
+            }
+            release.countDown();
+            ModbusTcp busy = holder.get();
+            assertEquals(2, pool.size());
+            used.forEach(x -> assertNotSame(busy, x));
+            assertTrue(used.stream().allMatch(x -> x == used.get(0)));
+        }
+    }
+
+    @Test
+    public void idleEviction() throws Exception {
+        try (TcpClientPool<ModbusTcp> pool = new TcpClientPool<>(() -> new ModbusTcp("127.0.0.1", 511), 3, EPoolDispatch.LEAST_BUSY, 100)) {
+            pool.setIdleTimeout(200);
+            pool.setMinIdle(1);
+            CountDownLatch borrowed = new CountDownLatch(3);
+            CountDownLatch release = new CountDownLatch(1);
+            List<CompletableFuture<Void>> holders = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                holders.add(CompletableFuture.runAsync(() -> pool.run(plc -> {
+                    plc.readInt16(0);
+                    borrowed.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                })));
+            }
+            borrowed.await();
+            assertEquals(3, pool.size());
+            assertEquals(3, this.server.getConnectionNumber());
+            release.countDown();
+            holders.forEach(CompletableFuture::join);
+
+            // 空闲连接被回收，保留最小连接数
+            Thread.sleep(1000);
+            assertEquals(1, pool.size());
+            assertEquals(1, this.server.getConnectionNumber());
+            pool.run(plc -> plc.writeInt16(2, (short) 7));
+            assertEquals(7, (short) pool.execute(plc -> plc.readInt16(2)));
+        }
+    }
+}
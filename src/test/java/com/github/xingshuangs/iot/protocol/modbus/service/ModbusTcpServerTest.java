@@ -24,16 +24,44 @@
 
 package com.github.xingshuangs.iot.protocol.modbus.service;
 
+import com.github.xingshuangs.iot.common.buff.BitTable;
+import com.github.xingshuangs.iot.common.buff.ByteReadBuff;
 import com.github.xingshuangs.iot.common.buff.EByteBuffFormat;
+import com.github.xingshuangs.iot.common.enums.EDataType;
 import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.exceptions.SocketRuntimeException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.net.server.EServerEngine;
+import com.github.xingshuangs.iot.net.server.TcpServerSession;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbExceptionCode;
+import com.github.xingshuangs.iot.protocol.modbus.enums.EMbUnknownUnitIdPolicy;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbPdu;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbReadCoilRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbReadCoilResponse;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbReadDiscreteInputRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbReadHoldRegisterRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbReadHoldRegisterResponse;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbReadInputRegisterRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbWriteMultipleCoilRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbWriteMultipleRegisterRequest;
 import com.github.xingshuangs.iot.utils.HexUtil;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.net.ServerSocket;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -229,4 +257,474 @@ public class ModbusTcpServerTest {
         String s = this.modbusTcp.readString(14, 4, StandardCharsets.UTF_8);
         assertEquals("pppp", s);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void pipelinedReadHoldRegister() {
+        byte[] expect = new byte[800];
+        for (int i = 0; i < expect.length; i++) {
+            expect[i] = (byte) i;
+        }
+        this.modbusTcp.writeHoldRegister(0, expect);
+        this.modbusTcp.setPipelined(true);
+        this.modbusTcp.setMaxInFlight(4);
+        byte[] actual = this.modbusTcp.readHoldRegister(0, 400);
+        assertArrayEquals(expect, actual);
+        actual = this.modbusTcp.readInputRegister(0, 400);
+        assertEquals(800, actual.length);
+    }
+
+    @Test
+    public void pipelinedMultiThread() throws Exception {
+        this.modbusTcp.setPipelined(true);
+        this.modbusTcp.setMaxInFlight(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int address = t * 10;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        this.modbusTcp.writeHoldRegister(address, i);
+                        assertEquals(i, this.modbusTcp.readUInt16(address));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void asyncReadWrite() {
+        this.modbusTcp.setPipelined(true);
+        byte[] expect = new byte[600];
+        for (int i = 0; i < expect.length; i++) {
+            expect[i] = (byte) i;
+        }
+        this.modbusTcp.writeHoldRegisterAsync(0, expect).join();
+        CompletableFuture<byte[]> registers = this.modbusTcp.readHoldRegisterAsync(0, 300);
+        this.modbusTcp.writeCoilAsync(1, 0, Arrays.asList(true, false, true)).join();
+        CompletableFuture<List<Boolean>> coils = this.modbusTcp.readCoilAsync(0, 3);
+        assertArrayEquals(expect, registers.join());
+        assertEquals(Arrays.asList(true, false, true), coils.join());
+
+        this.modbusTcp.writeFloat32(400, 12.12f, EByteBuffFormat.DC_BA);
+        float value = this.modbusTcp.readHoldRegisterAsync(400, 2)
+                .thenApply(x -> ByteReadBuff.newInstance(x, EByteBuffFormat.DC_BA).getFloat32()).join();
+        assertEquals(12.12f, value, 0.0001);
+
+        this.modbusTcp.writeHoldRegisterAsync(10, Arrays.asList(1, 2)).join();
+        this.modbusTcp.maskWriteHoldRegisterAsync(10, 0x00F0, 0x0025).join();
+        assertArrayEquals(new byte[]{0x00, 0x05, 0x00, 0x02}, this.modbusTcp.readHoldRegisterAsync(10, 2).join());
+        assertArrayEquals(new byte[]{0x00, 0x02}, this.modbusTcp.readWriteHoldRegisterAsync(11, 1, 12, new byte[]{0x00, 0x03}).join());
+        this.modbusTcp.writeCoilAsync(5, true).join();
+        assertEquals(Collections.singletonList(true), this.modbusTcp.readCoilAsync(5, 1).join());
+        assertEquals(Collections.singletonList(false), this.modbusTcp.readDiscreteInputAsync(0, 1).join());
+        assertArrayEquals(new byte[]{0x00, 0x00}, this.modbusTcp.readInputRegisterAsync(0, 1).join());
+    }
+
+    @Test
+    public void asyncWithoutPipeline() {
+        // 非流水线模式下在调用线程上通信，返回已完成的future
+        this.modbusTcp.writeHoldRegisterAsync(0, 33).join();
+        CompletableFuture<byte[]> future = this.modbusTcp.readHoldRegisterAsync(0, 1);
+        assertTrue(future.isDone());
+        assertArrayEquals(new byte[]{0x00, 0x21}, future.join());
+        this.modbusTcp.setPipelined(true);
+        this.modbusTcp.setPersistence(false);
+        // 短连接无法流水线，同样同步通信
+        future = this.modbusTcp.readHoldRegisterAsync(1, 0, 1);
+        assertTrue(future.isDone());
+        assertArrayEquals(new byte[]{0x00, 0x21}, future.join());
+        // 失败时返回异常完成的future，而不是抛出
+        CompletableFuture<List<Boolean>> failed = this.modbusTcp.readCoilAsync(2001, 1);
+        assertTrue(failed.isCompletedExceptionally());
+        this.modbusTcp.setPersistence(true);
+        this.modbusTcp.writeHoldRegisterAsync(1, 0, 44).join();
+        assertEquals(44, this.modbusTcp.readInt16(0));
+    }
+
+    @Test
+    public void asyncTimeoutAndCancel() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0)) {
+            ModbusTcp client = new ModbusTcp("127.0.0.1", silent.getLocalPort());
+            try {
+                client.setPipelined(true);
+                client.setMaxInFlight(1);
+                client.setReceiveTimeout(300);
+                try {
+                    FutureUtil.join(client.readHoldRegisterAsync(0, 1));
+                    fail();
+                } catch (SocketTimeoutException e) {
+                    // 无响应，超时
+                }
+
+                client.setReceiveTimeout(10000);
+                CompletableFuture<byte[]> first = client.readHoldRegisterAsync(0, 1);
+                assertTrue(first.cancel(true));
+                // 取消后窗口立即释放，第二个请求无需等待
+                long start = System.currentTimeMillis();
+                CompletableFuture<byte[]> second = client.readHoldRegisterAsync(0, 1);
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                second.cancel(true);
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void asyncManyClients() {
+        this.modbusTcp.writeHoldRegister(0, 77);
+        long before = countClientThreads();
+        List<ModbusTcp> clients = new ArrayList<>();
+        try {
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                ModbusTcp client = new ModbusTcp("127.0.0.1", 503);
+                client.setPipelined(true);
+                clients.add(client);
+                futures.add(client.readHoldRegisterAsync(0, 1));
+            }
+            futures.forEach(x -> assertArrayEquals(new byte[]{0x00, 0x4D}, x.join()));
+            // 所有连接共用反应器线程，不为每个连接创建读取线程
+            assertTrue(countClientThreads() - before < 10);
+        } finally {
+            clients.forEach(ModbusTcp::close);
+        }
+    }
+
+    @Test
+    public void pipelinedReconnect() {
+        ModbusTcpServer selectorServer = new ModbusTcpServer(505);
+        selectorServer.setEngine(EServerEngine.SELECTOR);
+        selectorServer.start();
+        ModbusTcp client = new ModbusTcp("127.0.0.1", 505);
+        try {
+            client.setPipelined(true);
+            client.writeHoldRegister(0, 55);
+            assertTrue(client.checkConnected());
+            selectorServer.stop();
+            try {
+                client.readUInt16(0);
+                fail();
+            } catch (SocketRuntimeException e) {
+                // 服务端关闭了连接
+            }
+            assertFalse(client.checkConnected());
+            selectorServer = new ModbusTcpServer(505);
+            selectorServer.start();
+            // 下一个请求重新打开连接
+            assertEquals(0, client.readUInt16(0));
+        } finally {
+            client.close();
+            selectorServer.stop();
+        }
+    }
+
+    private static long countClientThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(x -> x.isAlive() && !x.getName().startsWith("iot-server"))
+                .count();
+    }
+
+    @Test
+    public void readMultiAddress() {
+        this.modbusTcp.writeFloat32(0, 12.5f);
+        this.modbusTcp.writeInt16(3, (short) -7);
+        this.modbusTcp.writeUInt32(5, 3000000000L);
+        this.modbusTcp.writeString(200, "meter");
+        this.modbusTcp.writeCoil(7, true);
+        ModbusMultiAddressRead addressRead = new ModbusMultiAddressRead()
+                .addHoldRegister(1, 3, EDataType.INT16)
+                .addHoldRegister(1, 0, EDataType.FLOAT32)
+                .addString(1, 200, 5)
+                .addCoil(1, 7)
+                .addCoil(1, 6)
+                .addHoldRegister(1, 5, EDataType.UINT32);
+        List<Object> values = this.modbusTcp.readMultiAddress(addressRead);
+        assertEquals((short) -7, values.get(0));
+        assertEquals(12.5f, (float) values.get(1), 0.0001);
+        assertEquals("meter", values.get(2));
+        assertEquals(true, values.get(3));
+        assertEquals(false, values.get(4));
+        assertEquals(3000000000L, values.get(5));
+
+        this.modbusTcp.setPipelined(true);
+        assertEquals(values.get(5), this.modbusTcp.readMultiAddressAsync(addressRead).join().get(5));
+    }
+
+    @Test
+    public void fullAddressSpace() {
+        ModbusTcpServer fullServer = new ModbusTcpServer(504, 65536);
+        fullServer.start();
+        ModbusTcp client = new ModbusTcp("127.0.0.1", 504);
+        try {
+            List<Boolean> list = Arrays.asList(true, false, true, true, false, true, false, false, true, true);
+            client.writeCoil(65526, list);
+            assertEquals(list, client.readCoil(65526, 10));
+            client.writeHoldRegister(65535, 12);
+            assertEquals(12, client.readUInt16(65535));
+        } finally {
+            client.close();
+            fullServer.stop();
+        }
+    }
+
+    @Test
+    public void requestQuantityLimits() {
+        ModbusTcpServer fullServer = new ModbusTcpServer(504, 65536);
+        fullServer.start();
+        ModbusTcp client = new ModbusTcp("127.0.0.1", 504);
+        try {
+            assertIllegalDataValue(client, new MbReadCoilRequest(0, 0x7D1));
+            assertIllegalDataValue(client, new MbReadDiscreteInputRequest(0, 0x7D1));
+            assertIllegalDataValue(client, new MbReadHoldRegisterRequest(0, 0x7E));
+            assertIllegalDataValue(client, new MbReadInputRegisterRequest(0, 0x7E));
+            assertIllegalDataValue(client, new MbWriteMultipleCoilRequest(0, 0x7B1, new byte[(0x7B1 + 7) / 8]));
+            assertIllegalDataValue(client, new MbWriteMultipleRegisterRequest(0, 0x7C, new byte[0x7C * 2]));
+
+            MbReadCoilResponse coils = (MbReadCoilResponse) client.readModbusData(1, new MbReadCoilRequest(0, 0x7D0));
+            assertEquals(0xFA, coils.getCount());
+            MbReadHoldRegisterResponse registers = (MbReadHoldRegisterResponse) client.readModbusData(1, new MbReadHoldRegisterRequest(0, 0x7D));
+            assertEquals(0xFA, registers.getCount());
+        } finally {
+            client.close();
+            fullServer.stop();
+        }
+    }
+
+    private void assertIllegalDataValue(ModbusTcp client, MbPdu reqPdu) {
+        try {
+            client.readModbusData(1, reqPdu);
+            fail("quantity above the protocol limit accepted");
+        } catch (ModbusCommException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(EMbExceptionCode.ILLEGAL_DATA_VALUE.getDescription()));
+        }
+    }
+
+    @Test
+    public void multiUnitIdBank() {
+        this.server.setUnknownUnitIdPolicy(EMbUnknownUnitIdPolicy.CREATE);
+        this.server.getBank(7).getHoldRegisters()[1] = 0x22;
+        this.modbusTcp.writeHoldRegister(1, 0, 11);
+        this.modbusTcp.writeHoldRegister(2, 0, 22);
+        assertArrayEquals(new byte[]{0x00, 0x0B}, this.modbusTcp.readHoldRegister(1, 0, 1));
+        assertArrayEquals(new byte[]{0x00, 0x16}, this.modbusTcp.readHoldRegister(2, 0, 1));
+        assertArrayEquals(new byte[]{0x00, 0x22}, this.modbusTcp.readHoldRegister(7, 0, 1));
+        assertEquals(3, this.server.getBanks().size());
+    }
+
+    @Test
+    public void unknownUnitIdShared() {
+        this.modbusTcp.writeHoldRegister(1, 0, 33);
+        assertArrayEquals(new byte[]{0x00, 0x21}, this.modbusTcp.readHoldRegister(200, 0, 1));
+        assertTrue(this.server.getBanks().isEmpty());
+    }
+
+    @Test
+    public void defaultBankAccessors() {
+        // 默认数据区的访问方法
+        this.server.getHoldRegisters()[1] = 0x31;
+        this.server.getCoils().set(2, true);
+        assertArrayEquals(new byte[]{0x00, 0x31}, this.modbusTcp.readHoldRegister(0, 1));
+        assertEquals(Arrays.asList(false, false, true), this.modbusTcp.readCoil(0, 3));
+
+        byte[] inputRegisters = new byte[this.server.getInputRegisters().length];
+        inputRegisters[3] = 0x41;
+        this.server.setInputRegisters(inputRegisters);
+        assertArrayEquals(new byte[]{0x00, 0x41}, this.modbusTcp.readInputRegister(1, 1));
+        BitTable discreteInputs = new BitTable(this.server.getDiscreteInputs().size());
+        discreteInputs.set(1, true);
+        this.server.setDiscreteInputs(discreteInputs);
+        assertEquals(Arrays.asList(false, true), this.modbusTcp.readDiscreteInput(0, 2));
+        assertSame(this.server.getDefaultBank().getHoldRegisters(), this.server.getHoldRegisters());
+    }
+
+    @Test(expected = ModbusCommException.class)
+    public void unknownUnitIdException() {
+        this.server.setUnknownUnitIdPolicy(EMbUnknownUnitIdPolicy.EXCEPTION);
+        this.server.getBank(1);
+        this.modbusTcp.writeHoldRegister(1, 0, 33);
+        this.modbusTcp.readHoldRegister(2, 0, 1);
+    }
+
+    @Test
+    public void unknownUnitIdNoResponse() {
+        this.server.setUnknownUnitIdPolicy(EMbUnknownUnitIdPolicy.NO_RESPONSE);
+        this.modbusTcp.setReceiveTimeout(500);
+        try {
+            this.modbusTcp.readHoldRegister(3, 0, 1);
+            fail();
+        } catch (RuntimeException e) {
+            assertFalse(e instanceof ModbusCommException);
+        }
+    }
+
+    @Test
+    public void manyConcurrentClients() throws Exception {
+        this.modbusTcp.writeHoldRegister(0, 0x1234);
+        List<ModbusTcp> clients = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (int i = 0; i < 120; i++) {
+                clients.add(new ModbusTcp("127.0.0.1", 503));
+            }
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (ModbusTcp client : clients) {
+                futures.add(executor.submit(() -> client.readUInt16(0)));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0x1234, future.get().intValue());
+            }
+            assertEquals(121, this.server.getConnectionNumber());
+        } finally {
+            executor.shutdown();
+            clients.forEach(ModbusTcp::close);
+        }
+    }
+
+    @Test
+    public void maxConnections() throws Exception {
+        ModbusTcpServer limitServer = new ModbusTcpServer(505);
+        limitServer.setMaxConnections(2);
+        limitServer.start();
+        ModbusTcp client1 = new ModbusTcp("127.0.0.1", 505);
+        ModbusTcp client2 = new ModbusTcp("127.0.0.1", 505);
+        ModbusTcp client3 = new ModbusTcp("127.0.0.1", 505);
+        try {
+            client1.readUInt16(0);
+            client2.readUInt16(0);
+            try {
+                client3.readUInt16(0);
+                fail();
+            } catch (RuntimeException e) {
+                // rejected
+            }
+            assertEquals(2, limitServer.getConnectionNumber());
+            client1.close();
+            Thread.sleep(200);
+            client3.close();
+            assertEquals(0, client3.readUInt16(0));
+        } finally {
+            client1.close();
+            client2.close();
+            client3.close();
+            limitServer.stop();
+        }
+    }
+
+    @Test
+    public void idleTimeout() throws Exception {
+        ModbusTcpServer idleServer = new ModbusTcpServer(506);
+        idleServer.setEngine(EServerEngine.SELECTOR);
+        idleServer.setIdleTimeout(300);
+        idleServer.start();
+        ModbusTcp client = new ModbusTcp("127.0.0.1", 506);
+        try {
+            client.readUInt16(0);
+            assertEquals(1, idleServer.getConnectionNumber());
+            Thread.sleep(1000);
+            assertEquals(0, idleServer.getConnectionNumber());
+        } finally {
+            client.close();
+            idleServer.stop();
+        }
+    }
+
+    @Test
+    public void idleTimeoutBlockingEngine() throws Exception {
+        ModbusTcpServer idleServer = new ModbusTcpServer(506);
+        idleServer.setEngine(EServerEngine.BLOCKING);
+        idleServer.setIdleTimeout(300);
+        idleServer.start();
+        ModbusTcp client = new ModbusTcp("127.0.0.1", 506);
+        try {
+            client.readUInt16(0);
+            assertEquals(1, idleServer.getConnectionNumber());
+            Thread.sleep(1000);
+            assertEquals(0, idleServer.getConnectionNumber());
+        } finally {
+            client.close();
+            idleServer.stop();
+        }
+    }
+
+    @Test
+    public void selectorWorkerBackpressure() throws Exception {
+        Set<String> handlerThreads = ConcurrentHashMap.newKeySet();
+        ModbusTcpServer slowServer = new ModbusTcpServer(507) {
+            @Override
+            protected byte[] doFrameHandle(TcpServerSession session, byte[] frame) {
+                handlerThreads.add(Thread.currentThread().getName());
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.doFrameHandle(session, frame);
+            }
+        };
+        // 1个工作线程，队列容量1，多个客户端同时请求时工作线程队列必定满
+        slowServer.setEngine(EServerEngine.SELECTOR);
+        slowServer.setMaxWorkers(1);
+        slowServer.setMaxPendingClients(1);
+        slowServer.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<ModbusTcp> clients = new ArrayList<>();
+        try {
+            slowServer.getBank(1).getHoldRegisters()[1] = 0x21;
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                ModbusTcp client = new ModbusTcp("127.0.0.1", 507);
+                client.setReceiveTimeout(10000);
+                clients.add(client);
+                futures.add(executor.submit(() -> {
+                    int sum = 0;
+                    for (int j = 0; j < 3; j++) {
+                        sum += client.readUInt16(0);
+                    }
+                    return sum;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0x21 * 3, (int) future.get());
+            }
+            // 选择器线程从不执行帧处理
+            assertFalse(handlerThreads.contains("iot-server-selector"));
+            assertEquals(4, slowServer.getConnectionNumber());
+        } finally {
+            executor.shutdownNow();
+            clients.forEach(ModbusTcp::close);
+            slowServer.stop();
+        }
+    }
+
+    @Test
+    public void readWriteHoldRegister() {
+        this.modbusTcp.writeHoldRegister(10, Arrays.asList(1, 2, 3));
+        byte[] actual = this.modbusTcp.readWriteHoldRegister(10, 3, 11, new byte[]{0x00, 0x20});
+        assertArrayEquals(new byte[]{0x00, 0x01, 0x00, 0x20, 0x00, 0x03}, actual);
+        this.modbusTcp.setPipelined(true);
+        actual = FutureUtil.join(this.modbusTcp.readWriteHoldRegisterAsync(1, 12, 1, 12, new byte[]{0x00, 0x30}));
+        assertArrayEquals(new byte[]{0x00, 0x30}, actual);
+    }
+
+    @Test
+    public void maskWriteHoldRegister() {
+        this.modbusTcp.writeHoldRegister(4, 0x12);
+        this.modbusTcp.maskWriteHoldRegister(4, 0xF2, 0x25);
+        assertEquals(0x17, this.modbusTcp.readUInt16(4));
+        this.modbusTcp.setPipelined(true);
+        FutureUtil.join(this.modbusTcp.maskWriteHoldRegisterAsync(1, 4, 0xFFF0, 0x0009));
+        assertEquals(0x19, this.modbusTcp.readUInt16(4));
+    }
+
+    @Test(expected = ModbusCommException.class)
+    public void readWriteHoldRegisterOutOfRange() {
+        this.modbusTcp.readWriteHoldRegister(1999, 2, 0, new byte[]{0x00, 0x01});
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.service;
+
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.client.FutureUtil;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbTcpRequest;
+import com.github.xingshuangs.iot.protocol.modbus.model.MbTcpResponse;
+import com.github.xingshuangs.iot.utils.HexUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+public class ModbusUdpTest {
+
+    private ModbusUdpServer server;
+    private ModbusUdp modbusUdp;
+
+    @Before
+    public void init() {
+        this.server = new ModbusUdpServer(507);
+        this.server.start();
+        this.modbusUdp = new ModbusUdp("127.0.0.1", 507);
+        this.modbusUdp.setComCallback((tag, bytes) -> System.out.printf("%s[%d] %s%n", tag, bytes.length, HexUtil.toHexString(bytes)));
+    }
+
+    @After
+    public void destroy() {
+        this.modbusUdp.close();
+        this.server.stop();
+    }
+
+    @Test
+    public void readWrite() {
+        this.modbusUdp.writeHoldRegister(2, 0x1234);
+        assertEquals(0x1234, this.modbusUdp.readUInt16(2));
+        List<Boolean> list = Arrays.asList(true, false, true);
+        this.modbusUdp.writeCoil(0, list);
+        assertEquals(list, this.modbusUdp.readCoil(0, 3));
+        this.modbusUdp.writeFloat32(10, 3.5f);
+        assertEquals(3.5f, this.modbusUdp.readFloat32(10), 0.0001);
+    }
+
+    @Test
+    public void concurrentInFlight() {
+        for (int i = 0; i < 50; i++) {
+            this.modbusUdp.writeHoldRegister(i, i * 3);
+        }
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(this.modbusUdp.readHoldRegisterAsync(i, 1));
+        }
+        for (int i = 0; i < 50; i++) {
+            byte[] bytes = FutureUtil.join(futures.get(i));
+            assertEquals(i * 3, ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF));
+        }
+    }
+
+    @Test
+    public void shareDataWithTcpServer() {
+        ModbusTcpServer tcpServer = new ModbusTcpServer(508);
+        ModbusUdpServer udpServer = new ModbusUdpServer(508, tcpServer);
+        tcpServer.start();
+        udpServer.start();
+        ModbusTcp tcp = new ModbusTcp("127.0.0.1", 508);
+        ModbusUdp udp = new ModbusUdp("127.0.0.1", 508);
+        try {
+            tcp.writeHoldRegister(1, 99);
+            assertEquals(99, udp.readUInt16(1));
+            udpServer.getBank(1).getHoldRegisters()[1] = 7;
+            assertEquals(7, tcp.readUInt16(0));
+        } finally {
+            tcp.close();
+            udp.close();
+            udpServer.stop();
+            tcpServer.stop();
+        }
+    }
+
+    @Test
+    public void retransmit() throws Exception {
+        ModbusTcpServer dataServer = new ModbusTcpServer(509);
+        AtomicInteger received = new AtomicInteger();
+        try (DatagramSocket lossy = new DatagramSocket(509)) {
+            // 丢弃第一个请求，响应重发的请求
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[260];
+                try {
+                    while (true) {
+                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                        lossy.receive(packet);
+                        if (received.incrementAndGet() == 1) {
+                            continue;
+                        }
+                        MbTcpResponse response = dataServer.requestHandle(MbTcpRequest.fromBytes(Arrays.copyOf(buffer, packet.getLength())));
+                        byte[] data = response.toByteArray();
+                        lossy.send(new DatagramPacket(data, data.length, packet.getSocketAddress()));
+                    }
+                } catch (Exception e) {
+                    // 测试结束
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            ModbusUdp udp = new ModbusUdp("127.0.0.1", 509);
+            udp.setRetransmitInterval(100);
+            try {
+                assertEquals(0, udp.readUInt16(0));
+                assertEquals(2, received.get());
+            } finally {
+                udp.close();
+            }
+        }
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void timeoutAfterRetries() {
+        ModbusUdp udp = new ModbusUdp("127.0.0.1", 510);
+        udp.setRetransmitInterval(50);
+        udp.setMaxRetries(1);
+        try {
+            udp.readUInt16(0);
+        } finally {
+            udp.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.modbus.utils;
+
+import com.github.xingshuangs.iot.exceptions.ModbusCommException;
+import com.github.xingshuangs.iot.exceptions.SocketTimeoutException;
+import com.github.xingshuangs.iot.net.ITransport;
+import com.github.xingshuangs.iot.utils.HexUtil;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class MbFrameUtilTest {
+
+    /**
+     * Transport over the byte array, at most 3 bytes per read, a read after the end times out.
+     *
+     * @param src byte array
+     * @return transport
+     */
+    private static ITransport transportOf(byte[] src) {
+        return new ITransport() {
+
+            private int position;
+
+            @Override
+            public void connect() {
+                // NOOP
+            }
+
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+                // NOOP
+            }
+
+            @Override
+            public void write(byte[] data) {
+                // NOOP
+            }
+
+            @Override
+            public int read(byte[] data, int offset, int length, int timeout) {
+                int count = Math.min(Math.min(3, length), src.length - this.position);
+                System.arraycopy(src, this.position, data, offset, count);
+                this.position += count;
+                return count;
+            }
+
+            @Override
+            public void discard() {
+                // NOOP
+            }
+        };
+    }
+
+    @Test
+    public void readRtuFrame() {
+        byte[] frame = HexUtil.toHexArray("0103040001000204B8");
+        byte[] src = HexUtil.toHexArray("0103040001000204B8FFFF");
+        assertArrayEquals(frame, MbFrameUtil.readRtuFrame(transportOf(src), 1000, 1, (byte) 0x03));
+
+        frame = HexUtil.toHexArray("01060001000AD9CD");
+        assertArrayEquals(frame, MbFrameUtil.readRtuFrame(transportOf(frame), 1000, 1, (byte) 0x06));
+
+        frame = HexUtil.toHexArray("0183028F31");
+        assertArrayEquals(frame, MbFrameUtil.readRtuFrame(transportOf(frame), 1000, 1, (byte) 0x03));
+    }
+
+    @Test
+    public void readRtuFrameResync() {
+        byte[] frame = HexUtil.toHexArray("0103040001000204B8");
+        byte[] src = HexUtil.toHexArray("00FF02010103040001000204B8");
+        assertArrayEquals(frame, MbFrameUtil.readRtuFrame(transportOf(src), 1000, 1, (byte) 0x03));
+    }
+
+    @Test
+    public void readRtuFrameLarge() {
+        byte[] src = new byte[1 + 2 + 250 + 2];
+        src[0] = 0x01;
+        src[1] = 0x03;
+        src[2] = (byte) 250;
+        assertEquals(src.length, MbFrameUtil.readRtuFrame(transportOf(src), 1000, 1, (byte) 0x03).length);
+    }
+
+    @Test(expected = ModbusCommException.class)
+    public void readRtuFrameNoHead() {
+        MbFrameUtil.readRtuFrame(transportOf(new byte[1024]), 1000, 1, (byte) 0x03);
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void readRtuFrameTruncated() {
+        MbFrameUtil.readRtuFrame(transportOf(HexUtil.toHexArray("01030400010002")), 1000, 1, (byte) 0x03);
+    }
+
+    @Test
+    public void readAsciiFrame() {
+        String frame = ":010304000100020B\r\n";
+        byte[] src = ("xx\r\n:0203" + frame).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = MbFrameUtil.readAsciiFrame(transportOf(src), 1000, 1, (byte) 0x03);
+        assertEquals(frame, new String(actual, StandardCharsets.US_ASCII));
+
+        frame = ":010600010003F5\r\n";
+        actual = MbFrameUtil.readAsciiFrame(transportOf(frame.getBytes(StandardCharsets.US_ASCII)), 1000, 1, (byte) 0x06);
+        assertEquals(frame, new String(actual, StandardCharsets.US_ASCII));
+    }
+
+    @Test(expected = ModbusCommException.class)
+    public void readAsciiFrameWithoutLf() {
+        byte[] src = ":010600010003F5\r\r".getBytes(StandardCharsets.US_ASCII);
+        MbFrameUtil.readAsciiFrame(transportOf(src), 1000, 1, (byte) 0x06);
+    }
+
+    @Test
+    public void getInterFrameGap() {
+        assertEquals(5, MbFrameUtil.getInterFrameGap(9600));
+        assertEquals(3, MbFrameUtil.getInterFrameGap(19200));
+        assertEquals(2, MbFrameUtil.getInterFrameGap(115200));
+    }
+}
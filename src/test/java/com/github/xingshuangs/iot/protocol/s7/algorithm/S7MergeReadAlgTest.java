@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021-2099 Oscura (xingshuang) <xingshuang_cool@163.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.xingshuangs.iot.protocol.s7.algorithm;
+
+import com.github.xingshuangs.iot.protocol.s7.enums.EArea;
+import com.github.xingshuangs.iot.protocol.s7.model.DataItem;
+import com.github.xingshuangs.iot.protocol.s7.model.RequestItem;
+import com.github.xingshuangs.iot.protocol.s7.utils.AddressUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class S7MergeReadAlgTest {
+
+    @Test
+    public void merge() {
+        List<RequestItem> src = Arrays.asList(
+                AddressUtil.parseByte("DB1.6", 4),
+                AddressUtil.parseByte("M0", 1),
+                AddressUtil.parseByte("DB1.0", 4),
+                AddressUtil.parseByte("DB1.4", 2),
+                AddressUtil.parseByte("DB1.100", 2),
+                AddressUtil.parseBit("M1.3"),
+                AddressUtil.parseByte("DB2.0", 2));
+        S7MergeReadAlg alg = S7MergeReadAlg.merge(src, S7MergeReadAlg.DEFAULT_MAX_GAP);
+        List<RequestItem> merged = alg.getMergedItems();
+        assertEquals(4, merged.size());
+        assertEquals(EArea.FLAGS, merged.get(0).getArea());
+        assertEquals(0, merged.get(0).getByteAddress());
+        assertEquals(2, merged.get(0).getCount());
+        assertEquals(1, merged.get(1).getDbNumber());
+        assertEquals(0, merged.get(1).getByteAddress());
+        assertEquals(10, merged.get(1).getCount());
+        assertEquals(100, merged.get(2).getByteAddress());
+        assertEquals(2, merged.get(3).getDbNumber());
+
+        assertEquals(new S7MergeItem(1, 6), alg.getPositions().get(0));
+        assertEquals(new S7MergeItem(0, 0), alg.getPositions().get(1));
+        assertEquals(new S7MergeItem(1, 4), alg.getPositions().get(3));
+        assertEquals(new S7MergeItem(0, 1), alg.getPositions().get(5));
+    }
+
+    @Test
+    public void mergeGap() {
+        List<RequestItem> src = Arrays.asList(
+                AddressUtil.parseByte("DB1.0", 2),
+                AddressUtil.parseByte("DB1.5", 2),
+                AddressUtil.parseByte("DB1.2", 1));
+        assertEquals(2, S7MergeReadAlg.merge(src, 0).getMergedItems().size());
+        assertEquals(1, S7MergeReadAlg.merge(src, 2).getMergedItems().size());
+    }
+
+    @Test
+    public void split() {
+        List<RequestItem> src = Arrays.asList(
+                AddressUtil.parseByte("DB1.2", 2),
+                AddressUtil.parseBit("DB1.0.1"),
+                AddressUtil.parseByte("DB1.0", 3));
+        S7MergeReadAlg alg = S7MergeReadAlg.merge(src, 0);
+        assertEquals(1, alg.getMergedItems().size());
+        assertEquals(4, alg.getMergedItems().get(0).getCount());
+
+        DataItem dataItem = DataItem.createReqByByte(new byte[]{(byte) 0x02, (byte) 0x11, (byte) 0x22, (byte) 0x33});
+        List<byte[]> actual = alg.split(src, Collections.singletonList(dataItem)).stream()
+                .map(DataItem::getData).collect(Collectors.toList());
+        assertArrayEquals(new byte[]{(byte) 0x22, (byte) 0x33}, actual.get(0));
+        assertArrayEquals(new byte[]{(byte) 0x01}, actual.get(1));
+        assertArrayEquals(new byte[]{(byte) 0x02, (byte) 0x11, (byte) 0x22}, actual.get(2));
+    }
+}
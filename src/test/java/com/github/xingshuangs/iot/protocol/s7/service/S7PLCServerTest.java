@@ -25,29 +25,52 @@
 package com.github.xingshuangs.iot.protocol.s7.service;
 
 import com.github.xingshuangs.iot.common.enums.EDataType;
+import com.github.xingshuangs.iot.exceptions.S7CommException;
+import com.github.xingshuangs.iot.net.client.TcpClientPool;
+import com.github.xingshuangs.iot.net.server.EServerEngine;
+import com.github.xingshuangs.iot.protocol.s7.enums.EDestinationFileSystem;
+import com.github.xingshuangs.iot.protocol.s7.enums.EFileBlockType;
+import com.github.xingshuangs.iot.protocol.s7.enums.ENckArea;
+import com.github.xingshuangs.iot.protocol.s7.enums.ENckModule;
 import com.github.xingshuangs.iot.protocol.s7.enums.EPlcType;
+import com.github.xingshuangs.iot.protocol.s7.model.Mc7File;
+import com.github.xingshuangs.iot.protocol.s7.model.RequestNckItem;
+import com.github.xingshuangs.iot.protocol.s7.model.S7Data;
 import com.github.xingshuangs.iot.protocol.s7.serializer.DemoBean;
 import com.github.xingshuangs.iot.protocol.s7.serializer.DemoLargeBean;
 import com.github.xingshuangs.iot.protocol.s7.serializer.S7Parameter;
+import com.github.xingshuangs.iot.protocol.s7.serializer.S7PreparedBean;
 import com.github.xingshuangs.iot.protocol.s7.serializer.S7Serializer;
 import com.github.xingshuangs.iot.utils.HexUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
 @Slf4j
 public class S7PLCServerTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private S7PLCServer server;
     private S7PLC s7PLC;
 
@@ -100,6 +123,137 @@ public class S7PLCServerTest {
         assertEquals((short) 33, shorts.get(1).shortValue());
     }
 
+    @Test
+    public void multiReadOddLengthTest() {
+        // 不合并，验证服务端奇数长度数据项的填充
+        this.s7PLC.setMergeRead(false);
+        this.s7PLC.writeByte("DB1.0", new byte[]{(byte) 0x01, (byte) 0x02, (byte) 0x03});
+        this.s7PLC.writeByte("M10", new byte[]{(byte) 0x04});
+        this.s7PLC.writeByte("DB2.5", new byte[]{(byte) 0x05, (byte) 0x06, (byte) 0x07, (byte) 0x08, (byte) 0x09});
+        this.s7PLC.writeBoolean("DB3.0.1", true);
+        MultiAddressRead addressRead = new MultiAddressRead();
+        addressRead.addData("DB1.0", 3)
+                .addData("M10", 1)
+                .addData("DB2.5", 5)
+                .addData("DB1.1", 2);
+        List<byte[]> actual = this.s7PLC.readMultiByte(addressRead);
+        assertArrayEquals(new byte[]{(byte) 0x01, (byte) 0x02, (byte) 0x03}, actual.get(0));
+        assertArrayEquals(new byte[]{(byte) 0x04}, actual.get(1));
+        assertArrayEquals(new byte[]{(byte) 0x05, (byte) 0x06, (byte) 0x07, (byte) 0x08, (byte) 0x09}, actual.get(2));
+        assertArrayEquals(new byte[]{(byte) 0x02, (byte) 0x03}, actual.get(3));
+        List<Boolean> booleans = this.s7PLC.readBoolean("DB3.0.1", "DB3.0.2", "M10.2");
+        assertEquals(Arrays.asList(true, false, true), booleans);
+    }
+
+    @Test
+    public void mappedStorageTest() throws IOException {
+        Path directory = this.temporaryFolder.newFolder("s7-areas").toPath();
+        S7PLCServer mappedServer = new S7PLCServer(8889, directory);
+        mappedServer.addDBArea(10);
+        mappedServer.start();
+        S7PLC client = new S7PLC(EPlcType.S1200, "127.0.0.1", 8889);
+        try {
+            client.writeInt32("DB10.4", 123456);
+            client.writeByte("M2", (byte) 0x7F);
+        } finally {
+            client.close();
+            mappedServer.stop();
+        }
+        assertTrue(Files.exists(directory.resolve("DB10.bin")));
+
+        // 重启后数据依然存在，DB10从文件加载
+        mappedServer = new S7PLCServer(8889, directory);
+        assertTrue(mappedServer.getAvailableAreas().contains("DB10"));
+        mappedServer.start();
+        client = new S7PLC(EPlcType.S1200, "127.0.0.1", 8889);
+        try {
+            assertEquals(123456, client.readInt32("DB10.4"));
+            assertEquals((byte) 0x7F, client.readByte("M2"));
+        } finally {
+            client.close();
+            mappedServer.stop();
+        }
+    }
+
+    @Test
+    public void snapshotRestoreTest() throws IOException {
+        Path file = this.temporaryFolder.newFile("s7.snap").toPath();
+        this.s7PLC.writeInt16("DB1.0", (short) 11);
+        this.s7PLC.writeInt16("DB4.0", (short) 44);
+        this.server.snapshot(file);
+        this.s7PLC.writeInt16("DB1.0", (short) 22);
+        this.s7PLC.writeInt16("DB4.0", (short) 55);
+        this.server.restore(file);
+        assertEquals((short) 11, this.s7PLC.readInt16("DB1.0"));
+        assertEquals((short) 44, this.s7PLC.readInt16("DB4.0"));
+
+        // 快照中的区域在新服务端中自动添加
+        S7PLCServer other = new S7PLCServer(8889);
+        other.restore(file);
+        assertTrue(other.getAvailableAreas().contains("DB4"));
+    }
+
+    @Test
+    public void pipelinedReadWriteTest() {
+        S7PLC pipelinedPLC = new S7PLC(EPlcType.S1200, "127.0.0.1", 8888);
+        pipelinedPLC.setPipelined(true);
+        try {
+            byte[] expect = new byte[2000];
+            for (int i = 0; i < expect.length; i++) {
+                expect[i] = (byte) i;
+            }
+            pipelinedPLC.writeByte("DB1.0", expect);
+            assertTrue(pipelinedPLC.getNegotiatedAmq() > 1);
+            byte[] actual = pipelinedPLC.readByte("DB1.0", expect.length);
+            assertArrayEquals(expect, actual);
+            List<Short> shorts = pipelinedPLC.readInt16("DB1.0", "DB1.2");
+            assertEquals((short) 0x0001, shorts.get(0).shortValue());
+            assertEquals((short) 0x0203, shorts.get(1).shortValue());
+        } finally {
+            pipelinedPLC.close();
+        }
+    }
+
+    @Test
+    public void poolReadWriteTest() {
+        int maxSize = 4;
+        TcpClientPool<S7PLC> pool = new TcpClientPool<>(() -> new S7PLC(EPlcType.S1200, "127.0.0.1", 8888), maxSize);
+        try {
+            IntStream.range(0, 40).parallel().forEach(i -> {
+                String address = "DB1." + (i * 2);
+                pool.run(plc -> plc.writeInt16(address, (short) i));
+                short actual = pool.execute(plc -> plc.readInt16(address));
+                assertEquals((short) i, actual);
+            });
+            assertTrue(pool.size() <= maxSize);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void multiClientTest() {
+        // 客户端数量超过CPU核数
+        int clientNumber = Runtime.getRuntime().availableProcessors() * 2 + 8;
+        List<S7PLC> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < clientNumber; i++) {
+                S7PLC client = new S7PLC(EPlcType.S1200, "127.0.0.1", 8888);
+                client.setConnectTimeout(2000);
+                client.setReceiveTimeout(2000);
+                client.connect();
+                clients.add(client);
+            }
+            IntStream.range(0, clientNumber).parallel().forEach(i -> {
+                String address = "DB2." + (i * 2);
+                clients.get(i).writeInt16(address, (short) i);
+                assertEquals((short) i, clients.get(i).readInt16(address));
+            });
+        } finally {
+            clients.forEach(S7PLC::close);
+        }
+    }
+
     @Test
     public void serializerTest() {
         S7Serializer s7Serializer = S7Serializer.newInstance(this.s7PLC);
@@ -137,6 +291,30 @@ public class S7PLCServerTest {
         assertEquals(LocalDateTime.of(2023, 5, 27, 12, 11, 22, 333225555), bean.getDateTimeData());
     }
 
+    @Test
+    public void prepareTest() {
+        S7PreparedBean<DemoBean> prepared = S7Serializer.newInstance(this.s7PLC).prepare(DemoBean.class);
+        DemoBean bean = new DemoBean();
+        bean.setBitData(true);
+        bean.setUint16Data(42767);
+        bean.setInt32Data(2147483647);
+        bean.setStringData("天气好");
+        bean.setDateData(LocalDate.of(2023, 5, 15));
+        bean.setTimeOfDayData(LocalTime.of(20, 22, 13));
+        bean.setDateTimeData(LocalDateTime.of(2023, 5, 27, 12, 11, 22, 333225555));
+        prepared.write(bean);
+        for (int i = 0; i < 3; i++) {
+            bean = prepared.read();
+            assertTrue(bean.getBitData());
+            assertEquals(42767, bean.getUint16Data().intValue());
+            assertEquals(2147483647, bean.getInt32Data().intValue());
+            assertEquals("天气好", bean.getStringData());
+        }
+        bean.setStringData("ok");
+        prepared.write(bean);
+        assertEquals("ok", prepared.read().getStringData());
+    }
+
     @Test
     public void serializerTest1() {
         S7Serializer s7Serializer = S7Serializer.newInstance(s7PLC);
@@ -257,4 +435,85 @@ public class S7PLCServerTest {
         write.addUInt16("DB1.12", 1);
         s7PLC.writeMultiData(write);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void downloadUploadTest() {
+        byte[] data = new byte[500];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Mc7File mc7 = new Mc7File();
+        mc7.setData(data);
+        mc7.setBlockType(EFileBlockType.DB);
+        mc7.setBlockNumber(5);
+        s7PLC.downloadFile(mc7);
+        assertArrayEquals(data, server.getBlock(EFileBlockType.DB, 5));
+
+        byte[] actual = s7PLC.uploadFile(EFileBlockType.DB, 5);
+        assertArrayEquals(data, actual);
+    }
+
+    @Test
+    public void abortedTransferTest() throws Exception {
+        for (EServerEngine engine : EServerEngine.values()) {
+            S7PLCServer transferServer = new S7PLCServer();
+            transferServer.setEngine(engine);
+            int port = 8890 + engine.ordinal();
+            transferServer.start(port);
+            try {
+                // 开始上传和下载后不结束就断开连接
+                try (Socket socket = new Socket("127.0.0.1", port)) {
+                    sendRaw(socket, S7Data.createConnectRequest(0x0100, 0x0100));
+                    sendRaw(socket, S7Data.createConnectDtData(240));
+                    sendRaw(socket, S7Data.createStartDownload(EFileBlockType.DB, 7, EDestinationFileSystem.P, 100, 100));
+                    transferServer.putBlock(EFileBlockType.DB, 6, new byte[100]);
+                    sendRaw(socket, S7Data.createStartUpload(EFileBlockType.DB, 6, EDestinationFileSystem.A));
+                    assertEquals(2, transferServer.getTransferSessionNumber());
+                }
+                long deadline = System.currentTimeMillis() + 3000;
+                while (transferServer.getTransferSessionNumber() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(0, transferServer.getTransferSessionNumber());
+            } finally {
+                transferServer.stop();
+            }
+        }
+    }
+
+    private static byte[] sendRaw(Socket socket, S7Data req) throws IOException {
+        socket.getOutputStream().write(req.toByteArray());
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        byte[] header = new byte[4];
+        in.readFully(header);
+        byte[] data = new byte[((header[2] & 0xFF) << 8 | (header[3] & 0xFF)) - 4];
+        in.readFully(data);
+        return data;
+    }
+
+    @Test(expected = S7CommException.class)
+    public void uploadAbsentBlockTest() {
+        s7PLC.uploadFile(EFileBlockType.FB, 9);
+    }
+
+    @Test
+    public void plcControlTest() {
+        assertTrue(server.isCpuRunning());
+        s7PLC.plcStop();
+        assertFalse(server.isCpuRunning());
+        s7PLC.hotRestart();
+        assertTrue(server.isCpuRunning());
+        s7PLC.plcStop();
+        s7PLC.coldRestart();
+        assertTrue(server.isCpuRunning());
+        s7PLC.copyRamToRom();
+        s7PLC.compress();
+    }
+
+    @Test
+    public void readNckTest() {
+        server.putNckData(new RequestNckItem(ENckArea.N_NCK, 1, 18030, 1, ENckModule.M, 1),
+                "000060193088FC000075".getBytes());
+        assertEquals("000060193088FC000075", s7PLC.readCncId());
+    }
+}
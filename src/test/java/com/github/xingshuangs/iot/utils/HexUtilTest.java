@@ -27,6 +27,8 @@ package com.github.xingshuangs.iot.utils;
 import com.github.xingshuangs.iot.exceptions.HexParseException;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.*;
 
 public class HexUtilTest {
@@ -91,4 +93,34 @@ public class HexUtilTest {
         actual = HexUtil.toHexString(data,"@");
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void asciiHex() {
+        byte[] src = new byte[]{(byte) 0x1A, (byte) 0x6B, (byte) 0xDE, (byte) 0x8C};
+        byte[] ascii = new byte[10];
+        HexUtil.toAsciiHex(src, 0, 4, ascii, 1);
+        assertEquals("1A6BDE8C", new String(ascii, 1, 8, StandardCharsets.US_ASCII));
+
+        byte[] actual = new byte[4];
+        HexUtil.fromAsciiHex("1a6BdE8c".getBytes(StandardCharsets.US_ASCII), 0, 4, actual, 0);
+        assertArrayEquals(src, actual);
+        assertThrows(HexParseException.class,
+                () -> HexUtil.fromAsciiHex("1G".getBytes(StandardCharsets.US_ASCII), 0, 1, actual, 0));
+    }
+
+    @Test
+    public void asciiDigits() {
+        byte[] ascii = new byte[6];
+        HexUtil.toAsciiDigits(100, 10, ascii, 0, 6);
+        assertEquals("000100", new String(ascii, StandardCharsets.US_ASCII));
+        HexUtil.toAsciiDigits(0x1A0, 16, ascii, 2, 4);
+        assertEquals("0001A0", new String(ascii, StandardCharsets.US_ASCII));
+        assertEquals(100, HexUtil.fromAsciiDigits("000100".getBytes(StandardCharsets.US_ASCII), 0, 6, 10));
+        assertEquals(0x1A0, HexUtil.fromAsciiDigits("0001a0".getBytes(StandardCharsets.US_ASCII), 0, 6, 16));
+
+        assertThrows(HexParseException.class, () -> HexUtil.toAsciiDigits(0x10000, 16, ascii, 0, 4));
+        assertThrows(HexParseException.class, () -> HexUtil.toAsciiDigits(-1, 16, ascii, 0, 4));
+        assertThrows(HexParseException.class,
+                () -> HexUtil.fromAsciiDigits("0001A0".getBytes(StandardCharsets.US_ASCII), 0, 6, 10));
+    }
 }